@@ -0,0 +1,153 @@
+/**
+ * JMH benchmarks measuring how many admissions per second the {@link pl.edu.agh.kis.pz1.Library} can handle.
+ */
+package pl.edu.agh.kis.pz1.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Writer;
+import pl.edu.agh.kis.pz1.log.EventLog;
+import pl.edu.agh.kis.pz1.log.LogLevel;
+import pl.edu.agh.kis.pz1.log.OverflowPolicy;
+import pl.edu.agh.kis.pz1.shard.ShardedLibrary;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives a full admission cycle ({@code request -> start -> stop}) with zero sleep, so the only thing being measured is
+ * the cost of getting in and out of the reading room.
+ * <p>
+ * Every benchmark thread owns one {@link Reader} and one {@link Writer} that are never started; the benchmark thread
+ * calls the {@link Library} methods on their behalf. On each invocation it picks a reader cycle or a writer cycle,
+ * with {@link #writePercent} controlling the reader:writer ratio. The thread count is set with JMH's {@code -t} option
+ * (see {@link ThreadSweep} for a ready-made sweep).
+ * </p>
+ * <p>
+ * Every {@link LibraryType} engine is measured. The {@code ReentrantReadWriteLock} and {@code StampedLock} baselines
+ * run the same mix in {@link BaselineBenchmark}, which has no capacity or shards to sweep.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AdmissionBenchmark {
+
+    /** Admission engine under test, a {@link LibraryType} name. */
+    @Param({"semaphore", "rwlock", "stamped", "aqs", "reader-pref", "writer-pref", "phase-fair", "bounded-bypass",
+            "combining", "mvcc"})
+    public String engine;
+
+    /** Percentage of cycles performed by writers, the rest are reader cycles. */
+    @Param({"0", "10", "50"})
+    public int writePercent;
+
+    /**
+     * Number of reader places of the library (of every room when sharded), {@code cores} meaning the number of available
+     * processors.
+     */
+    @Param({"1", "5", "cores"})
+    public String capacity;
+
+    /** Number of rooms of a {@link ShardedLibrary}, {@code 1} for a single library. */
+    @Param({"1", "4"})
+    public int shards;
+
+    private Library library;
+    private EventLog eventLog;
+
+    /**
+     * Creates a fresh engine for the trial. Events go to an asynchronous log rendering into a null stream and dropping
+     * events when it falls behind, so agents pay for logging but the numbers do not depend on the terminal.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventLog = new EventLog(new PrintStream(OutputStream.nullOutputStream()), EventLog.DEFAULT_CAPACITY,
+                LogLevel.DEBUG, 1, OverflowPolicy.DROP);
+        LibraryType type = LibraryType.fromName(engine);
+        library = shards > 1
+                ? new ShardedLibrary(type, shards, places(capacity), eventLog)
+                : type.create(eventLog, places(capacity));
+    }
+
+    private static int places(String capacity) {
+        return "cores".equals(capacity) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(capacity);
+    }
+
+    /**
+     * Stops the log of the trial.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventLog.close();
+    }
+
+    /**
+     * Per-thread agents and random stream used to choose between a reader and a writer cycle.
+     */
+    @State(Scope.Thread)
+    public static class Agents {
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+
+        Reader reader;
+        Writer writer;
+        SplittableRandom random;
+
+        /**
+         * Creates the agents of this benchmark thread.
+         *
+         * @param benchmark the shared benchmark state holding the library
+         */
+        @Setup(Level.Trial)
+        public void setUp(AdmissionBenchmark benchmark) {
+            int id = COUNTER.incrementAndGet();
+            reader = new Reader(benchmark.library, "bench-reader-" + id);
+            writer = new Writer(benchmark.library, "bench-writer-" + id);
+            // Each thread works on its own resource, so a sharded library spreads the threads over its rooms
+            reader.setResourceKey(id);
+            writer.setResourceKey(id);
+            random = new SplittableRandom(id);
+        }
+    }
+
+    /**
+     * One admission cycle, a writer cycle with probability {@code writePercent / 100}.
+     *
+     * @param agents the agents owned by the calling thread
+     * @throws InterruptedException if the benchmark thread is interrupted while waiting for admission
+     */
+    @Benchmark
+    public void admission(Agents agents) throws InterruptedException {
+        if (writePercent > 0 && agents.random.nextInt(100) < writePercent) {
+            library.requestWriting(agents.writer);
+            library.startWriting(agents.writer);
+            library.stopWriting(agents.writer);
+        } else {
+            library.requestReading(agents.reader);
+            library.startReading(agents.reader);
+            library.stopReading(agents.reader);
+        }
+    }
+}
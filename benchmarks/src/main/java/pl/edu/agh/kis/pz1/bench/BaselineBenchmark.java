@@ -0,0 +1,114 @@
+/**
+ * JMH benchmarks measuring how many admissions per second the {@link pl.edu.agh.kis.pz1.Library} can handle.
+ */
+package pl.edu.agh.kis.pz1.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Runs the read/write mix of {@link AdmissionBenchmark} on plain JDK locks, so every change to
+ * {@link pl.edu.agh.kis.pz1.Library} can be compared against what the JDK offers out of the box.
+ * <p>
+ * The locks have neither a reader limit nor rooms, so unlike {@link AdmissionBenchmark} this benchmark does not sweep
+ * the capacity and the number of shards; a trial is run once per lock and write percentage.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BaselineBenchmark {
+
+    /** Lock under test: {@code ReentrantReadWriteLock}, unfair or fair, or {@code StampedLock}. */
+    @Param({"baseline-rrwl", "baseline-rrwl-fair", "baseline-stamped"})
+    public String engine;
+
+    /** Percentage of cycles performed by writers, the rest are reader cycles. */
+    @Param({"0", "10", "50"})
+    public int writePercent;
+
+    private ReentrantReadWriteLock readWriteLock;
+    private StampedLock stampedLock;
+
+    /**
+     * Creates a fresh lock for the trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (engine) {
+            case "baseline-rrwl":
+                readWriteLock = new ReentrantReadWriteLock(false);
+                break;
+            case "baseline-rrwl-fair":
+                readWriteLock = new ReentrantReadWriteLock(true);
+                break;
+            case "baseline-stamped":
+                stampedLock = new StampedLock();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown baseline: " + engine);
+        }
+    }
+
+    /**
+     * Per-thread random stream used to choose between a reader and a writer cycle.
+     */
+    @State(Scope.Thread)
+    public static class Choice {
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+
+        SplittableRandom random;
+
+        /**
+         * Seeds the random stream of this benchmark thread.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(COUNTER.incrementAndGet());
+        }
+    }
+
+    /**
+     * One lock and unlock, of the write lock with probability {@code writePercent / 100}.
+     *
+     * @param choice the random stream owned by the calling thread
+     */
+    @Benchmark
+    public void admission(Choice choice) {
+        boolean write = writePercent > 0 && choice.random.nextInt(100) < writePercent;
+        if (stampedLock != null) {
+            if (write) {
+                stampedLock.unlockWrite(stampedLock.writeLock());
+            } else {
+                stampedLock.unlockRead(stampedLock.readLock());
+            }
+        } else if (write) {
+            readWriteLock.writeLock().lock();
+            readWriteLock.writeLock().unlock();
+        } else {
+            readWriteLock.readLock().lock();
+            readWriteLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * JMH benchmarks measuring what reporting a single event costs an agent, per kind of listener.
+ */
+package pl.edu.agh.kis.pz1.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.log.EventLog;
+import pl.edu.agh.kis.pz1.log.LogLevel;
+import pl.edu.agh.kis.pz1.log.OverflowPolicy;
+import pl.edu.agh.kis.pz1.trace.TraceRecorder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reports the same event over and over to one listener, from several threads, to compare the overhead of the
+ * asynchronous text log (dropping when it falls behind) with the memory-mapped binary {@link TraceRecorder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ListenerBenchmark {
+
+    /** Listener under test: {@code none}, {@code log} or {@code trace}. */
+    @Param({"none", "log", "trace"})
+    public String listener;
+
+    private LibraryEventListener target;
+    private AutoCloseable closeable;
+    private Path directory;
+    private final Reader agent = new Reader(null, "bench-reader");
+
+    /**
+     * Creates the listener of the trial; the trace goes to a temporary directory with 16 segments of 64 MiB.
+     *
+     * @throws IOException if the trace cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (listener) {
+            case "log":
+                EventLog log = new EventLog(new PrintStream(OutputStream.nullOutputStream()), EventLog.DEFAULT_CAPACITY,
+                        LogLevel.DEBUG, 1, OverflowPolicy.DROP);
+                target = log;
+                closeable = log;
+                break;
+            case "trace":
+                directory = Files.createTempDirectory("trace-bench");
+                TraceRecorder recorder = new TraceRecorder(directory, TraceRecorder.DEFAULT_SEGMENT_SIZE, 16);
+                target = recorder;
+                closeable = recorder;
+                break;
+            default:
+                target = LibraryEventListener.NONE;
+                break;
+        }
+    }
+
+    /**
+     * Closes the listener and deletes the trace.
+     *
+     * @throws Exception if the listener or the trace cannot be closed
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (closeable != null) {
+            closeable.close();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports one event.
+     */
+    @Benchmark
+    public void onEvent() {
+        target.onEvent(System.nanoTime(), EventType.READ_STARTED, agent, 3, 5);
+    }
+}
@@ -0,0 +1,109 @@
+package pl.edu.agh.kis.pz1.bench;
+
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.Writer;
+import pl.edu.agh.kis.pz1.metrics.LatencyHistogram;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares the tail wait times of the admission engines under a read-heavy load, to choose a fairness policy from
+ * measurements rather than from throughput alone.
+ * <p>
+ * Every engine runs for the same time with the same agents: many readers and a few writers, each holding the room for
+ * a short fixed time and immediately asking again. The table shows the p50, p99 and p99.9 queue wait per role, taken
+ * from the {@link LibraryMetrics} of the library.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar pl.edu.agh.kis.pz1.bench.PolicyComparison [seconds] [readers] [writers]}.
+ * Defaults: 5 seconds, 32 readers, 2 writers.
+ * </p>
+ */
+public class PolicyComparison {
+    private static final long HOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final LibraryType[] ENGINES = {LibraryType.SEMAPHORE, LibraryType.AQS,
+            LibraryType.READER_PREFERENCE, LibraryType.WRITER_PREFERENCE, LibraryType.PHASE_FAIR,
+            LibraryType.BOUNDED_BYPASS, LibraryType.COMBINING};
+
+    /**
+     * Entry point of the comparison.
+     *
+     * @param args optional run time in seconds, number of readers and number of writers
+     * @throws InterruptedException if interrupted while waiting for the agents
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        System.out.printf(Locale.ROOT, "%-15s %-7s %10s %12s %12s %12s%n",
+                "engine", "role", "admissions", "p50 [us]", "p99 [us]", "p99.9 [us]");
+        for (LibraryType engine : ENGINES) {
+            LibraryMetrics metrics = run(engine.create(LibraryEventListener.NONE), seconds, readers, writers);
+            for (Role role : Role.values()) {
+                LatencyHistogram waits = metrics.getWaitHistogram(role);
+                System.out.printf(Locale.ROOT, "%-15s %-7s %10d %12.1f %12.1f %12.1f%n",
+                        engine.getCliName(), role.label(), metrics.getAdmissions(role),
+                        waits.getQuantile(0.5) / 1e3, waits.getQuantile(0.99) / 1e3, waits.getQuantile(0.999) / 1e3);
+            }
+        }
+    }
+
+    /**
+     * Runs the load against a library.
+     *
+     * @param library the library under test
+     * @param seconds how long to run
+     * @param readers the number of reader threads
+     * @param writers the number of writer threads
+     * @return the metrics recorded by the library
+     * @throws InterruptedException if interrupted while waiting for the agents
+     */
+    static LibraryMetrics run(Library library, long seconds, int readers, int writers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            Reader reader = new Reader(library, "reader-" + i);
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        library.requestReading(reader);
+                        library.startReading(reader);
+                        LockSupport.parkNanos(HOLD_NANOS);
+                        library.stopReading(reader);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int i = 0; i < writers; i++) {
+            Writer writer = new Writer(library, "writer-" + i);
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        library.requestWriting(writer);
+                        library.startWriting(writer);
+                        LockSupport.parkNanos(HOLD_NANOS);
+                        library.stopWriting(writer);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return library.getMetrics();
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Runner sweeping the admission benchmarks over a range of thread counts.
+ */
+package pl.edu.agh.kis.pz1.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs {@link AdmissionBenchmark} and {@link BaselineBenchmark} once for every requested thread count and writes one
+ * JSON result file per run ({@code admission-t<threads>.json}).
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar pl.edu.agh.kis.pz1.bench.ThreadSweep [threads...]}. Without arguments it uses
+ * 1, 2, 4, 8 and the number of available processors.
+ * </p>
+ */
+public class ThreadSweep {
+
+    /**
+     * Entry point of the sweep.
+     *
+     * @param args thread counts to run with, optional
+     * @throws RunnerException if JMH fails to run a benchmark
+     */
+    public static void main(String[] args) throws RunnerException {
+        int[] threadCounts = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 2, 4, 8, Runtime.getRuntime().availableProcessors()};
+
+        for (int threads : Arrays.stream(threadCounts).distinct().sorted().toArray()) {
+            Options options = new OptionsBuilder()
+                    .include(AdmissionBenchmark.class.getSimpleName())
+                    .include(BaselineBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("admission-t" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package pl.edu.agh.kis.pz1;
+
+import pl.edu.agh.kis.pz1.doc.VersionedDocument;
+import pl.edu.agh.kis.pz1.log.EventLog;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Base class of the {@link Library} engines. It keeps the bookkeeping shared by all of them: the agents awaiting
+ * access, the active readers and the reporting of events to a {@link LibraryEventListener}. The actual admission is delegated to the subclasses through
+ * {@link #tryAcquireRead(long)}, {@link #acquireRead()}, {@link #releaseRead()} and their writer counterparts.
+ * <p>
+ * Both views are keyed by the agents' {@linkplain Agent#getId() int ids}: the readers are an {@link AgentSet}, a
+ * lock-free paged bitset, and the awaiting agents a {@link WaitQueue}, a FIFO list linked through int arrays. Adding
+ * and removing an agent is O(1) in both, allocates nothing and costs a few bytes per id. An agent that can be admitted
+ * immediately is never put in the awaiting view at all, so an uncontended reader gets in with a single compare-and-set
+ * on the engine and one on the readers' bitset.
+ * </p>
+ * <p>
+ * Events are only handed to the listener, which must not block; by default it is the shared asynchronous
+ * {@link EventLog#console()}, so no console I/O ever happens on the admission path.
+ * </p>
+ * <p>
+ * Every library also records its own {@link LibraryMetrics}: the wait of each agent from its request to its admission
+ * and the time it spends inside, measured with the timestamps the library stores on the {@link Agent}.
+ * </p>
+ * <p>
+ * The {@linkplain #getDocument() document} of the library is versioned: a reader gets a snapshot when it starts
+ * reading and keeps it until it stops, and the edit staged by a writer is published when it stops writing, while it
+ * still has the room for itself.
+ * </p>
+ * <p>
+ * A timed request ({@link #tryRequestReading(Reader, long, TimeUnit)}) waits in the engine with
+ * {@link #tryAcquireRead(long)}, whose places are taken all at once or not at all, so a writer that times out never
+ * keeps part of the room. On a timeout the agent leaves the awaiting view, the timeout is counted in the metrics and
+ * the parked requests are granted again, since the engine may have held them back for the agent that gave up.
+ * </p>
+ * <p>
+ * Asynchronous requests that cannot be granted right away are parked in a FIFO queue of {@link ParkedRequest}s
+ * instead of on a thread. Whoever gives a place back (a stopping agent, a closed {@link Lease} or a resize) then
+ * grants as many of them as the engine admits, in order, with non-blocking acquires. Threads already blocked in the
+ * engine keep the precedence the engine gives them.
+ * </p>
+ * <p>
+ * The library counts the requests in progress, from the request to the stop or to the withdrawal of the request.
+ * After {@link #shutdown()} new requests are rejected, and the library terminates when that count drops to zero.
+ * </p>
+ */
+public abstract class AbstractLibrary implements Library {
+    /** Number of readers allowed in the reading room at the same time unless configured otherwise. */
+    public static final int DEFAULT_CAPACITY = 5;
+    private volatile int capacity;  // Maximum number of readers allowed at the same time
+    private final WaitQueue awaiting = new WaitQueue();  // Agents awaiting access (readers and writers), in arrival order
+    private final AgentSet readers = new AgentSet();  // Set of active readers
+    private volatile Writer writing;  // Writer that started writing and has not stopped, for diagnostics
+    private final LibraryEventListener listener;  // Receives every event of the library
+    private final LibraryMetrics metrics;  // Wait and hold times, admission counters
+    private final VersionedDocument<List<String>> document = new VersionedDocument<>(List.of());  // Shared catalog
+    private final ConcurrentLinkedQueue<ParkedRequest> parked = new ConcurrentLinkedQueue<>();  // Asynchronous waiters
+    private final AtomicInteger granting = new AtomicInteger();  // Pending passes over the parked requests
+    private final AtomicInteger inProgress = new AtomicInteger();  // Requests accepted and not stopped or withdrawn
+    private final CountDownLatch terminated = new CountDownLatch(1);  // Released once shut down with none in progress
+    private volatile boolean shutdown;
+
+    /**
+     * Constructor that initializes the awaiting and readers views and logs to the shared console log.
+     */
+    protected AbstractLibrary() {
+        this(EventLog.console());
+    }
+
+    /**
+     * Constructor that initializes the awaiting and readers views with the default capacity.
+     *
+     * @param listener the listener receiving the events of this library
+     */
+    protected AbstractLibrary(LibraryEventListener listener) {
+        this(listener, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor that initializes the awaiting and readers views.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param capacity the number of readers allowed in the reading room at the same time
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    protected AbstractLibrary(LibraryEventListener listener, int capacity) {
+        this.capacity = checkCapacity(capacity);
+        this.listener = listener;
+        metrics = new LibraryMetrics(this::getCapacity, readers::size, awaiting::size);
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        return capacity;
+    }
+
+    /**
+     * Tries to let a single reader into the reading room, waiting at most the given time. A zero timeout never blocks.
+     * Implementations must not let the reader overtake agents already waiting if the engine is fair.
+     *
+     * @param timeoutNanos the maximum time to wait, in nanoseconds
+     * @return {@code true} if the reader was admitted
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    protected abstract boolean tryAcquireRead(long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Blocks until a single reader may enter the reading room.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    protected abstract void acquireRead() throws InterruptedException;
+
+    /**
+     * Gives back the place taken by {@link #acquireRead()}.
+     */
+    protected abstract void releaseRead();
+
+    /**
+     * Tries to give a writer the reading room for itself, waiting at most the given time. A zero timeout never blocks.
+     *
+     * @param timeoutNanos the maximum time to wait, in nanoseconds
+     * @return {@code true} if the writer was admitted
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    protected abstract boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Blocks until a writer has the reading room for itself.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    protected abstract void acquireWrite() throws InterruptedException;
+
+    /**
+     * Opens the reading room taken by {@link #acquireWrite()} again.
+     */
+    protected abstract void releaseWrite();
+
+    /**
+     * Changes the number of reader places of the engine. Called with resizes serialized, before the new capacity is
+     * visible through {@link #getCapacity()}. Must not block: readers already inside above a smaller capacity are let
+     * finish, and an agent already waiting must still be admitted eventually.
+     *
+     * @param oldCapacity the current capacity
+     * @param newCapacity the requested capacity, different from the current one
+     */
+    protected abstract void resizeCapacity(int oldCapacity, int newCapacity);
+
+    /**
+     * Tells whether a place taken by {@link #tryAcquireRead(long)} or {@link #tryAcquireWrite(long)} can only be given
+     * back by the thread that took it. Such engines do not support asynchronous requests, whose places are taken and
+     * given back on arbitrary threads.
+     *
+     * @return {@code true} if the places of the engine are owned by threads
+     */
+    protected boolean isThreadBound() {
+        return false;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the number of readers allowed in the reading room at the same time. Shrinking does not evict anybody:
+     * readers already inside finish normally, and no new reader is admitted until the room has drained below the new
+     * capacity. Writers already waiting are admitted as usual. Engines whose writers do not count reader places apply
+     * the new capacity immediately; {@link SemaphoreLibrary} first serves the agents already queued.
+     *
+     * @param capacity the new capacity
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    @Override
+    public synchronized void resize(int capacity) {
+        checkCapacity(capacity);
+        if (capacity != this.capacity) {
+            resizeCapacity(this.capacity, capacity);
+            this.capacity = capacity;
+            grantParked();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the agents currently awaiting access, in order of arrival.
+     *
+     * @return a new list with the awaiting agents
+     */
+    public ArrayList<Agent> getAwaiting() {
+        return awaiting.toList();
+    }
+
+    /**
+     * Returns a snapshot of the readers currently in the reading room.
+     *
+     * @return a new list with the active readers, in order of their ids
+     */
+    public ArrayList<Agent> getReaders() {
+        return readers.toList();
+    }
+
+    /**
+     * Returns the agent waiting the longest, without locking anything.
+     *
+     * @return the oldest awaiting agent, or {@code null} if nobody waits
+     */
+    Agent oldestAwaiting() {
+        return awaiting.oldest();
+    }
+
+    /**
+     * Returns the number of readers that started reading and have not stopped, without locking anything.
+     *
+     * @return the size of the readers view
+     */
+    int readersInside() {
+        return readers.size();
+    }
+
+    /**
+     * Returns the writer that started writing and has not stopped.
+     *
+     * @return the writer inside, or {@code null}
+     */
+    Writer activeWriter() {
+        return writing;
+    }
+
+    @Override
+    public LibraryMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public VersionedDocument<List<String>> getDocument() {
+        return document;
+    }
+
+    /**
+     * Starts reading by a {@link Reader}. Updates the awaiting and readers views and gives the reader a snapshot of
+     * the document.
+     *
+     * @param reader the {@link Reader} requesting to start reading
+     */
+    @Override
+    public void startReading(Reader reader) {
+        reader.setSnapshot(document.snapshot());
+        awaiting.remove(reader);
+        readers.add(reader);
+        emit(EventType.READ_STARTED, reader);
+    }
+
+    /**
+     * Stops reading by a {@link Reader}. Updates the readers view, closes the reader's snapshot and releases the
+     * reader's place.
+     *
+     * @param reader the {@link Reader} requesting to stop reading
+     */
+    @Override
+    public void stopReading(Reader reader) {
+        readers.remove(reader);
+        reader.closeSnapshot();
+        releaseRead();
+        long now = System.nanoTime();
+        metrics.recordRelease(Role.READER, now - reader.getAdmittedAtNanos());
+        emit(now, EventType.READ_STOPPED, reader);
+        grantParked();
+        finished();
+    }
+
+    /**
+     * Starts writing by a {@link Writer}. Updates the awaiting view.
+     *
+     * @param writer the {@link Writer} requesting to start writing
+     */
+    @Override
+    public void startWriting(Writer writer) {
+        awaiting.remove(writer);
+        writing = writer;
+        emit(EventType.WRITE_STARTED, writer);
+    }
+
+    /**
+     * Stops writing by a {@link Writer}, publishes the edit it staged, if any, and opens the reading room again.
+     *
+     * @param writer the {@link Writer} requesting to stop writing
+     */
+    @Override
+    public void stopWriting(Writer writer) {
+        UnaryOperator<List<String>> edit = writer.takeEdit();
+        if (edit != null) {
+            document.update(edit);
+        }
+        writing = null;
+        releaseWrite();
+        long now = System.nanoTime();
+        metrics.recordRelease(Role.WRITER, now - writer.getAdmittedAtNanos());
+        emit(now, EventType.WRITE_STOPPED, writer);
+        grantParked();
+        finished();
+    }
+
+    /**
+     * Requests writing access for a {@link Writer}. If the reading room cannot be taken right away, the writer
+     * is added to the awaiting view and waits until it has the room for itself.
+     *
+     * @param writer the {@link Writer} requesting writing access
+     * @throws InterruptedException       if the thread is interrupted while waiting
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    @Override
+    public void requestWriting(Writer writer) throws InterruptedException {
+        accept();
+        long requestedAt = requested(EventType.WRITE_REQUESTED, writer);
+        if (!tryAcquireWrite(0)) {
+            awaiting.add(writer);
+            metrics.recordQueueDepth(awaiting.size());
+            try {
+                acquireWrite();
+            } catch (InterruptedException e) {
+                awaiting.remove(writer);
+                finished();
+                throw e;
+            }
+        }
+        admitted(writer, requestedAt);
+    }
+
+    /**
+     * Requests reading access for a {@link Reader}. If there is no free place right away, the reader is added
+     * to the awaiting view and waits for one.
+     *
+     * @param reader the {@link Reader} requesting reading access
+     * @throws InterruptedException       if the thread is interrupted while waiting
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    @Override
+    public void requestReading(Reader reader) throws InterruptedException {
+        accept();
+        long requestedAt = requested(EventType.READ_REQUESTED, reader);
+        if (!tryAcquireRead(0)) {
+            awaiting.add(reader);
+            metrics.recordQueueDepth(awaiting.size());
+            try {
+                acquireRead();
+            } catch (InterruptedException e) {
+                awaiting.remove(reader);
+                finished();
+                throw e;
+            }
+        }
+        admitted(reader, requestedAt);
+    }
+
+    @Override
+    public boolean tryRequestReading(Reader reader, long timeout, TimeUnit unit) throws InterruptedException {
+        return tryRequest(EventType.READ_REQUESTED, reader, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean tryRequestWriting(Writer writer, long timeout, TimeUnit unit) throws InterruptedException {
+        return tryRequest(EventType.WRITE_REQUESTED, writer, unit.toNanos(timeout));
+    }
+
+    /**
+     * Requests access waiting at most the given time, and withdraws the request if the time runs out or the thread
+     * is interrupted.
+     *
+     * @param type         the kind of request
+     * @param agent        the agent requesting access
+     * @param timeoutNanos the maximum time to wait, in nanoseconds
+     * @return {@code true} if the agent was admitted
+     * @throws InterruptedException       if the thread is interrupted while waiting
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    private boolean tryRequest(EventType type, Agent agent, long timeoutNanos) throws InterruptedException {
+        accept();
+        long requestedAt = requested(type, agent);
+        boolean reader = type.getRole() == Role.READER;
+        if (!(reader ? tryAcquireRead(0) : tryAcquireWrite(0))) {
+            boolean acquired = false;
+            try {
+                if (timeoutNanos > 0) {
+                    awaiting.add(agent);
+                    metrics.recordQueueDepth(awaiting.size());
+                    try {
+                        long left = Math.max(0, timeoutNanos - (System.nanoTime() - requestedAt));
+                        acquired = reader ? tryAcquireRead(left) : tryAcquireWrite(left);
+                    } finally {
+                        if (!acquired) {
+                            awaiting.remove(agent);
+                            grantParked();
+                        }
+                    }
+                }
+            } finally {
+                if (!acquired) {
+                    finished();
+                }
+            }
+            if (!acquired) {
+                metrics.recordTimeout(agent.getRole());
+                emit(reader ? EventType.READ_TIMED_OUT : EventType.WRITE_TIMED_OUT, agent);
+                return false;
+            }
+        }
+        admitted(agent, requestedAt);
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Lease> requestReadingAsync(Reader reader) {
+        return requestAsync(EventType.READ_REQUESTED, reader);
+    }
+
+    @Override
+    public CompletableFuture<Lease> requestWritingAsync(Writer writer) {
+        return requestAsync(EventType.WRITE_REQUESTED, writer);
+    }
+
+    /**
+     * Grants an asynchronous request right away if nobody is parked before it and the engine admits the agent,
+     * otherwise parks it.
+     *
+     * @param type  the kind of request
+     * @param agent the agent requesting access
+     * @return the future of the lease
+     */
+    private CompletableFuture<Lease> requestAsync(EventType type, Agent agent) {
+        if (isThreadBound()) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support asynchronous requests");
+        }
+        try {
+            accept();
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        ParkedRequest request = new ParkedRequest(agent, requested(type, agent));
+        if (parked.isEmpty() && tryGrant(request)) {
+            return request.lease;
+        }
+        awaiting.add(agent);
+        metrics.recordQueueDepth(awaiting.size());
+        parked.add(request);
+        request.lease.whenComplete((lease, failure) -> {
+            if (failure != null) {
+                // Cancelled or failed while parked: withdraw it, the requests behind it may be grantable now
+                awaiting.remove(agent);
+                request.withdraw();
+                grantParked();
+            }
+        });
+        // A place freed between the failed attempt and parking would otherwise be missed
+        grantParked();
+        return request.lease;
+    }
+
+    /**
+     * Grants the parked requests in order, as long as the engine admits them. Concurrent calls are merged: a call made
+     * while another thread is granting only makes that thread do one more pass.
+     */
+    private void grantParked() {
+        if (parked.isEmpty() || granting.getAndIncrement() != 0) {
+            return;
+        }
+        int passes = 1;
+        do {
+            for (ParkedRequest head = parked.peek(); head != null; head = parked.peek()) {
+                if (!head.lease.isDone() && !tryGrant(head)) {
+                    break;
+                }
+                parked.poll();
+            }
+            passes = granting.addAndGet(-passes);
+        } while (passes != 0);
+    }
+
+    /**
+     * Tries to admit the agent of a request without waiting, and completes its future with a lease if it succeeds.
+     * A lease nobody can receive any more, because the future was cancelled meanwhile, is given back at once.
+     *
+     * @param request the asynchronous request
+     * @return {@code true} if the agent was admitted
+     */
+    private boolean tryGrant(ParkedRequest request) {
+        Agent agent = request.agent;
+        if (!request.state.compareAndSet(ParkedRequest.PARKED, ParkedRequest.GRANTING)) {
+            return true;  // Withdrawn meanwhile, nothing to grant
+        }
+        boolean interrupted = Thread.interrupted();  // A zero timeout never waits, so the interrupt can be delivered later
+        boolean acquired;
+        try {
+            acquired = agent.getRole() == Role.READER ? tryAcquireRead(0) : tryAcquireWrite(0);
+        } catch (InterruptedException e) {
+            acquired = false;
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!acquired) {
+            request.state.set(ParkedRequest.PARKED);
+            if (request.lease.isDone()) {
+                request.withdraw();  // Cancelled while this thread held it, so the withdrawal was left to it
+            }
+            return false;
+        }
+        request.state.set(ParkedRequest.SETTLED);  // From now on the lease accounts for the request
+        admitted(agent, request.requestedAt);
+        Lease lease;
+        if (agent instanceof Reader reader) {
+            startReading(reader);
+            lease = new Lease(reader, () -> stopReading(reader));
+        } else {
+            Writer writer = (Writer) agent;
+            startWriting(writer);
+            lease = new Lease(writer, () -> stopWriting(writer));
+        }
+        if (!request.lease.complete(lease)) {
+            lease.close();
+        }
+        return true;
+    }
+
+    /**
+     * An asynchronous request waiting for a place.
+     */
+    private final class ParkedRequest {
+        private static final int PARKED = 0;
+        private static final int GRANTING = 1;  // A thread is trying to admit the agent
+        private static final int SETTLED = 2;  // Granted, or withdrawn and counted as finished
+
+        private final Agent agent;
+        private final long requestedAt;
+        private final CompletableFuture<Lease> lease = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(PARKED);
+
+        ParkedRequest(Agent agent, long requestedAt) {
+            this.agent = agent;
+            this.requestedAt = requestedAt;
+        }
+
+        /**
+         * Counts a request that will never be granted as finished, unless it was granted or is being granted.
+         */
+        void withdraw() {
+            if (state.compareAndSet(PARKED, SETTLED)) {
+                finished();
+            }
+        }
+    }
+
+    /**
+     * Stops admitting new requests: from now on every request fails with a {@link RejectedExecutionException}. The
+     * requests already made are still served, and the agents inside finish their visits normally. Calling it again has
+     * no effect.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (inProgress.get() == 0) {
+            terminated.countDown();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Counts a new request in progress, or rejects it if the library was shut down.
+     *
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    private void accept() {
+        inProgress.incrementAndGet();
+        if (shutdown) {
+            finished();
+            throw new RejectedExecutionException(getClass().getSimpleName() + " was shut down");
+        }
+    }
+
+    /**
+     * Counts a request as finished: stopped, timed out, interrupted or withdrawn.
+     */
+    private void finished() {
+        if (inProgress.decrementAndGet() == 0 && shutdown) {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Stamps and records a request for access and reports it to the listener.
+     *
+     * @param type  the kind of request
+     * @param agent the agent requesting access
+     * @return the time of the request
+     */
+    private long requested(EventType type, Agent agent) {
+        long now = System.nanoTime();
+        agent.setRequestedAtNanos(now);
+        metrics.recordRequest(type.getRole());
+        emit(now, type, agent);
+        return now;
+    }
+
+    /**
+     * Stamps and records the admission of an agent.
+     *
+     * @param agent       the admitted agent
+     * @param requestedAt the time of its request
+     */
+    private void admitted(Agent agent, long requestedAt) {
+        long now = System.nanoTime();
+        agent.setAdmittedAtNanos(now);
+        metrics.recordAdmission(agent.getRole(), now - requestedAt);
+    }
+
+    /**
+     * Reports an event of an agent to the listener with the current time.
+     *
+     * @param type  the kind of event
+     * @param agent the reader or writer the event concerns
+     */
+    private void emit(EventType type, Agent agent) {
+        emit(System.nanoTime(), type, agent);
+    }
+
+    /**
+     * Reports an event of an agent to the listener, together with the current size of both views.
+     *
+     * @param timestampNanos when the event happened
+     * @param type           the kind of event
+     * @param agent          the reader or writer the event concerns
+     */
+    private void emit(long timestampNanos, EventType type, Agent agent) {
+        listener.onEvent(timestampNanos, type, agent, awaiting.size(), readers.size());
+    }
+}
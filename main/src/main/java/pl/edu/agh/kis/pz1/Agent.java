@@ -0,0 +1,334 @@
+package pl.edu.agh.kis.pz1;
+
+import pl.edu.agh.kis.pz1.util.NumUtils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class of the simulated library users ({@link Reader} and {@link Writer}).
+ * <p>
+ * An agent is a task, not a thread: it can be started on its own platform thread with {@link #start()}, or handed to
+ * any {@link Executor} with {@link #start(Executor)}, for example one running each task on a virtual thread (see
+ * {@link ExecutionMode}). It keeps the familiar part of the {@link Thread} API ({@code getName}, {@code interrupt},
+ * {@code isInterrupted}, {@code join}, {@code isAlive}) and forwards an interrupt to whichever thread is running it.
+ * </p>
+ */
+public abstract class Agent implements Runnable {
+    private final int id = AgentRegistry.nextId();
+    private final SplittableRandom random = NumUtils.stream(id);  // Used only by the thread running the agent
+    private volatile String name;  // Explicit name, null to show the default one of the registry
+    private volatile Thread runner;  // Thread currently executing the agent, null before and after the run
+    private volatile boolean interrupted;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final CountDownLatch retired = new CountDownLatch(1);  // Released by retire(), wakes an idle agent
+    private volatile long requestedAtNanos;  // When the agent last requested access, set by the library
+    private volatile long admittedAtNanos;  // When the agent was last admitted, set by the library
+    private volatile long resourceKey;  // Resource the agent works on, used to route it in a sharded library
+    private volatile RetryPolicy retryPolicy;  // Bounded waits and backoff, null to wait for as long as it takes
+    private final AtomicLong givenUp = new AtomicLong();  // Visits given up after every attempt timed out
+
+    /**
+     * One attempt of a timed request, for example {@code timeout -> library.tryRequestReading(this, timeout, unit)}.
+     */
+    @FunctionalInterface
+    protected interface TimedRequest {
+        /**
+         * Requests access waiting at most the given time.
+         *
+         * @param timeoutMillis the maximum wait in milliseconds
+         * @return {@code true} if the agent was admitted
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        boolean tryRequest(long timeoutMillis) throws InterruptedException;
+    }
+
+    /**
+     * The behavior of the agent, executed once by {@link #run()} on the thread running the agent.
+     */
+    protected abstract void act();
+
+    /**
+     * Returns the role of the agent in the library.
+     *
+     * @return the role of the agent
+     */
+    public abstract Role getRole();
+
+    /**
+     * Returns the id of the agent, unique within the JVM. Ids are dense and start at 1, so they are cheap to store in
+     * traces and primitive collections; {@link AgentRegistry#nameOf(int)} turns one back into a name.
+     *
+     * @return the id of the agent
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the random stream of the agent, derived from the master seed of {@link NumUtils} and the id, so an agent
+     * draws the same times in every run with the same seed. It may only be used by the thread running the agent.
+     *
+     * @return the random stream of the agent
+     */
+    protected SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the name of the agent.
+     *
+     * @return the name given to the agent, or {@code #id} if it has none
+     */
+    public String getName() {
+        String explicit = name;
+        return explicit != null ? explicit : AgentRegistry.defaultName(id);
+    }
+
+    /**
+     * Changes the name of the agent and records it in the {@link AgentRegistry}.
+     *
+     * @param name the new name, or {@code null} for the default {@code #id}
+     */
+    public void setName(String name) {
+        String previous = this.name;
+        this.name = name;
+        if (name != null || previous != null) {
+            AgentRegistry.setName(this, name);
+        }
+    }
+
+    /**
+     * Returns the key of the resource the agent reads or writes. Agents with the same key always go to the same room
+     * of a {@link pl.edu.agh.kis.pz1.shard.ShardedLibrary}.
+     *
+     * @return the resource key, 0 unless assigned
+     */
+    public long getResourceKey() {
+        return resourceKey;
+    }
+
+    /**
+     * Changes the key of the resource the agent reads or writes. Must not be changed while the agent is inside or
+     * waiting for a library.
+     *
+     * @param resourceKey the new resource key
+     */
+    public void setResourceKey(long resourceKey) {
+        this.resourceKey = resourceKey;
+    }
+
+    /**
+     * Returns how the agent asks for access.
+     *
+     * @return the retry policy, or {@code null} if the agent waits for as long as it takes
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Changes how the agent asks for access, from its next request on.
+     *
+     * @param retryPolicy the retry policy, or {@code null} to wait for as long as it takes
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the number of visits the agent gave up because every attempt of its {@link RetryPolicy} timed out.
+     *
+     * @return the number of visits given up
+     */
+    public long getGivenUpVisits() {
+        return givenUp.get();
+    }
+
+    /**
+     * Makes the attempts of a visit under the given retry policy, backing off between them. The backoff is cut short,
+     * and no more attempts are made, if the agent is {@linkplain #retire() retired}.
+     *
+     * @param policy  the retry policy
+     * @param request one attempt
+     * @return {@code true} if the agent was admitted, {@code false} if it gave the visit up
+     * @throws InterruptedException if the thread running the agent is interrupted
+     */
+    protected boolean retry(RetryPolicy policy, TimedRequest request) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            if (request.tryRequest(policy.getTimeoutMillis())) {
+                return true;
+            }
+            if (attempt >= policy.getMaxAttempts() || isRetired()) {
+                givenUp.incrementAndGet();
+                return false;
+            }
+            idle(policy.delayMillis(attempt, random));
+        }
+    }
+
+    /**
+     * Returns when the agent last requested access to the library.
+     *
+     * @return the {@link System#nanoTime()} of the last request, 0 if it never requested access
+     */
+    public long getRequestedAtNanos() {
+        return requestedAtNanos;
+    }
+
+    void setRequestedAtNanos(long requestedAtNanos) {
+        this.requestedAtNanos = requestedAtNanos;
+    }
+
+    /**
+     * Returns when the agent was last admitted to the reading room.
+     *
+     * @return the {@link System#nanoTime()} of the last admission, 0 if it was never admitted
+     */
+    public long getAdmittedAtNanos() {
+        return admittedAtNanos;
+    }
+
+    void setAdmittedAtNanos(long admittedAtNanos) {
+        this.admittedAtNanos = admittedAtNanos;
+    }
+
+    /**
+     * Starts the agent on a new platform thread named after it.
+     *
+     * @throws IllegalStateException if the agent was already started
+     */
+    public void start() {
+        start(command -> new Thread(command, getName()).start());
+    }
+
+    /**
+     * Starts the agent on the given executor.
+     *
+     * @param executor the executor that will run the agent
+     * @throws IllegalStateException if the agent was already started
+     */
+    public void start(Executor executor) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Agent " + getName() + " was already started");
+        }
+        executor.execute(this);
+    }
+
+    /**
+     * Runs the behavior of the agent on the calling thread. Any pending interrupt is delivered to that thread first.
+     */
+    @Override
+    public final void run() {
+        started.set(true);
+        Thread current = Thread.currentThread();
+        runner = current;
+        if (interrupted) {
+            current.interrupt();
+        }
+        try {
+            act();
+        } finally {
+            runner = null;
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Interrupts the agent. If it is running, the thread running it is interrupted; if it has not started yet, it
+     * will be interrupted as soon as it does.
+     */
+    public void interrupt() {
+        interrupted = true;
+        Thread current = runner;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Asks the agent to leave the library for good. Unlike {@link #interrupt()} it never cuts a visit short: an agent
+     * inside the reading room finishes its visit and releases its place first, an idle agent stops idling at once, and
+     * either way it then finishes. Used to shrink a running population, see
+     * {@link pl.edu.agh.kis.pz1.scenario.ScenarioRunner}.
+     */
+    public void retire() {
+        retired.countDown();
+    }
+
+    /**
+     * Tells whether the agent was asked to leave.
+     *
+     * @return {@code true} if {@link #retire()} was called
+     */
+    public boolean isRetired() {
+        return retired.getCount() == 0;
+    }
+
+    /**
+     * Idles for the given time, returning early if the agent is {@linkplain #retire() retired}.
+     *
+     * @param millis the idle time in milliseconds
+     * @throws InterruptedException if the thread running the agent is interrupted
+     */
+    protected void idle(long millis) throws InterruptedException {
+        retired.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tells whether the agent was interrupted.
+     *
+     * @return {@code true} if {@link #interrupt()} was called
+     */
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    /**
+     * Tells whether the agent was started and has not finished yet.
+     *
+     * @return {@code true} if the agent is alive
+     */
+    public boolean isAlive() {
+        return started.get() && finished.getCount() > 0;
+    }
+
+    /**
+     * Tells whether the agent was started and has finished.
+     *
+     * @return {@code true} if the behavior of the agent has run to its end
+     */
+    boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits for the agent to finish.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void join() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * Waits at most the given time for the agent to finish.
+     *
+     * @param millis the maximum time to wait, in milliseconds
+     * @return {@code true} if the agent finished
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean join(long millis) throws InterruptedException {
+        return finished.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getName() + "]";
+    }
+}
@@ -0,0 +1,164 @@
+package pl.edu.agh.kis.pz1;
+
+import pl.edu.agh.kis.pz1.shard.KeyDistribution;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of {@link ReaderFactory} and {@link WriterFactory}: the settings shared by every agent they create and
+ * the pool the started agents run on.
+ * <p>
+ * The factory keeps the agents that have not finished yet, so a long run that keeps replacing its agents does not
+ * keep the finished ones alive; an agent is dropped by the next {@link #add(Library)} after it finished. The list,
+ * the settings and the pool are guarded by the factory itself.
+ * </p>
+ *
+ * @param <A> the kind of agents created
+ */
+public abstract class AgentFactory<A extends Agent> {
+
+    /** Agents created and not finished yet, guarded by the factory */
+    protected final ArrayList<A> agents = new ArrayList<>();
+
+    /** Role of the created agents, used in messages */
+    private final Role role;
+
+    /** Distribution of the resource keys assigned to new agents */
+    private KeyDistribution keyDistribution = KeyDistribution.SINGLE;
+
+    /** How new agents ask for access, null to wait for as long as it takes */
+    private RetryPolicy retryPolicy;
+
+    /** Kind of threads the pool runs agents on */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /** Pool running the started agents, created by the first start */
+    private ExecutorService pool;
+
+    /** Whether the factory was shut down */
+    private boolean shutdown;
+
+    /**
+     * Creates a factory of agents of the given role.
+     *
+     * @param role the role of the created agents
+     */
+    protected AgentFactory(Role role) {
+        this.role = role;
+    }
+
+    /**
+     * Creates an agent with the times of the factory, bound to the given library.
+     *
+     * @param library the library the agent will interact with
+     * @return the new agent
+     */
+    protected abstract A newAgent(Library library);
+
+    /**
+     * Creates an agent, gives it the settings of the factory and adds it to the list of agents, dropping the ones
+     * that finished.
+     *
+     * @param library the library the agent will interact with
+     * @return the new agent
+     */
+    protected synchronized A add(Library library) {
+        agents.removeIf(Agent::isFinished);
+        A agent = newAgent(library);
+        agent.setResourceKey(keyDistribution.nextKey());
+        agent.setRetryPolicy(retryPolicy);
+        agents.add(agent);
+        return agent;
+    }
+
+    /**
+     * Creates an agent like {@link #add(Library)} and starts it on the pool of the factory.
+     *
+     * @param library the library the agent will interact with
+     * @return the started agent
+     * @throws RejectedExecutionException if the factory was shut down
+     */
+    protected synchronized A start(Library library) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The " + role.label() + " factory was shut down");
+        }
+        if (pool == null) {
+            pool = executionMode.newPool();
+        }
+        A agent = add(library);
+        agent.start(pool);
+        return agent;
+    }
+
+    /**
+     * Sets the distribution of the resource keys assigned to the agents created from now on, which decides how they are
+     * spread over the rooms of a {@link pl.edu.agh.kis.pz1.shard.ShardedLibrary}. By default every agent gets key 0.
+     *
+     * @param keyDistribution the distribution of resource keys
+     */
+    public synchronized void setKeyDistribution(KeyDistribution keyDistribution) {
+        this.keyDistribution = keyDistribution;
+    }
+
+    /**
+     * Sets how the agents created from now on ask for access. By default they wait for as long as it takes.
+     *
+     * @param retryPolicy the retry policy, or {@code null} to wait without a limit
+     */
+    public synchronized void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets the kind of threads the pool of the factory runs agents on. Only has an effect before the first agent is
+     * started.
+     *
+     * @param executionMode the kind of threads, platform ones by default
+     */
+    public synchronized void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Shuts the factory down gracefully: every agent it created is retired, so an idle agent stops at once and one
+     * waiting for or inside the library finishes its visit first. No agent can be started afterwards.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        for (A agent : agents) {
+            agent.retire();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Shuts the factory down at once: every agent it created is interrupted, even in the middle of a visit.
+     */
+    public synchronized void shutdownNow() {
+        shutdown();
+        for (A agent : agents) {
+            agent.interrupt();
+        }
+    }
+
+    /**
+     * Waits for the agents started by the factory to finish after a shutdown.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if every started agent finished, {@code false} if the time ran out first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        ExecutorService started;
+        synchronized (this) {
+            started = pool;
+        }
+        return started == null || started.awaitTermination(timeout, unit);
+    }
+}
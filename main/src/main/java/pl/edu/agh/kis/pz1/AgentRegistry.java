@@ -0,0 +1,113 @@
+package pl.edu.agh.kis.pz1;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the ids of {@link Agent}s and maps them back to display names.
+ * <p>
+ * Ids are dense ints from 1 upwards, taken from a single atomic counter, so the library, its metrics and its traces can
+ * refer to agents by a primitive. Names are only stored for agents that were given one explicitly; every other agent is
+ * shown as {@code #id}, and that text is only built when somebody asks for it, for example the console log. Creating an
+ * agent therefore costs no string and no entropy.
+ * </p>
+ * <p>
+ * A name is held only as long as its agent is reachable, so load tests creating agents without bound do not fill the
+ * registry: the entries of collected agents are dropped the next time a name is set. An event logged asynchronously
+ * after its agent was collected is shown as {@code #id}.
+ * </p>
+ */
+public final class AgentRegistry {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();  // Last id handed out
+    private static final ConcurrentHashMap<Integer, Name> NAMES = new ConcurrentHashMap<>();  // Explicit names only
+    private static final ReferenceQueue<Agent> COLLECTED = new ReferenceQueue<>();  // Agents of stale names
+
+    private AgentRegistry() {
+    }
+
+    /**
+     * Hands out the next id.
+     *
+     * @return a new id, never 0
+     */
+    static int nextId() {
+        return NEXT_ID.incrementAndGet();
+    }
+
+    /**
+     * Records or clears the explicit name of an agent, and drops the names of the agents collected since the last call.
+     *
+     * @param agent the agent
+     * @param name  the name, or {@code null} to go back to {@link #defaultName(int)}
+     */
+    static void setName(Agent agent, String name) {
+        for (Reference<? extends Agent> stale; (stale = COLLECTED.poll()) != null; ) {
+            Name entry = (Name) stale;
+            NAMES.remove(entry.id, entry);
+        }
+        if (name == null) {
+            NAMES.remove(agent.getId());
+        } else {
+            NAMES.put(agent.getId(), new Name(agent, name));
+        }
+    }
+
+    /**
+     * Returns the display name of an id: the name the agent was given, or {@link #defaultName(int)}.
+     *
+     * @param id the id of an agent, or 0 for an event without an agent
+     * @return the display name, {@code "?"} for 0
+     */
+    public static String nameOf(int id) {
+        if (id == 0) {
+            return "?";
+        }
+        Name name = NAMES.get(id);
+        return name != null ? name.name : defaultName(id);
+    }
+
+    /**
+     * Returns the name shown for an agent that was not given one.
+     *
+     * @param id the id of the agent
+     * @return {@code #} followed by the id
+     */
+    public static String defaultName(int id) {
+        return "#" + id;
+    }
+
+    /**
+     * Returns the number of ids handed out so far.
+     *
+     * @return the greatest id in use
+     */
+    public static int size() {
+        return NEXT_ID.get();
+    }
+
+    /**
+     * Returns the number of names held, including those of agents collected but not yet dropped.
+     *
+     * @return the number of explicit names
+     */
+    static int names() {
+        return NAMES.size();
+    }
+
+    /**
+     * An explicit name, cleared with its agent.
+     */
+    private static final class Name extends WeakReference<Agent> {
+        private final int id;
+        private final String name;
+
+        private Name(Agent agent, String name) {
+            super(agent, COLLECTED);
+            this.id = agent.getId();
+            this.name = name;
+        }
+    }
+}
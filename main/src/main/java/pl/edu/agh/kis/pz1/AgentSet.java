@@ -0,0 +1,177 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free set of agents keyed by their {@linkplain Agent#getId() ids}: one bit per id, plus a reference to the agent
+ * so the members can be listed.
+ * <p>
+ * Ids are dense, so the set is split into pages of {@value #PAGE_SIZE} consecutive ids, created the first time an id of
+ * the page is added. A page costs {@value #PAGE_SIZE} bits and as many references, about 4.1 bytes per id with
+ * compressed references; memory grows with the highest id, not with the number of members. Adding and removing is a
+ * compare-and-set on one 64-bit word and never allocates after the page exists. An agent must not be added and
+ * removed by two threads at the same time, which holds for the library since each agent is driven by one thread at a
+ * time.
+ * </p>
+ */
+final class AgentSet {
+    static final int PAGE_BITS = 12;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile Page[] pages = new Page[1];
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Adds an agent.
+     *
+     * @param agent the agent
+     * @return {@code true} if it was not in the set yet
+     */
+    boolean add(Agent agent) {
+        int id = agent.getId();
+        Page page = page(id >>> PAGE_BITS);
+        int offset = id & PAGE_MASK;
+        page.agents.set(offset, agent);
+        long bit = 1L << offset;
+        int word = offset >>> 6;
+        for (;;) {
+            long bits = page.bits.get(word);
+            if ((bits & bit) != 0) {
+                return false;
+            }
+            if (page.bits.compareAndSet(word, bits, bits | bit)) {
+                size.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes an agent.
+     *
+     * @param agent the agent
+     * @return {@code true} if it was in the set
+     */
+    boolean remove(Agent agent) {
+        int id = agent.getId();
+        Page[] current = pages;
+        int index = id >>> PAGE_BITS;
+        Page page = index < current.length ? current[index] : null;
+        if (page == null) {
+            return false;
+        }
+        int offset = id & PAGE_MASK;
+        long bit = 1L << offset;
+        int word = offset >>> 6;
+        for (;;) {
+            long bits = page.bits.get(word);
+            if ((bits & bit) == 0) {
+                return false;
+            }
+            if (page.bits.compareAndSet(word, bits, bits & ~bit)) {
+                page.agents.compareAndSet(offset, agent, null);
+                size.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Tells whether an agent is in the set.
+     *
+     * @param agent the agent
+     * @return {@code true} if it was added and not removed since
+     */
+    boolean contains(Agent agent) {
+        int id = agent.getId();
+        Page[] current = pages;
+        int index = id >>> PAGE_BITS;
+        Page page = index < current.length ? current[index] : null;
+        int offset = id & PAGE_MASK;
+        return page != null && (page.bits.get(offset >>> 6) & (1L << offset)) != 0;
+    }
+
+    /**
+     * Returns the member with an id.
+     *
+     * @param id the id of an agent
+     * @return the agent, or {@code null} if no agent with this id is in the set
+     */
+    Agent get(int id) {
+        Page[] current = pages;
+        int index = id >>> PAGE_BITS;
+        Page page = index < current.length ? current[index] : null;
+        return page == null ? null : page.agents.get(id & PAGE_MASK);
+    }
+
+    /**
+     * Returns the number of agents in the set.
+     *
+     * @return the size of the set
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Lists the members, in the order of their ids. Agents added or removed meanwhile may or may not be included.
+     *
+     * @return a new list with the members
+     */
+    ArrayList<Agent> toList() {
+        ArrayList<Agent> result = new ArrayList<>(size());
+        for (Page page : pages) {
+            if (page == null) {
+                continue;
+            }
+            for (int word = 0; word < PAGE_SIZE / Long.SIZE; word++) {
+                for (long bits = page.bits.get(word); bits != 0; bits &= bits - 1) {
+                    Agent agent = page.agents.get(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                    if (agent != null) {
+                        result.add(agent);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a page, creating it and growing the directory if needed.
+     *
+     * @param index the index of the page
+     * @return the page
+     */
+    private Page page(int index) {
+        Page[] current = pages;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return createPage(index);
+    }
+
+    private synchronized Page createPage(int index) {
+        Page[] current = pages;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        }
+        if (current[index] == null) {
+            current[index] = new Page();
+        }
+        pages = current;  // Publishes the new page, and the new directory if it grew
+        return current[index];
+    }
+
+    /**
+     * The bits and agents of {@value #PAGE_SIZE} consecutive ids.
+     */
+    private static final class Page {
+        private final AtomicLongArray bits = new AtomicLongArray(PAGE_SIZE / Long.SIZE);
+        private final AtomicReferenceArray<Agent> agents = new AtomicReferenceArray<>(PAGE_SIZE);
+    }
+}
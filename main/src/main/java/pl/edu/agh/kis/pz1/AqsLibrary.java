@@ -0,0 +1,160 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ * {@link Library} engine built on a custom {@link AbstractQueuedSynchronizer}. The whole state of the reading room is
+ * a single {@code int}: the number of readers inside, or {@code -1} while a writer is inside. Both the reader limit and
+ * the writer's exclusivity are therefore checked with one compare-and-set, and a writer never has to collect permits
+ * one by one.
+ * <p>
+ * Waiting agents are served in FIFO order, consecutive readers at the head of the queue are admitted together. The
+ * capacity is only compared against, never counted down, so resizing it is a single volatile write.
+ * </p>
+ */
+public class AqsLibrary extends AbstractLibrary {
+    private final ReadWriteSync sync = new ReadWriteSync(getCapacity());
+
+    /**
+     * Creates the engine logging to the shared console log.
+     */
+    public AqsLibrary() {
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     */
+    public AqsLibrary(LibraryEventListener listener) {
+        super(listener);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param capacity the number of readers allowed in the reading room at the same time
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public AqsLibrary(LibraryEventListener listener, int capacity) {
+        super(listener, capacity);
+    }
+
+    @Override
+    protected boolean tryAcquireRead(long timeoutNanos) throws InterruptedException {
+        return sync.tryAcquireSharedNanos(1, timeoutNanos);
+    }
+
+    @Override
+    protected void acquireRead() throws InterruptedException {
+        sync.acquireSharedInterruptibly(1);
+    }
+
+    @Override
+    protected void releaseRead() {
+        sync.releaseShared(1);
+    }
+
+    @Override
+    protected boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException {
+        return sync.tryAcquireNanos(1, timeoutNanos);
+    }
+
+    @Override
+    protected void acquireWrite() throws InterruptedException {
+        sync.acquireInterruptibly(1);
+    }
+
+    @Override
+    protected void releaseWrite() {
+        sync.release(1);
+    }
+
+    @Override
+    protected void resizeCapacity(int oldCapacity, int newCapacity) {
+        sync.resize(newCapacity);
+    }
+
+    /**
+     * Synchronizer holding the number of readers in the room, or {@link #WRITING} while a writer is inside.
+     */
+    static final class ReadWriteSync extends AbstractQueuedSynchronizer {
+        private static final long serialVersionUID = 1L;
+
+        static final int WRITING = -1;
+        private static final int WAKE_UP = 0;  // Argument of releaseShared that only wakes the queue
+        private volatile int capacity;
+
+        ReadWriteSync(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Changes the capacity. A larger capacity wakes the queue so that waiting readers can take the new places.
+         *
+         * @param capacity the new capacity
+         */
+        void resize(int capacity) {
+            boolean grows = capacity > this.capacity;
+            this.capacity = capacity;
+            if (grows) {
+                releaseShared(WAKE_UP);
+            }
+        }
+
+        @Override
+        protected int tryAcquireShared(int ignored) {
+            for (;;) {
+                if (hasQueuedPredecessors()) {
+                    return -1;
+                }
+                int readers = getState();
+                int places = capacity;
+                if (readers == WRITING || readers >= places) {
+                    return -1;
+                }
+                if (compareAndSetState(readers, readers + 1)) {
+                    return places - readers - 1;
+                }
+            }
+        }
+
+        @Override
+        protected boolean tryReleaseShared(int readersLeaving) {
+            if (readersLeaving == WAKE_UP) {
+                return true;
+            }
+            for (;;) {
+                int readers = getState();
+                if (readers <= 0) {
+                    throw new IllegalMonitorStateException("No reader in the room");
+                }
+                if (compareAndSetState(readers, readers - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        protected boolean tryAcquire(int ignored) {
+            return !hasQueuedPredecessors() && compareAndSetState(0, WRITING);
+        }
+
+        @Override
+        protected boolean tryRelease(int ignored) {
+            if (!compareAndSetState(WRITING, 0)) {
+                throw new IllegalMonitorStateException("No writer in the room");
+            }
+            return true;
+        }
+
+        int readers() {
+            return Math.max(getState(), 0);
+        }
+
+        boolean isWriting() {
+            return getState() == WRITING;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pl.edu.agh.kis.pz1;
+
+/**
+ * Kinds of events reported by a {@link Library} to its {@link LibraryEventListener}.
+ */
+public enum EventType {
+    /** A reader asked for a place in the reading room. */
+    READ_REQUESTED(Role.READER),
+    /** A reader entered the reading room. */
+    READ_STARTED(Role.READER),
+    /** A reader left the reading room. */
+    READ_STOPPED(Role.READER),
+    /** A writer asked for the reading room. */
+    WRITE_REQUESTED(Role.WRITER),
+    /** A writer got the reading room for itself. */
+    WRITE_STARTED(Role.WRITER),
+    /** A writer left the reading room. */
+    WRITE_STOPPED(Role.WRITER),
+    /** A reader gave up a timed request before getting a place. */
+    READ_TIMED_OUT(Role.READER),
+    /** A writer gave up a timed request before getting the reading room. */
+    WRITE_TIMED_OUT(Role.WRITER);
+
+    private final Role role;
+
+    EventType(Role role) {
+        this.role = role;
+    }
+
+    /**
+     * Returns the role of the agents reporting this event.
+     *
+     * @return the role
+     */
+    public Role getRole() {
+        return role;
+    }
+}
@@ -0,0 +1,44 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * How {@link Agent}s are run, selectable by name (for example from the command line of {@link Main}).
+ */
+public enum ExecutionMode {
+    /** Every agent gets its own platform thread, with its own stack; limited to a few thousand agents. */
+    PLATFORM(Thread.ofPlatform().name("agent-", 0).factory()),
+    /**
+     * Every agent gets its own virtual thread. Waiting on the library's semaphores and locks and sleeping unmount the
+     * virtual thread instead of blocking a carrier thread, so millions of agents fit in a single JVM.
+     */
+    VIRTUAL(Thread.ofVirtual().name("agent-", 0).factory());
+
+    private final ThreadFactory threadFactory;
+
+    ExecutionMode(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Returns an executor starting every submitted task on a new thread of this mode.
+     *
+     * @return the executor of this mode
+     */
+    public Executor executor() {
+        return command -> threadFactory.newThread(command).start();
+    }
+
+    /**
+     * Returns a new executor service starting every submitted task on a new thread of this mode. Unlike
+     * {@link #executor()} it keeps track of its threads, so it can be shut down and waited for.
+     *
+     * @return the new executor service
+     */
+    public ExecutorService newPool() {
+        return Executors.newThreadPerTaskExecutor(threadFactory);
+    }
+}
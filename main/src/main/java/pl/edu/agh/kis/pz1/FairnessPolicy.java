@@ -0,0 +1,24 @@
+package pl.edu.agh.kis.pz1;
+
+/**
+ * Orders readers and writers competing for the reading room of a {@link PolicyLibrary}.
+ */
+public enum FairnessPolicy {
+    /** A reader enters whenever there is a free place; a writer only gets in when no reader is waiting. */
+    READER_PREFERENCE,
+    /** As soon as a writer waits, no new reader is admitted until no writer is waiting any more. */
+    WRITER_PREFERENCE,
+    /**
+     * Reading and writing phases alternate: a reader waits for at most one writer, and a writer waits for at most the
+     * readers that were already waiting when it arrived.
+     */
+    PHASE_FAIR,
+    /** Readers may keep entering while a writer waits, but at most a fixed number of them before the writer gets in. */
+    BOUNDED_BYPASS,
+    /**
+     * Writers combine: all writers waiting when the readers have drained share one exclusive window and write back to
+     * back, and the readers are let in again once for the whole group. Otherwise the phases alternate as in
+     * {@link #PHASE_FAIR}, with a window in place of a single write.
+     */
+    COMBINING
+}
@@ -0,0 +1,59 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A place in the reading room granted by {@link Library#requestReadingAsync(Reader)} or
+ * {@link Library#requestWritingAsync(Writer)}. The agent is already admitted and started when it gets the lease;
+ * closing the lease stops it and gives the place back. Closing it again has no effect, and it may be closed on any
+ * thread.
+ */
+public final class Lease implements AutoCloseable {
+    private final Agent agent;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Creates a lease.
+     *
+     * @param agent   the admitted agent
+     * @param release stops the agent in its library, run once by the first {@link #close()}
+     */
+    public Lease(Agent agent, Runnable release) {
+        this.agent = agent;
+        this.release = release;
+    }
+
+    /**
+     * Returns the agent holding the lease.
+     *
+     * @return the admitted agent
+     */
+    public Agent getAgent() {
+        return agent;
+    }
+
+    /**
+     * Tells whether the lease was given back.
+     *
+     * @return {@code true} once {@link #close()} was called
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Stops the agent and gives its place back to the library.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Lease[" + agent.getName() + (closed.get() ? ", closed]" : "]");
+    }
+}
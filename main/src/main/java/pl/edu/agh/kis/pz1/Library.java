@@ -1,126 +1,190 @@
 package pl.edu.agh.kis.pz1;
 
-import pl.edu.agh.kis.pz1.util.TextUtils;
+import pl.edu.agh.kis.pz1.doc.VersionedDocument;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
 
-import java.util.ArrayList;
-import java.util.concurrent.Semaphore;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The {@code Library} class simulates a library system where {@link Reader} and {@link Writer} threads can concurrently
- * access the library. It ensures that up to a maximum of 5 readers can read at the same time, but only one writer can
- * write at a time. Readers and writers request access to the library, and their actions are managed using semaphores.
+ * The {@code Library} interface describes the admission protocol of the reading room shared by {@link Reader} and
+ * {@link Writer} agents. Up to a configurable number of readers may read at the same time, while a writer always has the room
+ * for itself.
  * <p>
- * The class uses semaphores to synchronize the access to shared resources. It handles the scheduling of readers and
- * writers, ensuring that they follow the correct access protocol.
+ * Every agent goes through the same three steps: it requests access (possibly waiting), announces that it has started
+ * and finally announces that it has stopped. How the waiting is implemented is up to the engine, see
+ * {@link LibraryType} for the available ones.
+ * </p>
+ * <p>
+ * A library is shut down like an {@link java.util.concurrent.ExecutorService}: after {@link #shutdown()} it rejects new
+ * requests, serves the ones already made, and is terminated once the last agent has left.
  * </p>
  */
-public class Library {
-    private final int MAX_READERS = 5;  // Maximum number of readers allowed at the same time
-    private ArrayList<Thread> awaiting;  // List of threads awaiting access (readers and writers)
-    private ArrayList<Thread> readers;  // List of active readers
-    public final Semaphore libraryAccessPermits = new Semaphore(MAX_READERS, true);  // Semaphore for controlling access to the library
-    public final Semaphore queueAccessPermits = new Semaphore(1, true);  // Semaphore for controlling access to the queue
+public interface Library {
+
+    /**
+     * Requests reading access for a {@link Reader}. Returns once the reader has been admitted.
+     *
+     * @param reader the {@link Reader} requesting reading access
+     * @throws InterruptedException       if the thread is interrupted while waiting for access
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    void requestReading(Reader reader) throws InterruptedException;
+
+    /**
+     * Requests reading access for a {@link Reader}, waiting at most the given time. If the time runs out the request
+     * is withdrawn: the reader holds no place and is no longer awaiting, as if it had never asked. A zero timeout only
+     * admits a reader that can enter right away.
+     *
+     * @param reader  the {@link Reader} requesting reading access
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if the reader was admitted, {@code false} if the time ran out
+     * @throws InterruptedException       if the thread is interrupted while waiting for access
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    boolean tryRequestReading(Reader reader, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Marks an admitted {@link Reader} as reading.
+     *
+     * @param reader the {@link Reader} starting to read
+     * @throws InterruptedException if the thread is interrupted while updating the bookkeeping
+     */
+    void startReading(Reader reader) throws InterruptedException;
+
+    /**
+     * Marks a {@link Reader} as done and gives its place in the reading room back.
+     *
+     * @param reader the {@link Reader} that stopped reading
+     * @throws InterruptedException if the thread is interrupted while updating the bookkeeping
+     */
+    void stopReading(Reader reader) throws InterruptedException;
+
+    /**
+     * Requests exclusive writing access for a {@link Writer}. Returns once the writer has the room for itself.
+     *
+     * @param writer the {@link Writer} requesting writing access
+     * @throws InterruptedException       if the thread is interrupted while waiting for access
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    void requestWriting(Writer writer) throws InterruptedException;
+
+    /**
+     * Requests exclusive writing access for a {@link Writer}, waiting at most the given time. If the time runs out the
+     * request is withdrawn as in {@link #tryRequestReading(Reader, long, TimeUnit)}, and the agents it held back may
+     * enter.
+     *
+     * @param writer  the {@link Writer} requesting writing access
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if the writer has the room for itself, {@code false} if the time ran out
+     * @throws InterruptedException       if the thread is interrupted while waiting for access
+     * @throws RejectedExecutionException if the library was shut down
+     */
+    boolean tryRequestWriting(Writer writer, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Marks an admitted {@link Writer} as writing.
+     *
+     * @param writer the {@link Writer} starting to write
+     * @throws InterruptedException if the thread is interrupted while updating the bookkeeping
+     */
+    void startWriting(Writer writer) throws InterruptedException;
+
+    /**
+     * Marks a {@link Writer} as done and opens the room to other agents again.
+     *
+     * @param writer the {@link Writer} that stopped writing
+     */
+    void stopWriting(Writer writer);
+
+    /**
+     * Requests reading access without blocking the caller. The returned future completes with a {@link Lease} once the
+     * reader has been admitted and started; closing the lease stops the reader. Until then the request is parked in a
+     * queue of the library, not on a thread. Cancelling the future withdraws the request, or gives the place back if
+     * it was granted in the meantime. After {@link #shutdown()} the future fails with a
+     * {@link RejectedExecutionException}.
+     *
+     * @param reader the {@link Reader} requesting reading access
+     * @return a future completed with the lease of the reader
+     * @throws UnsupportedOperationException if the engine ties a place to the thread that took it
+     */
+    CompletableFuture<Lease> requestReadingAsync(Reader reader);
+
+    /**
+     * Requests exclusive writing access without blocking the caller, as {@link #requestReadingAsync(Reader)} does for
+     * readers.
+     *
+     * @param writer the {@link Writer} requesting writing access
+     * @return a future completed with the lease of the writer
+     * @throws UnsupportedOperationException if the engine ties a place to the thread that took it
+     */
+    CompletableFuture<Lease> requestWritingAsync(Writer writer);
 
     /**
-     * Constructor that initializes the awaiting and readers lists.
+     * Stops admitting new requests. Requests made afterwards are rejected; requests already made, waiting or parked,
+     * are still served, and agents inside finish their visits. Agents idling between visits are not touched: their
+     * next request is rejected, or their owner {@linkplain ReaderFactory#shutdown() retires} them.
      */
-    public Library() {
-        awaiting = new ArrayList<>();
-        readers = new ArrayList<>();
-    }
+    void shutdown();
 
     /**
-     * Starts reading by a {@link Reader} thread. Acquires the necessary semaphores and updates the readers list.
+     * Tells whether the library was shut down.
      *
-     * @param reader the {@link Reader} thread requesting to start reading
-     * @throws InterruptedException if the thread is interrupted while acquiring semaphores
+     * @return {@code true} if {@link #shutdown()} was called
      */
-    public void startReading(Reader reader) throws InterruptedException {
-        queueAccessPermits.acquire(1);
-        System.out.printf("Reader %s started reading...\n", reader.getName());
-        awaiting.remove(reader);
-        String currentlyReading = TextUtils.listToStringWithAdditionalElement(readers, reader);
-        System.out.printf("Readers currently reading: %s\n", currentlyReading);
-        readers.add(reader);
-        queueAccessPermits.release(1);
-    }
+    boolean isShutdown();
 
     /**
-     * Stops reading by a {@link Reader} thread. Updates the readers list and releases the library access permit.
+     * Tells whether the library was shut down and every request made before has finished: stopped, timed out,
+     * withdrawn or interrupted.
      *
-     * @param reader the {@link Reader} thread requesting to stop reading
-     * @throws InterruptedException if the thread is interrupted while acquiring semaphores
+     * @return {@code true} if the library is terminated
      */
-    public void stopReading(Reader reader) throws InterruptedException {
-        queueAccessPermits.acquire(1);
-        System.out.printf("Reader %s stopped reading.\n", reader.getName());
-        readers.remove(reader);
-        queueAccessPermits.release(1);
-        libraryAccessPermits.release(1);
-    }
+    boolean isTerminated();
 
     /**
-     * Starts writing by a {@link Writer} thread. Updates the awaiting list.
+     * Waits for the library to terminate after {@link #shutdown()}.
      *
-     * @param writer the {@link Writer} thread requesting to start writing
-     * @throws InterruptedException if the thread is interrupted while acquiring semaphores
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if the library terminated, {@code false} if the time ran out first
+     * @throws InterruptedException if the thread is interrupted while waiting
      */
-    public void startWriting(Writer writer) throws InterruptedException {
-        queueAccessPermits.acquire(1);
-        System.out.printf("Writer %s started writing...\n", writer.getName());
-        awaiting.remove(writer);
-        queueAccessPermits.release(1);
-    }
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
 
     /**
-     * Stops writing by a {@link Writer} thread and releases the library access permit for all readers.
+     * Returns the number of readers allowed in the reading room at the same time.
      *
-     * @param writer the {@link Writer} thread requesting to stop writing
+     * @return the current capacity
      */
-    public void stopWriting(Writer writer) {
-        System.out.printf("Writer %s stopped writing...\n", writer.getName());
-        libraryAccessPermits.release(MAX_READERS);
-    }
+    int getCapacity();
 
     /**
-     * Requests writing access for a {@link Writer} thread. It adds the writer to the awaiting list and acquires the necessary
-     * library access permits.
+     * Changes the number of readers allowed in the reading room at the same time, while agents keep using it. A smaller
+     * capacity takes effect as the readers already inside leave; it never leaves a waiting writer stuck.
      *
-     * @param writer the {@link Writer} thread requesting writing access
-     * @throws InterruptedException if the thread is interrupted while acquiring semaphores
+     * @param capacity the new capacity
+     * @throws IllegalArgumentException if {@code capacity} is not positive
      */
-    public void requestWriting(Writer writer) throws InterruptedException {
-        queueAccessPermits.acquire(1);
-        System.out.printf("Writer %s requested access...\n", writer.getName());
-        printAwaitingInfo(writer);
-        awaiting.add(writer);
-        queueAccessPermits.release(1);
-        libraryAccessPermits.acquire(MAX_READERS);
-    }
+    void resize(int capacity);
 
     /**
-     * Requests reading access for a {@link Reader} thread. It adds the reader to the awaiting list and acquires the necessary
-     * library access permit.
+     * Returns the metrics recorded by the library: wait and hold times, admissions, occupancy and queue depth.
      *
-     * @param reader the {@link Reader} thread requesting reading access
-     * @throws InterruptedException if the thread is interrupted while acquiring semaphores
+     * @return the metrics registry of the library
      */
-    public void requestReading(Reader reader) throws InterruptedException {
-        queueAccessPermits.acquire(1);
-        System.out.printf("Reader %s requested access...\n", reader.getName());
-        printAwaitingInfo(reader);
-        awaiting.add(reader);
-        queueAccessPermits.release(1);
-        libraryAccessPermits.acquire(1);
-    }
+    LibraryMetrics getMetrics();
 
     /**
-     * Prints the list of people currently awaiting access to the library (either reading or writing).
+     * Returns the catalog kept in the reading room: a versioned list of entries. A reading {@link Reader} holds a
+     * snapshot of it, see {@link Reader#getSnapshot()}, and a {@link Writer} changes it with
+     * {@link Writer#stageEdit(java.util.function.UnaryOperator)}.
      *
-     * @param t the thread (either {@link Reader} or {@link Writer}) whose information will be included in the awaiting list
+     * @return the shared document
      */
-    private void printAwaitingInfo(Thread t) {
-        String currentlyAwaiting = TextUtils.listToStringWithAdditionalElement(awaiting, t);
-        System.out.printf("People currently awaiting: %s\n", currentlyAwaiting);
-    }
+    VersionedDocument<List<String>> getDocument();
 }
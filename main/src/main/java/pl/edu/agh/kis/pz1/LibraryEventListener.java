@@ -0,0 +1,39 @@
+package pl.edu.agh.kis.pz1;
+
+/**
+ * Receives the events of a {@link Library}. The listener is called on the agent's own thread, on the admission path, so
+ * implementations must be fast and must never block on I/O.
+ * <p>
+ * All arguments are primitives or references that already exist, so reporting an event does not allocate.
+ * </p>
+ */
+@FunctionalInterface
+public interface LibraryEventListener {
+
+    /** A listener ignoring every event. */
+    LibraryEventListener NONE = (timestampNanos, type, agent, queueDepth, occupancy) -> { };
+
+    /**
+     * Called for every event of the library.
+     *
+     * @param timestampNanos the {@link System#nanoTime()} at which the event happened
+     * @param type           the kind of event
+     * @param agent          the reader or writer the event concerns
+     * @param queueDepth     the number of agents awaiting access at that moment
+     * @param occupancy      the number of readers in the reading room at that moment
+     */
+    void onEvent(long timestampNanos, EventType type, Agent agent, int queueDepth, int occupancy);
+
+    /**
+     * Returns a listener passing every event to this listener and then to another one.
+     *
+     * @param next the listener called second
+     * @return the combined listener
+     */
+    default LibraryEventListener andThen(LibraryEventListener next) {
+        return (timestampNanos, type, agent, queueDepth, occupancy) -> {
+            onEvent(timestampNanos, type, agent, queueDepth, occupancy);
+            next.onEvent(timestampNanos, type, agent, queueDepth, occupancy);
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package pl.edu.agh.kis.pz1;
+
+import pl.edu.agh.kis.pz1.log.EventLog;
+
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+/**
+ * Available {@link Library} engines, selectable by name (for example from the command line of {@link Main}).
+ */
+public enum LibraryType {
+    /** A fair semaphore; a writer takes every reader place. The original engine. */
+    SEMAPHORE("semaphore", SemaphoreLibrary::new),
+    /** A {@link java.util.concurrent.locks.ReentrantReadWriteLock}. */
+    READ_WRITE_LOCK("rwlock", (listener, capacity) -> new ReadWriteLockLibrary(listener, false, capacity)),
+    /** A {@link java.util.concurrent.locks.StampedLock}. */
+    STAMPED_LOCK("stamped", StampedLockLibrary::new),
+    /** A custom {@link java.util.concurrent.locks.AbstractQueuedSynchronizer} with a single state word. */
+    AQS("aqs", AqsLibrary::new),
+    /** A {@link PolicyLibrary} preferring readers. */
+    READER_PREFERENCE("reader-pref", FairnessPolicy.READER_PREFERENCE),
+    /** A {@link PolicyLibrary} preferring writers. */
+    WRITER_PREFERENCE("writer-pref", FairnessPolicy.WRITER_PREFERENCE),
+    /** A {@link PolicyLibrary} alternating reading and writing phases. */
+    PHASE_FAIR("phase-fair", FairnessPolicy.PHASE_FAIR),
+    /** A {@link PolicyLibrary} letting at most {@link PolicyLibrary#DEFAULT_BYPASS_LIMIT} readers overtake a writer. */
+    BOUNDED_BYPASS("bounded-bypass", FairnessPolicy.BOUNDED_BYPASS),
+    /** A {@link PolicyLibrary} letting all queued writers share one exclusive window. */
+    COMBINING("combining", FairnessPolicy.COMBINING),
+    /** A {@link MvccLibrary}: readers read snapshots without any permit, only writers wait for each other. */
+    MVCC("mvcc", MvccLibrary::new, false);
+
+    private final String cliName;
+    private final BiFunction<LibraryEventListener, Integer, Library> constructor;
+    private final boolean exclusive;
+
+    LibraryType(String cliName, BiFunction<LibraryEventListener, Integer, Library> constructor) {
+        this(cliName, constructor, true);
+    }
+
+    LibraryType(String cliName, BiFunction<LibraryEventListener, Integer, Library> constructor, boolean exclusive) {
+        this.cliName = cliName;
+        this.constructor = constructor;
+        this.exclusive = exclusive;
+    }
+
+    LibraryType(String cliName, FairnessPolicy policy) {
+        this(cliName, (listener, capacity) ->
+                new PolicyLibrary(listener, capacity, policy, PolicyLibrary.DEFAULT_BYPASS_LIMIT));
+    }
+
+    /**
+     * Returns the name used to select this engine.
+     *
+     * @return the name of the engine
+     */
+    public String getCliName() {
+        return cliName;
+    }
+
+    /**
+     * Tells whether the engine keeps the rules of the reading room: at most the capacity of readers at once, and a
+     * writer alone. {@link #MVCC} does not, its readers read snapshots instead.
+     *
+     * @return {@code true} if readers and writers exclude each other
+     */
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    /**
+     * Creates a new library using this engine, logging to the shared console log.
+     *
+     * @return a new {@link Library}
+     */
+    public Library create() {
+        return create(EventLog.console());
+    }
+
+    /**
+     * Creates a new library using this engine, with the default capacity.
+     *
+     * @param listener the listener receiving the events of the library
+     * @return a new {@link Library}
+     */
+    public Library create(LibraryEventListener listener) {
+        return create(listener, AbstractLibrary.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new library using this engine.
+     *
+     * @param listener the listener receiving the events of the library
+     * @param capacity the number of readers allowed in the reading room at the same time
+     * @return a new {@link Library}
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public Library create(LibraryEventListener listener, int capacity) {
+        return constructor.apply(listener, capacity);
+    }
+
+    /**
+     * Finds an engine by its name, ignoring case.
+     *
+     * @param name the name of the engine, e.g. {@code "semaphore"}
+     * @return the matching engine
+     * @throws IllegalArgumentException if no engine has the given name
+     */
+    public static LibraryType fromName(String name) {
+        for (LibraryType type : values()) {
+            if (type.cliName.equals(name.toLowerCase(Locale.ROOT))) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown library engine: " + name);
+    }
+}
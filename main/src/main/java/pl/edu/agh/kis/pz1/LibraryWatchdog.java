@@ -0,0 +1,255 @@
+package pl.edu.agh.kis.pz1;
+
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Background check of a library for agents that are stuck: starving waiters, writers overtaken by a stream of readers,
+ * places that were taken and never given back, and queues that stopped moving.
+ * <p>
+ * A sample costs a few volatile reads and counter sums and takes no lock: the age of the agent at the head of the
+ * awaiting queue (which, the queue being FIFO, is the longest wait), the admission counters and the number of agents
+ * inside. Only when the oldest wait exceeds the threshold does the watchdog take snapshots of the awaiting and
+ * readers views to build a wait-for summary: who waits, for how long, and who is inside the room holding them up.
+ * </p>
+ * <p>
+ * A lost place shows as more agents admitted by the metrics than agents that started reading or writing, for example
+ * a thread interrupted between {@link Library#requestReading(Reader)} and {@link Library#startReading(Reader)}. Such a
+ * gap also exists for a moment on every admission, so it is only reported when it did not close during a whole
+ * threshold. Each {@link Kind} of diagnostic is reported at most once per threshold.
+ * </p>
+ */
+public class LibraryWatchdog implements AutoCloseable {
+    private static final int LISTED_AGENTS = 10;  // Agents named in a summary, the rest are counted
+
+    /**
+     * What a diagnostic is about.
+     */
+    public enum Kind {
+        /** Agents waited longer than the threshold. */
+        STARVATION,
+        /** A writer waited longer than the threshold while readers that came after it were admitted. */
+        WRITER_OVERTAKEN,
+        /** Places were taken by agents that never started, and will never be given back. */
+        LOST_PERMIT,
+        /** Agents wait and nobody was admitted for longer than the threshold. */
+        STALL
+    }
+
+    /**
+     * A problem found by the watchdog.
+     *
+     * @param kind    what the problem is
+     * @param summary a description with the wait-for summary
+     */
+    public record Diagnostic(Kind kind, String summary) {
+        @Override
+        public String toString() {
+            return kind + ": " + summary;
+        }
+    }
+
+    private final String name;
+    private final AbstractLibrary library;
+    private final long periodMillis;
+    private final long thresholdNanos;
+    private final Consumer<Diagnostic> sink;
+    private final EnumMap<Kind, Long> reportedAt = new EnumMap<>(Kind.class);
+    private volatile Thread thread;
+    private long lastAdmissions = -1;
+    private long lastProgressNanos;
+    private long windowStartNanos;
+    private long minReaderGap;
+    private long minWriterGap;
+
+    /**
+     * Creates a watchdog. It does nothing until {@linkplain #start() started}, or until {@link #check()} is called.
+     *
+     * @param name            the name of the library, put before every summary
+     * @param library         the library to watch
+     * @param periodMillis    how often the library is sampled, in milliseconds
+     * @param thresholdMillis how long a wait or a gap must last to be reported, in milliseconds
+     * @param sink            receives the diagnostics, on the thread of the watchdog
+     * @throws IllegalArgumentException if the period or the threshold is not positive
+     */
+    public LibraryWatchdog(String name, AbstractLibrary library, long periodMillis, long thresholdMillis,
+                           Consumer<Diagnostic> sink) {
+        if (periodMillis <= 0 || thresholdMillis <= 0) {
+            throw new IllegalArgumentException("The period and the threshold of a watchdog must be positive.");
+        }
+        this.name = name;
+        this.library = library;
+        this.periodMillis = periodMillis;
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.sink = sink;
+    }
+
+    /**
+     * Starts sampling on a daemon thread.
+     *
+     * @throws IllegalStateException if the watchdog was already started
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("The watchdog was already started");
+        }
+        thread = Thread.ofPlatform().daemon().name("watchdog-" + name).start(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    check().forEach(sink);
+                    Thread.sleep(periodMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Stops sampling.
+     */
+    @Override
+    public void close() {
+        Thread current = thread;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Samples the library once.
+     *
+     * @return the problems found that were not reported during the last threshold, usually none
+     */
+    public synchronized List<Diagnostic> check() {
+        long now = System.nanoTime();
+        LibraryMetrics metrics = library.getMetrics();
+        List<Diagnostic> found = new ArrayList<>(0);
+        long admissions = metrics.getAdmissions(Role.READER) + metrics.getAdmissions(Role.WRITER);
+        if (admissions != lastAdmissions) {
+            lastAdmissions = admissions;
+            lastProgressNanos = now;
+        }
+        checkLostPermits(now, metrics, found);
+        Agent oldest = library.oldestAwaiting();
+        if (oldest != null && now - oldest.getRequestedAtNanos() > thresholdNanos) {
+            checkWaiters(now, found);
+        }
+        return found;
+    }
+
+    private void checkLostPermits(long now, LibraryMetrics metrics, List<Diagnostic> found) {
+        long readerGap = metrics.getActive(Role.READER) - library.readersInside();
+        long writerGap = metrics.getActive(Role.WRITER) - (library.activeWriter() != null ? 1 : 0);
+        if (windowStartNanos == 0) {
+            windowStartNanos = now;
+            minReaderGap = readerGap;
+            minWriterGap = writerGap;
+            return;
+        }
+        minReaderGap = Math.min(minReaderGap, readerGap);
+        minWriterGap = Math.min(minWriterGap, writerGap);
+        if (now - windowStartNanos < thresholdNanos) {
+            return;
+        }
+        if (minReaderGap > 0 || minWriterGap > 0) {
+            report(now, found, Kind.LOST_PERMIT, String.format(Locale.ROOT,
+                    "%d reader and %d writer places taken for over %s by agents that never started",
+                    Math.max(0, minReaderGap), Math.max(0, minWriterGap), seconds(thresholdNanos)));
+        }
+        windowStartNanos = now;
+        minReaderGap = readerGap;
+        minWriterGap = writerGap;
+    }
+
+    private void checkWaiters(long now, List<Diagnostic> found) {
+        List<Agent> waiting = library.getAwaiting();
+        List<Agent> inside = library.getReaders();
+        Writer writer = library.activeWriter();
+        String waitFor = waitFor(now, inside, writer);
+        List<Agent> starving = new ArrayList<>();
+        for (Agent agent : waiting) {
+            if (now - agent.getRequestedAtNanos() > thresholdNanos) {
+                starving.add(agent);
+            }
+        }
+        if (starving.isEmpty()) {
+            return;  // They were admitted meanwhile
+        }
+        report(now, found, Kind.STARVATION, String.format(Locale.ROOT, "%d of %d waiting agents waited over %s: %s; %s",
+                starving.size(), waiting.size(), seconds(thresholdNanos), describe(now, starving, true), waitFor));
+        for (Agent agent : starving) {
+            if (agent.getRole() != Role.WRITER) {
+                continue;
+            }
+            List<Agent> overtaking = new ArrayList<>();
+            for (Agent reader : inside) {
+                if (reader.getAdmittedAtNanos() - agent.getRequestedAtNanos() > 0) {
+                    overtaking.add(reader);
+                }
+            }
+            if (!overtaking.isEmpty()) {
+                report(now, found, Kind.WRITER_OVERTAKEN, String.format(Locale.ROOT,
+                        "writer %s waits %s while %d readers admitted after it are inside: %s", agent.getName(),
+                        seconds(now - agent.getRequestedAtNanos()), overtaking.size(),
+                        describe(now, overtaking, false)));
+                break;
+            }
+        }
+        if (now - lastProgressNanos > thresholdNanos) {
+            report(now, found, Kind.STALL, String.format(Locale.ROOT, "nobody admitted for %s while %d agents wait; %s",
+                    seconds(now - lastProgressNanos), waiting.size(), waitFor));
+        }
+    }
+
+    private void report(long now, List<Diagnostic> found, Kind kind, String summary) {
+        Long last = reportedAt.get(kind);
+        if (last == null || now - last >= thresholdNanos) {
+            reportedAt.put(kind, now);
+            found.add(new Diagnostic(kind, name + ": " + summary));
+        }
+    }
+
+    /**
+     * Describes who is inside the room, which is what the waiting agents wait for.
+     */
+    private static String waitFor(long now, List<Agent> inside, Writer writer) {
+        if (writer != null) {
+            return "waiting for writer " + writer.getName() + " inside for "
+                    + seconds(now - writer.getAdmittedAtNanos());
+        }
+        if (inside.isEmpty()) {
+            return "the room is empty";
+        }
+        return "waiting for " + inside.size() + " readers inside: " + describe(now, inside, false);
+    }
+
+    /**
+     * Lists agents with their wait or their time inside, at most {@value #LISTED_AGENTS} of them.
+     */
+    private static String describe(long now, List<Agent> agents, boolean waits) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < agents.size() && i < LISTED_AGENTS; i++) {
+            Agent agent = agents.get(i);
+            if (i > 0) {
+                out.append(", ");
+            }
+            long since = waits ? agent.getRequestedAtNanos() : agent.getAdmittedAtNanos();
+            out.append(agent.getRole().name().toLowerCase(Locale.ROOT)).append(' ').append(agent.getName())
+                    .append(" (").append(seconds(now - since)).append(')');
+        }
+        if (agents.size() > LISTED_AGENTS) {
+            out.append(" and ").append(agents.size() - LISTED_AGENTS).append(" more");
+        }
+        return out.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+    }
+}
@@ -1,40 +1,295 @@
 package pl.edu.agh.kis.pz1;
 
-import pl.edu.agh.kis.pz1.util.TextUtils;
+import pl.edu.agh.kis.pz1.loadtest.ArrivalProcess;
+import pl.edu.agh.kis.pz1.loadtest.LoadReport;
+import pl.edu.agh.kis.pz1.loadtest.LoadTest;
+import pl.edu.agh.kis.pz1.loadtest.OpenLoopGenerator;
+import pl.edu.agh.kis.pz1.log.EventLog;
+import pl.edu.agh.kis.pz1.log.LogLevel;
+import pl.edu.agh.kis.pz1.log.OverflowPolicy;
+import pl.edu.agh.kis.pz1.metrics.MetricsServer;
+import pl.edu.agh.kis.pz1.scenario.Scenario;
+import pl.edu.agh.kis.pz1.scenario.ScenarioRunner;
+import pl.edu.agh.kis.pz1.shard.KeyDistribution;
+import pl.edu.agh.kis.pz1.shard.ShardedLibrary;
+import pl.edu.agh.kis.pz1.sim.Simulation;
+import pl.edu.agh.kis.pz1.trace.TraceReader;
+import pl.edu.agh.kis.pz1.trace.TraceRecorder;
+import pl.edu.agh.kis.pz1.trace.TraceReplay;
+import pl.edu.agh.kis.pz1.util.NumUtils;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Code for the concurrency problem with set max readers at a time
+ * <p>
+ * Usage: {@code java -jar main.jar [readers] [writers]
+ * [--engine=semaphore|rwlock|stamped|aqs|reader-pref|writer-pref|phase-fair|bounded-bypass|combining|mvcc]
+ * [--bypass-limit=N] [--log-level=debug|info|warn|off] [--log-sample=N] [--log-overflow=block|drop]
+ * [--threads=platform|virtual] [--mode=live|simulate|replay|load-test|open-loop] [--replay=DIRECTORY]
+ * [--duration=TIME] [--operations=N] [--report=FILE] [--arrivals=poisson:RATE|bursty:RATE:FACTOR:FRACTION:BURST_MS]
+ * [--write-fraction=F] [--sim-time=SECONDS] [--seed=N] [--metrics-port=PORT] [--capacity=N|cores]
+ * [--shards=N] [--keys=N] [--key-distribution=single|uniform|zipf:S|hotspot:HOT:P] [--trace=DIRECTORY]
+ * [--hold=const:V|uniform:MIN:MAX|exp:MEAN|pareto:SCALE:SHAPE|lognormal:MU:SIGMA|poisson:MEAN[:max=LIMIT]]
+ * [--scenario=FILE] [--watchdog=TIME] [--drain=TIME]
+ * [--retry=fixed:TIMEOUT_MS:ATTEMPTS:DELAY_MS|exponential:TIMEOUT_MS:ATTEMPTS:BASE_MS:MAX_MS]}
+ * </p>
+ * <p>
+ * Without arguments there are {@value #DEFAULT_READERS} readers and {@value #DEFAULT_WRITERS} writers. With
+ * {@code --scenario} the live population follows the phases of a {@link Scenario} file instead, run by a
+ * {@link ScenarioRunner}: readers and writers are added and retired while the library runs, and the program ends with
+ * the last phase.
+ * </p>
+ * <p>
+ * {@code --seed} also seeds the random streams of live agents, see {@link NumUtils}, so their active and idle times
+ * and resource keys repeat from run to run. {@code --hold} replaces the uniform active times of readers and writers
+ * with a distribution in milliseconds, for example a heavy-tailed {@code pareto:500:1.5:max=60000}.
+ * </p>
+ * <p>
+ * With {@code --retry} live readers and writers wait for access at most {@code TIMEOUT_MS} per attempt, back off
+ * between attempts as the {@link RetryPolicy} says and skip the visit after {@code ATTEMPTS} timeouts.
+ * </p>
+ * <p>
+ * With {@code --trace} every event is also recorded in binary form by a {@link TraceRecorder} in the given directory.
+ * </p>
+ * <p>
+ * With {@code --shards} greater than one the library is a {@link ShardedLibrary} of that many rooms of the selected
+ * engine, each with {@code --capacity} places. Agents get resource keys out of {@code --keys} keys (1000 by default)
+ * drawn from {@code --key-distribution} (uniform by default).
+ * </p>
+ * <p>
+ * In live mode the readers and writers run on pools owned by their factories. When the program is stopped (for
+ * example with Ctrl+C) it {@linkplain #drain(Library, ReaderFactory, WriterFactory, long) drains} first: the agents
+ * are retired, the library is shut down, and the program waits up to {@code --drain} (10 seconds by default) for the
+ * agents inside to leave before interrupting the rest.
+ * </p>
+ * <p>
+ * {@code --bypass-limit} sets how many readers may overtake a waiting writer with the {@code bounded-bypass} engine.
+ * {@code --capacity} sets the number of readers allowed in the reading room at the same time, {@code cores} meaning
+ * the number of available processors. While the library runs, typing a new number on the standard input resizes it.
+ * </p>
+ * <p>
+ * With {@code --watchdog} a {@link LibraryWatchdog} watches every room for agents waiting longer than the given
+ * {@link Scenario#parseDuration(String) duration}, writers overtaken by readers, lost places and stalled queues, and
+ * prints what it finds on the standard error stream.
+ * </p>
+ * <p>
+ * With {@code --metrics-port} the metrics of the library are served in the Prometheus format at
+ * {@code http://localhost:PORT/metrics} for as long as the program runs.
+ * </p>
+ * <p>
+ * In {@code simulate} mode no threads are started: the run is a deterministic discrete-event {@link Simulation} of
+ * {@code --sim-time} seconds (one hour by default), and only its summary is printed. The simulation follows the rules
+ * of the semaphore engine in a single room, so every option other than {@code --sim-time}, {@code --seed} and
+ * {@code --capacity} (for example {@code --engine}, {@code --shards} or {@code --hold}) is ignored with a warning.
+ * </p>
+ * <p>
+ * In {@code load-test} mode the agents run for {@code --duration} (a {@link Scenario#parseDuration(String) duration},
+ * one minute by default) or until the library has admitted {@code --operations} agents, then leave, and a
+ * {@link LoadReport} is printed and, with {@code --report}, written to a JSON file or appended to a CSV file. The event
+ * log is off unless {@code --log-level} is given.
+ * </p>
+ * <p>
+ * In {@code open-loop} mode no agents loop: an {@link OpenLoopGenerator} issues requests at the times of the
+ * {@code --arrivals} process (10 per second by default) for {@code --duration}, a {@code --write-fraction} of them
+ * writes (0.1 by default) and the others reads, each holding for a {@code --hold} time, and prints their latencies
+ * measured from the intended start.
+ * </p>
+ * <p>
+ * In {@code replay} mode the trace recorded in the {@code --replay} directory is played back against the selected
+ * engine by a {@link TraceReplay}, and the waits of the replay are printed next to the recorded ones.
+ * </p>
  * @author Mateusz Francik
  */
 public class Main {
+    /** Number of readers when none is given. */
+    public static final int DEFAULT_READERS = 10;
+    /** Number of writers when none is given. */
+    public static final int DEFAULT_WRITERS = 3;
+    private static final String ENGINE_OPTION = "--engine=";
+    private static final String LOG_LEVEL_OPTION = "--log-level=";
+    private static final String LOG_SAMPLE_OPTION = "--log-sample=";
+    private static final String LOG_OVERFLOW_OPTION = "--log-overflow=";
+    private static final String THREADS_OPTION = "--threads=";
+    private static final String MODE_OPTION = "--mode=";
+    private static final String SIM_TIME_OPTION = "--sim-time=";
+    private static final String SEED_OPTION = "--seed=";
+    private static final String HOLD_OPTION = "--hold=";
+    private static final String METRICS_PORT_OPTION = "--metrics-port=";
+    private static final String CAPACITY_OPTION = "--capacity=";
+    private static final String BYPASS_LIMIT_OPTION = "--bypass-limit=";
+    private static final String SHARDS_OPTION = "--shards=";
+    private static final String KEYS_OPTION = "--keys=";
+    private static final String KEY_DISTRIBUTION_OPTION = "--key-distribution=";
+    private static final String TRACE_OPTION = "--trace=";
+    private static final String REPLAY_OPTION = "--replay=";
+    private static final String SCENARIO_OPTION = "--scenario=";
+    private static final String DURATION_OPTION = "--duration=";
+    private static final String OPERATIONS_OPTION = "--operations=";
+    private static final String REPORT_OPTION = "--report=";
+    private static final String ARRIVALS_OPTION = "--arrivals=";
+    private static final String WRITE_FRACTION_OPTION = "--write-fraction=";
+    private static final String WATCHDOG_OPTION = "--watchdog=";
+    private static final String RETRY_OPTION = "--retry=";
+    private static final String DRAIN_OPTION = "--drain=";
+    private static final long DEFAULT_DRAIN_MILLIS = 10_000;
+    /** The only options {@code --mode=simulate} reads; every other one is ignored with a warning. */
+    private static final String[] SIMULATED_OPTIONS = {MODE_OPTION, SIM_TIME_OPTION, SEED_OPTION, CAPACITY_OPTION};
+
+    /**
+     * How the library is run.
+     */
+    enum Mode {
+        /** Real agents on real threads, in real time. */
+        LIVE,
+        /** A discrete-event simulation on a virtual clock. */
+        SIMULATE,
+        /** A recorded trace played back against an engine. */
+        REPLAY,
+        /** Real agents for a bounded time or number of operations, summarized in a report. */
+        LOAD_TEST,
+        /** Requests issued at a given rate, independently of how fast they are served. */
+        OPEN_LOOP
+    }
+
     public static void main( String[] args ) {
-        int readers = 10;
-        try {
-            readers = Integer.parseInt(args[0]);
-        } catch (Exception e) {
-            System.out.println("Invalid number of readers, using default value: " + 10);
+        Mode runMode = enumOption(args, MODE_OPTION, Mode.class, Mode.LIVE);
+        String scenarioFile = runMode == Mode.LIVE ? optionValue(args, SCENARIO_OPTION) : null;
+        int readers = 0;
+        int writers = 0;
+        if (scenarioFile == null && runMode != Mode.REPLAY && runMode != Mode.OPEN_LOOP) {  // Counts of agents
+            String[] positional = positionalArguments(args);
+            readers = countArgument(positional, 0, DEFAULT_READERS, "readers");
+            writers = countArgument(positional, 1, DEFAULT_WRITERS, "writers");
         }
-        int writers = 3;
-        try {
-            writers = Integer.parseInt(args[1]);
-        } catch (Exception e) {
-            System.out.println("Invalid number of writers, using default value: " + 5);
+        if (runMode == Mode.SIMULATE) {
+            long seconds = longOption(args, SIM_TIME_OPTION, 3600);
+            long seed = longOption(args, SEED_OPTION, 42);
+            unsimulatedOptions(args).forEach(System.out::println);
+            Simulation simulation = new Simulation(readers, writers, capacityOption(args), seed);
+            System.out.println(simulation.run(seconds * 1000));
+            return;
+        }
+
+        LibraryType engine = LibraryType.SEMAPHORE;
+        String engineName = optionValue(args, ENGINE_OPTION);
+        if (engineName != null) {
+            try {
+                engine = LibraryType.fromName(engineName);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", using default engine: " + engine.getCliName());
+            }
+        }
+
+        if (runMode == Mode.REPLAY) {
+            replay(engine, args);
+            return;
+        }
+        if (runMode == Mode.OPEN_LOOP) {
+            openLoop(createLibrary(engine, createEventLog(args, LogLevel.OFF), args), args);
+            return;
         }
 
-        Library l = new Library();
+        ExecutionMode mode = enumOption(args, THREADS_OPTION, ExecutionMode.class, ExecutionMode.PLATFORM);
+        Executor executor = mode.executor();
+
+        LibraryEventListener listener =
+                createEventLog(args, runMode == Mode.LOAD_TEST ? LogLevel.OFF : LogLevel.DEBUG);
+        List<AutoCloseable> resources = new ArrayList<>();  // Closed when the run ends, newest first
+        String traceDirectory = optionValue(args, TRACE_OPTION);
+        if (traceDirectory != null) {
+            try {
+                TraceRecorder trace = new TraceRecorder(Path.of(traceDirectory));
+                resources.add(trace);
+                listener = listener.andThen(trace);
+                System.out.println("Recording a trace to " + traceDirectory);
+            } catch (IOException e) {
+                System.out.println("Could not start the trace: " + e.getMessage());
+            }
+        }
+        Library l = createLibrary(engine, listener, args);
+        resources.addAll(startWatchdogs(l, args));
+        long metricsPort = longOption(args, METRICS_PORT_OPTION, -1);
+        if (metricsPort >= 0) {
+            try {
+                MetricsServer server = new MetricsServer(l.getMetrics(), (int) metricsPort);
+                resources.add(server);
+                System.out.println("Serving metrics at http://localhost:" + server.getPort() + MetricsServer.PATH);
+            } catch (IOException e) {
+                System.out.println("Could not start the metrics server: " + e.getMessage());
+            }
+        }
+        if (optionValue(args, SEED_OPTION) != null) {
+            NumUtils.setSeed(longOption(args, SEED_OPTION, 42));
+        }
         ReaderFactory rf = new ReaderFactory();
         WriterFactory wf = new WriterFactory();
+        String hold = optionValue(args, HOLD_OPTION);
+        if (hold != null) {
+            try {
+                Sampler holdTime = Sampler.parse(hold);
+                rf = new ReaderFactory(holdTime, Sampler.uniform(1000, 5000));
+                wf = new WriterFactory(holdTime, Sampler.uniform(3000, 10000));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", using the default active times");
+            }
+        }
+        KeyDistribution keys = keyDistributionOption(args);
+        rf.setKeyDistribution(keys);
+        wf.setKeyDistribution(keys);
+        String retry = optionValue(args, RETRY_OPTION);
+        if (retry != null) {
+            try {
+                RetryPolicy policy = RetryPolicy.parse(retry);
+                rf.setRetryPolicy(policy);
+                wf.setRetryPolicy(policy);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", waiting without a limit");
+            }
+        }
+        if (scenarioFile != null) {
+            runScenario(l, scenarioFile, executor, keys);
+            closeAll(resources);
+            return;
+        }
+        if (runMode == Mode.LOAD_TEST) {
+            loadTest(new LoadTest(engine.getCliName(), l, rf, readers, wf, writers, executor), args);
+            closeAll(resources);
+            return;
+        }
 
 
+        rf.setExecutionMode(mode);
+        wf.setExecutionMode(mode);
         for (int i = 0; i < readers; i++) {
-            Reader r = rf.addReader(l);
-            r.start();
+            rf.startReader(l);
         }
 
         for (int i = 0; i < writers; i++) {
-            Writer w = wf.addWriter(l);
-            w.start();
+            wf.startWriter(l);
         }
+        long drainMillis = drainOption(args);
+        ReaderFactory readerFactory = rf;
+        WriterFactory writerFactory = wf;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!drain(l, readerFactory, writerFactory, drainMillis)) {
+                System.out.println("The library did not drain in time, the remaining agents were interrupted");
+            }
+            closeAll(resources);
+        }, "drain"));
+
+        Thread console = new Thread(() -> resizeFromConsole(l, new Scanner(System.in)), "console");
+        console.setDaemon(true);
+        console.start();
 //
 //        Writer w1 = new Writer(l, "#w1");
 //        Writer w2 = new Writer(l, "#w2");
@@ -64,4 +319,509 @@ public class Main {
 //        r9.start();
 //        r10.start();
     }
+
+    /**
+     * Runs the scenario of a file against the library, printing each phase as it starts.
+     *
+     * @param library  the library
+     * @param file     the path of the scenario file
+     * @param executor the executor running the agents
+     * @param keys     the distribution of the resource keys of the agents
+     */
+    static void runScenario(Library library, String file, Executor executor, KeyDistribution keys) {
+        Scenario scenario;
+        try {
+            scenario = Scenario.load(Path.of(file));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not load the scenario: " + e.getMessage());
+            return;
+        }
+        System.out.printf(Locale.ROOT, "Running %d phases over %.1f s%n", scenario.getPhases().size(),
+                scenario.getDurationMillis() / 1e3);
+        try {
+            new ScenarioRunner(library, scenario, executor, keys).run(phase -> System.out.printf(Locale.ROOT,
+                    "Phase %s: %d readers, %d writers (%s over %.1f s) for %.1f s%n", phase.name(), phase.readers(),
+                    phase.writers(), phase.ramp().name().toLowerCase(Locale.ROOT), phase.rampMillis() / 1e3,
+                    phase.durationMillis() / 1e3));
+            System.out.println("Scenario finished");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a load test within the limits of the {@code --duration} and {@code --operations} flags, prints its report
+     * and writes it to the {@code --report} file if given.
+     *
+     * @param test the load test
+     * @param args the command line arguments
+     */
+    static void loadTest(LoadTest test, String[] args) {
+        long operations = longOption(args, OPERATIONS_OPTION, 0);
+        String duration = optionValue(args, DURATION_OPTION);
+        long durationMillis = duration == null && operations > 0 ? 0 : 60_000;
+        if (duration != null) {
+            try {
+                durationMillis = Scenario.parseDuration(duration);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", using default: 60 s");
+            }
+        }
+        try {
+            LoadReport report = test.run(durationMillis, operations);
+            System.out.println(report);
+            String file = optionValue(args, REPORT_OPTION);
+            if (file != null) {
+                report.writeTo(Path.of(file));
+                System.out.println("Report written to " + file);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Could not write the report: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs an open-loop test configured by the {@code --arrivals}, {@code --write-fraction}, {@code --hold} and
+     * {@code --duration} flags and prints its latencies.
+     *
+     * @param library the library under test
+     * @param args    the command line arguments
+     */
+    static void openLoop(Library library, String[] args) {
+        ArrivalProcess arrivals = ArrivalProcess.poisson(10);
+        String spec = optionValue(args, ARRIVALS_OPTION);
+        if (spec != null) {
+            try {
+                arrivals = ArrivalProcess.parse(spec);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", using default: " + arrivals);
+            }
+        }
+        double writeFraction = 0.1;
+        String fraction = optionValue(args, WRITE_FRACTION_OPTION);
+        if (fraction != null) {
+            try {
+                double value = Double.parseDouble(fraction);
+                if (!(value >= 0 && value <= 1)) {
+                    throw new NumberFormatException();
+                }
+                writeFraction = value;
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid value of " + WRITE_FRACTION_OPTION + fraction + ", using default: 0.1");
+            }
+        }
+        Sampler readHold = Sampler.uniform(1000, 3000);
+        Sampler writeHold = Sampler.uniform(1000, 3000);
+        String hold = optionValue(args, HOLD_OPTION);
+        if (hold != null) {
+            try {
+                readHold = Sampler.parse(hold);
+                writeHold = readHold;
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", using the default active times");
+            }
+        }
+        long durationMillis = 60_000;
+        String duration = optionValue(args, DURATION_OPTION);
+        if (duration != null) {
+            try {
+                durationMillis = Scenario.parseDuration(duration);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ", using default: 60 s");
+            }
+        }
+        if (optionValue(args, SEED_OPTION) != null) {
+            NumUtils.setSeed(longOption(args, SEED_OPTION, 42));
+        }
+        try {
+            System.out.println(new OpenLoopGenerator(library, arrivals, writeFraction, readHold, writeHold)
+                    .run(durationMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Plays the trace of the {@code --replay} directory back against a new library and prints the comparison.
+     *
+     * @param engine the selected engine
+     * @param args   the command line arguments
+     */
+    static void replay(LibraryType engine, String[] args) {
+        String directory = optionValue(args, REPLAY_OPTION);
+        if (directory == null) {
+            System.out.println("Replay mode needs a trace: " + REPLAY_OPTION + "DIRECTORY");
+            return;
+        }
+        try {
+            TraceReplay replay = new TraceReplay(TraceReader.readAll(Path.of(directory)));
+            System.out.printf(Locale.ROOT, "Replaying %d visits (%d incomplete left out) over %.1f s on %s%n",
+                    replay.getVisitCount(), replay.getIncompleteCount(), replay.getSpanNanos() / 1e9,
+                    engine.getCliName());
+            System.out.println(replay.run(createLibrary(engine, LibraryEventListener.NONE, args)));
+        } catch (IOException e) {
+            System.out.println("Could not read the trace: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the library selected on the command line.
+     *
+     * @param engine   the selected engine
+     * @param listener the listener receiving the events of the library
+     * @param args     the command line arguments, for the {@code --capacity}, {@code --bypass-limit} and
+     *                 {@code --shards} flags
+     * @return a new {@link Library}
+     */
+    static Library createLibrary(LibraryType engine, LibraryEventListener listener, String[] args) {
+        int capacity = capacityOption(args);
+        long shards = longOption(args, SHARDS_OPTION, 1);
+        long bypassLimit = PolicyLibrary.DEFAULT_BYPASS_LIMIT;
+        if (engine == LibraryType.BOUNDED_BYPASS) {
+            bypassLimit = longOption(args, BYPASS_LIMIT_OPTION, PolicyLibrary.DEFAULT_BYPASS_LIMIT);
+            if (bypassLimit < 0 || bypassLimit > Integer.MAX_VALUE) {
+                System.out.println("Invalid bypass limit " + bypassLimit + ", using default: "
+                        + PolicyLibrary.DEFAULT_BYPASS_LIMIT);
+                bypassLimit = PolicyLibrary.DEFAULT_BYPASS_LIMIT;
+            }
+        }
+        if (shards <= 1 || shards > Integer.MAX_VALUE) {
+            return createRoom(engine, listener, capacity, (int) bypassLimit);
+        }
+        List<Library> rooms = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            rooms.add(createRoom(engine, listener, capacity, (int) bypassLimit));
+        }
+        return new ShardedLibrary(rooms);
+    }
+
+    private static Library createRoom(LibraryType engine, LibraryEventListener listener, int capacity,
+                                      int bypassLimit) {
+        if (engine == LibraryType.BOUNDED_BYPASS) {
+            return new PolicyLibrary(listener, capacity, FairnessPolicy.BOUNDED_BYPASS, bypassLimit);
+        }
+        return engine.create(listener, capacity);
+    }
+
+    /**
+     * Starts a {@link LibraryWatchdog} on every room of the library if the {@code --watchdog} flag is given. The
+     * library is sampled four times per threshold, but at most every second and at least every 10 ms.
+     *
+     * @param library the library to watch
+     * @param args    the command line arguments
+     * @return the started watchdogs, none without the flag
+     */
+    static List<LibraryWatchdog> startWatchdogs(Library library, String[] args) {
+        String threshold = optionValue(args, WATCHDOG_OPTION);
+        List<LibraryWatchdog> watchdogs = new ArrayList<>();
+        if (threshold == null) {
+            return watchdogs;
+        }
+        long thresholdMillis;
+        try {
+            thresholdMillis = Scenario.parseDuration(threshold);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + ", the watchdog is off");
+            return watchdogs;
+        }
+        if (thresholdMillis <= 0) {
+            System.out.println("Invalid watchdog threshold " + threshold + ", the watchdog is off");
+            return watchdogs;
+        }
+        long periodMillis = Math.clamp(thresholdMillis / 4, 10, 1000);
+        List<Library> rooms = new ArrayList<>();
+        if (library instanceof ShardedLibrary sharded) {
+            for (int i = 0; i < sharded.getShards(); i++) {
+                rooms.add(sharded.getRoom(i));
+            }
+        } else {
+            rooms.add(library);
+        }
+        for (int i = 0; i < rooms.size(); i++) {
+            if (rooms.get(i) instanceof AbstractLibrary room) {
+                String name = rooms.size() == 1 ? "library" : "room " + i;
+                LibraryWatchdog watchdog = new LibraryWatchdog(name, room, periodMillis, thresholdMillis,
+                        diagnostic -> System.err.println("[watchdog] " + diagnostic));
+                watchdog.start();
+                watchdogs.add(watchdog);
+            }
+        }
+        return watchdogs;
+    }
+
+    /**
+     * Returns the distribution of resource keys selected by the {@code --keys} and {@code --key-distribution} flags.
+     * Without the flags every agent gets key 0, unless the library is sharded, in which case keys are uniform.
+     *
+     * @param args the command line arguments
+     * @return the distribution of resource keys
+     */
+    static KeyDistribution keyDistributionOption(String[] args) {
+        long keys = longOption(args, KEYS_OPTION, 1000);
+        if (keys <= 0 || keys > Integer.MAX_VALUE) {
+            System.out.println("Invalid number of keys " + keys + ", using default: 1000");
+            keys = 1000;
+        }
+        String spec = optionValue(args, KEY_DISTRIBUTION_OPTION);
+        if (spec == null) {
+            return longOption(args, SHARDS_OPTION, 1) > 1 ? KeyDistribution.uniform((int) keys) : KeyDistribution.SINGLE;
+        }
+        try {
+            return KeyDistribution.parse(spec, (int) keys);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + ", using a uniform distribution");
+            return KeyDistribution.uniform((int) keys);
+        }
+    }
+
+    /**
+     * Stops a live run gracefully: retires the agents of both factories, which lets the ones waiting or inside finish
+     * their visit, shuts the library down and waits for all of it to end. Agents still running at the deadline are
+     * interrupted.
+     *
+     * @param library       the library
+     * @param readers       the factory of the running readers
+     * @param writers       the factory of the running writers
+     * @param timeoutMillis how long to wait for the agents, in milliseconds
+     * @return {@code true} if everything ended before the deadline
+     */
+    static boolean drain(Library library, ReaderFactory readers, WriterFactory writers, long timeoutMillis) {
+        readers.shutdown();
+        writers.shutdown();
+        library.shutdown();
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        try {
+            if (readers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    && writers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    && library.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        readers.shutdownNow();
+        writers.shutdownNow();
+        return false;
+    }
+
+    /**
+     * Closes the resources of a run (the metrics server, the watchdogs, the trace) in the reverse order of their
+     * creation, so that a run can end without leaving their threads behind.
+     *
+     * @param resources the resources, oldest first
+     */
+    static void closeAll(List<AutoCloseable> resources) {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            try {
+                resources.get(i).close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.out.println("Could not close " + resources.get(i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the drain time selected by the {@code --drain} flag.
+     *
+     * @param args the command line arguments
+     * @return the drain time in milliseconds, {@value #DEFAULT_DRAIN_MILLIS} when the flag is absent or invalid
+     */
+    static long drainOption(String[] args) {
+        String value = optionValue(args, DRAIN_OPTION);
+        if (value == null) {
+            return DEFAULT_DRAIN_MILLIS;
+        }
+        try {
+            return Scenario.parseDuration(value);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + ", draining for " + DEFAULT_DRAIN_MILLIS + " ms");
+            return DEFAULT_DRAIN_MILLIS;
+        }
+    }
+
+    /**
+     * Lists the options given with {@code --mode=simulate} that the {@link Simulation} does not model: it always follows
+     * the admission rules of the semaphore engine and the default timings of the factories, in a single room, so only
+     * the {@link #SIMULATED_OPTIONS} are read. {@code --engine=semaphore} is accepted, since it is what is simulated.
+     *
+     * @param args the command line arguments
+     * @return one warning per ignored option, empty if none
+     */
+    static List<String> unsimulatedOptions(String[] args) {
+        List<String> warnings = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.equalsIgnoreCase(ENGINE_OPTION + LibraryType.SEMAPHORE.getCliName())
+                    || Arrays.stream(SIMULATED_OPTIONS).anyMatch(arg::startsWith)) {
+                continue;
+            }
+            warnings.add(arg.startsWith(ENGINE_OPTION)
+                    ? "The simulation only models the semaphore engine, ignoring " + arg
+                    : "The simulation does not model " + arg + ", ignoring it");
+        }
+        return warnings;
+    }
+
+    /**
+     * Resizes the library to every number read from the scanner, until the input ends.
+     *
+     * @param library the library to resize
+     * @param input   the source of the new capacities
+     */
+    static void resizeFromConsole(Library library, Scanner input) {
+        while (input.hasNextLine()) {
+            String line = input.nextLine().trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                library.resize(Integer.parseInt(line));
+                System.out.println("Capacity changed to " + library.getCapacity());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid capacity: " + line);
+            }
+        }
+    }
+
+    /**
+     * Returns the capacity selected by the {@code --capacity} flag: a positive number, or {@code cores} for the number
+     * of available processors.
+     *
+     * @param args the command line arguments
+     * @return the capacity, {@link AbstractLibrary#DEFAULT_CAPACITY} when the flag is absent or invalid
+     */
+    static int capacityOption(String[] args) {
+        String value = optionValue(args, CAPACITY_OPTION);
+        if ("cores".equalsIgnoreCase(value)) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        long capacity = longOption(args, CAPACITY_OPTION, AbstractLibrary.DEFAULT_CAPACITY);
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE) {
+            System.out.println("Invalid capacity " + capacity + ", using default: " + AbstractLibrary.DEFAULT_CAPACITY);
+            return AbstractLibrary.DEFAULT_CAPACITY;
+        }
+        return (int) capacity;
+    }
+
+    /**
+     * Creates the asynchronous console log configured by the {@code --log-*} flags.
+     *
+     * @param args         the command line arguments
+     * @param defaultLevel the level used when {@code --log-level} is absent
+     * @return a started {@link EventLog}
+     */
+    static EventLog createEventLog(String[] args, LogLevel defaultLevel) {
+        LogLevel level = enumOption(args, LOG_LEVEL_OPTION, LogLevel.class, defaultLevel);
+        OverflowPolicy overflow = enumOption(args, LOG_OVERFLOW_OPTION, OverflowPolicy.class, OverflowPolicy.BLOCK);
+        int sampleEvery = 1;
+        String sample = optionValue(args, LOG_SAMPLE_OPTION);
+        if (sample != null) {
+            try {
+                sampleEvery = Math.max(1, Integer.parseInt(sample));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid log sampling rate, logging every event");
+            }
+        }
+        return new EventLog(System.out, EventLog.DEFAULT_CAPACITY, level, sampleEvery, overflow);
+    }
+
+    /**
+     * Returns the value of a numeric {@code --option=value} flag.
+     *
+     * @param args         the command line arguments
+     * @param prefix       the flag including the {@code =} sign
+     * @param defaultValue the value used when the flag is absent or invalid
+     * @return the value of the flag
+     */
+    static long longOption(String[] args, String prefix, long defaultValue) {
+        String value = optionValue(args, prefix);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid value of " + prefix + value + ", using default: " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the value of a {@code --option=value} flag naming a constant of an enum, ignoring case.
+     *
+     * @param args         the command line arguments
+     * @param prefix       the flag including the {@code =} sign
+     * @param type         the enum class
+     * @param defaultValue the value used when the flag is absent or invalid
+     * @param <E>          the enum type
+     * @return the selected constant
+     */
+    static <E extends Enum<E>> E enumOption(String[] args, String prefix, Class<E> type, E defaultValue) {
+        String value = optionValue(args, prefix);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid value of " + prefix + value + ", using default: " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a number of agents given as a positional argument.
+     *
+     * @param positional   the positional arguments
+     * @param index        the position of the number
+     * @param defaultValue the number used when the argument is absent or invalid
+     * @param what         what is counted, for the message printed in that case
+     * @return the number of agents
+     */
+    static int countArgument(String[] positional, int index, int defaultValue, String what) {
+        try {
+            int count = Integer.parseInt(positional[index]);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            // Reported below
+        }
+        System.out.println("Invalid number of " + what + ", using default value: " + defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Returns the arguments that are not {@code --option=value} flags, in their original order.
+     *
+     * @param args the command line arguments
+     * @return the positional arguments
+     */
+    static String[] positionalArguments(String[] args) {
+        return Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+    }
+
+    /**
+     * Returns the value of a {@code --option=value} flag.
+     *
+     * @param args   the command line arguments
+     * @param prefix the flag including the {@code =} sign, e.g. {@code "--engine="}
+     * @return the value of the last occurrence of the flag, or {@code null} if it is absent
+     */
+    static String optionValue(String[] args, String prefix) {
+        String value = null;
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                value = arg.substring(prefix.length());
+            }
+        }
+        return value;
+    }
 }
@@ -0,0 +1,79 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Library} engine relying on the multi-version {@link #getDocument() document} instead of mutual exclusion.
+ * <p>
+ * A reader takes no permit at all: it is admitted immediately and reads its own snapshot, which no writer can change.
+ * Writers therefore never wait for readers and readers never wait for writers; only writers wait for each other, on a
+ * fair single-permit semaphore, so that each of them builds its version on top of the previous writer's. The capacity
+ * is reported but does not limit the readers, since a snapshot costs no place in the room.
+ * </p>
+ */
+public class MvccLibrary extends AbstractLibrary {
+    private final Semaphore writing = new Semaphore(1, true);  // Serializes the writers only
+
+    /**
+     * Creates the engine logging to the shared console log.
+     */
+    public MvccLibrary() {
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     */
+    public MvccLibrary(LibraryEventListener listener) {
+        super(listener);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param capacity the reported capacity; readers are not limited by it
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public MvccLibrary(LibraryEventListener listener, int capacity) {
+        super(listener, capacity);
+    }
+
+    @Override
+    protected boolean tryAcquireRead(long timeoutNanos) {
+        return true;
+    }
+
+    @Override
+    protected void acquireRead() {
+        // Never reached: every reader is admitted by tryAcquireRead
+    }
+
+    @Override
+    protected void releaseRead() {
+        // A reader holds no permit, only its snapshot, which stopReading closes
+    }
+
+    @Override
+    protected boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException {
+        // The timed form, even with no wait, keeps the FIFO order of the fair semaphore
+        return writing.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void acquireWrite() throws InterruptedException {
+        writing.acquire();
+    }
+
+    @Override
+    protected void releaseWrite() {
+        writing.release();
+    }
+
+    @Override
+    protected void resizeCapacity(int oldCapacity, int newCapacity) {
+        // The capacity does not limit readers here
+    }
+}
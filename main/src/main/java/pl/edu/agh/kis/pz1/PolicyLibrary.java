@@ -0,0 +1,350 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Library} engine whose admission order is decided by a {@link FairnessPolicy}. The state of the reading room
+ * (readers inside, writer inside, waiting agents of both roles) is guarded by a single {@link ReentrantLock}; agents
+ * that cannot enter wait on a {@link Condition} of their role and re-check the policy whenever the state changes.
+ * <p>
+ * With a fair semaphore a writer needs every place at once and keeps losing them to single readers under a read-heavy
+ * load. The policies bound that wait: {@link FairnessPolicy#WRITER_PREFERENCE} stops readers as soon as a writer
+ * waits, {@link FairnessPolicy#PHASE_FAIR} lets a writer wait for at most one phase of readers, and
+ * {@link FairnessPolicy#BOUNDED_BYPASS} lets at most {@code bypassLimit} readers overtake a waiting writer.
+ * </p>
+ * <p>
+ * Under {@link FairnessPolicy#COMBINING} a burst of writers costs the readers a single drain instead of one per writer:
+ * the first writer to get the empty room opens a window for every writer waiting at that moment, the group writes one
+ * after the other, and the window closes when the last of them has left (or given up). Writers arriving during the
+ * window wait for the next one, after the readers.
+ * </p>
+ */
+public class PolicyLibrary extends AbstractLibrary {
+    /** Number of readers allowed to overtake a waiting writer under {@link FairnessPolicy#BOUNDED_BYPASS} by default. */
+    public static final int DEFAULT_BYPASS_LIMIT = 8;
+
+    private final FairnessPolicy policy;
+    private final int bypassLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();  // Signalled when a waiting reader may be able to enter
+    private final Condition writable = lock.newCondition();  // Signalled when a waiting writer may be able to enter
+
+    // State of the room, guarded by lock
+    private int places;  // Copy of the capacity, changed under the lock by resizeCapacity
+    private int readersInside;
+    private boolean writing;
+    private int waitingReaders;
+    private int waitingWriters;
+    private long phasesCompleted;  // Writing phases over: writes, windows under COMBINING, or writers all given up
+    private int nextPhaseReaders;  // Waiting readers that may only enter after the next writing phase
+    private int bypassed;  // Readers admitted while writers wait, since the last write or since they all gave up
+    private long writerTickets;  // Arrival tickets of the writers, COMBINING only
+    private boolean window;  // A group of writers has the room, COMBINING only
+    private long groupEnd;  // Last ticket belonging to the group of the open window, COMBINING only
+    private int groupPending;  // Writers of the open window that have neither entered nor given up, COMBINING only
+
+    /**
+     * Creates the engine with the default capacity and bypass limit, logging to the shared console log.
+     *
+     * @param policy the admission order
+     */
+    public PolicyLibrary(FairnessPolicy policy) {
+        this.policy = policy;
+        this.bypassLimit = DEFAULT_BYPASS_LIMIT;
+        this.places = getCapacity();
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener    the listener receiving the events of this library
+     * @param capacity    the number of readers allowed in the reading room at the same time
+     * @param policy      the admission order
+     * @param bypassLimit how many readers may overtake a waiting writer, used by {@link FairnessPolicy#BOUNDED_BYPASS}
+     * @throws IllegalArgumentException if {@code capacity} is not positive or {@code bypassLimit} is negative
+     */
+    public PolicyLibrary(LibraryEventListener listener, int capacity, FairnessPolicy policy, int bypassLimit) {
+        super(listener, capacity);
+        if (bypassLimit < 0) {
+            throw new IllegalArgumentException("Bypass limit must not be negative, got " + bypassLimit);
+        }
+        this.policy = policy;
+        this.bypassLimit = bypassLimit;
+        this.places = capacity;
+    }
+
+    /**
+     * Returns the admission order of the engine.
+     *
+     * @return the fairness policy
+     */
+    public FairnessPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns how many readers may overtake a waiting writer under {@link FairnessPolicy#BOUNDED_BYPASS}.
+     *
+     * @return the bypass limit
+     */
+    public int getBypassLimit() {
+        return bypassLimit;
+    }
+
+    @Override
+    protected boolean tryAcquireRead(long timeoutNanos) throws InterruptedException {
+        return acquireRead(true, timeoutNanos);
+    }
+
+    @Override
+    protected void acquireRead() throws InterruptedException {
+        acquireRead(false, 0);
+    }
+
+    @Override
+    protected void releaseRead() {
+        lock.lock();
+        try {
+            readersInside--;
+            readable.signalAll();
+            if (readersInside == 0) {
+                writable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException {
+        return acquireWrite(true, timeoutNanos);
+    }
+
+    @Override
+    protected void acquireWrite() throws InterruptedException {
+        acquireWrite(false, 0);
+    }
+
+    @Override
+    protected void releaseWrite() {
+        lock.lock();
+        try {
+            writing = false;
+            if (!window) {
+                endWritingPhase();
+            } else if (groupPending == 0) {
+                closeWindow();
+            } else {
+                writable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the readers of the next phase in. Must be called with the lock held.
+     */
+    private void endWritingPhase() {
+        phasesCompleted++;
+        nextPhaseReaders = 0;
+        readable.signalAll();
+        writable.signalAll();
+    }
+
+    /**
+     * Closes the window of a combined group of writers. Must be called with the lock held.
+     */
+    private void closeWindow() {
+        window = false;
+        endWritingPhase();
+    }
+
+    @Override
+    protected void resizeCapacity(int oldCapacity, int newCapacity) {
+        lock.lock();
+        try {
+            places = newCapacity;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admits a reader, waiting for as long as the policy requires.
+     *
+     * @param timed        whether {@code timeoutNanos} limits the wait
+     * @param timeoutNanos the maximum time to wait if {@code timed}
+     * @return {@code true} if the reader was admitted, {@code false} if the time ran out
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private boolean acquireRead(boolean timed, long timeoutNanos) throws InterruptedException {
+        long nanos = timeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            // Under PHASE_FAIR and COMBINING a reader arriving while a writer waits or writes belongs to the phase
+            // after that write
+            boolean phased = policy == FairnessPolicy.PHASE_FAIR || policy == FairnessPolicy.COMBINING;
+            long phase = phased && (writing || window || waitingWriters > 0) ? phasesCompleted + 1 : phasesCompleted;
+            if (!canRead(phase)) {
+                if (timed && nanos <= 0) {
+                    return false;
+                }
+                waitingReaders++;
+                if (phase > phasesCompleted) {
+                    nextPhaseReaders++;
+                }
+                try {
+                    while (!canRead(phase)) {
+                        if (!timed) {
+                            readable.await();
+                        } else if (nanos <= 0) {
+                            return false;
+                        } else {
+                            nanos = readable.awaitNanos(nanos);
+                        }
+                    }
+                } finally {
+                    waitingReaders--;
+                    if (phase > phasesCompleted) {
+                        nextPhaseReaders--;
+                    }
+                    if (waitingReaders == 0) {
+                        writable.signalAll();
+                    }
+                }
+            }
+            readersInside++;
+            if (waitingWriters > 0) {
+                bypassed++;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admits a writer, waiting for as long as the policy requires.
+     *
+     * @param timed        whether {@code timeoutNanos} limits the wait
+     * @param timeoutNanos the maximum time to wait if {@code timed}
+     * @return {@code true} if the writer was admitted, {@code false} if the time ran out
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private boolean acquireWrite(boolean timed, long timeoutNanos) throws InterruptedException {
+        long nanos = timeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            long ticket = ++writerTickets;
+            if (!canWrite(ticket)) {
+                if (timed && nanos <= 0) {
+                    return false;
+                }
+                waitingWriters++;
+                boolean admitted = false;
+                try {
+                    while (!canWrite(ticket)) {
+                        if (!timed) {
+                            writable.await();
+                        } else if (nanos <= 0) {
+                            return false;
+                        } else {
+                            nanos = writable.awaitNanos(nanos);
+                        }
+                    }
+                    admitted = true;
+                } finally {
+                    waitingWriters--;
+                    if (!admitted) {
+                        leaveWindow(ticket);
+                        if (waitingWriters == 0) {
+                            bypassed = 0;  // The next writer to wait gets the whole budget
+                        }
+                        if (waitingWriters == 0 && !writing && !window && nextPhaseReaders > 0) {
+                            // No writer is left to end the phase the readers queued behind this one wait for
+                            endWritingPhase();
+                        }
+                    }
+                    // Readers held back by this writer may enter now if it gave up
+                    readable.signalAll();
+                }
+            }
+            if (policy == FairnessPolicy.COMBINING) {
+                if (window) {
+                    groupPending--;
+                } else {
+                    // Every writer waiting now arrived before this one and joins the window
+                    window = true;
+                    groupEnd = writerTickets;
+                    groupPending = waitingWriters;
+                }
+            }
+            writing = true;
+            bypassed = 0;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a writer that gave up from the group of the open window, closing the window if it was the last one
+     * expected. Must be called with the lock held.
+     *
+     * @param ticket the arrival ticket of the writer
+     */
+    private void leaveWindow(long ticket) {
+        if (window && ticket <= groupEnd && --groupPending == 0 && !writing) {
+            closeWindow();
+        }
+    }
+
+    /**
+     * Tells whether a reader may enter now. Must be called with the lock held.
+     *
+     * @param phase the writing phase the reader waits for, see {@link #phasesCompleted}
+     * @return {@code true} if the reader may enter
+     */
+    private boolean canRead(long phase) {
+        if (writing || window || readersInside >= places) {
+            return false;
+        }
+        switch (policy) {
+            case WRITER_PREFERENCE:
+                return waitingWriters == 0;
+            case PHASE_FAIR:
+            case COMBINING:
+                return phase <= phasesCompleted;
+            case BOUNDED_BYPASS:
+                return waitingWriters == 0 || bypassed < bypassLimit;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Tells whether a writer may enter now. Must be called with the lock held.
+     *
+     * @param ticket the arrival ticket of the writer
+     * @return {@code true} if the writer may enter
+     */
+    private boolean canWrite(long ticket) {
+        if (writing || readersInside > 0) {
+            return false;
+        }
+        switch (policy) {
+            case READER_PREFERENCE:
+                return waitingReaders == 0;
+            case PHASE_FAIR:
+                return waitingReaders == nextPhaseReaders;
+            case COMBINING:
+                return window ? ticket <= groupEnd : waitingReaders == nextPhaseReaders;
+            default:
+                return true;
+        }
+    }
+}
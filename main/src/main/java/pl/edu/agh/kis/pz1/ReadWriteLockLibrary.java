@@ -0,0 +1,122 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link Library} engine built on a {@link ReentrantReadWriteLock}. Readers share the read lock and writers take the
+ * write lock, so a writer only competes with readers for the lock itself instead of collecting one permit per reader
+ * place. The reader limit is kept by a separate semaphore that writers never touch, which is also why the capacity can
+ * be resized without affecting waiting writers.
+ * <p>
+ * The lock is owned by threads, so an agent has to request, start and stop on the same thread, as {@link Reader} and
+ * {@link Writer} do.
+ * </p>
+ */
+public class ReadWriteLockLibrary extends AbstractLibrary {
+    private final ResizableSemaphore readerPlaces = new ResizableSemaphore(getCapacity(), true);  // Limits the number of concurrent readers
+    private final ReentrantReadWriteLock lock;
+
+    /**
+     * Creates the engine with a non-fair lock, logging to the shared console log.
+     */
+    public ReadWriteLockLibrary() {
+        this(false);
+    }
+
+    /**
+     * Creates the engine logging to the shared console log.
+     *
+     * @param fair whether the underlying lock should use a fair ordering policy
+     */
+    public ReadWriteLockLibrary(boolean fair) {
+        lock = new ReentrantReadWriteLock(fair);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param fair     whether the underlying lock should use a fair ordering policy
+     */
+    public ReadWriteLockLibrary(LibraryEventListener listener, boolean fair) {
+        this(listener, fair, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param fair     whether the underlying lock should use a fair ordering policy
+     * @param capacity the number of readers allowed in the reading room at the same time
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public ReadWriteLockLibrary(LibraryEventListener listener, boolean fair, int capacity) {
+        super(listener, capacity);
+        lock = new ReentrantReadWriteLock(fair);
+    }
+
+    @Override
+    protected boolean tryAcquireRead(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        if (!readerPlaces.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        boolean locked = false;
+        try {
+            locked = lock.readLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } finally {
+            if (!locked) {
+                readerPlaces.release();
+            }
+        }
+        return locked;
+    }
+
+    @Override
+    protected void acquireRead() throws InterruptedException {
+        readerPlaces.acquire();
+        try {
+            lock.readLock().lockInterruptibly();
+        } catch (InterruptedException e) {
+            readerPlaces.release();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void releaseRead() {
+        lock.readLock().unlock();
+        readerPlaces.release();
+    }
+
+    @Override
+    protected boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException {
+        return lock.writeLock().tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void acquireWrite() throws InterruptedException {
+        lock.writeLock().lockInterruptibly();
+    }
+
+    @Override
+    protected void releaseWrite() {
+        lock.writeLock().unlock();
+    }
+
+    @Override
+    protected void resizeCapacity(int oldCapacity, int newCapacity) {
+        readerPlaces.resize(oldCapacity, newCapacity);
+    }
+
+    /**
+     * Both locks of a {@link ReentrantReadWriteLock} must be unlocked by the thread that locked them.
+     *
+     * @return {@code true}
+     */
+    @Override
+    protected boolean isThreadBound() {
+        return true;
+    }
+}
@@ -1,21 +1,57 @@
 /**
- * Represents a Reader thread that interacts with a Library. A Reader can request to read, 
+ * Represents a Reader agent that interacts with a Library. A Reader can request to read, 
  * perform the reading operation, and idle for a certain amount of time.
  * The reading and idle durations can either be set to default values or specified during instantiation.
  */
 package pl.edu.agh.kis.pz1;
 
-import pl.edu.agh.kis.pz1.util.NumUtils;
+import pl.edu.agh.kis.pz1.doc.Snapshot;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The Reader class models a thread that simulates a reader's behavior in a library.
+ * The Reader class models an agent that simulates a reader's behavior in a library. It can run on a platform thread,
+ * a virtual thread or any executor.
  */
-public class Reader extends Thread {
+public class Reader extends Agent {
     private final Library library;
     private final int MIN_ACTIVE_TIME; // Minimum reading time in milliseconds.
     private final int MAX_ACTIVE_TIME; // Maximum reading time in milliseconds.
     private final int MIN_IDLE_TIME;   // Minimum idle time in milliseconds.
     private final int MAX_IDLE_TIME;   // Maximum idle time in milliseconds.
+    private final Sampler activeTime;  // Distribution of the reading time in milliseconds.
+    private final Sampler idleTime;    // Distribution of the idle time in milliseconds.
+    private volatile Snapshot<List<String>> snapshot;  // Version of the catalog being read, set by the library
+
+    @Override
+    public Role getRole() {
+        return Role.READER;
+    }
+
+    /**
+     * Returns the snapshot of the library's catalog the reader is reading. It does not change while the reader is
+     * inside, whatever writers publish.
+     *
+     * @return the open snapshot, or {@code null} when the reader is not reading
+     */
+    public Snapshot<List<String>> getSnapshot() {
+        return snapshot;
+    }
+
+    void setSnapshot(Snapshot<List<String>> snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    void closeSnapshot() {
+        Snapshot<List<String>> open = snapshot;
+        if (open != null) {
+            snapshot = null;
+            open.close();
+        }
+    }
 
     /**
      * Retrieves the minimum active (reading) time.
@@ -53,11 +89,29 @@ public class Reader extends Thread {
         return MAX_IDLE_TIME;
     }
 
+    /**
+     * Retrieves the distribution of the active (reading) time.
+     *
+     * @return the distribution of the active time in milliseconds.
+     */
+    public Sampler getActiveTime() {
+        return activeTime;
+    }
+
+    /**
+     * Retrieves the distribution of the idle time.
+     *
+     * @return the distribution of the idle time in milliseconds.
+     */
+    public Sampler getIdleTime() {
+        return idleTime;
+    }
+
     /**
      * Constructs a Reader with default active and idle times.
      *
      * @param library the Library instance the Reader interacts with.
-     * @param name    the name of the Reader thread.
+     * @param name    the name of the Reader, or {@code null} to show it by its id.
      */
     public Reader(Library library, String name) {
         this.library = library;
@@ -66,17 +120,20 @@ public class Reader extends Thread {
         MAX_ACTIVE_TIME = 3000;
         MIN_IDLE_TIME = 3000;
         MAX_IDLE_TIME = 10000;
+        activeTime = Sampler.uniform(MIN_ACTIVE_TIME, MAX_ACTIVE_TIME);
+        idleTime = Sampler.uniform(MIN_IDLE_TIME, MAX_IDLE_TIME);
     }
 
     /**
      * Constructs a Reader with specified active and idle times.
      *
      * @param library       the Library instance the Reader interacts with.
-     * @param name          the name of the Reader thread.
+     * @param name          the name of the Reader, or {@code null} to show it by its id.
      * @param minWriteTime  the minimum active (reading) time in milliseconds.
      * @param maxWriteTime  the maximum active (reading) time in milliseconds.
      * @param minIdleTime   the minimum idle time in milliseconds.
      * @param maxIdleTime   the maximum idle time in milliseconds.
+     * @throws IllegalArgumentException if a minimum is greater than its maximum.
      */
     public Reader(Library library, String name, int minWriteTime, int maxWriteTime, int minIdleTime, int maxIdleTime) {
         this.library = library;
@@ -85,26 +142,65 @@ public class Reader extends Thread {
         MAX_ACTIVE_TIME = maxWriteTime;
         MIN_IDLE_TIME = minIdleTime;
         MAX_IDLE_TIME = maxIdleTime;
+        activeTime = Sampler.uniform(minWriteTime, maxWriteTime);
+        idleTime = Sampler.uniform(minIdleTime, maxIdleTime);
+    }
+
+    /**
+     * Constructs a Reader whose active and idle times follow arbitrary distributions, for example heavy-tailed ones.
+     * The range getters ({@link #getMIN_ACTIVE_TIME()} and the like) return -1 for such a Reader.
+     *
+     * @param library    the Library instance the Reader interacts with.
+     * @param name       the name of the Reader, or {@code null} to show it by its id.
+     * @param activeTime the distribution of the active (reading) time in milliseconds.
+     * @param idleTime   the distribution of the idle time in milliseconds.
+     */
+    public Reader(Library library, String name, Sampler activeTime, Sampler idleTime) {
+        this.library = library;
+        this.setName(name);
+        MIN_ACTIVE_TIME = -1;
+        MAX_ACTIVE_TIME = -1;
+        MIN_IDLE_TIME = -1;
+        MAX_IDLE_TIME = -1;
+        this.activeTime = activeTime;
+        this.idleTime = idleTime;
     }
 
     /**
      * Executes the Reader's behavior in a loop. The Reader alternates between reading and idling.
-     * Requests to read and starts reading, then idles for a random time within the specified range.
-     * Interrupts the thread gracefully if an InterruptedException is encountered.
+     * Requests to read and starts reading, then idles for a random time drawn from the idle time distribution.
+     * With a {@linkplain #setRetryPolicy(RetryPolicy) retry policy} a visit whose attempts all time out is skipped.
+     * Stops gracefully if the agent is interrupted, after its current visit if it is retired, and when the library
+     * rejects its request because it was shut down.
      */
     @Override
-    public void run() {
-        while (!Thread.currentThread().isInterrupted()) {
+    protected void act() {
+        while (!Thread.currentThread().isInterrupted() && !isRetired()) {
             try {
-                library.requestReading(this);
-                library.startReading(this);
-                Thread.sleep(NumUtils.randIntBetween(MIN_ACTIVE_TIME, MAX_ACTIVE_TIME));
-                library.stopReading(this);
-                Thread.sleep(NumUtils.randIntBetween(MIN_IDLE_TIME, MAX_IDLE_TIME));
+                if (requestReading()) {
+                    try {  // The place is given back even if the agent is interrupted inside
+                        library.startReading(this);
+                        Thread.sleep(activeTime.sampleLong(getRandom()));
+                    } finally {
+                        library.stopReading(this);
+                    }
+                }
+                idle(idleTime.sampleLong(getRandom()));
             } catch (InterruptedException e) {
                 System.err.println(e.getMessage());
                 Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException e) {
+                break;  // The library was shut down
             }
         }
     }
+
+    private boolean requestReading() throws InterruptedException {
+        RetryPolicy policy = getRetryPolicy();
+        if (policy == null) {
+            library.requestReading(this);
+            return true;
+        }
+        return retry(policy, timeout -> library.tryRequestReading(this, timeout, TimeUnit.MILLISECONDS));
+    }
 }
@@ -1,20 +1,27 @@
 package pl.edu.agh.kis.pz1;
 
-import pl.edu.agh.kis.pz1.util.TextUtils;
+import pl.edu.agh.kis.pz1.util.Sampler;
 
 import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Factory class for creating and managing {@link Reader} objects.
  * <p>
  * This class allows creating {@link Reader} instances with predefined or custom active and idle times.
- * The created readers are stored in an internal list.
+ * The created readers are stored in an internal list until they finish.
+ * </p>
+ * <p>
+ * The readers started with {@link #startReader(Library)} run on a pool owned by the factory, which is shut down
+ * with them: {@link #shutdown()} retires every reader and
+ * {@link #awaitTermination(long, java.util.concurrent.TimeUnit)} waits for the pool to empty, so the factory can be
+ * brought down without leaking threads.
  * </p>
  */
-public class ReaderFactory {
+public class ReaderFactory extends AgentFactory<Reader> {
 
-    /** List of created readers */
-    public ArrayList<Reader> readers;
+    /** List of created readers that have not finished yet, guarded by the factory */
+    public final ArrayList<Reader> readers;
 
     /** Minimum active time for a reader in milliseconds */
     private final int MIN_ACTIVE_TIME;
@@ -28,17 +35,26 @@ public class ReaderFactory {
     /** Maximum idle time for a reader in milliseconds */
     private final int MAX_IDLE_TIME;
 
+    /** Distribution of the active time of a reader in milliseconds, {@code null} when the ranges above are used */
+    private final Sampler activeTime;
+
+    /** Distribution of the idle time of a reader in milliseconds, {@code null} when the ranges above are used */
+    private final Sampler idleTime;
+
     /**
      * Default constructor initializing the factory with default time intervals.
      * Default active time range: 1000ms to 3000ms
      * Default idle time range: 1000ms to 5000ms
      */
     public ReaderFactory() {
-        readers = new ArrayList<>();
+        super(Role.READER);
+        readers = agents;
         MIN_ACTIVE_TIME = 1000;
         MAX_ACTIVE_TIME = 3000;
         MIN_IDLE_TIME = 1000;
         MAX_IDLE_TIME = 5000;
+        activeTime = null;
+        idleTime = null;
     }
 
     /**
@@ -50,23 +66,61 @@ public class ReaderFactory {
      * @param maxIdleTime Maximum idle time for readers in milliseconds
      */
     public ReaderFactory(int minActiveTime, int maxActiveTime, int minIdleTime, int maxIdleTime) {
-        readers = new ArrayList<>();
+        super(Role.READER);
+        readers = agents;
         MIN_ACTIVE_TIME = minActiveTime;
         MAX_ACTIVE_TIME = maxActiveTime;
         MIN_IDLE_TIME = minIdleTime;
         MAX_IDLE_TIME = maxIdleTime;
+        activeTime = null;
+        idleTime = null;
+    }
+
+    /**
+     * Constructor creating readers whose active and idle times follow arbitrary distributions, for example heavy-tailed
+     * ones. The range getters of such readers return -1.
+     *
+     * @param activeTime Distribution of the active time of readers in milliseconds
+     * @param idleTime Distribution of the idle time of readers in milliseconds
+     */
+    public ReaderFactory(Sampler activeTime, Sampler idleTime) {
+        super(Role.READER);
+        readers = agents;
+        MIN_ACTIVE_TIME = -1;
+        MAX_ACTIVE_TIME = -1;
+        MIN_IDLE_TIME = -1;
+        MAX_IDLE_TIME = -1;
+        this.activeTime = activeTime;
+        this.idleTime = idleTime;
     }
 
     /**
-     * Adds a new {@link Reader} to the factory with the provided library and default time intervals.
-     * The new reader is also added to the internal list of readers.
+     * Adds a new {@link Reader} to the factory with the provided library and the time intervals or
+     * distributions of the factory. The new reader has no name of its own and is shown by its id.
+     * The new reader is also added to the internal list of readers, from which the finished ones are dropped.
      *
      * @param library The {@link Library} instance that the reader will interact with
      * @return The newly created {@link Reader} object
      */
     public Reader addReader(Library library) {
-        Reader reader = new Reader(library, TextUtils.generateUUID(), MIN_ACTIVE_TIME, MAX_ACTIVE_TIME, MIN_IDLE_TIME, MAX_IDLE_TIME);
-        readers.add(reader);
-        return reader;
+        return add(library);
+    }
+
+    @Override
+    protected Reader newAgent(Library library) {
+        return activeTime == null
+                ? new Reader(library, null, MIN_ACTIVE_TIME, MAX_ACTIVE_TIME, MIN_IDLE_TIME, MAX_IDLE_TIME)
+                : new Reader(library, null, activeTime, idleTime);
+    }
+
+    /**
+     * Creates a reader like {@link #addReader(Library)} and starts it on the pool of the factory.
+     *
+     * @param library The {@link Library} instance that the reader will interact with
+     * @return The started {@link Reader} object
+     * @throws RejectedExecutionException if the factory was shut down
+     */
+    public Reader startReader(Library library) {
+        return start(library);
     }
 }
@@ -0,0 +1,36 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A {@link Semaphore} whose number of permits can be changed while it is in use. Shrinking never blocks: the surplus
+ * is subtracted right away, possibly making the number of available permits negative, and the semaphore settles at
+ * its new size as the current holders release.
+ */
+final class ResizableSemaphore extends Semaphore {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the semaphore.
+     *
+     * @param permits the initial number of permits
+     * @param fair    whether waiting threads are served in FIFO order
+     */
+    ResizableSemaphore(int permits, boolean fair) {
+        super(permits, fair);
+    }
+
+    /**
+     * Changes the total number of permits.
+     *
+     * @param oldPermits the current total number of permits
+     * @param newPermits the new total number of permits
+     */
+    void resize(int oldPermits, int newPermits) {
+        if (newPermits > oldPermits) {
+            release(newPermits - oldPermits);
+        } else if (newPermits < oldPermits) {
+            reducePermits(oldPermits - newPermits);
+        }
+    }
+}
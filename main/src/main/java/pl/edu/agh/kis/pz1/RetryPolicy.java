@@ -0,0 +1,148 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * How an agent asks for access with a bounded wait: each attempt waits at most {@link #getTimeoutMillis()} with
+ * {@link Library#tryRequestReading(Reader, long, java.util.concurrent.TimeUnit)} or its writer counterpart, and after
+ * a failed attempt the agent backs off before the next one, up to {@link #getMaxAttempts()} attempts. If all of them
+ * fail the agent gives the visit up and idles as if it had made it.
+ * <p>
+ * The backoff is either fixed, or exponential with full jitter: after the n-th failure the delay is drawn uniformly
+ * between 0 and {@code min(max, base * 2^(n-1))}. The jitter spreads agents that timed out together, so they do not
+ * come back to a saturated room all at the same moment.
+ * </p>
+ */
+public final class RetryPolicy {
+    /**
+     * How the delay between attempts grows.
+     */
+    public enum Backoff {
+        /** The same delay after every failure. */
+        FIXED,
+        /** A random delay under a bound doubling after every failure. */
+        EXPONENTIAL
+    }
+
+    private final long timeoutMillis;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private final long baseMillis;
+    private final long maxMillis;
+
+    private RetryPolicy(long timeoutMillis, int maxAttempts, Backoff backoff, long baseMillis, long maxMillis) {
+        if (timeoutMillis < 0 || maxAttempts <= 0 || baseMillis < 0 || maxMillis < baseMillis) {
+            throw new IllegalArgumentException("A retry policy needs a non-negative timeout and delays, a maximum delay"
+                    + " not below the base one and at least one attempt");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Returns a policy with a fixed delay between attempts.
+     *
+     * @param timeoutMillis the maximum wait of one attempt, in milliseconds
+     * @param maxAttempts   the number of attempts before the visit is given up
+     * @param delayMillis   the delay after a failed attempt, in milliseconds
+     * @return the policy
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    public static RetryPolicy fixed(long timeoutMillis, int maxAttempts, long delayMillis) {
+        return new RetryPolicy(timeoutMillis, maxAttempts, Backoff.FIXED, delayMillis, delayMillis);
+    }
+
+    /**
+     * Returns a policy with exponential backoff and full jitter.
+     *
+     * @param timeoutMillis the maximum wait of one attempt, in milliseconds
+     * @param maxAttempts   the number of attempts before the visit is given up
+     * @param baseMillis    the bound of the delay after the first failure, in milliseconds
+     * @param maxMillis     the largest bound of the delay, in milliseconds
+     * @return the policy
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    public static RetryPolicy exponential(long timeoutMillis, int maxAttempts, long baseMillis, long maxMillis) {
+        return new RetryPolicy(timeoutMillis, maxAttempts, Backoff.EXPONENTIAL, baseMillis, maxMillis);
+    }
+
+    /**
+     * Parses a policy: {@code fixed:TIMEOUT_MS:ATTEMPTS:DELAY_MS} or
+     * {@code exponential:TIMEOUT_MS:ATTEMPTS:BASE_MS:MAX_MS}.
+     *
+     * @param spec the textual form
+     * @return the policy
+     * @throws IllegalArgumentException if the text is not a valid policy
+     */
+    public static RetryPolicy parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            if (parts[0].equals("fixed") && parts.length == 4) {
+                return fixed(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+            }
+            if (parts[0].equals("exponential") && parts.length == 5) {
+                return exponential(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid retry policy: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown retry policy: " + spec);
+    }
+
+    /**
+     * Returns the maximum wait of one attempt.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Returns the number of attempts made before a visit is given up.
+     *
+     * @return the number of attempts, at least 1
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns how the delay between attempts grows.
+     *
+     * @return the kind of backoff
+     */
+    public Backoff getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * Draws the delay after a failed attempt.
+     *
+     * @param failures the number of failed attempts so far, at least 1
+     * @param random   the stream the jitter is drawn from
+     * @return the delay in milliseconds
+     */
+    public long delayMillis(int failures, SplittableRandom random) {
+        if (backoff == Backoff.FIXED) {
+            return baseMillis;
+        }
+        long bound = baseMillis;
+        for (int i = 1; i < failures && bound < maxMillis; i++) {
+            bound = bound > maxMillis / 2 ? maxMillis : bound * 2;
+        }
+        return bound == 0 ? 0 : random.nextLong(Math.min(bound, Long.MAX_VALUE - 1) + 1);
+    }
+
+    @Override
+    public String toString() {
+        String delay = backoff == Backoff.FIXED ? baseMillis + " ms apart"
+                : "exponential backoff from " + baseMillis + " to " + maxMillis + " ms";
+        return maxAttempts + " attempts of " + timeoutMillis + " ms, " + delay;
+    }
+}
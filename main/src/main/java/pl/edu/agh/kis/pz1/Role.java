@@ -0,0 +1,22 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.Locale;
+
+/**
+ * Roles an {@link Agent} can have in the library.
+ */
+public enum Role {
+    /** Shares the reading room with other readers. */
+    READER,
+    /** Has the reading room for itself. */
+    WRITER;
+
+    /**
+     * Returns the lower-case name of the role, as used in labels and reports.
+     *
+     * @return {@code "reader"} or {@code "writer"}
+     */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
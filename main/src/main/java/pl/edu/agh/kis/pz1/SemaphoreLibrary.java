@@ -0,0 +1,191 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The original {@link Library} engine. The reading room is a fair {@link Semaphore} with one permit per reader place;
+ * a reader takes a single permit and a writer takes all of them, which gives it the room for itself.
+ * <p>
+ * Because the semaphore is fair, every request (reader or writer) waits in a single global FIFO queue.
+ * </p>
+ * <p>
+ * A writer asks for as many permits as there are places, so the semaphore cannot simply be shrunk under a writer that
+ * is already waiting for the old number. Instead every capacity has its own {@link Pool}: a resize opens a new pool
+ * for new requests, the old pool keeps serving the agents that already queued in it, and the new pool only gets its
+ * permits once the old one has drained. Pools are therefore never in use at the same time, and a new capacity, larger
+ * or smaller, applies as soon as the agents queued before the resize have been served.
+ * </p>
+ */
+public class SemaphoreLibrary extends AbstractLibrary {
+    private volatile Pool admitting;  // Pool new requests queue in
+    private volatile Pool active;  // Pool whose permits are in use, every admitted agent holds permits of this pool
+
+    /**
+     * Creates the engine logging to the shared console log.
+     */
+    public SemaphoreLibrary() {
+        init();
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     */
+    public SemaphoreLibrary(LibraryEventListener listener) {
+        this(listener, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param capacity the number of readers allowed in the reading room at the same time
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public SemaphoreLibrary(LibraryEventListener listener, int capacity) {
+        super(listener, capacity);
+        init();
+    }
+
+    private void init() {
+        Pool pool = new Pool(getCapacity());
+        pool.open();
+        admitting = pool;
+        active = pool;
+    }
+
+    @Override
+    protected boolean tryAcquireRead(long timeoutNanos) throws InterruptedException {
+        return tryAcquire(false, timeoutNanos);
+    }
+
+    @Override
+    protected void acquireRead() throws InterruptedException {
+        acquire(false);
+    }
+
+    @Override
+    protected void releaseRead() {
+        release(1);
+    }
+
+    @Override
+    protected boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException {
+        return tryAcquire(true, timeoutNanos);
+    }
+
+    @Override
+    protected void acquireWrite() throws InterruptedException {
+        acquire(true);
+    }
+
+    @Override
+    protected void releaseWrite() {
+        release(active.capacity);
+    }
+
+    @Override
+    protected void resizeCapacity(int oldCapacity, int newCapacity) {
+        Pool old = admitting;
+        Pool next = new Pool(newCapacity);
+        old.successor = next;
+        admitting = next;
+        old.retire();
+    }
+
+    private boolean tryAcquire(boolean writer, long timeoutNanos) throws InterruptedException {
+        Pool pool = enter();
+        boolean acquired = false;
+        try {
+            acquired = pool.permits.tryAcquire(writer ? pool.capacity : 1, timeoutNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            if (!acquired) {
+                pool.leave();
+            }
+        }
+        return acquired;
+    }
+
+    private void acquire(boolean writer) throws InterruptedException {
+        Pool pool = enter();
+        try {
+            pool.permits.acquire(writer ? pool.capacity : 1);
+        } catch (InterruptedException e) {
+            pool.leave();
+            throw e;
+        }
+    }
+
+    private void release(int permits) {
+        Pool pool = active;
+        pool.permits.release(permits);
+        pool.leave();
+    }
+
+    /**
+     * Registers the calling agent in the pool currently admitting requests.
+     *
+     * @return the pool the agent has to take its permits from
+     */
+    private Pool enter() {
+        for (;;) {
+            Pool pool = admitting;
+            if (pool.enter()) {
+                return pool;
+            }
+        }
+    }
+
+    /**
+     * The permits of one capacity of the reading room, together with the number of agents waiting for or holding them.
+     */
+    private final class Pool {
+        private static final int OPEN = 1 << 30;  // The pool has its permits
+        private static final int RETIRED = 1 << 29;  // The pool accepts no new agents
+        private static final int DRAINED = OPEN | RETIRED;  // Open, retired and unused: time to open the successor
+
+        private final int capacity;
+        private final Semaphore permits = new Semaphore(0, true);
+        private final AtomicInteger state = new AtomicInteger();  // OPEN and RETIRED flags plus the number of agents
+        private volatile Pool successor;  // Pool opened once this one is drained, set before it is retired
+
+        Pool(int capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean enter() {
+            for (;;) {
+                int current = state.get();
+                if ((current & RETIRED) != 0) {
+                    return false;
+                }
+                if (state.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void leave() {
+            if (state.decrementAndGet() == DRAINED) {
+                successor.open();
+            }
+        }
+
+        void retire() {
+            if (state.addAndGet(RETIRED) == DRAINED) {
+                successor.open();
+            }
+        }
+
+        void open() {
+            active = this;
+            permits.release(capacity);
+            if (state.addAndGet(OPEN) == DRAINED) {
+                successor.open();
+            }
+        }
+    }
+}
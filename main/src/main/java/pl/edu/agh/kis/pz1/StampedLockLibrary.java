@@ -0,0 +1,97 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * {@link Library} engine built on a {@link StampedLock}. It behaves like {@link ReadWriteLockLibrary}, but the lock is
+ * not owned by threads and is cheaper to take, at the cost of having no fairness guarantees.
+ * The reader limit is kept by a separate semaphore that writers never touch.
+ */
+public class StampedLockLibrary extends AbstractLibrary {
+    private final ResizableSemaphore readerPlaces = new ResizableSemaphore(getCapacity(), true);  // Limits the number of concurrent readers
+    private final StampedLock stampedLock = new StampedLock();
+    private final Lock readLock = stampedLock.asReadLock();
+    private final Lock writeLock = stampedLock.asWriteLock();
+
+    /**
+     * Creates the engine logging to the shared console log.
+     */
+    public StampedLockLibrary() {
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     */
+    public StampedLockLibrary(LibraryEventListener listener) {
+        super(listener);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param listener the listener receiving the events of this library
+     * @param capacity the number of readers allowed in the reading room at the same time
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public StampedLockLibrary(LibraryEventListener listener, int capacity) {
+        super(listener, capacity);
+    }
+
+    @Override
+    protected boolean tryAcquireRead(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        if (!readerPlaces.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        boolean locked = false;
+        try {
+            locked = readLock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } finally {
+            if (!locked) {
+                readerPlaces.release();
+            }
+        }
+        return locked;
+    }
+
+    @Override
+    protected void acquireRead() throws InterruptedException {
+        readerPlaces.acquire();
+        try {
+            readLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            readerPlaces.release();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void releaseRead() {
+        readLock.unlock();
+        readerPlaces.release();
+    }
+
+    @Override
+    protected boolean tryAcquireWrite(long timeoutNanos) throws InterruptedException {
+        return writeLock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void acquireWrite() throws InterruptedException {
+        writeLock.lockInterruptibly();
+    }
+
+    @Override
+    protected void releaseWrite() {
+        writeLock.unlock();
+    }
+
+    @Override
+    protected void resizeCapacity(int oldCapacity, int newCapacity) {
+        readerPlaces.resize(oldCapacity, newCapacity);
+    }
+}
@@ -0,0 +1,145 @@
+package pl.edu.agh.kis.pz1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * FIFO queue of agents keyed by their {@linkplain Agent#getId() ids}, with O(1) enqueue and O(1) removal from anywhere
+ * in the queue.
+ * <p>
+ * The queue is a doubly linked list threaded through int arrays indexed by id ({@code next[id]}, {@code prev[id]}, 0
+ * meaning none, since ids start at 1) instead of node objects, so joining and leaving allocates nothing and removal
+ * needs no scan. The arrays are split into pages of {@value #PAGE_SIZE} consecutive ids, created the first time an id
+ * of the page queues up, and the agents themselves are kept in an {@link AgentSet}: about 12 bytes per id in all.
+ * Asking to remove an agent that is not queued, which is what every admission without waiting does, only reads the
+ * bitset.
+ * </p>
+ * <p>
+ * Joining and unlinking take a short monitor, unlike the lock-free views this queue replaced: relinking both
+ * neighbours of an agent leaving from the middle cannot be done with a single compare-and-set. The lock is only taken
+ * by agents that could not be admitted, which are about to block in the engine anyway, or which have just been
+ * woken up from it, so it stays off the uncontended path; {@link #size()} and {@link #oldest()} do not take it.
+ * </p>
+ */
+final class WaitQueue {
+    static final int PAGE_BITS = 12;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private Page[] pages = new Page[1];  // Guarded by this
+    private final AgentSet members = new AgentSet();  // The queued agents, readable without the lock
+    private volatile int head;  // Id of the oldest agent, 0 when empty; written under the lock
+    private int tail;  // Id of the newest agent, 0 when empty; guarded by this
+
+    /**
+     * Appends an agent at the end of the queue.
+     *
+     * @param agent the agent
+     * @return {@code false} if the agent was already queued, which leaves its place unchanged
+     */
+    synchronized boolean add(Agent agent) {
+        int id = agent.getId();
+        Page page = page(id >>> PAGE_BITS);
+        int offset = id & PAGE_MASK;
+        if (members.contains(agent)) {
+            return false;
+        }
+        page.prev[offset] = tail;
+        page.next[offset] = 0;
+        if (tail == 0) {
+            head = id;
+        } else {
+            setNext(tail, id);
+        }
+        tail = id;
+        members.add(agent);
+        return true;
+    }
+
+    /**
+     * Removes an agent wherever it is in the queue.
+     *
+     * @param agent the agent
+     * @return {@code true} if it was queued
+     */
+    boolean remove(Agent agent) {
+        return members.contains(agent) && unlink(agent);
+    }
+
+    private synchronized boolean unlink(Agent agent) {
+        if (!members.remove(agent)) {
+            return false;
+        }
+        int id = agent.getId();
+        Page page = pages[id >>> PAGE_BITS];
+        int offset = id & PAGE_MASK;
+        int prev = page.prev[offset];
+        int next = page.next[offset];
+        if (prev == 0) {
+            head = next;
+        } else {
+            setNext(prev, next);
+        }
+        if (next == 0) {
+            tail = prev;
+        } else {
+            pages[next >>> PAGE_BITS].prev[next & PAGE_MASK] = prev;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of queued agents.
+     *
+     * @return the size of the queue
+     */
+    int size() {
+        return members.size();
+    }
+
+    /**
+     * Returns the agent at the head of the queue, without taking the lock. The answer may be out of date by the time
+     * it is used, which is good enough for sampling.
+     *
+     * @return the agent waiting the longest, or {@code null} if the queue is empty
+     */
+    Agent oldest() {
+        int id = head;
+        return id == 0 ? null : members.get(id);
+    }
+
+    /**
+     * Lists the queued agents, oldest first.
+     *
+     * @return a new list with the queued agents
+     */
+    synchronized ArrayList<Agent> toList() {
+        ArrayList<Agent> result = new ArrayList<>(size());
+        for (int id = head; id != 0; id = pages[id >>> PAGE_BITS].next[id & PAGE_MASK]) {
+            result.add(members.get(id));
+        }
+        return result;
+    }
+
+    private void setNext(int id, int next) {
+        pages[id >>> PAGE_BITS].next[id & PAGE_MASK] = next;
+    }
+
+    private Page page(int index) {
+        if (index >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(index + 1, pages.length * 2));
+        }
+        if (pages[index] == null) {
+            pages[index] = new Page();
+        }
+        return pages[index];
+    }
+
+    /**
+     * The links of {@value #PAGE_SIZE} consecutive ids.
+     */
+    private static final class Page {
+        private final int[] prev = new int[PAGE_SIZE];
+        private final int[] next = new int[PAGE_SIZE];
+    }
+}
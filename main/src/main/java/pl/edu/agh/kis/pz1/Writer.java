@@ -1,21 +1,70 @@
 /**
- * Represents a Writer thread that interacts with a Library. A Writer can request to write,
+ * Represents a Writer agent that interacts with a Library. A Writer can request to write,
  * perform the writing operation, and idle for a certain amount of time.
  * The writing and idle durations can either be set to default values or specified during instantiation.
  */
 package pl.edu.agh.kis.pz1;
 
-import pl.edu.agh.kis.pz1.util.NumUtils;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 /**
- * The Writer class models a thread that simulates a writer's behavior in a library.
+ * The Writer class models an agent that simulates a writer's behavior in a library. It can run on a platform thread,
+ * a virtual thread or any executor.
  */
-public class Writer extends Thread {
+public class Writer extends Agent {
     private final Library library;
     private final int MIN_ACTIVE_TIME; // Minimum writing time in milliseconds.
     private final int MAX_ACTIVE_TIME; // Maximum writing time in milliseconds.
     private final int MIN_IDLE_TIME;   // Minimum idle time in milliseconds.
     private final int MAX_IDLE_TIME;   // Maximum idle time in milliseconds.
+    private final Sampler activeTime;  // Distribution of the writing time in milliseconds.
+    private final Sampler idleTime;    // Distribution of the idle time in milliseconds.
+    private volatile UnaryOperator<List<String>> edit;  // Change of the catalog published when the writer stops
+
+    /** Number of entries the catalog keeps; each write of the default behavior appends one and drops the oldest. */
+    public static final int CATALOG_ENTRIES = 100;
+
+    @Override
+    public Role getRole() {
+        return Role.WRITER;
+    }
+
+    /**
+     * Stages a change of the library's catalog. The library builds the new version from the current one and publishes
+     * it atomically when the writer stops writing; readers keep the version they started with.
+     *
+     * @param edit the function computing the new entries from the current ones; must not modify its argument
+     */
+    public void stageEdit(UnaryOperator<List<String>> edit) {
+        this.edit = edit;
+    }
+
+    UnaryOperator<List<String>> takeEdit() {
+        UnaryOperator<List<String>> staged = edit;
+        edit = null;
+        return staged;
+    }
+
+    /**
+     * Returns a copy of the entries with one more at the end, keeping at most {@link #CATALOG_ENTRIES} of them.
+     *
+     * @param entries the current entries
+     * @param entry   the entry to append
+     * @return a new immutable list
+     */
+    static List<String> append(List<String> entries, String entry) {
+        int from = Math.max(0, entries.size() + 1 - CATALOG_ENTRIES);
+        List<String> next = new ArrayList<>(entries.size() + 1 - from);
+        next.addAll(entries.subList(from, entries.size()));
+        next.add(entry);
+        return List.copyOf(next);
+    }
 
     /**
      * Retrieves the minimum active (writing) time.
@@ -53,11 +102,29 @@ public class Writer extends Thread {
         return MAX_IDLE_TIME;
     }
 
+    /**
+     * Retrieves the distribution of the active (writing) time.
+     *
+     * @return the distribution of the active time in milliseconds.
+     */
+    public Sampler getActiveTime() {
+        return activeTime;
+    }
+
+    /**
+     * Retrieves the distribution of the idle time.
+     *
+     * @return the distribution of the idle time in milliseconds.
+     */
+    public Sampler getIdleTime() {
+        return idleTime;
+    }
+
     /**
      * Constructs a Writer with default active and idle times.
      *
      * @param library the Library instance the Writer interacts with.
-     * @param name    the name of the Writer thread.
+     * @param name    the name of the Writer, or {@code null} to show it by its id.
      */
     public Writer(Library library, String name) {
         this.setName(name);
@@ -66,17 +133,20 @@ public class Writer extends Thread {
         MAX_ACTIVE_TIME = 3000;
         MIN_IDLE_TIME = 3000;
         MAX_IDLE_TIME = 10000;
+        activeTime = Sampler.uniform(MIN_ACTIVE_TIME, MAX_ACTIVE_TIME);
+        idleTime = Sampler.uniform(MIN_IDLE_TIME, MAX_IDLE_TIME);
     }
 
     /**
      * Constructs a Writer with specified active and idle times.
      *
      * @param library       the Library instance the Writer interacts with.
-     * @param name          the name of the Writer thread.
+     * @param name          the name of the Writer, or {@code null} to show it by its id.
      * @param minWriteTime  the minimum active (writing) time in milliseconds.
      * @param maxWriteTime  the maximum active (writing) time in milliseconds.
      * @param minIdleTime   the minimum idle time in milliseconds.
      * @param maxIdleTime   the maximum idle time in milliseconds.
+     * @throws IllegalArgumentException if a minimum is greater than its maximum.
      */
     public Writer(Library library, String name, int minWriteTime, int maxWriteTime, int minIdleTime, int maxIdleTime) {
         this.library = library;
@@ -85,26 +155,67 @@ public class Writer extends Thread {
         MAX_ACTIVE_TIME = maxWriteTime;
         MIN_IDLE_TIME = minIdleTime;
         MAX_IDLE_TIME = maxIdleTime;
+        activeTime = Sampler.uniform(minWriteTime, maxWriteTime);
+        idleTime = Sampler.uniform(minIdleTime, maxIdleTime);
+    }
+
+    /**
+     * Constructs a Writer whose active and idle times follow arbitrary distributions, for example heavy-tailed ones.
+     * The range getters ({@link #getMIN_ACTIVE_TIME()} and the like) return -1 for such a Writer.
+     *
+     * @param library    the Library instance the Writer interacts with.
+     * @param name       the name of the Writer, or {@code null} to show it by its id.
+     * @param activeTime the distribution of the active (writing) time in milliseconds.
+     * @param idleTime   the distribution of the idle time in milliseconds.
+     */
+    public Writer(Library library, String name, Sampler activeTime, Sampler idleTime) {
+        this.library = library;
+        this.setName(name);
+        MIN_ACTIVE_TIME = -1;
+        MAX_ACTIVE_TIME = -1;
+        MIN_IDLE_TIME = -1;
+        MAX_IDLE_TIME = -1;
+        this.activeTime = activeTime;
+        this.idleTime = idleTime;
     }
 
     /**
      * Executes the Writer's behavior in a loop. The Writer alternates between writing and idling.
-     * Requests to write and starts writing, then idles for a random time within the specified range.
-     * Interrupts the thread gracefully if an InterruptedException is encountered.
+     * Requests to write and starts writing, then idles for a random time drawn from the idle time distribution.
+     * Every write appends the name of the Writer to the library's catalog. With a
+     * {@linkplain #setRetryPolicy(RetryPolicy) retry policy} a visit whose attempts all time out is skipped. Stops
+     * gracefully if the agent is interrupted, after its current visit if it is retired, and when the library rejects
+     * its request because it was shut down.
      */
     @Override
-    public void run() {
-        while (!Thread.currentThread().isInterrupted()) {
+    protected void act() {
+        while (!Thread.currentThread().isInterrupted() && !isRetired()) {
             try {
-                library.requestWriting(this);
-                library.startWriting(this);
-                Thread.sleep(NumUtils.randIntBetween(MIN_ACTIVE_TIME, MAX_ACTIVE_TIME));
-                library.stopWriting(this);
-                Thread.sleep(NumUtils.randIntBetween(MIN_IDLE_TIME, MAX_IDLE_TIME));
+                if (requestWriting()) {
+                    try {  // The place is given back even if the agent is interrupted inside
+                        library.startWriting(this);
+                        Thread.sleep(activeTime.sampleLong(getRandom()));
+                        stageEdit(entries -> append(entries, getName()));
+                    } finally {
+                        library.stopWriting(this);
+                    }
+                }
+                idle(idleTime.sampleLong(getRandom()));
             } catch (InterruptedException e) {
                 System.err.println(e.getMessage());
                 Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException e) {
+                break;  // The library was shut down
             }
         }
     }
+
+    private boolean requestWriting() throws InterruptedException {
+        RetryPolicy policy = getRetryPolicy();
+        if (policy == null) {
+            library.requestWriting(this);
+            return true;
+        }
+        return retry(policy, timeout -> library.tryRequestWriting(this, timeout, TimeUnit.MILLISECONDS));
+    }
 }
@@ -1,20 +1,27 @@
 package pl.edu.agh.kis.pz1;
 
-import pl.edu.agh.kis.pz1.util.TextUtils;
+import pl.edu.agh.kis.pz1.util.Sampler;
 
 import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Factory class for creating and managing {@link Writer} objects.
  * <p>
  * This class allows creating {@link Writer} instances with predefined or custom active and idle times.
- * The created writers are stored in an internal list.
+ * The created writers are stored in an internal list until they finish.
+ * </p>
+ * <p>
+ * The writers started with {@link #startWriter(Library)} run on a pool owned by the factory, which is shut down
+ * with them: {@link #shutdown()} retires every writer and
+ * {@link #awaitTermination(long, java.util.concurrent.TimeUnit)} waits for the pool to empty, so the factory can be
+ * brought down without leaking threads.
  * </p>
  */
-public class WriterFactory {
+public class WriterFactory extends AgentFactory<Writer> {
 
-    /** List of created writers */
-    public ArrayList<Writer> writers;
+    /** List of created writers that have not finished yet, guarded by the factory */
+    public final ArrayList<Writer> writers;
 
     /** Minimum active time for a writer in milliseconds */
     private final int MIN_ACTIVE_TIME;
@@ -28,17 +35,26 @@ public class WriterFactory {
     /** Maximum idle time for a writer in milliseconds */
     private final int MAX_IDLE_TIME;
 
+    /** Distribution of the active time of a writer in milliseconds, {@code null} when the ranges above are used */
+    private final Sampler activeTime;
+
+    /** Distribution of the idle time of a writer in milliseconds, {@code null} when the ranges above are used */
+    private final Sampler idleTime;
+
     /**
      * Default constructor initializing the factory with default time intervals.
      * Default active time range: 1000ms to 3000ms
      * Default idle time range: 3000ms to 10000ms
      */
     public WriterFactory() {
-        writers = new ArrayList<>();
+        super(Role.WRITER);
+        writers = agents;
         MIN_ACTIVE_TIME = 1000;
         MAX_ACTIVE_TIME = 3000;
         MIN_IDLE_TIME = 3000;
         MAX_IDLE_TIME = 10000;
+        activeTime = null;
+        idleTime = null;
     }
 
     /**
@@ -50,23 +66,61 @@ public class WriterFactory {
      * @param maxIdleTime Maximum idle time for writers in milliseconds
      */
     public WriterFactory(int minActiveTime, int maxActiveTime, int minIdleTime, int maxIdleTime) {
-        writers = new ArrayList<>();
+        super(Role.WRITER);
+        writers = agents;
         MIN_ACTIVE_TIME = minActiveTime;
         MAX_ACTIVE_TIME = maxActiveTime;
         MIN_IDLE_TIME = minIdleTime;
         MAX_IDLE_TIME = maxIdleTime;
+        activeTime = null;
+        idleTime = null;
+    }
+
+    /**
+     * Constructor creating writers whose active and idle times follow arbitrary distributions, for example heavy-tailed
+     * ones. The range getters of such writers return -1.
+     *
+     * @param activeTime Distribution of the active time of writers in milliseconds
+     * @param idleTime Distribution of the idle time of writers in milliseconds
+     */
+    public WriterFactory(Sampler activeTime, Sampler idleTime) {
+        super(Role.WRITER);
+        writers = agents;
+        MIN_ACTIVE_TIME = -1;
+        MAX_ACTIVE_TIME = -1;
+        MIN_IDLE_TIME = -1;
+        MAX_IDLE_TIME = -1;
+        this.activeTime = activeTime;
+        this.idleTime = idleTime;
     }
 
     /**
-     * Adds a new {@link Writer} to the factory with the provided library and default time intervals.
-     * The new writer is also added to the internal list of writers.
+     * Adds a new {@link Writer} to the factory with the provided library and the time intervals or
+     * distributions of the factory. The new writer has no name of its own and is shown by its id.
+     * The new writer is also added to the internal list of writers, from which the finished ones are dropped.
      *
      * @param library The {@link Library} instance that the writer will interact with
      * @return The newly created {@link Writer} object
      */
     public Writer addWriter(Library library) {
-        Writer writer = new Writer(library, TextUtils.generateUUID(), MIN_ACTIVE_TIME, MAX_ACTIVE_TIME, MIN_IDLE_TIME, MAX_IDLE_TIME);
-        writers.add(writer);
-        return writer;
+        return add(library);
+    }
+
+    @Override
+    protected Writer newAgent(Library library) {
+        return activeTime == null
+                ? new Writer(library, null, MIN_ACTIVE_TIME, MAX_ACTIVE_TIME, MIN_IDLE_TIME, MAX_IDLE_TIME)
+                : new Writer(library, null, activeTime, idleTime);
+    }
+
+    /**
+     * Creates a writer like {@link #addWriter(Library)} and starts it on the pool of the factory.
+     *
+     * @param library The {@link Library} instance that the writer will interact with
+     * @return The started {@link Writer} object
+     * @throws RejectedExecutionException if the factory was shut down
+     */
+    public Writer startWriter(Library library) {
+        return start(library);
     }
 }
@@ -0,0 +1,62 @@
+package pl.edu.agh.kis.pz1.doc;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An open view of one version of a {@link VersionedDocument}. The content does not change while the snapshot is
+ * open, whatever writers publish in the meantime. Closing the snapshot lets the version be reclaimed; closing it
+ * again has no effect.
+ *
+ * @param <T> the type of the content
+ */
+public final class Snapshot<T> implements AutoCloseable {
+    private final VersionedDocument<T> document;
+    private final VersionedDocument.Version<T> version;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    Snapshot(VersionedDocument<T> document, VersionedDocument.Version<T> version) {
+        this.document = document;
+        this.version = version;
+    }
+
+    /**
+     * Returns the content of the version.
+     *
+     * @return the immutable content
+     * @throws IllegalStateException if the snapshot was closed
+     */
+    public T get() {
+        if (closed.get()) {
+            throw new IllegalStateException("Snapshot of version " + version.number + " is closed");
+        }
+        return version.content;
+    }
+
+    /**
+     * Returns the number of the version.
+     *
+     * @return the version seen by this snapshot
+     */
+    public long getVersion() {
+        return version.number;
+    }
+
+    /**
+     * Tells whether the snapshot was closed.
+     *
+     * @return {@code true} once {@link #close()} was called
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Releases the version.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            document.release(version);
+        }
+    }
+}
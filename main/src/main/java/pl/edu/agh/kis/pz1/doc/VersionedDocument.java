@@ -0,0 +1,147 @@
+package pl.edu.agh.kis.pz1.doc;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * A shared document kept as a chain of immutable versions (multi-version copy-on-write).
+ * <p>
+ * A reader takes a {@link Snapshot} of the current version: it never waits and never sees a change made after it took
+ * the snapshot. A writer never modifies a version either; it builds the next one from the current one and publishes it
+ * with a single compare-and-set, so readers see either the whole change or none of it. Concurrent writers do not
+ * block each other; a writer that loses the race builds its version again on top of the winner's.
+ * </p>
+ * <p>
+ * Every version counts its references: one held by the document while the version is current, and one per open
+ * snapshot. When the last of them is gone the version is reclaimed: its content is dropped, so the garbage collector
+ * can free it even while a closed {@link Snapshot} object is still reachable, and the reclamation is counted in
+ * {@link #getReclaimedVersions()}.
+ * </p>
+ *
+ * @param <T> the type of the content, which must be immutable
+ */
+public class VersionedDocument<T> {
+    private final AtomicReference<Version<T>> current;
+    private final LongAdder reclaimed = new LongAdder();  // Number of versions whose content was dropped
+
+    /**
+     * Creates a document whose version 0 has the given content.
+     *
+     * @param initial the initial content
+     */
+    public VersionedDocument(T initial) {
+        current = new AtomicReference<>(new Version<>(0, Objects.requireNonNull(initial)));
+    }
+
+    /**
+     * Takes a snapshot of the current version. Never blocks; the version stays alive until the snapshot is closed.
+     *
+     * @return an open snapshot
+     */
+    public Snapshot<T> snapshot() {
+        return new Snapshot<>(this, pin());
+    }
+
+    /**
+     * Builds a new version from the current content and publishes it. The edit may be applied more than once if
+     * another writer publishes in the meantime, so it must not have side effects.
+     *
+     * @param edit the function computing the new content from the current one; must not modify its argument
+     * @return the number of the published version
+     */
+    public long update(UnaryOperator<T> edit) {
+        while (true) {
+            Version<T> base = pin();
+            Version<T> next;
+            try {
+                next = new Version<>(base.number + 1, Objects.requireNonNull(edit.apply(base.content)));
+            } catch (RuntimeException e) {
+                release(base);
+                throw e;
+            }
+            if (current.compareAndSet(base, next)) {
+                release(base);  // The reference the document held while it was current
+                release(base);  // Our own pin
+                return next.number;
+            }
+            release(base);
+        }
+    }
+
+    /**
+     * Returns the number of the current version.
+     *
+     * @return the current version, 0 before the first update
+     */
+    public long getVersion() {
+        return current.get().number;
+    }
+
+    /**
+     * Returns the number of versions still alive: the current one and the older ones held by open snapshots.
+     *
+     * @return the number of live versions, at least 1
+     */
+    public long getLiveVersions() {
+        return getVersion() + 1 - reclaimed.sum();
+    }
+
+    /**
+     * Returns the number of versions already reclaimed.
+     *
+     * @return the number of reclaimed versions
+     */
+    public long getReclaimedVersions() {
+        return reclaimed.sum();
+    }
+
+    /**
+     * Takes a reference to the current version. A version whose count already dropped to zero has been replaced, so
+     * the loop reads the current one again.
+     */
+    private Version<T> pin() {
+        while (true) {
+            Version<T> version = current.get();
+            if (version.retain()) {
+                return version;
+            }
+        }
+    }
+
+    void release(Version<T> version) {
+        if (version.references.decrementAndGet() == 0) {
+            version.content = null;
+            reclaimed.increment();
+        }
+    }
+
+    /**
+     * A single immutable version of the content.
+     *
+     * @param <T> the type of the content
+     */
+    static final class Version<T> {
+        final long number;
+        volatile T content;  // Dropped once the version is reclaimed
+        final AtomicInteger references = new AtomicInteger(1);  // Starts with the reference of the document
+
+        Version(long number, T content) {
+            this.number = number;
+            this.content = content;
+        }
+
+        boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+    }
+}
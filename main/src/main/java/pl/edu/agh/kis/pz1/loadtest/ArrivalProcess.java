@@ -0,0 +1,182 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * When requests arrive in an open-loop test: a Poisson process, or a bursty one switching between a calm and a burst
+ * rate.
+ * <p>
+ * In a Poisson process requests arrive independently at a constant rate, so the gaps between them are exponential. The
+ * bursty process is a two-state Markov-modulated Poisson process: it spends exponentially distributed periods in a
+ * burst, of {@code meanBurstMillis} on average and {@code burstFraction} of the time overall, during which the rate is
+ * {@code factor} times the calm rate. The rates are chosen so the long-run rate is still {@code perSecond}, so a bursty
+ * and a Poisson test of the same rate issue the same load, only less evenly.
+ * </p>
+ * <p>
+ * The process is a description; the gaps are drawn by the {@link Arrivals} returned by
+ * {@link #start(SplittableRandom)}, which keeps the state of one run.
+ * </p>
+ */
+public final class ArrivalProcess {
+    private final double perSecond;
+    private final double factor;
+    private final double burstFraction;
+    private final long meanBurstMillis;
+
+    private ArrivalProcess(double perSecond, double factor, double burstFraction, long meanBurstMillis) {
+        this.perSecond = perSecond;
+        this.factor = factor;
+        this.burstFraction = burstFraction;
+        this.meanBurstMillis = meanBurstMillis;
+    }
+
+    /**
+     * Returns a Poisson process.
+     *
+     * @param perSecond the rate, in requests per second
+     * @return the process
+     * @throws IllegalArgumentException if the rate is not positive
+     */
+    public static ArrivalProcess poisson(double perSecond) {
+        checkRate(perSecond);
+        return new ArrivalProcess(perSecond, 1, 0, 0);
+    }
+
+    /**
+     * Returns a bursty process.
+     *
+     * @param perSecond       the long-run rate, in requests per second
+     * @param factor          how many times the calm rate the burst rate is, at least 1
+     * @param burstFraction   the part of the time spent in bursts, between 0 and 1 exclusive
+     * @param meanBurstMillis the mean length of a burst, in milliseconds
+     * @return the process
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    public static ArrivalProcess bursty(double perSecond, double factor, double burstFraction, long meanBurstMillis) {
+        checkRate(perSecond);
+        if (!(factor >= 1) || !(burstFraction > 0 && burstFraction < 1) || meanBurstMillis <= 0) {
+            throw new IllegalArgumentException("Bursts need a factor of at least 1, a time fraction between 0 and 1"
+                    + " and a positive length");
+        }
+        return new ArrivalProcess(perSecond, factor, burstFraction, meanBurstMillis);
+    }
+
+    /**
+     * Parses a process: {@code poisson:RATE} or {@code bursty:RATE:FACTOR:FRACTION:BURST_MS}, rates in requests per
+     * second.
+     *
+     * @param spec the textual form
+     * @return the process
+     * @throws IllegalArgumentException if the text is not a valid process
+     */
+    public static ArrivalProcess parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            if (parts[0].equals("poisson") && parts.length == 2) {
+                return poisson(Double.parseDouble(parts[1]));
+            }
+            if (parts[0].equals("bursty") && parts.length == 5) {
+                return bursty(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                        Double.parseDouble(parts[3]), Long.parseLong(parts[4]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid arrival process: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown arrival process: " + spec);
+    }
+
+    /**
+     * Returns the long-run rate.
+     *
+     * @return the mean number of requests per second
+     */
+    public double getRate() {
+        return perSecond;
+    }
+
+    /**
+     * Tells whether the process has bursts.
+     *
+     * @return {@code false} for a Poisson process
+     */
+    public boolean isBursty() {
+        return meanBurstMillis > 0;
+    }
+
+    /**
+     * Starts drawing arrivals, in the calm state.
+     *
+     * @param random the stream to draw from, used only by the returned object
+     * @return the arrivals of one run
+     */
+    public Arrivals start(SplittableRandom random) {
+        return new Arrivals(random);
+    }
+
+    @Override
+    public String toString() {
+        if (!isBursty()) {
+            return String.format(Locale.ROOT, "poisson %.1f/s", perSecond);
+        }
+        return String.format(Locale.ROOT, "bursty %.1f/s (x%.1f for %.0f%% of the time, %d ms bursts)", perSecond,
+                factor, burstFraction * 100, meanBurstMillis);
+    }
+
+    private static void checkRate(double perSecond) {
+        if (!(perSecond > 0)) {
+            throw new IllegalArgumentException("The arrival rate must be positive, got " + perSecond);
+        }
+    }
+
+    /**
+     * The arrivals of one run: draws the gaps one after another, keeping track of the burst state. Not thread-safe.
+     */
+    public final class Arrivals {
+        private final SplittableRandom random;
+        private final double calmRate;  // Requests per nanosecond
+        private final double burstRate;
+        private boolean burst;
+        private double stateLeftNanos;  // Time left in the current state
+
+        private Arrivals(SplittableRandom random) {
+            this.random = random;
+            calmRate = perSecond / 1e9 / ((1 - burstFraction) + burstFraction * factor);
+            burstRate = calmRate * factor;
+            stateLeftNanos = isBursty() ? stateMeanNanos() * random.nextExponential() : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Draws the time until the next request.
+         *
+         * @return the gap in nanoseconds
+         */
+        public long nextGapNanos() {
+            double gap = 0;
+            for (;;) {
+                double draw = random.nextExponential() / (burst ? burstRate : calmRate);
+                if (draw <= stateLeftNanos) {  // The exponential is memoryless, so a switch just redraws
+                    stateLeftNanos -= draw;
+                    return Math.round(gap + draw);
+                }
+                gap += stateLeftNanos;
+                burst = !burst;
+                stateLeftNanos = stateMeanNanos() * random.nextExponential();
+            }
+        }
+
+        /**
+         * Tells whether the process is in a burst.
+         *
+         * @return {@code true} during a burst
+         */
+        public boolean inBurst() {
+            return burst;
+        }
+
+        private double stateMeanNanos() {
+            double burstNanos = meanBurstMillis * 1e6;
+            return burst ? burstNanos : burstNanos * (1 - burstFraction) / burstFraction;
+        }
+    }
+}
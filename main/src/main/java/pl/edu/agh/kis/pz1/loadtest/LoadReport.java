@@ -0,0 +1,277 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.metrics.LatencyHistogram;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * The outcome of a {@link LoadTest}: a snapshot of the {@link LibraryMetrics} of the library taken when the run
+ * stopped, in a form meant for scripts comparing runs of different configurations.
+ * <p>
+ * Per role it holds the number of requests and admissions, the throughput (admissions per second of the run) and the
+ * median, 90th and 99th percentile of the wait and hold times with their maxima. For the whole room it holds the
+ * largest queue depth and the utilization: the part of the run the reading room was busy, counting a reader as one
+ * place of the capacity and a writer as the whole room, computed from the hold times of the finished visits. Reports
+ * are written as JSON ({@link #toJson()}) or as CSV rows ({@link #toCsv()}) that several runs can append to the same
+ * file.
+ * </p>
+ */
+public final class LoadReport {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99"};
+    /** Header of the CSV form, one row per role follows. */
+    public static final String CSV_HEADER = "label,role,elapsed_s,readers,writers,capacity,requests,admissions,"
+            + "throughput_per_s,wait_p50_ms,wait_p90_ms,wait_p99_ms,wait_max_ms,hold_p50_ms,hold_p90_ms,hold_p99_ms,"
+            + "hold_max_ms,max_queue_depth,utilization";
+
+    private final String label;
+    private final long elapsedNanos;
+    private final int readers;
+    private final int writers;
+    private final int capacity;
+    private final long maxQueueDepth;
+    private final double utilization;
+    private final RoleStats[] roles = new RoleStats[Role.values().length];
+
+    /**
+     * Takes a snapshot of the metrics of a run.
+     *
+     * @param label        the name of the configuration, e.g. the engine
+     * @param metrics      the metrics of the library, collected during the run only
+     * @param elapsedNanos the length of the run in nanoseconds
+     * @param readers      the number of readers of the run
+     * @param writers      the number of writers of the run
+     */
+    public LoadReport(String label, LibraryMetrics metrics, long elapsedNanos, int readers, int writers) {
+        this.label = label;
+        this.elapsedNanos = elapsedNanos;
+        this.readers = readers;
+        this.writers = writers;
+        capacity = metrics.getCapacity();
+        maxQueueDepth = metrics.getMaxQueueDepth();
+        for (Role role : Role.values()) {
+            roles[role.ordinal()] = new RoleStats(metrics.getRequests(role), metrics.getAdmissions(role),
+                    quantiles(metrics.getWaitHistogram(role)), quantiles(metrics.getHoldHistogram(role)));
+        }
+        double busyNanos = metrics.getHoldHistogram(Role.READER).getSum() / (double) Math.max(1, capacity)
+                + metrics.getHoldHistogram(Role.WRITER).getSum();
+        utilization = elapsedNanos > 0 ? Math.min(1, busyNanos / elapsedNanos) : 0;
+    }
+
+    /**
+     * Returns the name of the configuration.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the length of the run.
+     *
+     * @return the length in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of admissions of a role during the run.
+     *
+     * @param role the role
+     * @return the number of admissions
+     */
+    public long getAdmissions(Role role) {
+        return roles[role.ordinal()].admissions;
+    }
+
+    /**
+     * Returns the throughput of a role.
+     *
+     * @param role the role
+     * @return admissions per second of the run
+     */
+    public double getThroughput(Role role) {
+        return elapsedNanos > 0 ? getAdmissions(role) * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Returns the largest number of agents that waited at the same time.
+     *
+     * @return the largest queue depth
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Returns the part of the run the reading room was busy.
+     *
+     * @return the utilization, from 0 to 1
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Returns the report as a JSON object, with times in milliseconds.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\n");
+        out.append("  \"label\": \"").append(escape(label)).append("\",\n");
+        out.append(format("  \"elapsedSeconds\": %.3f,\n", elapsedNanos / 1e9));
+        out.append("  \"readers\": ").append(readers).append(",\n");
+        out.append("  \"writers\": ").append(writers).append(",\n");
+        out.append("  \"capacity\": ").append(capacity).append(",\n");
+        out.append("  \"maxQueueDepth\": ").append(maxQueueDepth).append(",\n");
+        out.append(format("  \"utilization\": %.4f,\n", utilization));
+        out.append("  \"roles\": {\n");
+        for (Role role : Role.values()) {
+            RoleStats stats = roles[role.ordinal()];
+            out.append("    \"").append(roleName(role)).append("\": {\n");
+            out.append("      \"requests\": ").append(stats.requests).append(",\n");
+            out.append("      \"admissions\": ").append(stats.admissions).append(",\n");
+            out.append(format("      \"throughputPerSecond\": %.3f,\n", getThroughput(role)));
+            out.append("      \"waitMillis\": ");
+            appendQuantiles(out, stats.waits);
+            out.append(",\n      \"holdMillis\": ");
+            appendQuantiles(out, stats.holds);
+            out.append(role.ordinal() == roles.length - 1 ? "\n    }\n" : "\n    },\n");
+        }
+        out.append("  }\n}\n");
+        return out.toString();
+    }
+
+    /**
+     * Returns the report as CSV rows, one per role, without the {@link #CSV_HEADER header}.
+     *
+     * @return the CSV rows, each ending with a line break
+     */
+    public String toCsv() {
+        StringBuilder out = new StringBuilder();
+        for (Role role : Role.values()) {
+            RoleStats stats = roles[role.ordinal()];
+            out.append(csvField(label)).append(',').append(roleName(role));
+            out.append(format(",%.3f,%d,%d,%d,%d,%d,%.3f", elapsedNanos / 1e9, readers, writers, capacity,
+                    stats.requests, stats.admissions, getThroughput(role)));
+            for (double value : stats.waits) {
+                out.append(format(",%.3f", value));
+            }
+            for (double value : stats.holds) {
+                out.append(format(",%.3f", value));
+            }
+            out.append(format(",%d,%.4f%n", maxQueueDepth, utilization));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the report to a file: as CSV rows if its name ends with {@code .csv}, appended after the header when the
+     * file does not exist yet, and as JSON replacing the file otherwise.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(Path file) throws IOException {
+        boolean csv = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        if (!csv) {
+            Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+            return;
+        }
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            if (!exists) {
+                out.write(CSV_HEADER);
+                out.write(System.lineSeparator());
+            }
+            out.write(toCsv());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(format("%s: %.1f s, %d readers, %d writers, capacity %d%n", label, elapsedNanos / 1e9, readers,
+                writers, capacity));
+        out.append(format("%-7s %10s %10s %13s %13s %13s %13s %13s %13s%n", "", "admitted", "per s", "wait p50 (ms)",
+                "wait p99 (ms)", "wait max (ms)", "hold p50 (ms)", "hold p99 (ms)", "hold max (ms)"));
+        for (Role role : Role.values()) {
+            RoleStats stats = roles[role.ordinal()];
+            out.append(format("%-7s %10d %10.2f %13.2f %13.2f %13.2f %13.2f %13.2f %13.2f%n", roleName(role),
+                    stats.admissions, getThroughput(role), stats.waits[0], stats.waits[2], stats.waits[3],
+                    stats.holds[0], stats.holds[2], stats.holds[3]));
+        }
+        out.append(format("Max queue depth %d, utilization %.1f%%", maxQueueDepth, utilization * 100));
+        return out.toString();
+    }
+
+    /**
+     * Returns the quantiles and the maximum of a histogram.
+     *
+     * @return the median, 90th and 99th percentile followed by the maximum, in milliseconds
+     */
+    private static double[] quantiles(LatencyHistogram histogram) {
+        double[] values = new double[QUANTILES.length + 1];
+        for (int i = 0; i < QUANTILES.length; i++) {
+            values[i] = histogram.getQuantile(QUANTILES[i]) / 1e6;
+        }
+        values[QUANTILES.length] = histogram.getMax() / 1e6;
+        return values;
+    }
+
+    private static void appendQuantiles(StringBuilder out, double[] values) {
+        out.append('{');
+        for (int i = 0; i < QUANTILE_NAMES.length; i++) {
+            out.append(format("\"%s\": %.3f, ", QUANTILE_NAMES[i], values[i]));
+        }
+        out.append(format("\"max\": %.3f}", values[QUANTILE_NAMES.length]));
+    }
+
+    private static String roleName(Role role) {
+        return role.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String format(String pattern, Object... args) {
+        return String.format(Locale.ROOT, pattern, args);
+    }
+
+    private static String escape(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String csvField(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * The counters and the wait and hold times of one role, times in milliseconds.
+     */
+    private record RoleStats(long requests, long admissions, double[] waits, double[] holds) {
+    }
+}
@@ -0,0 +1,113 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import pl.edu.agh.kis.pz1.Agent;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.ReaderFactory;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.WriterFactory;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A bounded, headless run of live agents against a library, summarized in a {@link LoadReport}.
+ * <p>
+ * The agents are created by the given factories and started on the executor, and the run stops when the time limit
+ * has passed or the library has admitted the given number of agents, whichever comes first; the limits are checked
+ * every {@value #POLL_MILLIS} ms, so an operation limit may be overshot by what the library admits in that time. The
+ * report is a snapshot of the metrics taken at that moment. Then every agent is {@linkplain Agent#retire() retired}
+ * and the run waits for all of them to leave, so the library is idle again when {@link #run(long, long)} returns.
+ * </p>
+ * <p>
+ * The metrics of the library are the ones of the whole run, so the library should be a new one.
+ * </p>
+ */
+public class LoadTest {
+    /** How often the limits of the run are checked, in milliseconds. */
+    public static final long POLL_MILLIS = 10;
+
+    private final String label;
+    private final Library library;
+    private final ReaderFactory readerFactory;
+    private final int readers;
+    private final WriterFactory writerFactory;
+    private final int writers;
+    private final Executor executor;
+
+    /**
+     * Creates a load test.
+     *
+     * @param label         the name of the configuration, put in the report
+     * @param library       the library under test, not used before
+     * @param readerFactory creates the readers
+     * @param readers       the number of readers
+     * @param writerFactory creates the writers
+     * @param writers       the number of writers
+     * @param executor      the executor running the agents
+     * @throws IllegalArgumentException if a count is negative
+     */
+    public LoadTest(String label, Library library, ReaderFactory readerFactory, int readers,
+                    WriterFactory writerFactory, int writers, Executor executor) {
+        if (readers < 0 || writers < 0) {
+            throw new IllegalArgumentException("Agent counts must not be negative.");
+        }
+        this.label = label;
+        this.library = library;
+        this.readerFactory = readerFactory;
+        this.readers = readers;
+        this.writerFactory = writerFactory;
+        this.writers = writers;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the test on the calling thread. If the thread is interrupted, the agents are still retired and waited for
+     * before the exception is thrown.
+     *
+     * @param durationMillis the time limit in milliseconds, 0 for none
+     * @param maxOperations  the number of admissions of readers and writers together after which the run stops, 0 for
+     *                       none
+     * @return the report of the run
+     * @throws IllegalArgumentException if neither limit is positive
+     * @throws InterruptedException     if the calling thread is interrupted
+     */
+    public LoadReport run(long durationMillis, long maxOperations) throws InterruptedException {
+        if (durationMillis <= 0 && maxOperations <= 0) {
+            throw new IllegalArgumentException("A load test needs a time or an operation limit.");
+        }
+        LibraryMetrics metrics = library.getMetrics();
+        List<Agent> agents = new ArrayList<>(readers + writers);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < readers; i++) {
+                agents.add(readerFactory.addReader(library));
+            }
+            for (int i = 0; i < writers; i++) {
+                agents.add(writerFactory.addWriter(library));
+            }
+            for (Agent agent : agents) {
+                agent.start(executor);
+            }
+            long deadline = start + durationMillis * 1_000_000;
+            for (;;) {
+                long now = System.nanoTime();
+                long operations = metrics.getAdmissions(Role.READER) + metrics.getAdmissions(Role.WRITER);
+                if ((durationMillis > 0 && now - deadline >= 0) || (maxOperations > 0 && operations >= maxOperations)) {
+                    return new LoadReport(label, metrics, now - start, readers, writers);
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+        } finally {
+            for (Agent agent : agents) {
+                agent.retire();
+            }
+            for (Agent agent : agents) {
+                if (agent.isAlive()) {
+                    agent.join();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.Writer;
+import pl.edu.agh.kis.pz1.util.NumUtils;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: requests to read or write arrive at the times drawn from an {@link ArrivalProcess}, whatever the
+ * library is doing.
+ * <p>
+ * The agents of {@link pl.edu.agh.kis.pz1.ReaderFactory} are closed-loop: each asks again only after its previous
+ * visit and its idle time, so a slow library receives fewer requests and its tail latency looks better than it would
+ * under real traffic. Here a dispatcher thread computes the intended start of every request in advance, sleeps until
+ * then and hands the request to a virtual thread of its own, so requests keep arriving at the target rate even when the
+ * library saturates and they pile up. Waits and response times are measured from the intended start, not from the
+ * moment the request was actually issued, which keeps any delay of the generator itself in the numbers (the
+ * coordinated omission of closed-loop measurements).
+ * </p>
+ * <p>
+ * A request is played by an unstarted {@link Reader} or {@link Writer} taken from a pool and put back when it is done,
+ * so the agent ids stay bounded by the number of requests in progress. The role, with probability
+ * {@code writeFraction} of writing, and the hold time are drawn by the dispatcher from a stream split off
+ * {@link NumUtils#current()}.
+ * </p>
+ */
+public class OpenLoopGenerator {
+    private final Library library;
+    private final ArrivalProcess arrivals;
+    private final double writeFraction;
+    private final Sampler readHold;
+    private final Sampler writeHold;
+    private final ConcurrentLinkedQueue<Reader> idleReaders = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Writer> idleWriters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a generator.
+     *
+     * @param library       the library receiving the requests
+     * @param arrivals      when requests arrive
+     * @param writeFraction the probability that a request is a write, from 0 to 1
+     * @param readHold      the distribution of the reading time in milliseconds
+     * @param writeHold     the distribution of the writing time in milliseconds
+     * @throws IllegalArgumentException if the write fraction is out of range
+     */
+    public OpenLoopGenerator(Library library, ArrivalProcess arrivals, double writeFraction, Sampler readHold,
+                             Sampler writeHold) {
+        if (!(writeFraction >= 0 && writeFraction <= 1)) {
+            throw new IllegalArgumentException("The write fraction must be between 0 and 1, got " + writeFraction);
+        }
+        this.library = library;
+        this.arrivals = arrivals;
+        this.writeFraction = writeFraction;
+        this.readHold = readHold;
+        this.writeHold = writeHold;
+    }
+
+    /**
+     * Issues requests for the given time on the calling thread, then waits for all of them to finish.
+     *
+     * @param durationMillis how long requests are issued, in milliseconds
+     * @return the latencies of the run
+     * @throws InterruptedException if the calling thread is interrupted; the requests in progress are interrupted too
+     */
+    public OpenLoopResult run(long durationMillis) throws InterruptedException {
+        OpenLoopResult result = new OpenLoopResult(arrivals.toString());
+        SplittableRandom random = NumUtils.current().split();
+        ArrivalProcess.Arrivals schedule = arrivals.start(random.split());
+        AtomicLong outstanding = new AtomicLong();
+        LongAccumulator maxOutstanding = new LongAccumulator(Long::max, 0);
+        long issued = 0;
+        long start = System.nanoTime();
+        long end = start + durationMillis * 1_000_000;
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("open-loop-", 0)
+                .factory());
+        try {
+            for (long intended = start + schedule.nextGapNanos(); intended - end < 0;
+                 intended += schedule.nextGapNanos()) {
+                for (long delay = intended - System.nanoTime(); delay > 0; delay = intended - System.nanoTime()) {
+                    LockSupport.parkNanos(delay);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                boolean write = random.nextDouble() < writeFraction;
+                long holdMillis = (write ? writeHold : readHold).sampleLong(random);
+                long scheduled = intended;
+                maxOutstanding.accumulate(outstanding.incrementAndGet());
+                executor.execute(() -> {
+                    try {
+                        request(result, write, scheduled, holdMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        outstanding.decrementAndGet();
+                    }
+                });
+                issued++;
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.close();  // Waits for the requests in progress
+        result.finish(elapsed, issued, maxOutstanding.get());
+        return result;
+    }
+
+    private void request(OpenLoopResult result, boolean write, long intended, long holdMillis)
+            throws InterruptedException {
+        Role role = write ? Role.WRITER : Role.READER;
+        result.getDispatchLag().record(System.nanoTime() - intended);
+        if (write) {
+            Writer writer = idleWriters.poll();
+            if (writer == null) {
+                writer = new Writer(library, null);
+            }
+            library.requestWriting(writer);
+            result.getWaits(role).record(System.nanoTime() - intended);
+            library.startWriting(writer);
+            try {
+                Thread.sleep(holdMillis);
+            } finally {
+                library.stopWriting(writer);
+                idleWriters.add(writer);
+            }
+        } else {
+            Reader reader = idleReaders.poll();
+            if (reader == null) {
+                reader = new Reader(library, null);
+            }
+            library.requestReading(reader);
+            result.getWaits(role).record(System.nanoTime() - intended);
+            library.startReading(reader);
+            try {
+                Thread.sleep(holdMillis);
+            } finally {
+                library.stopReading(reader);
+                idleReaders.add(reader);
+            }
+        }
+        result.getResponses(role).record(System.nanoTime() - intended);
+    }
+}
@@ -0,0 +1,126 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * Outcome of an {@link OpenLoopGenerator} run. All latencies are measured from the intended start of a request, the
+ * moment the arrival process scheduled it, so time a request spent waiting to be issued is counted, not omitted.
+ */
+public class OpenLoopResult {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+
+    private final LatencyHistogram[] waits = new LatencyHistogram[Role.values().length];
+    private final LatencyHistogram[] responses = new LatencyHistogram[Role.values().length];
+    private final LatencyHistogram dispatchLag = new LatencyHistogram();
+    private final String arrivals;
+    private long elapsedNanos;
+    private long issued;
+    private long maxOutstanding;
+
+    OpenLoopResult(String arrivals) {
+        this.arrivals = arrivals;
+        for (Role role : Role.values()) {
+            waits[role.ordinal()] = new LatencyHistogram();
+            responses[role.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Retrieves the time from the intended start of the requests of one role to their admission.
+     *
+     * @param role the role
+     * @return the histogram of the waits, in nanoseconds
+     */
+    public LatencyHistogram getWaits(Role role) {
+        return waits[role.ordinal()];
+    }
+
+    /**
+     * Retrieves the time from the intended start of the requests of one role until they left the library.
+     *
+     * @param role the role
+     * @return the histogram of the response times, in nanoseconds
+     */
+    public LatencyHistogram getResponses(Role role) {
+        return responses[role.ordinal()];
+    }
+
+    /**
+     * Retrieves how late the requests were issued, from their intended start to the call into the library. Large
+     * values mean the generator itself could not keep up and its rate is not to be trusted.
+     *
+     * @return the histogram of the dispatch lags, in nanoseconds
+     */
+    public LatencyHistogram getDispatchLag() {
+        return dispatchLag;
+    }
+
+    /**
+     * Retrieves the number of requests issued.
+     *
+     * @return the number of requests
+     */
+    public long getIssued() {
+        return issued;
+    }
+
+    /**
+     * Retrieves the largest number of requests in progress at the same time, waiting or inside.
+     *
+     * @return the maximum number of outstanding requests
+     */
+    public long getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    /**
+     * Retrieves the time during which requests were issued.
+     *
+     * @return the length of the run in nanoseconds, without the time the last requests took to finish
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Retrieves the rate at which requests were issued.
+     *
+     * @return requests per second
+     */
+    public double getIssueRate() {
+        return elapsedNanos > 0 ? issued * 1e9 / elapsedNanos : 0;
+    }
+
+    void finish(long elapsedNanos, long issued, long maxOutstanding) {
+        this.elapsedNanos = elapsedNanos;
+        this.issued = issued;
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%s: %d requests in %.1f s (%.1f/s), at most %d outstanding%n",
+                arrivals, issued, elapsedNanos / 1e9, getIssueRate(), maxOutstanding));
+        out.append(String.format(Locale.ROOT, "%-8s %-9s %8s %10s %10s %10s %10s %10s%n",
+                "ms", "", "count", "p50", "p90", "p99", "p99.9", "max"));
+        for (Role role : Role.values()) {
+            row(out, role.name().toLowerCase(Locale.ROOT), "wait", getWaits(role));
+            row(out, role.name().toLowerCase(Locale.ROOT), "response", getResponses(role));
+        }
+        row(out, "dispatch", "lag", dispatchLag);
+        out.setLength(out.length() - System.lineSeparator().length());
+        return out.toString();
+    }
+
+    private static void row(StringBuilder out, String name, String label, LatencyHistogram histogram) {
+        out.append(String.format(Locale.ROOT, "%-8s %-9s %8d", name, label, histogram.getCount()));
+        for (double quantile : QUANTILES) {
+            out.append(String.format(Locale.ROOT, " %10.2f", histogram.getQuantile(quantile) / 1e6));
+        }
+        out.append(System.lineSeparator());
+    }
+}
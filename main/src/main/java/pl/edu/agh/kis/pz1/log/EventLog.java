@@ -0,0 +1,306 @@
+package pl.edu.agh.kis.pz1.log;
+
+import pl.edu.agh.kis.pz1.Agent;
+import pl.edu.agh.kis.pz1.AgentRegistry;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous event log of a {@link pl.edu.agh.kis.pz1.Library}.
+ * <p>
+ * Agents only copy the event fields into a preallocated ring buffer (one slot per event, split into primitive arrays),
+ * so logging does not allocate and never touches the console. Agents are stored by id, and the background consumer
+ * thread looks their names up in the {@link AgentRegistry} only when it renders the events as text and writes them to
+ * the output stream.
+ * </p>
+ * <p>
+ * Events below the configured {@link LogLevel} are discarded immediately; of the remaining ones only every
+ * {@code sampleEvery}-th (on average) is kept. When the consumer falls behind, the {@link OverflowPolicy} decides whether
+ * agents wait for a free slot or the event is dropped.
+ * </p>
+ */
+public class EventLog implements LibraryEventListener, AutoCloseable {
+    /** Default number of slots in the ring buffer. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;  // How long the consumer sleeps when there is nothing to do
+    private static final EventType[] TYPES = EventType.values();
+
+    private static EventLog console;  // Shared log used by libraries created without a listener
+
+    private final PrintStream out;
+    private final LogLevel level;
+    private final int sampleEvery;
+    private final OverflowPolicy overflowPolicy;
+
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final int[] agentIds;
+    private final int[] queueDepths;
+    private final int[] occupancies;
+    private final AtomicLongArray published;  // Sequence number stored in each slot once its fields are written
+    private final AtomicLong claimed = new AtomicLong();  // Next sequence number to hand out to a producer
+    private final AtomicLong consumed = new AtomicLong();  // Next sequence number the consumer will render
+    private final LongAdder dropped = new LongAdder();
+
+    private final long startNanos = System.nanoTime();
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts a log writing every event to the given stream, blocking agents when the buffer is full.
+     *
+     * @param out the stream to render events to
+     */
+    public EventLog(PrintStream out) {
+        this(out, DEFAULT_CAPACITY, LogLevel.DEBUG, 1, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Creates and starts a log.
+     *
+     * @param out            the stream to render events to
+     * @param capacity       the number of slots in the ring buffer, rounded up to a power of two
+     * @param level          the least severe level that is logged
+     * @param sampleEvery    keep on average one in this many events; {@code 1} keeps all of them
+     * @param overflowPolicy what to do when the ring buffer is full
+     * @throws IllegalArgumentException if {@code capacity} or {@code sampleEvery} is not positive
+     */
+    public EventLog(PrintStream out, int capacity, LogLevel level, int sampleEvery, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0 || sampleEvery <= 0) {
+            throw new IllegalArgumentException("Capacity and sampling rate must be positive.");
+        }
+        this.out = out;
+        this.level = level;
+        this.sampleEvery = sampleEvery;
+        this.overflowPolicy = overflowPolicy;
+        int slots = 1;
+        while (slots < capacity) {
+            slots <<= 1;
+        }
+        this.capacity = slots;
+        this.mask = this.capacity - 1;
+        timestamps = new long[this.capacity];
+        types = new byte[this.capacity];
+        agentIds = new int[this.capacity];
+        queueDepths = new int[this.capacity];
+        occupancies = new int[this.capacity];
+        published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+        consumer = new Thread(this::consume, "event-log");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Returns the shared log rendering to {@link System#out}, creating it on first use.
+     *
+     * @return the shared console log
+     */
+    public static synchronized EventLog console() {
+        if (console == null) {
+            console = new EventLog(System.out);
+        }
+        return console;
+    }
+
+    /**
+     * Returns the level assigned to an event type: requests are {@link LogLevel#DEBUG}, entering and leaving is
+     * {@link LogLevel#INFO}, and giving up a timed request is {@link LogLevel#WARN}.
+     *
+     * @param type the event type
+     * @return its level
+     */
+    public static LogLevel levelOf(EventType type) {
+        switch (type) {
+            case READ_REQUESTED:
+            case WRITE_REQUESTED:
+                return LogLevel.DEBUG;
+            case READ_TIMED_OUT:
+            case WRITE_TIMED_OUT:
+                return LogLevel.WARN;
+            default:
+                return LogLevel.INFO;
+        }
+    }
+
+    /**
+     * Returns the number of slots of the ring buffer.
+     *
+     * @return the capacity of the log
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void onEvent(long timestampNanos, EventType type, Agent agent, int queueDepth, int occupancy) {
+        if (levelOf(type).compareTo(level) < 0 || !running) {
+            return;
+        }
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        int slot = (int) (sequence & mask);
+        timestamps[slot] = timestampNanos;
+        types[slot] = (byte) type.ordinal();
+        agentIds[slot] = agent == null ? 0 : agent.getId();
+        queueDepths[slot] = queueDepth;
+        occupancies[slot] = occupancy;
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Claims the next slot of the ring buffer according to the overflow policy.
+     *
+     * @return the sequence number of the claimed slot, or {@code -1} if the event has to be dropped
+     */
+    private long claim() {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            for (;;) {
+                long sequence = claimed.get();
+                if (sequence - consumed.get() >= capacity) {
+                    return -1;
+                }
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+            }
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed.get() >= capacity) {
+            if (!running) {
+                // Nobody will ever free the slot; the sequence is lost, which close() tolerates.
+                return -1;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 100);
+        }
+        return sequence;
+    }
+
+    /**
+     * Body of the consumer thread: renders published events in sequence order until the log is closed and drained.
+     */
+    private void consume() {
+        StringBuilder line = new StringBuilder(128);
+        while (running) {
+            if (drain(line) == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        drain(line);
+    }
+
+    /**
+     * Renders every consecutive published event.
+     *
+     * @param line reusable buffer for a single line of output
+     * @return the number of rendered events
+     */
+    private int drain(StringBuilder line) {
+        int rendered = 0;
+        long sequence = consumed.get();
+        for (;;) {
+            int slot = (int) (sequence & mask);
+            if (published.get(slot) != sequence) {
+                break;
+            }
+            line.setLength(0);
+            line.append('[').append((timestamps[slot] - startNanos) / 1_000_000L).append(" ms] ");
+            render(line, TYPES[types[slot]], agentIds[slot], queueDepths[slot], occupancies[slot]);
+            out.append(line);
+            sequence++;
+            consumed.lazySet(sequence);
+            rendered++;
+        }
+        if (rendered > 0) {
+            out.flush();
+        }
+        return rendered;
+    }
+
+    /**
+     * Formats a single event as a line of text.
+     *
+     * @param line       the buffer to append to
+     * @param type       the kind of event
+     * @param agentId    the id of the agent the event concerns, 0 if none
+     * @param queueDepth the number of agents awaiting access
+     * @param occupancy  the number of readers in the reading room
+     */
+    static void render(StringBuilder line, EventType type, int agentId, int queueDepth, int occupancy) {
+        String name = AgentRegistry.nameOf(agentId);
+        switch (type) {
+            case READ_REQUESTED:
+                line.append("Reader ").append(name).append(" requested access... (awaiting: ").append(queueDepth).append(')');
+                break;
+            case READ_STARTED:
+                line.append("Reader ").append(name).append(" started reading... (reading: ").append(occupancy).append(')');
+                break;
+            case READ_STOPPED:
+                line.append("Reader ").append(name).append(" stopped reading.");
+                break;
+            case WRITE_REQUESTED:
+                line.append("Writer ").append(name).append(" requested access... (awaiting: ").append(queueDepth).append(')');
+                break;
+            case WRITE_STARTED:
+                line.append("Writer ").append(name).append(" started writing...");
+                break;
+            case WRITE_STOPPED:
+                line.append("Writer ").append(name).append(" stopped writing...");
+                break;
+            case READ_TIMED_OUT:
+                line.append("Reader ").append(name).append(" gave up waiting. (awaiting: ").append(queueDepth).append(')');
+                break;
+            case WRITE_TIMED_OUT:
+                line.append("Writer ").append(name).append(" gave up waiting. (awaiting: ").append(queueDepth).append(')');
+                break;
+        }
+        line.append(System.lineSeparator());
+    }
+
+    /**
+     * Stops accepting events, renders what is left in the buffer and stops the consumer thread. The log is always
+     * drained: an interrupt received while waiting for the consumer is kept and re-asserted once it has finished.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package pl.edu.agh.kis.pz1.log;
+
+import pl.edu.agh.kis.pz1.Agent;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.Role;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the events of a {@link pl.edu.agh.kis.pz1.Library} as typed {@link LibraryEvent}s to any number of
+ * {@link Flow.Subscriber}s, for dashboards and auditors that would otherwise parse the text of the {@link EventLog}.
+ * <p>
+ * The publisher is a {@link LibraryEventListener}; it can be combined with other listeners with
+ * {@link LibraryEventListener#andThen(LibraryEventListener)}. On the admission path it only appends the event to a
+ * bounded lock-free buffer of every subscriber and, if that subscriber is idle, hands a delivery task to the executor.
+ * Events are delivered on the executor as the subscriber requests them. When a subscriber falls so far behind that its
+ * buffer is full, new events for it are dropped and counted, so a slow subscriber never makes agents wait. Without
+ * subscribers an event costs a single check.
+ * </p>
+ */
+public class EventPublisher implements LibraryEventListener, Flow.Publisher<LibraryEvent>, AutoCloseable {
+    private final Executor executor;
+    private final int bufferSize;
+    private final CopyOnWriteArrayList<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Creates a publisher delivering on the common fork-join pool, with {@link Flow#defaultBufferSize()} events of
+     * buffer per subscriber.
+     */
+    public EventPublisher() {
+        this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a publisher.
+     *
+     * @param executor   runs the deliveries to the subscribers
+     * @param bufferSize the number of undelivered events kept per subscriber
+     * @throws IllegalArgumentException if {@code bufferSize} is not positive
+     */
+    public EventPublisher(Executor executor, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive, got " + bufferSize);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns the number of current subscribers.
+     *
+     * @return the number of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer of a subscriber was full, counted once per subscriber.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super LibraryEvent> subscriber) {
+        EventSubscription subscription = new EventSubscription(Objects.requireNonNull(subscriber));
+        subscriptions.add(subscription);
+        if (closed) {
+            subscriptions.remove(subscription);
+            subscription.completed = true;
+        }
+        subscription.schedule();
+    }
+
+    @Override
+    public void onEvent(long timestampNanos, EventType type, Agent agent, int queueDepth, int occupancy) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        int id = agent == null ? 0 : agent.getId();
+        Role role = type.getRole();
+        switch (type) {
+            case READ_REQUESTED:
+            case WRITE_REQUESTED:
+                publish(new LibraryEvent.Requested(timestampNanos, id, role, queueDepth, occupancy));
+                break;
+            case READ_STARTED:
+                publish(new LibraryEvent.Admitted(timestampNanos, id, role, queueDepth, occupancy));
+                break;
+            case WRITE_STARTED:
+                publish(new LibraryEvent.Admitted(timestampNanos, id, role, queueDepth, occupancy));
+                publish(new LibraryEvent.ExclusiveBegin(timestampNanos, id, role, queueDepth, occupancy));
+                break;
+            case READ_STOPPED:
+                publish(new LibraryEvent.Released(timestampNanos, id, role, queueDepth, occupancy));
+                break;
+            case WRITE_STOPPED:
+                publish(new LibraryEvent.ExclusiveEnd(timestampNanos, id, role, queueDepth, occupancy));
+                publish(new LibraryEvent.Released(timestampNanos, id, role, queueDepth, occupancy));
+                break;
+            case READ_TIMED_OUT:
+            case WRITE_TIMED_OUT:
+                publish(new LibraryEvent.TimedOut(timestampNanos, id, role, queueDepth, occupancy));
+                break;
+        }
+    }
+
+    private void publish(LibraryEvent event) {
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Stops publishing. Every subscriber receives the events already in its buffer, as it requests them, and then
+     * {@link Flow.Subscriber#onComplete()}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (EventSubscription subscription : subscriptions) {
+            subscription.completed = true;
+            subscription.schedule();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * The link to one subscriber: its buffer, its outstanding demand and the delivery task. All signals to the
+     * subscriber are made by {@link #run()}, which never runs twice at the same time.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super LibraryEvent> subscriber;
+        private final ConcurrentLinkedQueue<LibraryEvent> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();  // Size of the buffer, which the queue cannot tell in O(1)
+        private final AtomicLong demand = new AtomicLong();  // Requested and not yet delivered, Long.MAX_VALUE is unbounded
+        private final AtomicInteger scheduled = new AtomicInteger();  // Pending runs of the delivery task
+        private volatile boolean cancelled;
+        private volatile boolean completed;  // No more events will be added
+        private volatile IllegalArgumentException invalidRequest;
+        private boolean subscribed;  // onSubscribe was signalled, only touched by the delivery task
+
+        EventSubscription(Flow.Subscriber<? super LibraryEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(LibraryEvent event) {
+            if (buffered.incrementAndGet() > bufferSize) {
+                buffered.decrementAndGet();
+                dropped.increment();
+                return;
+            }
+            buffer.offer(event);
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                try {
+                    deliver();
+                } catch (RuntimeException e) {
+                    // A subscriber must not throw; the one that did gets nothing more
+                    cancel();
+                }
+                missed = scheduled.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            if (cancelled) {
+                buffer.clear();
+                return;
+            }
+            if (invalidRequest != null) {
+                cancel();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            long requested = demand.get();
+            long sent = 0;
+            while (sent != requested && !cancelled) {
+                LibraryEvent event = buffer.poll();
+                if (event == null) {
+                    break;
+                }
+                buffered.decrementAndGet();
+                subscriber.onNext(event);
+                sent++;
+            }
+            if (sent > 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-sent);
+            }
+            if (completed && buffer.isEmpty() && !cancelled) {
+                cancelled = true;
+                subscriber.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package pl.edu.agh.kis.pz1.log;
+
+import pl.edu.agh.kis.pz1.AgentRegistry;
+import pl.edu.agh.kis.pz1.Role;
+
+/**
+ * A change of the state of a {@link pl.edu.agh.kis.pz1.Library}, as published by {@link EventPublisher}.
+ * <p>
+ * Every agent produces {@link Requested}, {@link Admitted} and {@link Released}. A writer's admission is followed by
+ * {@link ExclusiveBegin}, and its release is preceded by {@link ExclusiveEnd}, bracketing the time the room is closed
+ * to readers. An agent that gives up a timed request produces {@link TimedOut} instead of being admitted.
+ * </p>
+ */
+public sealed interface LibraryEvent {
+
+    /**
+     * Returns when the event happened.
+     *
+     * @return the {@link System#nanoTime()} of the event
+     */
+    long timestampNanos();
+
+    /**
+     * Returns the id of the agent the event concerns.
+     *
+     * @return the {@linkplain pl.edu.agh.kis.pz1.Agent#getId() id} of the agent, 0 if none
+     */
+    int agentId();
+
+    /**
+     * Returns the display name of the agent the event concerns, looked up only when asked for.
+     *
+     * @return the name of the agent, see {@link AgentRegistry#nameOf(int)}
+     */
+    default String agentName() {
+        return AgentRegistry.nameOf(agentId());
+    }
+
+    /**
+     * Returns the role of the agent.
+     *
+     * @return the role of the agent
+     */
+    Role role();
+
+    /**
+     * Returns the number of agents awaiting access when the event happened.
+     *
+     * @return the queue depth
+     */
+    int queueDepth();
+
+    /**
+     * Returns the number of readers in the reading room when the event happened.
+     *
+     * @return the occupancy
+     */
+    int occupancy();
+
+    /**
+     * An agent asked for access.
+     *
+     * @param timestampNanos when the agent asked
+     * @param agentId        the id of the agent
+     * @param role           the role of the agent
+     * @param queueDepth     the number of agents awaiting access
+     * @param occupancy      the number of readers inside
+     */
+    record Requested(long timestampNanos, int agentId, Role role, int queueDepth, int occupancy)
+            implements LibraryEvent {
+    }
+
+    /**
+     * An agent entered the reading room.
+     *
+     * @param timestampNanos when the agent entered
+     * @param agentId        the id of the agent
+     * @param role           the role of the agent
+     * @param queueDepth     the number of agents awaiting access
+     * @param occupancy      the number of readers inside
+     */
+    record Admitted(long timestampNanos, int agentId, Role role, int queueDepth, int occupancy)
+            implements LibraryEvent {
+    }
+
+    /**
+     * An agent left the reading room.
+     *
+     * @param timestampNanos when the agent left
+     * @param agentId        the id of the agent
+     * @param role           the role of the agent
+     * @param queueDepth     the number of agents awaiting access
+     * @param occupancy      the number of readers inside
+     */
+    record Released(long timestampNanos, int agentId, Role role, int queueDepth, int occupancy)
+            implements LibraryEvent {
+    }
+
+    /**
+     * An agent gave up a timed request without being admitted.
+     *
+     * @param timestampNanos when the agent gave up
+     * @param agentId        the id of the agent
+     * @param role           the role of the agent
+     * @param queueDepth     the number of agents awaiting access
+     * @param occupancy      the number of readers inside
+     */
+    record TimedOut(long timestampNanos, int agentId, Role role, int queueDepth, int occupancy)
+            implements LibraryEvent {
+    }
+
+    /**
+     * A writer got the reading room for itself.
+     *
+     * @param timestampNanos when the writer entered
+     * @param agentId        the id of the writer
+     * @param role           always {@link Role#WRITER}
+     * @param queueDepth     the number of agents awaiting access
+     * @param occupancy      the number of readers inside
+     */
+    record ExclusiveBegin(long timestampNanos, int agentId, Role role, int queueDepth, int occupancy)
+            implements LibraryEvent {
+    }
+
+    /**
+     * A writer is leaving the reading room to the others.
+     *
+     * @param timestampNanos when the writer left
+     * @param agentId        the id of the writer
+     * @param role           always {@link Role#WRITER}
+     * @param queueDepth     the number of agents awaiting access
+     * @param occupancy      the number of readers inside
+     */
+    record ExclusiveEnd(long timestampNanos, int agentId, Role role, int queueDepth, int occupancy)
+            implements LibraryEvent {
+    }
+}
@@ -0,0 +1,15 @@
+package pl.edu.agh.kis.pz1.log;
+
+/**
+ * Severity levels of the {@link EventLog}, from the most to the least verbose.
+ */
+public enum LogLevel {
+    /** Every event, including requests for access. */
+    DEBUG,
+    /** Agents entering and leaving the reading room. */
+    INFO,
+    /** Only problems: agents giving up a timed request. */
+    WARN,
+    /** Nothing at all. */
+    OFF
+}
@@ -0,0 +1,11 @@
+package pl.edu.agh.kis.pz1.log;
+
+/**
+ * What the {@link EventLog} does when its ring buffer is full because the consumer fell behind.
+ */
+public enum OverflowPolicy {
+    /** The agent waits until the consumer frees a slot; no event is lost. */
+    BLOCK,
+    /** The event is dropped and counted, the agent never waits. */
+    DROP
+}
@@ -0,0 +1,319 @@
+package pl.edu.agh.kis.pz1.metrics;
+
+import pl.edu.agh.kis.pz1.Role;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics registry of a single {@link pl.edu.agh.kis.pz1.Library}: how long agents wait for admission, how long they
+ * stay inside, how many get in, and how full the reading room and its queue are.
+ * <p>
+ * Recording never takes a lock: counters are {@link LongAdder}s and durations go to {@link LatencyHistogram}s, both
+ * striped under contention. Occupancy and queue depth are read from the library only when the metrics are exported.
+ * </p>
+ */
+public class LibraryMetrics {
+    private static final double[] EXPORTED_QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int FIRST_EXPORTED_POWER = 10;  // Histogram buckets exported from 2^10 ns (about 1 us)
+    private static final int LAST_EXPORTED_POWER = 36;  // up to 2^36 ns (about 69 s)
+
+    private final LatencyHistogram[] waits = new LatencyHistogram[Role.values().length];
+    private final LatencyHistogram[] holds = new LatencyHistogram[Role.values().length];
+    private final LongAdder[] requests = new LongAdder[Role.values().length];
+    private final LongAdder[] admissions = new LongAdder[Role.values().length];
+    private final LongAdder[] releases = new LongAdder[Role.values().length];
+    private final LongAdder[] timeouts = new LongAdder[Role.values().length];
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Long::max, 0);
+    private final IntSupplier capacity;
+    private final IntSupplier occupancy;
+    private final IntSupplier queueDepth;
+    private final LongSupplier recordedMaxQueueDepth;  // Maxima recorded elsewhere, e.g. by the rooms of a sharded library
+    private final long createdAtNanos = System.nanoTime();
+
+    /**
+     * Creates a registry.
+     *
+     * @param capacity   supplies the number of reader places of the reading room
+     * @param occupancy  supplies the number of readers currently in the reading room
+     * @param queueDepth supplies the number of agents currently awaiting access
+     */
+    public LibraryMetrics(IntSupplier capacity, IntSupplier occupancy, IntSupplier queueDepth) {
+        this(capacity, occupancy, queueDepth, () -> 0);
+    }
+
+    /**
+     * Creates a registry whose libraries record their queue depths in registries of their own, like the rooms of a
+     * sharded library. The maximum queue depth is then the greatest of those maxima and the depths recorded here.
+     *
+     * @param capacity      supplies the number of reader places of the reading room
+     * @param occupancy     supplies the number of readers currently in the reading room
+     * @param queueDepth    supplies the number of agents currently awaiting access
+     * @param maxQueueDepth supplies the largest queue depth recorded elsewhere
+     */
+    public LibraryMetrics(IntSupplier capacity, IntSupplier occupancy, IntSupplier queueDepth,
+                          LongSupplier maxQueueDepth) {
+        this.capacity = capacity;
+        this.occupancy = occupancy;
+        this.queueDepth = queueDepth;
+        this.recordedMaxQueueDepth = maxQueueDepth;
+        for (Role role : Role.values()) {
+            waits[role.ordinal()] = new LatencyHistogram();
+            holds[role.ordinal()] = new LatencyHistogram();
+            requests[role.ordinal()] = new LongAdder();
+            admissions[role.ordinal()] = new LongAdder();
+            releases[role.ordinal()] = new LongAdder();
+            timeouts[role.ordinal()] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a request for access.
+     *
+     * @param role the role of the requesting agent
+     */
+    public void recordRequest(Role role) {
+        requests[role.ordinal()].increment();
+    }
+
+    /**
+     * Records the depth of the queue after an agent joined it.
+     *
+     * @param depth the number of agents awaiting access
+     */
+    public void recordQueueDepth(int depth) {
+        maxQueueDepth.accumulate(depth);
+    }
+
+    /**
+     * Records an admission to the reading room.
+     *
+     * @param role      the role of the admitted agent
+     * @param waitNanos how long the agent waited since its request
+     */
+    public void recordAdmission(Role role, long waitNanos) {
+        admissions[role.ordinal()].increment();
+        waits[role.ordinal()].record(waitNanos);
+    }
+
+    /**
+     * Records a timed request that was withdrawn because its time ran out. Its wait is not added to the wait
+     * histogram, which only holds the waits of admitted agents.
+     *
+     * @param role the role of the agent
+     */
+    public void recordTimeout(Role role) {
+        timeouts[role.ordinal()].increment();
+    }
+
+    /**
+     * Records an agent leaving the reading room.
+     *
+     * @param role      the role of the agent
+     * @param holdNanos how long the agent stayed since its admission
+     */
+    public void recordRelease(Role role, long holdNanos) {
+        releases[role.ordinal()].increment();
+        holds[role.ordinal()].record(holdNanos);
+    }
+
+    /**
+     * Returns the histogram of queue wait times of a role.
+     *
+     * @param role the role
+     * @return the wait histogram
+     */
+    public LatencyHistogram getWaitHistogram(Role role) {
+        return waits[role.ordinal()];
+    }
+
+    /**
+     * Returns the histogram of hold times of a role.
+     *
+     * @param role the role
+     * @return the hold histogram
+     */
+    public LatencyHistogram getHoldHistogram(Role role) {
+        return holds[role.ordinal()];
+    }
+
+    /**
+     * Returns the number of requests of a role.
+     *
+     * @param role the role
+     * @return the request count
+     */
+    public long getRequests(Role role) {
+        return requests[role.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of admissions of a role.
+     *
+     * @param role the role
+     * @return the admission count
+     */
+    public long getAdmissions(Role role) {
+        return admissions[role.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of timed requests of a role that ran out of time.
+     *
+     * @param role the role
+     * @return the timeout count
+     */
+    public long getTimeouts(Role role) {
+        return timeouts[role.ordinal()].sum();
+    }
+
+    /**
+     * Returns the mean number of admissions per second of a role since the registry was created.
+     *
+     * @param role the role
+     * @return admissions per second
+     */
+    public double getAdmissionRate(Role role) {
+        double seconds = (System.nanoTime() - createdAtNanos) / 1e9;
+        return seconds <= 0 ? 0 : getAdmissions(role) / seconds;
+    }
+
+    /**
+     * Returns the number of agents of a role currently admitted and not yet released.
+     *
+     * @param role the role
+     * @return the number of active agents
+     */
+    public long getActive(Role role) {
+        return admissions[role.ordinal()].sum() - releases[role.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of reader places of the reading room.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity.getAsInt();
+    }
+
+    /**
+     * Returns the number of readers currently in the reading room.
+     *
+     * @return the occupancy
+     */
+    public int getOccupancy() {
+        return occupancy.getAsInt();
+    }
+
+    /**
+     * Returns the number of agents currently awaiting access.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    /**
+     * Returns the largest queue depth seen so far.
+     *
+     * @return the maximum queue depth
+     */
+    public long getMaxQueueDepth() {
+        return Math.max(maxQueueDepth.get(), recordedMaxQueueDepth.getAsLong());
+    }
+
+    /**
+     * Appends all metrics in the Prometheus text exposition format (version 0.0.4).
+     *
+     * @param out the buffer to append to
+     */
+    public void writePrometheus(StringBuilder out) {
+        header(out, "library_requests_total", "counter", "Requests for access to the reading room.");
+        for (Role role : Role.values()) {
+            sample(out, "library_requests_total", role, null, getRequests(role));
+        }
+        header(out, "library_admissions_total", "counter", "Admissions to the reading room.");
+        for (Role role : Role.values()) {
+            sample(out, "library_admissions_total", role, null, getAdmissions(role));
+        }
+        header(out, "library_timeouts_total", "counter", "Timed requests withdrawn because their time ran out.");
+        for (Role role : Role.values()) {
+            sample(out, "library_timeouts_total", role, null, getTimeouts(role));
+        }
+        header(out, "library_admissions_per_second", "gauge", "Mean admissions per second since start.");
+        for (Role role : Role.values()) {
+            sample(out, "library_admissions_per_second", role, null, getAdmissionRate(role));
+        }
+        header(out, "library_active_agents", "gauge", "Agents admitted and not yet released.");
+        for (Role role : Role.values()) {
+            sample(out, "library_active_agents", role, null, getActive(role));
+        }
+        header(out, "library_capacity", "gauge", "Readers allowed in the reading room at the same time.");
+        sample(out, "library_capacity", null, null, getCapacity());
+        header(out, "library_occupancy", "gauge", "Readers currently in the reading room.");
+        sample(out, "library_occupancy", null, null, getOccupancy());
+        header(out, "library_queue_depth", "gauge", "Agents currently awaiting access.");
+        sample(out, "library_queue_depth", null, null, getQueueDepth());
+        header(out, "library_queue_depth_max", "gauge", "Largest number of agents awaiting access at once.");
+        sample(out, "library_queue_depth_max", null, null, getMaxQueueDepth());
+
+        histogram(out, "library_queue_wait_seconds", "Time from request to admission.", waits);
+        histogram(out, "library_hold_seconds", "Time from admission to release.", holds);
+
+        header(out, "library_queue_wait_quantile_seconds", "gauge", "Approximate quantiles of the queue wait time.");
+        for (Role role : Role.values()) {
+            for (double quantile : EXPORTED_QUANTILES) {
+                sample(out, "library_queue_wait_quantile_seconds", role, "quantile=\"" + quantile + "\"",
+                        waits[role.ordinal()].getQuantile(quantile) / 1e9);
+            }
+        }
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram[] histograms) {
+        header(out, name, "histogram", help);
+        for (Role role : Role.values()) {
+            LatencyHistogram histogram = histograms[role.ordinal()];
+            for (int power = FIRST_EXPORTED_POWER; power <= LAST_EXPORTED_POWER; power += 2) {
+                long bound = 1L << power;
+                sample(out, name + "_bucket", role, "le=\"" + format(bound / 1e9) + "\"",
+                        histogram.countAtMost(bound - 1));
+            }
+            long count = histogram.getCount();
+            sample(out, name + "_bucket", role, "le=\"+Inf\"", count);
+            sample(out, name + "_sum", role, null, histogram.getSum() / 1e9);
+            sample(out, name + "_count", role, null, count);
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, Role role, String extraLabel, double value) {
+        out.append(name);
+        if (role != null || extraLabel != null) {
+            out.append('{');
+            if (role != null) {
+                out.append("role=\"").append(role.label()).append('"');
+            }
+            if (extraLabel != null) {
+                out.append(role != null ? "," : "").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.9g", value);
+    }
+}
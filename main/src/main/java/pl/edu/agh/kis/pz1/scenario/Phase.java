@@ -0,0 +1,67 @@
+package pl.edu.agh.kis.pz1.scenario;
+
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+/**
+ * One phase of a {@link Scenario}: for {@code durationMillis} the library is used by {@code readers} readers and
+ * {@code writers} writers. At the start of the phase the population moves from the counts of the previous phase to
+ * these along {@code ramp}, taking {@code rampMillis}; agents added during the phase draw their active and idle times,
+ * in milliseconds, from the samplers of the phase.
+ *
+ * @param name           the name of the phase, shown when it starts
+ * @param durationMillis how long the phase lasts, in milliseconds
+ * @param readers        the number of readers once the ramp is over
+ * @param writers        the number of writers once the ramp is over
+ * @param ramp           the curve of the change from the previous counts
+ * @param rampMillis     how long the change takes, at most {@code durationMillis}
+ * @param capacity       the capacity the library is resized to when the phase starts, 0 to leave it as it is
+ * @param readerActive   the distribution of the reading time of new readers
+ * @param readerIdle     the distribution of the idle time of new readers
+ * @param writerActive   the distribution of the writing time of new writers
+ * @param writerIdle     the distribution of the idle time of new writers
+ */
+public record Phase(String name, long durationMillis, int readers, int writers, Ramp ramp, long rampMillis,
+                    int capacity, Sampler readerActive, Sampler readerIdle, Sampler writerActive, Sampler writerIdle) {
+
+    /**
+     * Validates the phase.
+     *
+     * @throws IllegalArgumentException if a duration, count or capacity is out of range
+     */
+    public Phase {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("Phase " + name + " must last a positive time");
+        }
+        if (readers < 0 || writers < 0 || capacity < 0) {
+            throw new IllegalArgumentException("Phase " + name + " has a negative count or capacity");
+        }
+        if (rampMillis < 0 || rampMillis > durationMillis) {
+            throw new IllegalArgumentException("The ramp of phase " + name + " must fit in the phase");
+        }
+    }
+
+    /**
+     * Returns how far along the ramp of the phase is.
+     *
+     * @param elapsedMillis the time since the start of the phase, in milliseconds
+     * @return the done part of the change of the population, from 0 to 1
+     */
+    public double progressAt(long elapsedMillis) {
+        if (rampMillis == 0) {
+            return 1;
+        }
+        return ramp.progress((double) elapsedMillis / rampMillis);
+    }
+
+    /**
+     * Returns the number of agents wanted at a moment of the phase.
+     *
+     * @param from          the number of agents at the start of the phase
+     * @param to            the number of agents once the ramp is over
+     * @param elapsedMillis the time since the start of the phase, in milliseconds
+     * @return the wanted number of agents, rounded
+     */
+    public int countAt(int from, int to, long elapsedMillis) {
+        return (int) Math.round(from + (to - from) * progressAt(elapsedMillis));
+    }
+}
@@ -0,0 +1,57 @@
+package pl.edu.agh.kis.pz1.scenario;
+
+import java.util.Locale;
+
+/**
+ * The curve along which a {@link Phase} moves the agent population from the counts of the previous phase to its own.
+ * The same curve serves a ramp-up and a ramp-down: it only says how far along the change is at a given moment.
+ */
+public enum Ramp {
+    /** The whole change happens at the start of the phase. */
+    STEP,
+    /** The population changes at a constant rate. */
+    LINEAR,
+    /** The change starts slowly and speeds up, like a queue building up in the morning. */
+    EASE_IN,
+    /** The change starts fast and slows down, like a crowd dispersing. */
+    EASE_OUT,
+    /** The change starts slowly, speeds up in the middle and slows down again. */
+    S_CURVE;
+
+    /**
+     * Returns how far along the change is.
+     *
+     * @param fraction the elapsed part of the ramp, from 0 to 1
+     * @return the done part of the change, from 0 to 1
+     */
+    public double progress(double fraction) {
+        double t = Math.min(1, Math.max(0, fraction));
+        switch (this) {
+            case STEP:
+                return 1;
+            case LINEAR:
+                return t;
+            case EASE_IN:
+                return t * t;
+            case EASE_OUT:
+                return 1 - (1 - t) * (1 - t);
+            default:
+                return t * t * (3 - 2 * t);
+        }
+    }
+
+    /**
+     * Returns the curve with a name, ignoring case and accepting {@code -} for {@code _}, e.g. {@code s-curve}.
+     *
+     * @param name the name of the curve
+     * @return the curve
+     * @throws IllegalArgumentException if no curve has this name
+     */
+    public static Ramp fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown ramp: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package pl.edu.agh.kis.pz1.scenario;
+
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * A load shape for the library: a sequence of {@link Phase}s run one after another by a {@link ScenarioRunner}.
+ * <p>
+ * Scenarios are written as {@link Properties} files. {@code phases} lists the names of the phases in order, and every
+ * phase is described by keys prefixed with its name:
+ * </p>
+ * <pre>
+ * phases=night,morning,storm
+ * reader.active=uniform:1000:3000
+ * night.duration=30s
+ * night.readers=2
+ * night.writers=1
+ * morning.duration=2m
+ * morning.readers=40
+ * morning.ramp=ease-in
+ * morning.ramp-time=90s
+ * morning.capacity=10
+ * storm.duration=20s
+ * storm.writers=15
+ * storm.writer.idle=exp:200
+ * </pre>
+ * <p>
+ * {@code duration} is required; durations are milliseconds, or a number followed by {@code ms}, {@code s}, {@code m}
+ * or {@code h}. {@code readers}, {@code writers}, {@code capacity} and the distributions {@code reader.active},
+ * {@code reader.idle}, {@code writer.active} and {@code writer.idle} (in the format of {@link Sampler#parse(String)})
+ * carry over from the previous phase when omitted; the first phase starts from no agents, the capacity of the library
+ * and the distributions given without a phase prefix, or those of the default factories. {@code ramp} is one of the
+ * {@link Ramp} curves, {@code step} by default, and {@code ramp-time} defaults to the whole phase for the other curves.
+ * </p>
+ */
+public final class Scenario {
+    /** Default reading time of readers, as in the default {@link pl.edu.agh.kis.pz1.ReaderFactory}. */
+    public static final String DEFAULT_READER_ACTIVE = "uniform:1000:3000";
+    /** Default idle time of readers, as in the default {@link pl.edu.agh.kis.pz1.ReaderFactory}. */
+    public static final String DEFAULT_READER_IDLE = "uniform:1000:5000";
+    /** Default writing time of writers, as in the default {@link pl.edu.agh.kis.pz1.WriterFactory}. */
+    public static final String DEFAULT_WRITER_ACTIVE = "uniform:1000:3000";
+    /** Default idle time of writers, as in the default {@link pl.edu.agh.kis.pz1.WriterFactory}. */
+    public static final String DEFAULT_WRITER_IDLE = "uniform:3000:10000";
+
+    private final List<Phase> phases;
+
+    /**
+     * Creates a scenario.
+     *
+     * @param phases the phases in the order they run
+     * @throws IllegalArgumentException if there are no phases
+     */
+    public Scenario(List<Phase> phases) {
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("A scenario needs at least one phase");
+        }
+        this.phases = List.copyOf(phases);
+    }
+
+    /**
+     * Returns the phases.
+     *
+     * @return the phases in the order they run
+     */
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Returns the time the whole scenario takes.
+     *
+     * @return the sum of the durations of the phases, in milliseconds
+     */
+    public long getDurationMillis() {
+        long total = 0;
+        for (Phase phase : phases) {
+            total += phase.durationMillis();
+        }
+        return total;
+    }
+
+    /**
+     * Reads a scenario from a properties file in UTF-8.
+     *
+     * @param file the file
+     * @return the scenario
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file does not describe a valid scenario
+     */
+    public static Scenario load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Reads a scenario in the properties format.
+     *
+     * @param text the scenario
+     * @return the scenario
+     * @throws IllegalArgumentException if the text does not describe a valid scenario
+     */
+    public static Scenario parse(String text) {
+        try {
+            return parse(new StringReader(text));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);  // A StringReader does not fail
+        }
+    }
+
+    private static Scenario parse(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        return parse(properties);
+    }
+
+    /**
+     * Builds a scenario from properties.
+     *
+     * @param properties the description of the scenario
+     * @return the scenario
+     * @throws IllegalArgumentException if the properties do not describe a valid scenario
+     */
+    public static Scenario parse(Properties properties) {
+        String names = properties.getProperty("phases", "").trim();
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("The scenario lists no phases");
+        }
+        int readers = 0;
+        int writers = 0;
+        int capacity = intValue(properties, "capacity", 0);
+        Sampler readerActive = sampler(properties, "reader.active", DEFAULT_READER_ACTIVE);
+        Sampler readerIdle = sampler(properties, "reader.idle", DEFAULT_READER_IDLE);
+        Sampler writerActive = sampler(properties, "writer.active", DEFAULT_WRITER_ACTIVE);
+        Sampler writerIdle = sampler(properties, "writer.idle", DEFAULT_WRITER_IDLE);
+        List<Phase> phases = new ArrayList<>();
+        for (String rawName : names.split(",")) {
+            String name = rawName.trim();
+            String prefix = name + ".";
+            String duration = properties.getProperty(prefix + "duration");
+            if (duration == null) {
+                throw new IllegalArgumentException("Phase " + name + " has no duration");
+            }
+            long durationMillis = parseDuration(duration);
+            readers = intValue(properties, prefix + "readers", readers);
+            writers = intValue(properties, prefix + "writers", writers);
+            capacity = intValue(properties, prefix + "capacity", capacity);
+            Ramp ramp = Ramp.fromName(properties.getProperty(prefix + "ramp", Ramp.STEP.name()));
+            String rampTime = properties.getProperty(prefix + "ramp-time");
+            long rampMillis = rampTime != null ? parseDuration(rampTime) : ramp == Ramp.STEP ? 0 : durationMillis;
+            readerActive = sampler(properties, prefix + "reader.active", readerActive);
+            readerIdle = sampler(properties, prefix + "reader.idle", readerIdle);
+            writerActive = sampler(properties, prefix + "writer.active", writerActive);
+            writerIdle = sampler(properties, prefix + "writer.idle", writerIdle);
+            phases.add(new Phase(name, durationMillis, readers, writers, ramp, rampMillis, capacity,
+                    readerActive, readerIdle, writerActive, writerIdle));
+        }
+        return new Scenario(phases);
+    }
+
+    /**
+     * Parses a duration: a number of milliseconds, or a number followed by {@code ms}, {@code s}, {@code m} or
+     * {@code h}.
+     *
+     * @param text the duration
+     * @return the duration in milliseconds
+     * @throws IllegalArgumentException if the text is not a duration
+     */
+    public static long parseDuration(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("ms")) {
+            value = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("s")) {
+            unit = 1000;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("m")) {
+            unit = 60_000;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("h")) {
+            unit = 3_600_000;
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Math.round(Double.parseDouble(value.trim()) * unit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + text, e);
+        }
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + key + ": " + value, e);
+        }
+    }
+
+    private static Sampler sampler(Properties properties, String key, String defaultSpec) {
+        return Sampler.parse(properties.getProperty(key, defaultSpec).trim());
+    }
+
+    private static Sampler sampler(Properties properties, String key, Sampler inherited) {
+        String value = properties.getProperty(key);
+        return value == null ? inherited : Sampler.parse(value.trim());
+    }
+}
@@ -0,0 +1,144 @@
+package pl.edu.agh.kis.pz1.scenario;
+
+import pl.edu.agh.kis.pz1.Agent;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Writer;
+import pl.edu.agh.kis.pz1.shard.KeyDistribution;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs a {@link Scenario} against a live library, in real time.
+ * <p>
+ * Every {@value #TICK_MILLIS} ms the runner works out how many readers and writers the current phase wants at that
+ * moment of its ramp, starts the missing agents on the executor and {@linkplain Agent#retire() retires} the surplus,
+ * newest first. A retired agent finishes the visit it is in, so shrinking the population never cuts a reading or
+ * writing short and never leaks a place in the reading room. When a phase sets a capacity the library is resized as
+ * the phase starts. Agents already running keep their timing when a phase changes the distributions; only the agents
+ * added by the phase use its distributions.
+ * </p>
+ * <p>
+ * After the last phase every agent is retired and the runner waits for all of them to leave.
+ * </p>
+ */
+public class ScenarioRunner {
+    /** How often the population is adjusted, in milliseconds. */
+    public static final long TICK_MILLIS = 100;
+
+    private final Library library;
+    private final Scenario scenario;
+    private final Executor executor;
+    private final KeyDistribution keys;
+    private final ArrayDeque<Reader> readers = new ArrayDeque<>();  // Running readers, oldest first
+    private final ArrayDeque<Writer> writers = new ArrayDeque<>();  // Running writers, oldest first
+    private final List<Agent> leaving = new ArrayList<>();  // Retired agents that may still be inside
+    private volatile int readerCount;
+    private volatile int writerCount;
+
+    /**
+     * Creates a runner.
+     *
+     * @param library  the library the agents use
+     * @param scenario the scenario to run
+     * @param executor the executor running the agents
+     * @param keys     the distribution of the resource keys of new agents
+     */
+    public ScenarioRunner(Library library, Scenario scenario, Executor executor, KeyDistribution keys) {
+        this.library = library;
+        this.scenario = scenario;
+        this.executor = executor;
+        this.keys = keys;
+    }
+
+    /**
+     * Runs the scenario to its end on the calling thread. If the thread is interrupted, the agents are still retired
+     * and waited for before the exception is thrown.
+     *
+     * @param onPhaseStart called with each phase as it starts, before its capacity and population are applied
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void run(Consumer<Phase> onPhaseStart) throws InterruptedException {
+        int fromReaders = 0;
+        int fromWriters = 0;
+        try {
+            for (Phase phase : scenario.getPhases()) {
+                onPhaseStart.accept(phase);
+                if (phase.capacity() > 0) {
+                    library.resize(phase.capacity());
+                }
+                Supplier<Reader> newReader = () -> new Reader(library, null, phase.readerActive(), phase.readerIdle());
+                Supplier<Writer> newWriter = () -> new Writer(library, null, phase.writerActive(), phase.writerIdle());
+                long start = System.nanoTime();
+                for (;;) {
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    adjust(readers, phase.countAt(fromReaders, phase.readers(), elapsed), newReader);
+                    adjust(writers, phase.countAt(fromWriters, phase.writers(), elapsed), newWriter);
+                    readerCount = readers.size();
+                    writerCount = writers.size();
+                    leaving.removeIf(agent -> !agent.isAlive());
+                    if (elapsed >= phase.durationMillis()) {
+                        break;
+                    }
+                    Thread.sleep(Math.min(TICK_MILLIS, phase.durationMillis() - elapsed));
+                }
+                fromReaders = phase.readers();
+                fromWriters = phase.writers();
+            }
+        } finally {
+            adjust(readers, 0, null);
+            adjust(writers, 0, null);
+            readerCount = 0;
+            writerCount = 0;
+            for (Agent agent : leaving) {
+                agent.join();
+            }
+            leaving.clear();
+        }
+    }
+
+    /**
+     * Returns the number of running readers.
+     *
+     * @return the readers started and not retired yet
+     */
+    public int getReaderCount() {
+        return readerCount;
+    }
+
+    /**
+     * Returns the number of running writers.
+     *
+     * @return the writers started and not retired yet
+     */
+    public int getWriterCount() {
+        return writerCount;
+    }
+
+    /**
+     * Starts or retires agents until the given number of them is running.
+     *
+     * @param running the running agents of one role, oldest first
+     * @param target  the wanted number of agents
+     * @param factory creates a new agent of the role
+     * @param <A>     the type of the agents
+     */
+    private <A extends Agent> void adjust(ArrayDeque<A> running, int target, Supplier<A> factory) {
+        while (running.size() < target) {
+            A agent = factory.get();
+            agent.setResourceKey(keys.nextKey());
+            running.addLast(agent);
+            agent.start(executor);
+        }
+        while (running.size() > target) {
+            A agent = running.removeLast();
+            agent.retire();
+            leaving.add(agent);
+        }
+    }
+}
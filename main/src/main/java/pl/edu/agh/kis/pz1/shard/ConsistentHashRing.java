@@ -0,0 +1,103 @@
+package pl.edu.agh.kis.pz1.shard;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring mapping resource keys to shards.
+ * <p>
+ * Every shard is placed on a ring of 64-bit hashes at {@code virtualNodes} pseudo-random points; a key belongs to the
+ * shard owning the first point at or after the hash of the key. With enough virtual nodes the shards get nearly equal
+ * parts of the ring, and adding a shard only moves the keys that land on its new points, about {@code 1 / (n + 1)}
+ * of them. A lookup is a binary search over a sorted array, so it does not allocate.
+ * </p>
+ */
+public class ConsistentHashRing {
+    /** Number of points per shard used unless configured otherwise. */
+    public static final int DEFAULT_VIRTUAL_NODES = 64;
+
+    private final int shards;
+    private final long[] points;  // Sorted positions of all virtual nodes on the ring
+    private final int[] owners;  // Shard owning the point at the same index
+
+    /**
+     * Creates a ring with {@link #DEFAULT_VIRTUAL_NODES} points per shard.
+     *
+     * @param shards the number of shards
+     * @throws IllegalArgumentException if {@code shards} is not positive
+     */
+    public ConsistentHashRing(int shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Creates a ring.
+     *
+     * @param shards       the number of shards
+     * @param virtualNodes the number of points per shard
+     * @throws IllegalArgumentException if {@code shards} or {@code virtualNodes} is not positive
+     */
+    public ConsistentHashRing(int shards, int virtualNodes) {
+        if (shards <= 0 || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Shards and virtual nodes must be positive.");
+        }
+        this.shards = shards;
+        int size = shards * virtualNodes;
+        long[][] entries = new long[size][];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                // The point of a shard does not depend on the number of shards, which keeps the ring consistent
+                entries[shard * virtualNodes + node] = new long[]{hash(((long) shard << 32) | node), shard};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        points = new long[size];
+        owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    /**
+     * Returns the number of shards on the ring.
+     *
+     * @return the number of shards
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the shard a key belongs to.
+     *
+     * @param key the resource key
+     * @return the index of the shard, between 0 and {@link #getShards()} - 1
+     */
+    public int shardFor(long key) {
+        long hash = hash(key);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[middle], hash) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    /**
+     * Scrambles a value into a well distributed 64-bit hash (the finalizer of SplitMix64).
+     *
+     * @param value the value to hash
+     * @return the hash
+     */
+    static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,138 @@
+package pl.edu.agh.kis.pz1.shard;
+
+import pl.edu.agh.kis.pz1.util.NumUtils;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the resource keys assigned to agents, used to load the rooms of a {@link ShardedLibrary} evenly or
+ * with a skew. Keys are drawn from the random stream of the calling thread ({@link NumUtils#current()}), so they are
+ * reproduced by setting the master seed with {@link NumUtils#setSeed(long)}.
+ */
+@FunctionalInterface
+public interface KeyDistribution {
+
+    /** Every agent works on the same resource, key 0. */
+    KeyDistribution SINGLE = () -> 0;
+
+    /**
+     * Draws the next key.
+     *
+     * @return a resource key
+     */
+    long nextKey();
+
+    /**
+     * Returns a distribution drawing every key from {@code 0} to {@code keys - 1} with the same probability.
+     *
+     * @param keys the number of distinct keys
+     * @return the uniform distribution
+     * @throws IllegalArgumentException if {@code keys} is not positive
+     */
+    static KeyDistribution uniform(int keys) {
+        checkKeys(keys);
+        return () -> NumUtils.current().nextInt(keys);
+    }
+
+    /**
+     * Returns a Zipf distribution over the keys {@code 0} to {@code keys - 1}: key {@code k} is drawn with probability
+     * proportional to {@code 1 / (k + 1)^exponent}, so a few low keys get most of the traffic. An exponent of 0 is the
+     * uniform distribution.
+     *
+     * @param keys     the number of distinct keys
+     * @param exponent the skew, not negative
+     * @return the Zipf distribution
+     * @throws IllegalArgumentException if {@code keys} is not positive or {@code exponent} is negative
+     */
+    static KeyDistribution zipf(int keys, double exponent) {
+        checkKeys(keys);
+        if (exponent < 0 || Double.isNaN(exponent)) {
+            throw new IllegalArgumentException("Zipf exponent must not be negative, got " + exponent);
+        }
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int k = 0; k < keys; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < keys; k++) {
+            cumulative[k] /= sum;
+        }
+        return () -> {
+            double u = NumUtils.current().nextDouble();
+            int low = 0;
+            int high = keys - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < u) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        };
+    }
+
+    /**
+     * Returns a hot-spot distribution: with probability {@code hotProbability} the key is drawn uniformly from the first
+     * {@code hotKeys} keys, otherwise uniformly from the remaining ones.
+     *
+     * @param keys           the number of distinct keys
+     * @param hotKeys        the number of hot keys, between 1 and {@code keys}
+     * @param hotProbability the share of the traffic going to the hot keys, between 0 and 1
+     * @return the hot-spot distribution
+     * @throws IllegalArgumentException if the arguments are out of range
+     */
+    static KeyDistribution hotspot(int keys, int hotKeys, double hotProbability) {
+        checkKeys(keys);
+        if (hotKeys <= 0 || hotKeys > keys || !(hotProbability >= 0 && hotProbability <= 1)) {
+            throw new IllegalArgumentException("Invalid hot spot: " + hotKeys + " of " + keys + " keys, p=" + hotProbability);
+        }
+        return () -> {
+            SplittableRandom random = NumUtils.current();
+            if (hotKeys == keys || random.nextDouble() < hotProbability) {
+                return random.nextInt(hotKeys);
+            }
+            return hotKeys + random.nextInt(keys - hotKeys);
+        };
+    }
+
+    /**
+     * Parses a distribution from its command-line form: {@code single}, {@code uniform}, {@code zipf:EXPONENT} or
+     * {@code hotspot:HOT_KEYS:PROBABILITY}.
+     *
+     * @param spec the textual form
+     * @param keys the number of distinct keys
+     * @return the distribution
+     * @throws IllegalArgumentException if the text is not a valid distribution
+     */
+    static KeyDistribution parse(String spec, int keys) {
+        String[] parts = spec.toLowerCase(Locale.ROOT).split(":");
+        try {
+            switch (parts[0]) {
+                case "single":
+                    return SINGLE;
+                case "uniform":
+                    return uniform(keys);
+                case "zipf":
+                    return zipf(keys, parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+                case "hotspot":
+                    return hotspot(keys, parts.length > 1 ? Integer.parseInt(parts[1]) : Math.max(1, keys / 10),
+                            parts.length > 2 ? Double.parseDouble(parts[2]) : 0.9);
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid key distribution: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown key distribution: " + spec);
+    }
+
+    private static void checkKeys(int keys) {
+        if (keys <= 0) {
+            throw new IllegalArgumentException("Number of keys must be positive, got " + keys);
+        }
+    }
+}
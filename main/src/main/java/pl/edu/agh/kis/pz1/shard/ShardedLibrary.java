@@ -0,0 +1,324 @@
+package pl.edu.agh.kis.pz1.shard;
+
+import pl.edu.agh.kis.pz1.Agent;
+import pl.edu.agh.kis.pz1.Lease;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.Writer;
+import pl.edu.agh.kis.pz1.doc.VersionedDocument;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link Library} made of several independent reading rooms. Each room is a complete library with its own capacity
+ * and its own lock; an agent is routed to a room by the {@linkplain Agent#getResourceKey() key of its resource}
+ * through a {@link ConsistentHashRing}. Agents with the same key always meet in the same room and keep the usual
+ * rules there, while agents on keys of different rooms never wait for each other, writers included.
+ * <p>
+ * The capacity of the sharded library is the total number of reader places of all rooms. Its metrics aggregate all
+ * rooms; the metrics of a single room are available through {@link #getRoom(int)}. Every room keeps its own
+ * catalog, changed only by the writers of its keys.
+ * </p>
+ */
+public class ShardedLibrary implements Library {
+    private final Library[] rooms;
+    private final ConsistentHashRing ring;
+    private final LibraryMetrics metrics;
+
+    /**
+     * Creates a sharded library with identical rooms.
+     *
+     * @param type     the engine of every room
+     * @param shards   the number of rooms
+     * @param capacity the number of readers allowed in each room at the same time
+     * @param listener the listener receiving the events of all rooms
+     * @throws IllegalArgumentException if {@code shards} or {@code capacity} is not positive
+     */
+    public ShardedLibrary(LibraryType type, int shards, int capacity, LibraryEventListener listener) {
+        this(createRooms(type, shards, capacity, listener));
+    }
+
+    /**
+     * Creates a sharded library from existing rooms, which may differ in engine and capacity.
+     *
+     * @param rooms the rooms, in the order of their shard index
+     * @throws IllegalArgumentException if there are no rooms
+     */
+    public ShardedLibrary(List<? extends Library> rooms) {
+        if (rooms.isEmpty()) {
+            throw new IllegalArgumentException("A sharded library needs at least one room.");
+        }
+        this.rooms = rooms.toArray(new Library[0]);
+        this.ring = new ConsistentHashRing(this.rooms.length);
+        this.metrics = new LibraryMetrics(this::getCapacity,
+                () -> sum(room -> room.getMetrics().getOccupancy()),
+                () -> sum(room -> room.getMetrics().getQueueDepth()),
+                () -> {  // Agents queue in the rooms, so the deepest queue is that of a single room
+                    long max = 0;
+                    for (Library room : this.rooms) {
+                        max = Math.max(max, room.getMetrics().getMaxQueueDepth());
+                    }
+                    return max;
+                });
+    }
+
+    private static List<Library> createRooms(LibraryType type, int shards, int capacity, LibraryEventListener listener) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive, got " + shards);
+        }
+        List<Library> rooms = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            rooms.add(type.create(listener, capacity));
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns the number of rooms.
+     *
+     * @return the number of shards
+     */
+    public int getShards() {
+        return rooms.length;
+    }
+
+    /**
+     * Returns a single room.
+     *
+     * @param shard the index of the room
+     * @return the room
+     */
+    public Library getRoom(int shard) {
+        return rooms[shard];
+    }
+
+    /**
+     * Returns the index of the room an agent is routed to.
+     *
+     * @param agent the agent
+     * @return the index of its room
+     */
+    public int shardOf(Agent agent) {
+        return ring.shardFor(agent.getResourceKey());
+    }
+
+    private Library roomOf(Agent agent) {
+        return rooms[shardOf(agent)];
+    }
+
+    @Override
+    public void requestReading(Reader reader) throws InterruptedException {
+        metrics.recordRequest(Role.READER);
+        roomOf(reader).requestReading(reader);
+        metrics.recordAdmission(Role.READER, reader.getAdmittedAtNanos() - reader.getRequestedAtNanos());
+    }
+
+    @Override
+    public boolean tryRequestReading(Reader reader, long timeout, TimeUnit unit) throws InterruptedException {
+        metrics.recordRequest(Role.READER);
+        if (!roomOf(reader).tryRequestReading(reader, timeout, unit)) {
+            metrics.recordTimeout(Role.READER);
+            return false;
+        }
+        metrics.recordAdmission(Role.READER, reader.getAdmittedAtNanos() - reader.getRequestedAtNanos());
+        return true;
+    }
+
+    @Override
+    public void startReading(Reader reader) throws InterruptedException {
+        roomOf(reader).startReading(reader);
+    }
+
+    @Override
+    public void stopReading(Reader reader) throws InterruptedException {
+        roomOf(reader).stopReading(reader);
+        metrics.recordRelease(Role.READER, System.nanoTime() - reader.getAdmittedAtNanos());
+    }
+
+    @Override
+    public void requestWriting(Writer writer) throws InterruptedException {
+        metrics.recordRequest(Role.WRITER);
+        roomOf(writer).requestWriting(writer);
+        metrics.recordAdmission(Role.WRITER, writer.getAdmittedAtNanos() - writer.getRequestedAtNanos());
+    }
+
+    @Override
+    public boolean tryRequestWriting(Writer writer, long timeout, TimeUnit unit) throws InterruptedException {
+        metrics.recordRequest(Role.WRITER);
+        if (!roomOf(writer).tryRequestWriting(writer, timeout, unit)) {
+            metrics.recordTimeout(Role.WRITER);
+            return false;
+        }
+        metrics.recordAdmission(Role.WRITER, writer.getAdmittedAtNanos() - writer.getRequestedAtNanos());
+        return true;
+    }
+
+    @Override
+    public void startWriting(Writer writer) throws InterruptedException {
+        roomOf(writer).startWriting(writer);
+    }
+
+    @Override
+    public void stopWriting(Writer writer) {
+        roomOf(writer).stopWriting(writer);
+        metrics.recordRelease(Role.WRITER, System.nanoTime() - writer.getAdmittedAtNanos());
+    }
+
+    @Override
+    public CompletableFuture<Lease> requestReadingAsync(Reader reader) {
+        metrics.recordRequest(Role.READER);
+        return relay(reader, roomOf(reader).requestReadingAsync(reader));
+    }
+
+    @Override
+    public CompletableFuture<Lease> requestWritingAsync(Writer writer) {
+        metrics.recordRequest(Role.WRITER);
+        return relay(writer, roomOf(writer).requestWritingAsync(writer));
+    }
+
+    /**
+     * Wraps the lease granted by a room into one that also records the aggregate metrics. Cancelling the returned
+     * future cancels the request in the room; a lease granted after the cancellation is given back.
+     *
+     * @param agent the requesting agent
+     * @param room  the future of the lease granted by the room
+     * @return the future of the wrapping lease
+     */
+    private CompletableFuture<Lease> relay(Agent agent, CompletableFuture<Lease> room) {
+        CompletableFuture<Lease> relayed = new CompletableFuture<>();
+        room.whenComplete((granted, failure) -> {
+            if (failure != null) {
+                relayed.completeExceptionally(failure);
+                return;
+            }
+            metrics.recordAdmission(agent.getRole(), agent.getAdmittedAtNanos() - agent.getRequestedAtNanos());
+            Lease lease = new Lease(agent, () -> {
+                granted.close();
+                metrics.recordRelease(agent.getRole(), System.nanoTime() - agent.getAdmittedAtNanos());
+            });
+            if (!relayed.complete(lease)) {
+                lease.close();
+            }
+        });
+        relayed.whenComplete((lease, failure) -> {
+            if (relayed.isCancelled()) {
+                room.cancel(false);
+            }
+        });
+        return relayed;
+    }
+
+    /**
+     * Shuts every room down: new requests are rejected and the agents already queued in any room are still admitted.
+     */
+    @Override
+    public void shutdown() {
+        for (Library room : rooms) {
+            room.shutdown();
+        }
+    }
+
+    /**
+     * Tells whether the library was shut down. The rooms are only shut down together, so the first one tells.
+     *
+     * @return {@code true} after {@link #shutdown()}
+     */
+    @Override
+    public boolean isShutdown() {
+        return rooms[0].isShutdown();
+    }
+
+    /**
+     * Tells whether every room was shut down and emptied.
+     *
+     * @return {@code true} once the last agent left the last room
+     */
+    @Override
+    public boolean isTerminated() {
+        for (Library room : rooms) {
+            if (!room.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for every room to terminate, all within the same timeout.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if every room terminated, {@code false} if the time ran out first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Library room : rooms) {
+            if (!room.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the total number of reader places of all rooms.
+     *
+     * @return the sum of the capacities of the rooms
+     */
+    @Override
+    public int getCapacity() {
+        return sum(Library::getCapacity);
+    }
+
+    /**
+     * Spreads a total number of reader places evenly over the rooms; the first rooms get one place more when it does
+     * not divide evenly.
+     *
+     * @param capacity the new total capacity
+     * @throws IllegalArgumentException if {@code capacity} is smaller than the number of rooms
+     */
+    @Override
+    public void resize(int capacity) {
+        if (capacity < rooms.length) {
+            throw new IllegalArgumentException("Capacity " + capacity + " leaves some of the " + rooms.length
+                    + " rooms without a place");
+        }
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i].resize(capacity / rooms.length + (i < capacity % rooms.length ? 1 : 0));
+        }
+    }
+
+    @Override
+    public LibraryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the catalog of the room serving resource key 0, the only room used when every agent works on the same
+     * resource. The catalogs of the other rooms are available through {@link #getRoom(int)}.
+     *
+     * @return the document of the room of key 0
+     */
+    @Override
+    public VersionedDocument<List<String>> getDocument() {
+        return rooms[ring.shardFor(0)].getDocument();
+    }
+
+    private int sum(ToIntFunction<Library> value) {
+        int total = 0;
+        for (Library room : rooms) {
+            total += value.applyAsInt(room);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,72 @@
+package pl.edu.agh.kis.pz1.sim;
+
+/**
+ * Active and idle time ranges of a simulated agent, in milliseconds of simulated time. They have the same meaning as
+ * the constants of {@link pl.edu.agh.kis.pz1.Reader} and {@link pl.edu.agh.kis.pz1.Writer}.
+ */
+public final class AgentTiming {
+    /** Timing of readers created by the default {@link pl.edu.agh.kis.pz1.ReaderFactory}. */
+    public static final AgentTiming DEFAULT_READER = new AgentTiming(1000, 3000, 1000, 5000);
+    /** Timing of writers created by the default {@link pl.edu.agh.kis.pz1.WriterFactory}. */
+    public static final AgentTiming DEFAULT_WRITER = new AgentTiming(1000, 3000, 3000, 10000);
+
+    private final int minActiveTime;
+    private final int maxActiveTime;
+    private final int minIdleTime;
+    private final int maxIdleTime;
+
+    /**
+     * Creates a timing.
+     *
+     * @param minActiveTime the minimum time spent in the reading room
+     * @param maxActiveTime the maximum time spent in the reading room
+     * @param minIdleTime   the minimum time before the next request
+     * @param maxIdleTime   the maximum time before the next request
+     * @throws IllegalArgumentException if a minimum is greater than its maximum
+     */
+    public AgentTiming(int minActiveTime, int maxActiveTime, int minIdleTime, int maxIdleTime) {
+        if (minActiveTime > maxActiveTime || minIdleTime > maxIdleTime) {
+            throw new IllegalArgumentException("Lower bound must not be greater than upper bound.");
+        }
+        this.minActiveTime = minActiveTime;
+        this.maxActiveTime = maxActiveTime;
+        this.minIdleTime = minIdleTime;
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Retrieves the minimum time spent in the reading room.
+     *
+     * @return the minimum time spent in the reading room in milliseconds.
+     */
+    public int getMinActiveTime() {
+        return minActiveTime;
+    }
+
+    /**
+     * Retrieves the maximum time spent in the reading room.
+     *
+     * @return the maximum time spent in the reading room in milliseconds.
+     */
+    public int getMaxActiveTime() {
+        return maxActiveTime;
+    }
+
+    /**
+     * Retrieves the minimum time before the next request.
+     *
+     * @return the minimum time before the next request in milliseconds.
+     */
+    public int getMinIdleTime() {
+        return minIdleTime;
+    }
+
+    /**
+     * Retrieves the maximum time before the next request.
+     *
+     * @return the maximum time before the next request in milliseconds.
+     */
+    public int getMaxIdleTime() {
+        return maxIdleTime;
+    }
+}
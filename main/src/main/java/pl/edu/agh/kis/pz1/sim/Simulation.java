@@ -0,0 +1,195 @@
+package pl.edu.agh.kis.pz1.sim;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Discrete-event simulation of the library. Instead of sleeping, agents are represented by timestamped events on a
+ * priority queue, and a virtual clock jumps from one event to the next. Hours of library traffic are simulated in
+ * seconds of wall-clock time, on a single thread.
+ * <p>
+ * The admission rules are the ones of {@link pl.edu.agh.kis.pz1.SemaphoreLibrary}: the reading room has
+ * {@code capacity} permits, a reader takes one and a writer takes all of them, and requests are served strictly in
+ * arrival order, so a waiting writer also holds back the readers behind it. Like {@link pl.edu.agh.kis.pz1.Reader} and
+ * {@link pl.edu.agh.kis.pz1.Writer}, every agent requests access at time zero, stays for a random active time and then
+ * idles for a random time before the next request.
+ * </p>
+ * <p>
+ * All randomness comes from one {@link SplittableRandom} seeded with {@code seed} and events with equal timestamps are
+ * processed in the order they were scheduled, so a run is fully determined by its parameters.
+ * </p>
+ */
+public class Simulation {
+    private final int readers;
+    private final int writers;
+    private final int capacity;
+    private final AgentTiming readerTiming;
+    private final AgentTiming writerTiming;
+    private final long seed;
+
+    /**
+     * Creates a simulation with the default timings of the factories.
+     *
+     * @param readers  the number of readers
+     * @param writers  the number of writers
+     * @param capacity the number of places in the reading room
+     * @param seed     the seed of the random number generator
+     */
+    public Simulation(int readers, int writers, int capacity, long seed) {
+        this(readers, writers, capacity, AgentTiming.DEFAULT_READER, AgentTiming.DEFAULT_WRITER, seed);
+    }
+
+    /**
+     * Creates a simulation.
+     *
+     * @param readers      the number of readers
+     * @param writers      the number of writers
+     * @param capacity     the number of places in the reading room
+     * @param readerTiming the active and idle times of readers
+     * @param writerTiming the active and idle times of writers
+     * @param seed         the seed of the random number generator
+     * @throws IllegalArgumentException if a count is negative or the capacity is not positive
+     */
+    public Simulation(int readers, int writers, int capacity, AgentTiming readerTiming, AgentTiming writerTiming,
+                      long seed) {
+        if (readers < 0 || writers < 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Agent counts must not be negative and capacity must be positive.");
+        }
+        this.readers = readers;
+        this.writers = writers;
+        this.capacity = capacity;
+        this.readerTiming = readerTiming;
+        this.writerTiming = writerTiming;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the simulation from time zero.
+     *
+     * @param durationMillis the simulated time to run for, in milliseconds
+     * @return the statistics of the run
+     */
+    public SimulationResult run(long durationMillis) {
+        return new Run(durationMillis).execute();
+    }
+
+    /**
+     * A scheduled arrival (request for access) or departure (leaving the reading room) of an agent.
+     */
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final int agent;
+        final boolean arrival;
+
+        Event(long time, long sequence, int agent, boolean arrival) {
+            this.time = time;
+            this.sequence = sequence;
+            this.agent = agent;
+            this.arrival = arrival;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * State of a single run. Agents {@code 0 .. readers - 1} are readers, the rest are writers.
+     */
+    private final class Run {
+        private final long duration;
+        private final SplittableRandom random = new SplittableRandom(seed);
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+        private final ArrayDeque<Integer> waiting = new ArrayDeque<>();
+        private final long[] requestedAt = new long[readers + writers];
+        private final long[] admittedAt = new long[readers + writers];
+        private final SimulationResult.RoleStats readerStats = new SimulationResult.RoleStats();
+        private final SimulationResult.RoleStats writerStats = new SimulationResult.RoleStats();
+        private long sequence;
+        private long now;
+        private long lastChange;
+        private long busyPermitTime;
+        private int freePermits = capacity;
+        private int maxQueueDepth;
+        private long processed;
+
+        Run(long duration) {
+            this.duration = duration;
+        }
+
+        SimulationResult execute() {
+            long wallStart = System.nanoTime();
+            for (int agent = 0; agent < requestedAt.length; agent++) {
+                schedule(0, agent, true);
+            }
+            while (!events.isEmpty() && events.peek().time <= duration) {
+                Event event = events.poll();
+                advanceTo(event.time);
+                processed++;
+                if (event.arrival) {
+                    requestedAt[event.agent] = now;
+                    waiting.add(event.agent);
+                    maxQueueDepth = Math.max(maxQueueDepth, waiting.size());
+                } else {
+                    freePermits += permitsOf(event.agent);
+                    statsOf(event.agent).recordHold(now - admittedAt[event.agent]);
+                    schedule(now + idleTime(event.agent), event.agent, true);
+                }
+                admitWaiting();
+            }
+            advanceTo(duration);
+            double utilization = duration == 0 ? 0 : (double) busyPermitTime / ((double) capacity * duration);
+            return new SimulationResult(duration, processed, maxQueueDepth, utilization, readerStats, writerStats,
+                    System.nanoTime() - wallStart);
+        }
+
+        /**
+         * Admits waiting agents in arrival order for as long as the one at the head fits into the reading room.
+         */
+        private void admitWaiting() {
+            while (!waiting.isEmpty() && permitsOf(waiting.peek()) <= freePermits) {
+                int agent = waiting.poll();
+                freePermits -= permitsOf(agent);
+                admittedAt[agent] = now;
+                statsOf(agent).recordWait(now - requestedAt[agent]);
+                schedule(now + activeTime(agent), agent, false);
+            }
+        }
+
+        private void advanceTo(long time) {
+            busyPermitTime += (long) (capacity - freePermits) * (time - lastChange);
+            lastChange = time;
+            now = time;
+        }
+
+        private void schedule(long time, int agent, boolean arrival) {
+            events.add(new Event(time, sequence++, agent, arrival));
+        }
+
+        private boolean isWriter(int agent) {
+            return agent >= readers;
+        }
+
+        private int permitsOf(int agent) {
+            return isWriter(agent) ? capacity : 1;
+        }
+
+        private SimulationResult.RoleStats statsOf(int agent) {
+            return isWriter(agent) ? writerStats : readerStats;
+        }
+
+        private long activeTime(int agent) {
+            AgentTiming timing = isWriter(agent) ? writerTiming : readerTiming;
+            return random.nextInt(timing.getMinActiveTime(), timing.getMaxActiveTime() + 1);
+        }
+
+        private long idleTime(int agent) {
+            AgentTiming timing = isWriter(agent) ? writerTiming : readerTiming;
+            return random.nextInt(timing.getMinIdleTime(), timing.getMaxIdleTime() + 1);
+        }
+    }
+}
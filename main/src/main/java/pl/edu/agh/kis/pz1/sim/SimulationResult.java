@@ -0,0 +1,180 @@
+package pl.edu.agh.kis.pz1.sim;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Statistics of a single {@link Simulation} run. All times are in milliseconds of simulated time, except
+ * {@link #getWallClockNanos()}.
+ */
+public class SimulationResult {
+    private final long simulatedMillis;
+    private final long eventsProcessed;
+    private final int maxQueueDepth;
+    private final double utilization;
+    private final RoleStats readerStats;
+    private final RoleStats writerStats;
+    private final long wallClockNanos;
+
+    SimulationResult(long simulatedMillis, long eventsProcessed, int maxQueueDepth, double utilization,
+                     RoleStats readerStats, RoleStats writerStats, long wallClockNanos) {
+        this.simulatedMillis = simulatedMillis;
+        this.eventsProcessed = eventsProcessed;
+        this.maxQueueDepth = maxQueueDepth;
+        this.utilization = utilization;
+        this.readerStats = readerStats;
+        this.writerStats = writerStats;
+        this.wallClockNanos = wallClockNanos;
+    }
+
+    /**
+     * Retrieves the simulated time.
+     *
+     * @return the simulated time in milliseconds.
+     */
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    /**
+     * Retrieves the number of processed events.
+     *
+     * @return the number of arrivals and departures processed.
+     */
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+
+    /**
+     * Retrieves the largest number of agents waiting at the same time.
+     *
+     * @return the maximum queue depth.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Retrieves the fraction of reading room places that were taken, averaged over the run.
+     *
+     * @return the utilization, between 0 and 1.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Retrieves the statistics of readers.
+     *
+     * @return the reader statistics.
+     */
+    public RoleStats getReaderStats() {
+        return readerStats;
+    }
+
+    /**
+     * Retrieves the statistics of writers.
+     *
+     * @return the writer statistics.
+     */
+    public RoleStats getWriterStats() {
+        return writerStats;
+    }
+
+    /**
+     * Retrieves the wall-clock time the run took.
+     *
+     * @return the wall-clock time in nanoseconds.
+     */
+    public long getWallClockNanos() {
+        return wallClockNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "Simulated %.1f s in %.3f s (%d events), utilization %.1f%%, max queue depth %d%n"
+                        + "Readers: %s%nWriters: %s",
+                simulatedMillis / 1000.0, wallClockNanos / 1e9, eventsProcessed, utilization * 100, maxQueueDepth,
+                readerStats, writerStats);
+    }
+
+    /**
+     * Wait and hold times of one role (readers or writers).
+     */
+    public static final class RoleStats {
+        private long[] waits = new long[64];
+        private int count;
+        private long totalWait;
+        private long holds;
+        private long totalHold;
+        private boolean sorted = true;
+
+        void recordWait(long millis) {
+            if (count == waits.length) {
+                waits = Arrays.copyOf(waits, count * 2);
+            }
+            waits[count++] = millis;
+            totalWait += millis;
+            sorted = false;
+        }
+
+        void recordHold(long millis) {
+            holds++;
+            totalHold += millis;
+        }
+
+        /**
+         * Retrieves the number of admissions.
+         *
+         * @return the number of times an agent of this role was admitted.
+         */
+        public int getAdmissions() {
+            return count;
+        }
+
+        /**
+         * Retrieves the mean time spent waiting for admission.
+         *
+         * @return the mean wait time in milliseconds, 0 if nobody was admitted.
+         */
+        public double getMeanWait() {
+            return count == 0 ? 0 : (double) totalWait / count;
+        }
+
+        /**
+         * Retrieves the mean time spent in the reading room, over completed visits.
+         *
+         * @return the mean hold time in milliseconds, 0 if nobody left the room.
+         */
+        public double getMeanHold() {
+            return holds == 0 ? 0 : (double) totalHold / holds;
+        }
+
+        /**
+         * Retrieves a quantile of the wait time (nearest rank).
+         *
+         * @param quantile the quantile, between 0 and 1
+         * @return the wait time in milliseconds, 0 if nobody was admitted.
+         */
+        public long getWaitQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(waits, 0, count);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(quantile * count);
+            return waits[Math.min(count - 1, Math.max(0, rank - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d admissions, wait mean %.1f ms, p50 %d ms, p99 %d ms, max %d ms, hold mean %.1f ms",
+                    count, getMeanWait(), getWaitQuantile(0.5), getWaitQuantile(0.99), getWaitQuantile(1.0),
+                    getMeanHold());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * Outcome of a {@link TraceReplay}: the admission waits recorded in the trace next to the waits of the replayed library,
+ * per role.
+ */
+public class ReplayResult {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1.0};
+
+    private final LatencyHistogram[] original = new LatencyHistogram[Role.values().length];
+    private final LatencyHistogram[] replayed = new LatencyHistogram[Role.values().length];
+    private long maxQueueDepth;
+
+    ReplayResult() {
+        for (Role role : Role.values()) {
+            original[role.ordinal()] = new LatencyHistogram();
+            replayed[role.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Retrieves the waits of one role as they were recorded in the trace.
+     *
+     * @param role the role
+     * @return the histogram of the original waits, in nanoseconds
+     */
+    public LatencyHistogram getOriginalWaits(Role role) {
+        return original[role.ordinal()];
+    }
+
+    /**
+     * Retrieves the waits of one role in the replay, measured from the intended arrival time.
+     *
+     * @param role the role
+     * @return the histogram of the replayed waits, in nanoseconds
+     */
+    public LatencyHistogram getReplayedWaits(Role role) {
+        return replayed[role.ordinal()];
+    }
+
+    /**
+     * Retrieves the largest number of agents waiting at the same time in the replayed library.
+     *
+     * @return the maximum queue depth
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    void setMaxQueueDepth(long maxQueueDepth) {
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * Retrieves how much a quantile of the wait of one role changed in the replay.
+     *
+     * @param role     the role
+     * @param quantile the quantile, between 0 and 1
+     * @return the replayed quantile minus the original one, in nanoseconds; positive when the replay waited longer
+     */
+    public long getWaitDifference(Role role, double quantile) {
+        return getReplayedWaits(role).getQuantile(quantile) - getOriginalWaits(role).getQuantile(quantile);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-8s %-9s %8s %10s %10s %10s %10s %10s%n",
+                "Wait ms", "", "visits", "mean", "p50", "p90", "p99", "max"));
+        for (Role role : Role.values()) {
+            row(out, role, "trace", getOriginalWaits(role));
+            row(out, role, "replay", getReplayedWaits(role));
+        }
+        out.append("Max queue depth in the replay: ").append(maxQueueDepth);
+        return out.toString();
+    }
+
+    private static void row(StringBuilder out, Role role, String label, LatencyHistogram waits) {
+        out.append(String.format(Locale.ROOT, "%-8s %-9s %8d %10.2f", role.name().toLowerCase(Locale.ROOT), label,
+                waits.getCount(), waits.getMean() / 1e6));
+        for (double quantile : QUANTILES) {
+            out.append(String.format(Locale.ROOT, " %10.2f", waits.getQuantile(quantile) / 1e6));
+        }
+        out.append(System.lineSeparator());
+    }
+}
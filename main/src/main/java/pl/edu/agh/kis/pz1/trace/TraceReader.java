@@ -0,0 +1,89 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.Role;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the traces written by {@link TraceRecorder}.
+ */
+public final class TraceReader {
+    private static final EventType[] TYPES = EventType.values();
+    private static final Role[] ROLES = Role.values();
+
+    private TraceReader() {
+    }
+
+    /**
+     * Reads every record of a trace, segment by segment in index order. Slots that were never written are skipped.
+     *
+     * @param directory the directory of the trace
+     * @param consumer  receives the records in the order they were recorded
+     * @throws IOException if a segment cannot be read or is not a trace segment
+     */
+    public static void read(Path directory, Consumer<TraceRecord> consumer) throws IOException {
+        for (Path segment : segments(directory)) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    /**
+     * Reads a whole trace into memory.
+     *
+     * @param directory the directory of the trace
+     * @return the records in the order they were recorded
+     * @throws IOException if a segment cannot be read or is not a trace segment
+     */
+    public static List<TraceRecord> readAll(Path directory) throws IOException {
+        List<TraceRecord> records = new ArrayList<>();
+        read(directory, records::add);
+        return records;
+    }
+
+    /**
+     * Lists the segment files of a trace.
+     *
+     * @param directory the directory of the trace
+     * @return the segments, in index order
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("trace-\\d{6}\\.bin"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void readSegment(Path segment, Consumer<TraceRecord> consumer) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < TraceRecorder.HEADER_SIZE || buffer.getLong(0) != TraceRecorder.MAGIC
+                || buffer.getShort(14) != TraceRecorder.RECORD_SIZE) {
+            throw new IOException("Not a trace segment: " + segment);
+        }
+        for (int offset = TraceRecorder.HEADER_SIZE; offset + TraceRecorder.RECORD_SIZE <= buffer.limit();
+                offset += TraceRecorder.RECORD_SIZE) {
+            int header = buffer.getInt(offset);
+            if (header == 0) {
+                continue;
+            }
+            consumer.accept(new TraceRecord(buffer.getLong(offset + 8), buffer.getInt(offset + 4),
+                    ROLES[header >>> 8], TYPES[(header & 0xFF) - 1], buffer.getInt(offset + 16),
+                    buffer.getInt(offset + 20)));
+        }
+    }
+}
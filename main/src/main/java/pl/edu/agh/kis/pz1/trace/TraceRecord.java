@@ -0,0 +1,17 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.Role;
+
+/**
+ * A single event read back from a trace written by {@link TraceRecorder}.
+ *
+ * @param timestampNanos the {@link System#nanoTime()} of the event in the recording JVM
+ * @param agentId        the {@linkplain pl.edu.agh.kis.pz1.Agent#getId() id} of the agent
+ * @param role           the role of the agent
+ * @param type           the kind of event
+ * @param queueDepth     the number of agents awaiting access at that moment
+ * @param occupancy      the number of readers in the reading room at that moment
+ */
+public record TraceRecord(long timestampNanos, int agentId, Role role, EventType type, int queueDepth, int occupancy) {
+}
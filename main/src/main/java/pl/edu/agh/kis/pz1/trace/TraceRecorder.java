@@ -0,0 +1,219 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import pl.edu.agh.kis.pz1.Agent;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records every event of a {@link pl.edu.agh.kis.pz1.Library} as a fixed-width binary record in memory-mapped files,
+ * for complete traces at rates no text log can follow.
+ * <p>
+ * The trace is a directory of segment files {@code trace-000000.bin}, {@code trace-000001.bin}, ... each of
+ * {@code segmentSize} bytes: a {@value #HEADER_SIZE}-byte header followed by {@value #RECORD_SIZE}-byte records in
+ * little-endian order:
+ * </p>
+ * <pre>
+ *  0  int   (event type ordinal + 1) | (role ordinal &lt;&lt; 8), 0 for a slot never written
+ *  4  int   agent id
+ *  8  long  timestamp, System.nanoTime()
+ * 16  int   queue depth
+ * 20  int   occupancy
+ * </pre>
+ * <p>
+ * Recording an event claims a slot with a single atomic add and writes the fields straight into the mapping; the first
+ * word is written last, with release semantics, so a reader never takes a half-written slot for a record. No system
+ * call is made except when a segment is full: the thread that notices it maps the next segment, and with a segment
+ * limit the oldest segment is deleted. The operating system writes the pages back on its own, also if the JVM crashes.
+ * Records are in the order their slots were claimed, which can differ slightly from timestamp order between threads.
+ * </p>
+ */
+public class TraceRecorder implements LibraryEventListener, AutoCloseable {
+    /** Size of a record in bytes. */
+    public static final int RECORD_SIZE = 24;
+    /** Size of the segment header in bytes. */
+    public static final int HEADER_SIZE = 16;
+    /** Size of a segment unless configured otherwise, 64 MiB. */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    static final long MAGIC = 0x454341525442494CL;  // "LIBTRACE" in little-endian order
+    static final short VERSION = 1;
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final ArrayDeque<Path> files = new ArrayDeque<>();  // Segments on disk, oldest first, guarded by this
+    private final LongAdder dropped = new LongAdder();
+    private volatile Segment current;
+    private volatile boolean closed;
+
+    /**
+     * Creates a recorder with segments of {@link #DEFAULT_SEGMENT_SIZE} bytes, keeping all of them.
+     *
+     * @param directory the directory of the trace, created if needed
+     * @throws IOException if the first segment cannot be created
+     */
+    public TraceRecorder(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, 0);
+    }
+
+    /**
+     * Creates a recorder.
+     *
+     * @param directory   the directory of the trace, created if needed
+     * @param segmentSize the size of a segment file in bytes, rounded down to a whole number of records
+     * @param maxSegments the number of most recent segments kept on disk, 0 to keep all of them
+     * @throws IOException              if the first segment cannot be created
+     * @throws IllegalArgumentException if a segment cannot hold a record, the size does not fit in an {@code int}
+     *                                  or {@code maxSegments} is negative
+     */
+    public TraceRecorder(Path directory, long segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_SIZE || segmentSize > Integer.MAX_VALUE || maxSegments < 0) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize + " or limit " + maxSegments);
+        }
+        this.directory = directory;
+        this.segmentSize = HEADER_SIZE + (segmentSize - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        current = open(0);
+    }
+
+    /**
+     * Returns the name of a segment file.
+     *
+     * @param index the index of the segment
+     * @return the file name
+     */
+    static String segmentName(int index) {
+        return String.format(Locale.ROOT, "trace-%06d.bin", index);
+    }
+
+    /**
+     * Returns the number of events lost because a segment could not be created or the recorder was closed.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the index of the segment being written.
+     *
+     * @return the index of the current segment
+     */
+    public int getSegmentIndex() {
+        return current.index;
+    }
+
+    @Override
+    public void onEvent(long timestampNanos, EventType type, Agent agent, int queueDepth, int occupancy) {
+        Segment segment = current;
+        while (!closed) {
+            long offset = segment.next.getAndAdd(RECORD_SIZE);
+            if (offset + RECORD_SIZE <= segmentSize) {
+                segment.write((int) offset, timestampNanos, type, agent == null ? 0 : agent.getId(), queueDepth,
+                        occupancy);
+                return;
+            }
+            segment = roll(segment);
+            if (segment == null) {
+                break;
+            }
+        }
+        dropped.increment();
+    }
+
+    /**
+     * Replaces a full segment with the next one, unless another thread already did.
+     *
+     * @param full the segment found full
+     * @return the segment to write to, or {@code null} if the trace cannot continue
+     */
+    private synchronized Segment roll(Segment full) {
+        if (current != full) {
+            return current;
+        }
+        if (closed) {
+            return null;
+        }
+        try {
+            Segment next = open(full.index + 1);
+            current = next;
+            return next;
+        } catch (IOException e) {
+            closed = true;
+            return null;
+        }
+    }
+
+    /**
+     * Creates and maps a segment file and writes its header. Must be called by the constructor or with the lock held.
+     *
+     * @param index the index of the segment
+     * @return the mapped segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    private Segment open(int index) throws IOException {
+        Path file = directory.resolve(segmentName(index));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, index);
+        buffer.putShort(12, VERSION);
+        buffer.putShort(14, (short) RECORD_SIZE);
+        files.addLast(file);
+        while (maxSegments > 0 && files.size() > maxSegments) {
+            Files.deleteIfExists(files.removeFirst());
+        }
+        return new Segment(index, buffer);
+    }
+
+    /**
+     * Stops recording and flushes the current segment to the disk. Events reported afterwards are dropped.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        current.buffer.force();
+    }
+
+    /**
+     * One mapped segment file.
+     */
+    private static final class Segment {
+        private final int index;
+        private final MappedByteBuffer buffer;
+        private final AtomicLong next = new AtomicLong(HEADER_SIZE);  // Offset of the next free slot
+
+        Segment(int index, MappedByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+
+        void write(int offset, long timestampNanos, EventType type, int agentId, int queueDepth, int occupancy) {
+            buffer.putInt(offset + 4, agentId);
+            buffer.putLong(offset + 8, timestampNanos);
+            buffer.putInt(offset + 16, queueDepth);
+            buffer.putInt(offset + 20, occupancy);
+            INT.setRelease(buffer, offset, (type.ordinal() + 1) | (type.getRole().ordinal() << 8));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.Writer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-drives a {@link Library} with the traffic of a recorded trace, to compare an engine against real load instead of
+ * the synthetic timings of the factories.
+ * <p>
+ * The trace is cut into visits: the request, admission and release of one agent. A replay issues every visit at the
+ * same offset from the start as in the trace and keeps the agent inside for the same hold time, each visit on its own
+ * virtual thread. The replay is open loop: arrivals never wait for earlier visits, so an engine slower than the
+ * original builds up a queue instead of quietly lowering the load. Waits are measured from the intended arrival time,
+ * so a late dispatch counts against the engine and not in its favour.
+ * </p>
+ * <p>
+ * Visits whose admission or release is missing from the trace, because it started or ended in the middle of them, are
+ * left out and counted in {@link #getIncompleteCount()}. Requests that timed out are not visits and are skipped.
+ * </p>
+ */
+public class TraceReplay {
+    private final List<Visit> visits = new ArrayList<>();
+    private final int incomplete;
+
+    /**
+     * Creates a replay of a trace.
+     *
+     * @param records the records of the trace, for example from {@link TraceReader#readAll(java.nio.file.Path)}, in
+     *                any order
+     */
+    public TraceReplay(List<TraceRecord> records) {
+        List<TraceRecord> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparingLong(TraceRecord::timestampNanos).thenComparingInt(TraceReplay::step));
+        Map<Integer, long[]> open = new HashMap<>();  // Agent id -> {requested, admitted or -1}
+        int dropped = 0;
+        for (TraceRecord record : sorted) {
+            long now = record.timestampNanos();
+            switch (record.type()) {
+                case READ_REQUESTED, WRITE_REQUESTED -> {
+                    if (open.put(record.agentId(), new long[]{now, -1}) != null) {
+                        dropped++;
+                    }
+                }
+                case READ_STARTED, WRITE_STARTED -> {
+                    long[] visit = open.get(record.agentId());
+                    if (visit != null) {
+                        visit[1] = now;
+                    }
+                }
+                case READ_STOPPED, WRITE_STOPPED -> {
+                    long[] visit = open.remove(record.agentId());
+                    if (visit == null || visit[1] < 0) {
+                        dropped++;
+                    } else {
+                        visits.add(new Visit(record.role(), visit[0], visit[1] - visit[0], now - visit[1]));
+                    }
+                }
+                // A request given up is not a visit and is not replayed
+                case READ_TIMED_OUT, WRITE_TIMED_OUT -> open.remove(record.agentId());
+            }
+        }
+        incomplete = dropped + open.size();
+        visits.sort(Comparator.comparingLong(Visit::arrival));
+    }
+
+    /**
+     * Orders the events of a visit that share a timestamp.
+     *
+     * @param record a record
+     * @return 0 for a request, 1 for an admission or a timeout, 2 for a release
+     */
+    private static int step(TraceRecord record) {
+        return switch (record.type()) {
+            case READ_REQUESTED, WRITE_REQUESTED -> 0;
+            case READ_STARTED, WRITE_STARTED, READ_TIMED_OUT, WRITE_TIMED_OUT -> 1;
+            case READ_STOPPED, WRITE_STOPPED -> 2;
+        };
+    }
+
+    /**
+     * Returns the number of complete visits that are replayed.
+     *
+     * @return the number of visits
+     */
+    public int getVisitCount() {
+        return visits.size();
+    }
+
+    /**
+     * Returns the number of visits left out because the trace does not hold all three of their events.
+     *
+     * @return the number of incomplete visits
+     */
+    public int getIncompleteCount() {
+        return incomplete;
+    }
+
+    /**
+     * Returns the time between the first and the last arrival, which is roughly how long a replay takes.
+     *
+     * @return the span of the arrivals in nanoseconds, 0 without visits
+     */
+    public long getSpanNanos() {
+        return visits.isEmpty() ? 0 : visits.get(visits.size() - 1).arrival - visits.get(0).arrival;
+    }
+
+    /**
+     * Replays the trace against a library and waits until every visit has left it.
+     *
+     * @param library the library to drive; it should be idle, since its agents would compete with the replay
+     * @return the waits of the trace next to the waits of the replay
+     * @throws InterruptedException if the calling thread is interrupted; visits already issued are interrupted too
+     */
+    public ReplayResult run(Library library) throws InterruptedException {
+        ReplayResult result = new ReplayResult();
+        for (Visit visit : visits) {
+            result.getOriginalWaits(visit.role).record(visit.waitNanos);
+        }
+        CountDownLatch done = new CountDownLatch(visits.size());
+        List<Thread> threads = new ArrayList<>(visits.size());
+        long start = System.nanoTime();
+        long first = visits.isEmpty() ? 0 : visits.get(0).arrival;
+        try {
+            for (Visit visit : visits) {
+                long intended = start + (visit.arrival - first);
+                for (long delay = intended - System.nanoTime(); delay > 0; delay = intended - System.nanoTime()) {
+                    LockSupport.parkNanos(delay);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                threads.add(Thread.ofVirtual().name("replay-", threads.size()).start(() -> {
+                    try {
+                        result.getReplayedWaits(visit.role).record(replay(library, visit) - intended);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            throw e;
+        }
+        result.setMaxQueueDepth(library.getMetrics().getMaxQueueDepth());
+        return result;
+    }
+
+    /**
+     * Takes one visit through the library with a fresh agent.
+     *
+     * @param library the library
+     * @param visit   the visit
+     * @return the {@link System#nanoTime()} of the admission
+     * @throws InterruptedException if the visit is interrupted while waiting or inside
+     */
+    private static long replay(Library library, Visit visit) throws InterruptedException {
+        long admittedAt;
+        if (visit.role == Role.READER) {
+            Reader reader = new Reader(library, null);
+            library.requestReading(reader);
+            admittedAt = System.nanoTime();
+            library.startReading(reader);
+            try {
+                hold(visit.holdNanos);
+            } finally {
+                library.stopReading(reader);
+            }
+        } else {
+            Writer writer = new Writer(library, null);
+            library.requestWriting(writer);
+            admittedAt = System.nanoTime();
+            library.startWriting(writer);
+            try {
+                hold(visit.holdNanos);
+            } finally {
+                library.stopWriting(writer);
+            }
+        }
+        return admittedAt;
+    }
+
+    private static void hold(long nanos) throws InterruptedException {
+        Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+    }
+
+    /**
+     * One visit of the trace.
+     *
+     * @param role      the role of the agent
+     * @param arrival   the timestamp of the request in the trace
+     * @param waitNanos the time from the request to the admission
+     * @param holdNanos the time from the admission to the release
+     */
+    private record Visit(Role role, long arrival, long waitNanos, long holdNanos) {
+    }
+}
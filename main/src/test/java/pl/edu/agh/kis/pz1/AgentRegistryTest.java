@@ -0,0 +1,58 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link AgentRegistry} class.
+ */
+class AgentRegistryTest {
+
+    /**
+     * Test that agents get consecutive ids and are shown by them until they are given a name.
+     */
+    @Test
+    void testIdsAndNames() {
+        Reader first = new Reader(null, null);
+        Writer second = new Writer(null, null);
+
+        assertEquals(first.getId() + 1, second.getId());
+        assertTrue(AgentRegistry.size() >= second.getId());
+        assertEquals("#" + first.getId(), first.getName());
+        assertEquals("#" + second.getId(), AgentRegistry.nameOf(second.getId()));
+
+        second.setName("w");
+        assertEquals("w", second.getName());
+        assertEquals("w", AgentRegistry.nameOf(second.getId()));
+
+        second.setName(null);
+        assertEquals("#" + second.getId(), AgentRegistry.nameOf(second.getId()));
+        assertEquals("?", AgentRegistry.nameOf(0));
+    }
+
+    /**
+     * Test that the names of agents that are no longer reachable are dropped, so the registry does not grow with every
+     * agent ever named.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testNamesOfCollectedAgentsAreDropped() throws InterruptedException {
+        int before = AgentRegistry.names();
+        for (int i = 0; i < 1000; i++) {
+            new Reader(null, "r" + i);
+        }
+        assertTrue(AgentRegistry.names() >= before + 1000);
+
+        Reader kept = new Reader(null, "kept");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (AgentRegistry.names() > before + 100) {
+            assertTrue(System.currentTimeMillis() < deadline, "The names of collected agents should be dropped");
+            System.gc();
+            Thread.sleep(10);
+            kept.setName("kept");  // Drops the stale names
+        }
+        assertEquals("kept", AgentRegistry.nameOf(kept.getId()));
+    }
+}
@@ -0,0 +1,87 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link AgentSet} class.
+ */
+class AgentSetTest {
+
+    /**
+     * Test adding, removing and listing agents spread over several pages.
+     */
+    @Test
+    void testAddRemoveAcrossPages() {
+        AgentSet set = new AgentSet();
+        List<Reader> readers = new ArrayList<>();
+        for (int i = 0; i < 3 * AgentSet.PAGE_SIZE; i++) {
+            readers.add(new Reader(null, null));
+        }
+        Reader first = readers.get(0);
+        Reader last = readers.get(readers.size() - 1);
+
+        assertTrue(set.add(first));
+        assertFalse(set.add(first), "An agent is only added once");
+        assertTrue(set.add(last));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(last));
+        assertSame(last, set.get(last.getId()));
+        assertEquals(List.of(first, last), set.toList());
+
+        assertTrue(set.remove(first));
+        assertFalse(set.remove(first), "An agent is only removed once");
+        assertFalse(set.contains(first));
+        assertNull(set.get(first.getId()));
+        assertEquals(List.of(last), set.toList());
+    }
+
+    /**
+     * Test that concurrent adds and removes of different agents keep an exact count.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testConcurrentUpdates() throws InterruptedException {
+        AgentSet set = new AgentSet();
+        int threads = 8;
+        int perThread = 2000;
+        Reader[][] agents = new Reader[threads][perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                agents[t][i] = new Reader(null, null);
+            }
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Reader[] own = agents[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (Reader reader : own) {
+                    set.add(reader);
+                }
+                for (int i = 0; i < own.length; i += 2) {
+                    set.remove(own[i]);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, set.size());
+        assertEquals(threads * perThread / 2, set.toList().size());
+    }
+}
@@ -0,0 +1,125 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link Agent} class and the {@link ExecutionMode}s.
+ */
+class AgentTest {
+
+    /**
+     * Test that many agents can run concurrently on virtual threads, and that all of them stop when interrupted.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testAgentsRunOnVirtualThreads() throws InterruptedException {
+        Library library = mock(Library.class);
+        List<Reader> readers = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Reader reader = new Reader(library, "r" + i, 1000, 2000, 1000, 2000);
+            reader.start(ExecutionMode.VIRTUAL.executor());
+            readers.add(reader);
+        }
+
+        for (Reader reader : readers) {
+            reader.interrupt();
+        }
+        for (Reader reader : readers) {
+            assertTrue(reader.join(10_000), "Every reader should stop after being interrupted");
+            assertFalse(reader.isAlive());
+        }
+    }
+
+    /**
+     * Test that an agent interrupted before it starts stops right away, also when run by an executor.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testInterruptBeforeStart() throws InterruptedException {
+        Library library = mock(Library.class);
+        Writer writer = new Writer(library, "w1");
+        writer.interrupt();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        writer.start(executor);
+
+        assertTrue(writer.join(5000));
+        assertTrue(writer.isInterrupted());
+        verify(library, never()).startWriting(any(Writer.class));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that an agent cannot be started twice.
+     */
+    @Test
+    void testStartTwice() {
+        CountDownLatch release = new CountDownLatch(1);
+        Reader reader = new Reader(mock(Library.class), "r1");
+        reader.start(command -> release.countDown());
+        assertThrows(IllegalStateException.class, reader::start);
+        assertEquals(0, release.getCount());
+    }
+
+    /**
+     * Test that a retired reader stops idling at once and leaves without being interrupted, after releasing its place.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testRetire() throws InterruptedException {
+        Library library = LibraryType.AQS.create(LibraryEventListener.NONE);
+        Reader reader = new Reader(library, null, Sampler.constant(1), Sampler.constant(60_000));
+        reader.start();
+        while (library.getMetrics().getAdmissions(Role.READER) == 0) {
+            Thread.sleep(1);
+        }
+
+        reader.retire();
+        assertTrue(reader.join(5000), "A retired reader should not finish its idle time");
+        assertTrue(reader.isRetired());
+        assertFalse(reader.isInterrupted());
+        assertEquals(0, library.getMetrics().getOccupancy());
+    }
+
+    /**
+     * Test that a writer whose timed attempts all run out gives the visit up, backs off between the attempts and
+     * leaves no trace in the library.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testRetryGivesUp() throws InterruptedException {
+        AbstractLibrary library = (AbstractLibrary) LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        Reader reader = new Reader(library, "r1");
+        library.requestReading(reader);
+        library.startReading(reader);
+        Writer writer = new Writer(library, "w1", Sampler.constant(1), Sampler.constant(1));
+        writer.setRetryPolicy(RetryPolicy.exponential(5, 3, 1, 4));
+        writer.start();
+        while (writer.getGivenUpVisits() < 2) {
+            Thread.sleep(1);
+        }
+
+        writer.retire();
+        assertTrue(writer.join(5000));
+        assertEquals(0, library.getMetrics().getAdmissions(Role.WRITER));
+        assertTrue(library.getMetrics().getTimeouts(Role.WRITER) >= 6, "Every visit should make three attempts");
+        assertTrue(library.getAwaiting().isEmpty());
+        library.stopReading(reader);
+    }
+}
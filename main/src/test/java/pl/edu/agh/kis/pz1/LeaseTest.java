@@ -0,0 +1,109 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the asynchronous admission of {@link AbstractLibrary} and the {@link Lease} it grants.
+ */
+class LeaseTest {
+
+    /**
+     * Test that a free place is granted at once and given back by closing the lease, only once.
+     *
+     * @throws Exception if the lease cannot be obtained
+     */
+    @Test
+    void testImmediateGrant() throws Exception {
+        AbstractLibrary library = new SemaphoreLibrary(LibraryEventListener.NONE, 1);
+        Reader reader = new Reader(library, "r");
+        CompletableFuture<Lease> future = library.requestReadingAsync(reader);
+
+        assertTrue(future.isDone());
+        Lease lease = future.get();
+        assertSame(reader, lease.getAgent());
+        assertEquals(List.of(reader), library.getReaders());
+        assertNotNull(reader.getSnapshot());
+        lease.close();
+        lease.close();
+        assertTrue(lease.isClosed());
+        assertTrue(library.getReaders().isEmpty());
+        assertEquals(1, library.getMetrics().getAdmissions(Role.READER));
+    }
+
+    /**
+     * Test that many parked requests hold no thread and are all granted, in batches, once the writer leaves.
+     *
+     * @throws Exception if a lease cannot be obtained
+     */
+    @Test
+    void testParkedRequestsAreGrantedOnRelease() throws Exception {
+        for (LibraryType type : LibraryType.values()) {
+            if (type == LibraryType.READ_WRITE_LOCK || !type.isExclusive()) {
+                continue;
+            }
+            AbstractLibrary library = (AbstractLibrary) type.create(LibraryEventListener.NONE, 3);
+            Lease writing = library.requestWritingAsync(new Writer(library, "w")).get();
+            AtomicInteger inside = new AtomicInteger();
+            AtomicInteger violations = new AtomicInteger();
+            List<CompletableFuture<Void>> readers = new ArrayList<>();
+            int threads = Thread.activeCount();
+            for (int i = 0; i < 1000; i++) {
+                readers.add(library.requestReadingAsync(new Reader(library, "r" + i)).thenAccept(lease -> {
+                    if (inside.incrementAndGet() > 3) {
+                        violations.incrementAndGet();
+                    }
+                    inside.decrementAndGet();
+                    lease.close();
+                }));
+            }
+            assertTrue(Thread.activeCount() <= threads, type + " started threads for parked requests");
+            assertEquals(1000, library.getAwaiting().size(), type.toString());
+            assertTrue(readers.stream().noneMatch(CompletableFuture::isDone), type.toString());
+
+            writing.close();
+            CompletableFuture.allOf(readers.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            assertEquals(0, violations.get(), type.toString());
+            assertTrue(library.getAwaiting().isEmpty(), type.toString());
+            assertTrue(library.getReaders().isEmpty(), type.toString());
+        }
+    }
+
+    /**
+     * Test that a cancelled request leaves the queue and that the request parked behind it enters at once.
+     *
+     * @throws Exception if a lease cannot be obtained
+     */
+    @Test
+    void testCancelledRequestIsWithdrawn() throws Exception {
+        AbstractLibrary library = new AqsLibrary(LibraryEventListener.NONE);
+        Lease reading = library.requestReadingAsync(new Reader(library, "r1")).get();
+        CompletableFuture<Lease> writer = library.requestWritingAsync(new Writer(library, "w"));
+        CompletableFuture<Lease> reader = library.requestReadingAsync(new Reader(library, "r2"));
+        assertFalse(writer.isDone());
+        assertFalse(reader.isDone());
+
+        assertTrue(writer.cancel(false));
+        assertTrue(reader.isDone(), "the reader stayed behind the cancelled writer");
+        assertTrue(library.getAwaiting().isEmpty());
+        reading.close();
+        reader.get().close();
+        assertTrue(library.tryAcquireWrite(0), "the cancelled writer kept the room");
+    }
+
+    /**
+     * Test that an engine whose places belong to threads refuses asynchronous requests.
+     */
+    @Test
+    void testThreadBoundEngineIsRejected() {
+        Library library = LibraryType.READ_WRITE_LOCK.create(LibraryEventListener.NONE);
+        assertThrows(UnsupportedOperationException.class, () -> library.requestReadingAsync(new Reader(library, "r")));
+    }
+}
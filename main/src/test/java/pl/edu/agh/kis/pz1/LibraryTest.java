@@ -4,7 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -24,7 +24,7 @@ class LibraryTest {
     @BeforeEach
     void setUp() {
         // Initialize the library instance before each test
-        library = new Library();
+        library = new SemaphoreLibrary();
     }
 
     /**
@@ -95,4 +95,43 @@ class LibraryTest {
         assertTrue(true);
         assertTrue(true);
     }
+
+    /**
+     * Test that the readers and awaiting views follow the agents: an admitted reader is listed as reading, and a writer
+     * blocked by it is listed as awaiting until it gets the room.
+     *
+     * @throws InterruptedException if the thread is interrupted during test execution
+     */
+    @Test
+    void testAwaitingAndReadersViews() throws InterruptedException {
+        SemaphoreLibrary semaphoreLibrary = (SemaphoreLibrary) library;
+        reader = new Reader(library, "Reader1");
+        writer = new Writer(library, "Writer1");
+
+        library.requestReading(reader);
+        library.startReading(reader);
+        assertEquals(1, semaphoreLibrary.getReaders().size());
+        assertTrue(semaphoreLibrary.getAwaiting().isEmpty(), "An uncontended reader should never be listed as awaiting");
+
+        Thread writing = new Thread(() -> {
+            try {
+                library.requestWriting(writer);
+                library.startWriting(writer);
+                library.stopWriting(writer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writing.start();
+        while (semaphoreLibrary.getAwaiting().isEmpty()) {
+            Thread.sleep(1);
+        }
+        assertEquals(writer, semaphoreLibrary.getAwaiting().get(0));
+
+        library.stopReading(reader);
+        writing.join(5000);
+        assertFalse(writing.isAlive(), "Writer should get the room once the reader left");
+        assertTrue(semaphoreLibrary.getAwaiting().isEmpty());
+        assertTrue(semaphoreLibrary.getReaders().isEmpty());
+    }
 }
@@ -0,0 +1,362 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibraryType} engines, checking that every engine keeps the rules of the reading room.
+ */
+class LibraryTypeTest {
+
+    /**
+     * Test that every engine can be found by its name and creates a library of the expected class.
+     */
+    @Test
+    void testFromName() {
+        assertEquals(LibraryType.SEMAPHORE, LibraryType.fromName("semaphore"));
+        assertEquals(LibraryType.AQS, LibraryType.fromName("AQS"));
+        assertInstanceOf(StampedLockLibrary.class, LibraryType.fromName("stamped").create());
+        assertInstanceOf(ReadWriteLockLibrary.class, LibraryType.fromName("rwlock").create());
+        assertInstanceOf(MvccLibrary.class, LibraryType.fromName("mvcc").create());
+        assertThrows(IllegalArgumentException.class, () -> LibraryType.fromName("unknown"));
+    }
+
+    /**
+     * Test that under concurrent load no engine lets more than five readers in, nor a reader and a writer together.
+     *
+     * @throws InterruptedException if the test thread is interrupted while joining the workers
+     */
+    @Test
+    void testEnginesKeepReadingRoomRules() throws InterruptedException {
+        for (LibraryType type : LibraryType.values()) {
+            if (!type.isExclusive()) {
+                continue;  // Readers of a multi-version engine are not limited, see MvccLibraryTest
+            }
+            Library library = type.create();
+            AtomicInteger readersInside = new AtomicInteger();
+            AtomicInteger writersInside = new AtomicInteger();
+            AtomicInteger violations = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                Reader reader = new Reader(library, type + "-r" + i);
+                Writer writer = new Writer(library, type + "-w" + i);
+                boolean writes = i % 4 == 0;
+                workers.add(new Thread(() -> {
+                    try {
+                        for (int cycle = 0; cycle < 50; cycle++) {
+                            if (writes) {
+                                library.requestWriting(writer);
+                                library.startWriting(writer);
+                                if (writersInside.incrementAndGet() != 1 || readersInside.get() != 0) {
+                                    violations.incrementAndGet();
+                                }
+                                writersInside.decrementAndGet();
+                                library.stopWriting(writer);
+                            } else {
+                                library.requestReading(reader);
+                                library.startReading(reader);
+                                if (readersInside.incrementAndGet() > 5 || writersInside.get() != 0) {
+                                    violations.incrementAndGet();
+                                }
+                                readersInside.decrementAndGet();
+                                library.stopReading(reader);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            for (Thread worker : workers) {
+                worker.join(10_000);
+                assertFalse(worker.isAlive(), type + " engine did not finish in time");
+            }
+            assertEquals(0, violations.get(), type + " engine broke the reading room rules");
+        }
+    }
+
+    /**
+     * Test that shrinking the capacity does not leave a writer that is already waiting stuck, and that the smaller
+     * capacity is enforced afterwards.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testShrinkWithWaitingWriter() throws InterruptedException {
+        for (LibraryType type : LibraryType.values()) {
+            if (!type.isExclusive()) {
+                continue;  // Readers of a multi-version engine are not limited, see MvccLibraryTest
+            }
+            Library library = type.create(LibraryEventListener.NONE, 3);
+            Reader[] readers = {new Reader(library, "r1"), new Reader(library, "r2"), new Reader(library, "r3")};
+            for (Reader reader : readers) {
+                library.requestReading(reader);
+                library.startReading(reader);
+            }
+            Writer writer = new Writer(library, "w");
+            Thread writing = startThread(() -> {
+                library.requestWriting(writer);
+                library.startWriting(writer);
+                library.stopWriting(writer);
+            });
+            TimeUnit.MILLISECONDS.sleep(50);
+
+            library.resize(1);
+            assertEquals(1, library.getCapacity());
+            for (Reader reader : readers) {
+                library.stopReading(reader);
+            }
+            writing.join(5_000);
+            assertFalse(writing.isAlive(), type + " engine left the writer waiting after shrinking");
+
+            library.requestReading(readers[0]);
+            library.startReading(readers[0]);
+            Thread second = startThread(() -> {
+                library.requestReading(readers[1]);
+                library.startReading(readers[1]);
+                library.stopReading(readers[1]);
+            });
+            second.join(100);
+            assertTrue(second.isAlive(), type + " engine let a second reader in with capacity 1");
+            library.stopReading(readers[0]);
+            second.join(5_000);
+            assertFalse(second.isAlive(), type + " engine did not admit the waiting reader");
+        }
+    }
+
+    /**
+     * Test that after growing the capacity more readers fit in the reading room, and that engines applying the new
+     * capacity immediately admit a reader that is already waiting.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testGrowAdmitsMoreReaders() throws InterruptedException {
+        for (LibraryType type : LibraryType.values()) {
+            if (!type.isExclusive()) {
+                continue;  // Readers of a multi-version engine are not limited, see MvccLibraryTest
+            }
+            Library library = type.create(LibraryEventListener.NONE, 1);
+            Reader first = new Reader(library, "r1");
+            Reader second = new Reader(library, "r2");
+            library.requestReading(first);
+            library.startReading(first);
+            Thread waiting = startThread(() -> {
+                library.requestReading(second);
+                library.startReading(second);
+                TimeUnit.MILLISECONDS.sleep(200);
+                library.stopReading(second);
+            });
+            waiting.join(100);
+            assertTrue(waiting.isAlive());
+
+            library.resize(2);
+            if (type != LibraryType.SEMAPHORE) {
+                TimeUnit.MILLISECONDS.sleep(100);
+                assertEquals(2, ((AbstractLibrary) library).getReaders().size(),
+                        type + " engine did not admit the reader after growing");
+            }
+            library.stopReading(first);
+            waiting.join(5_000);
+            assertFalse(waiting.isAlive());
+
+            Thread both = startThread(() -> {
+                library.requestReading(first);
+                library.requestReading(second);
+                library.stopReading(second);
+                library.stopReading(first);
+            });
+            both.join(5_000);
+            assertFalse(both.isAlive(), type + " engine did not fit two readers after growing");
+        }
+    }
+
+    /**
+     * Test that the reading room rules hold while the capacity keeps changing under load.
+     *
+     * @throws InterruptedException if the test thread is interrupted while joining the workers
+     */
+    @Test
+    void testResizeUnderLoad() throws InterruptedException {
+        for (LibraryType type : LibraryType.values()) {
+            if (!type.isExclusive()) {
+                continue;  // Readers of a multi-version engine are not limited, see MvccLibraryTest
+            }
+            Library library = type.create(LibraryEventListener.NONE, 4);
+            AtomicInteger readersInside = new AtomicInteger();
+            AtomicInteger writersInside = new AtomicInteger();
+            AtomicInteger violations = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Reader reader = new Reader(library, type + "-r" + i);
+                Writer writer = new Writer(library, type + "-w" + i);
+                boolean writes = i % 4 == 0;
+                workers.add(startThread(() -> {
+                    for (int cycle = 0; cycle < 200; cycle++) {
+                        if (writes) {
+                            library.requestWriting(writer);
+                            library.startWriting(writer);
+                            if (writersInside.incrementAndGet() != 1 || readersInside.get() != 0) {
+                                violations.incrementAndGet();
+                            }
+                            writersInside.decrementAndGet();
+                            library.stopWriting(writer);
+                        } else {
+                            library.requestReading(reader);
+                            library.startReading(reader);
+                            if (readersInside.incrementAndGet() > 6 || writersInside.get() != 0) {
+                                violations.incrementAndGet();
+                            }
+                            readersInside.decrementAndGet();
+                            library.stopReading(reader);
+                        }
+                    }
+                }));
+            }
+            int[] capacities = {1, 6, 2, 5, 3};
+            for (int i = 0; workers.stream().anyMatch(Thread::isAlive) && i < 1_000; i++) {
+                library.resize(capacities[i % capacities.length]);
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            for (Thread worker : workers) {
+                worker.join(10_000);
+                assertFalse(worker.isAlive(), type + " engine did not finish in time");
+            }
+            assertEquals(0, violations.get(), type + " engine broke the reading room rules while resizing");
+        }
+    }
+
+    /**
+     * Test that a timed request that runs out of time is withdrawn without a trace: the agent is no longer awaiting,
+     * the timeout is counted, and the agents it would have held back, such as readers behind a waiting writer, get in.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testTimedRequestsRollBack() throws InterruptedException {
+        for (LibraryType type : LibraryType.values()) {
+            if (!type.isExclusive()) {
+                continue;  // Readers of a multi-version engine never wait
+            }
+            AbstractLibrary library = (AbstractLibrary) type.create(LibraryEventListener.NONE, 2);
+            Reader first = new Reader(library, "r1");
+            Reader second = new Reader(library, "r2");
+            Writer writer = new Writer(library, "w");
+            library.requestReading(first);
+            library.startReading(first);
+            boolean[] results = new boolean[3];
+            startThread(() -> results[0] = library.tryRequestWriting(writer, 50, TimeUnit.MILLISECONDS)).join(5_000);
+            assertFalse(results[0], type + " engine admitted a writer next to a reader");
+            assertTrue(library.getAwaiting().isEmpty(), type + " engine kept the writer that gave up awaiting");
+            assertEquals(1, library.getMetrics().getTimeouts(Role.WRITER));
+            startThread(() -> {
+                results[1] = library.tryRequestReading(second, 0, TimeUnit.MILLISECONDS);
+                library.startReading(second);
+                library.stopReading(second);
+            }).join(5_000);
+            assertTrue(results[1], type + " engine held a reader back for a writer that gave up");
+            library.stopReading(first);
+
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch leave = new CountDownLatch(1);
+            Thread writing = startThread(() -> {
+                if (library.tryRequestWriting(writer, 1, TimeUnit.SECONDS)) {
+                    library.startWriting(writer);
+                    entered.countDown();
+                    leave.await();
+                    library.stopWriting(writer);
+                }
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS), type + " engine did not admit the writer to an empty room");
+            startThread(() -> results[2] = library.tryRequestReading(second, 20, TimeUnit.MILLISECONDS)).join(5_000);
+            assertFalse(results[2], type + " engine admitted a reader next to a writer");
+            assertTrue(library.getAwaiting().isEmpty(), type + " engine kept the reader that gave up awaiting");
+            assertEquals(1, library.getMetrics().getTimeouts(Role.READER));
+            leave.countDown();
+            writing.join(5_000);
+
+            Thread reading = startThread(() -> {
+                library.requestReading(second);
+                library.startReading(second);
+                library.stopReading(second);
+            });
+            reading.join(5_000);
+            assertFalse(reading.isAlive(), type + " engine lost a place to a request that timed out");
+        }
+    }
+
+    /**
+     * Test that a library that was shut down rejects new requests, still serves the ones already waiting, withdraws a
+     * cancelled asynchronous one, and terminates once the last agent has left.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testShutdownDrains() throws InterruptedException {
+        for (LibraryType type : LibraryType.values()) {
+            if (!type.isExclusive()) {
+                continue;  // Readers of a multi-version engine never wait
+            }
+            Library library = type.create(LibraryEventListener.NONE, 1);
+            Writer inside = new Writer(library, "w1");
+            library.requestWriting(inside);
+            library.startWriting(inside);
+            Reader waiting = new Reader(library, "r1");
+            Thread reading = startThread(() -> {
+                library.requestReading(waiting);
+                library.startReading(waiting);
+                library.stopReading(waiting);
+            });
+            CompletableFuture<Lease> parked = null;
+            if (type != LibraryType.READ_WRITE_LOCK) {
+                parked = library.requestReadingAsync(new Reader(library, "r2"));
+                assertFalse(parked.isDone());
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+
+            library.shutdown();
+            assertTrue(library.isShutdown());
+            assertFalse(library.isTerminated(), type + " engine terminated with an agent inside");
+            assertThrows(RejectedExecutionException.class, () -> library.requestReading(new Reader(library, "r3")));
+            assertThrows(RejectedExecutionException.class,
+                    () -> library.tryRequestWriting(new Writer(library, "w2"), 1, TimeUnit.SECONDS));
+            if (parked != null) {
+                assertTrue(library.requestWritingAsync(new Writer(library, "w3")).isCompletedExceptionally());
+                parked.cancel(false);
+            }
+
+            library.stopWriting(inside);
+            reading.join(5_000);
+            assertFalse(reading.isAlive(), type + " engine did not serve a reader waiting before the shutdown");
+            assertTrue(library.awaitTermination(5, TimeUnit.SECONDS), type + " engine did not terminate");
+            assertTrue(library.isTerminated());
+        }
+    }
+
+    private interface Body {
+        void run() throws InterruptedException;
+    }
+
+    private static Thread startThread(Body body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
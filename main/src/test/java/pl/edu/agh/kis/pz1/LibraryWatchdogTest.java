@@ -0,0 +1,144 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibraryWatchdog} class.
+ */
+class LibraryWatchdogTest {
+    private static final long THRESHOLD_MILLIS = 50;
+
+    /**
+     * Test that a reader waiting behind a writer for longer than the threshold is reported as starving, with the writer
+     * in the wait-for summary, and that the queue is reported as stalled; and that nothing is reported once it moves.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testStarvationAndStall() throws InterruptedException {
+        AbstractLibrary library = new SemaphoreLibrary();
+        LibraryWatchdog watchdog = new LibraryWatchdog("test", library, 10, THRESHOLD_MILLIS, diagnostic -> { });
+        Writer writer = new Writer(library, "w1");
+        library.requestWriting(writer);
+        library.startWriting(writer);
+        Reader reader = new Reader(library, "r1");
+        Thread waiting = Thread.ofVirtual().start(() -> {
+            try {
+                library.requestReading(reader);
+                library.startReading(reader);
+                library.stopReading(reader);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        awaitQueue(library, 1);
+        assertTrue(watchdog.check().isEmpty(), "A fresh wait should not be reported");
+
+        Thread.sleep(THRESHOLD_MILLIS * 2);
+        List<LibraryWatchdog.Diagnostic> found = watchdog.check();
+        LibraryWatchdog.Diagnostic starvation = find(found, LibraryWatchdog.Kind.STARVATION);
+        assertTrue(starvation.summary().contains("reader r1"), starvation.summary());
+        assertTrue(starvation.summary().contains("waiting for writer w1"), starvation.summary());
+        find(found, LibraryWatchdog.Kind.STALL);
+        assertNull(findOrNull(watchdog.check(), LibraryWatchdog.Kind.STARVATION), "Reported once per threshold");
+
+        library.stopWriting(writer);
+        waiting.join(5000);
+        Thread.sleep(THRESHOLD_MILLIS * 2);
+        assertTrue(watchdog.check().isEmpty());
+    }
+
+    /**
+     * Test that a writer waiting while readers that came after it are admitted is reported as overtaken.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testWriterOvertaken() throws InterruptedException {
+        AbstractLibrary library = new PolicyLibrary(FairnessPolicy.READER_PREFERENCE);
+        LibraryWatchdog watchdog = new LibraryWatchdog("test", library, 10, THRESHOLD_MILLIS, diagnostic -> { });
+        Reader first = new Reader(library, "r1");
+        library.requestReading(first);
+        library.startReading(first);
+        Writer writer = new Writer(library, "w1");
+        Thread waiting = Thread.ofVirtual().start(() -> {
+            try {
+                library.requestWriting(writer);
+                library.startWriting(writer);
+                library.stopWriting(writer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        awaitQueue(library, 1);
+        Reader second = new Reader(library, "r2");
+        library.requestReading(second);
+        library.startReading(second);
+
+        Thread.sleep(THRESHOLD_MILLIS * 2);
+        LibraryWatchdog.Diagnostic overtaken = find(watchdog.check(), LibraryWatchdog.Kind.WRITER_OVERTAKEN);
+        assertTrue(overtaken.summary().contains("writer w1"), overtaken.summary());
+        assertTrue(overtaken.summary().contains("reader r2"), overtaken.summary());
+        assertFalse(overtaken.summary().contains("reader r1"), overtaken.summary());
+
+        library.stopReading(first);
+        library.stopReading(second);
+        waiting.join(5000);
+        assertFalse(waiting.isAlive());
+    }
+
+    /**
+     * Test that a place taken by a reader that never starts reading is reported as lost after a whole threshold, and
+     * that the short gap of a normal admission is not.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testLostPermit() throws InterruptedException {
+        AbstractLibrary library = new SemaphoreLibrary();
+        LibraryWatchdog watchdog = new LibraryWatchdog("test", library, 10, THRESHOLD_MILLIS, diagnostic -> { });
+        Reader reader = new Reader(library, "r1");
+        library.requestReading(reader);
+        library.startReading(reader);
+        watchdog.check();
+        Thread.sleep(THRESHOLD_MILLIS * 2);
+        assertTrue(watchdog.check().isEmpty(), "A reader inside holds its place legitimately");
+        library.stopReading(reader);
+
+        Reader lost = new Reader(library, "r2");
+        library.requestReading(lost);
+        List<LibraryWatchdog.Diagnostic> found = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {  // The window open before the place was taken saw no gap
+            found.addAll(watchdog.check());
+            Thread.sleep(THRESHOLD_MILLIS * 2);
+        }
+        found.addAll(watchdog.check());
+        LibraryWatchdog.Diagnostic diagnostic = find(found, LibraryWatchdog.Kind.LOST_PERMIT);
+        assertTrue(diagnostic.summary().contains("1 reader and 0 writer places"), diagnostic.summary());
+    }
+
+    private static void awaitQueue(AbstractLibrary library, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (library.getAwaiting().size() < size) {
+            assertTrue(System.currentTimeMillis() < deadline, "The agent should start waiting");
+            Thread.sleep(1);
+        }
+    }
+
+    private static LibraryWatchdog.Diagnostic find(List<LibraryWatchdog.Diagnostic> found,
+                                                   LibraryWatchdog.Kind kind) {
+        LibraryWatchdog.Diagnostic diagnostic = findOrNull(found, kind);
+        assertNotNull(diagnostic, "Expected " + kind + " in " + found);
+        return diagnostic;
+    }
+
+    private static LibraryWatchdog.Diagnostic findOrNull(List<LibraryWatchdog.Diagnostic> found,
+                                                         LibraryWatchdog.Kind kind) {
+        return found.stream().filter(diagnostic -> diagnostic.kind() == kind).findFirst().orElse(null);
+    }
+}
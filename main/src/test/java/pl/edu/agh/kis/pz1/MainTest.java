@@ -2,8 +2,13 @@ package pl.edu.agh.kis.pz1;
 
 
 import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.shard.ShardedLibrary;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 
 public class MainTest {
@@ -19,6 +24,88 @@ public class MainTest {
         Main main = new Main();
         assertNotNull(main, "Main method called.");
     }
-}
 
+    /**
+     * Test that flags are separated from the positional arguments.
+     */
+    @Test
+    public void shouldSeparateOptionsFromPositionalArguments(){
+        String[] args = {"7", "--engine=aqs", "2"};
+        assertArrayEquals(new String[]{"7", "2"}, Main.positionalArguments(args));
+        assertEquals("aqs", Main.optionValue(args, "--engine="));
+        assertNull(Main.optionValue(args, "--missing="));
+    }
+
+    /**
+     * Test the parsing of the capacity flag.
+     */
+    @Test
+    public void shouldParseCapacity(){
+        assertEquals(8, Main.capacityOption(new String[]{"--capacity=8"}));
+        assertEquals(Runtime.getRuntime().availableProcessors(), Main.capacityOption(new String[]{"--capacity=cores"}));
+        assertEquals(AbstractLibrary.DEFAULT_CAPACITY, Main.capacityOption(new String[]{"--capacity=0"}));
+        assertEquals(AbstractLibrary.DEFAULT_CAPACITY, Main.capacityOption(new String[0]));
+    }
+
+    /**
+     * Test that numbers typed on the console resize the library and invalid lines are skipped.
+     */
+    @Test
+    public void shouldResizeFromConsole(){
+        Library library = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        Main.resizeFromConsole(library, new Scanner("3\nabc\n-1\n\n9\n"));
+        assertEquals(9, library.getCapacity());
+    }
+
+    /**
+     * Test that missing or invalid agent counts fall back to the defaults.
+     */
+    @Test
+    public void shouldParseCounts(){
+        String[] positional = {"7", "x"};
+        assertEquals(7, Main.countArgument(positional, 0, Main.DEFAULT_READERS, "readers"));
+        assertEquals(Main.DEFAULT_WRITERS, Main.countArgument(positional, 1, Main.DEFAULT_WRITERS, "writers"));
+        assertEquals(Main.DEFAULT_WRITERS, Main.countArgument(new String[0], 1, Main.DEFAULT_WRITERS, "writers"));
+        assertEquals(3, Main.DEFAULT_WRITERS);
+    }
+
+    /**
+     * Test that the bypass limit reaches every room of a sharded library.
+     */
+    @Test
+    public void shouldPassBypassLimitToShards(){
+        ShardedLibrary library = (ShardedLibrary) Main.createLibrary(LibraryType.BOUNDED_BYPASS,
+                LibraryEventListener.NONE, new String[]{"--bypass-limit=2", "--shards=3"});
+        assertEquals(3, library.getShards());
+        for (int i = 0; i < library.getShards(); i++) {
+            assertEquals(2, ((PolicyLibrary) library.getRoom(i)).getBypassLimit());
+        }
+    }
+
+    /**
+     * Test that the options the simulation does not model are reported, and the semaphore engine is not.
+     */
+    @Test
+    public void shouldWarnAboutUnsimulatedOptions(){
+        assertTrue(Main.unsimulatedOptions(new String[]{"--mode=simulate", "--engine=semaphore"}).isEmpty());
+        assertTrue(Main.unsimulatedOptions(new String[]{"5", "--sim-time=60", "--seed=1", "--capacity=3"}).isEmpty());
+        List<String> warnings = Main.unsimulatedOptions(new String[]{"--engine=writer-pref", "--bypass-limit=2",
+                "--hold=exp:100", "--shards=4", "--retry=fixed:10:3:5", "--key-distribution=uniform",
+                "--threads=virtual", "--trace=t", "--watchdog=1s", "--metrics-port=0"});
+        assertEquals(10, warnings.size());
+        assertTrue(warnings.get(0).contains("--engine=writer-pref"), warnings.get(0));
+        assertTrue(warnings.get(3).contains("--shards=4"), warnings.get(3));
+    }
 
+    /**
+     * Test that the resources of a run are all closed, newest first, even if one of them fails.
+     */
+    @Test
+    public void shouldCloseResourcesNewestFirst(){
+        List<String> closed = new ArrayList<>();
+        Main.closeAll(List.of(() -> closed.add("trace"), () -> {
+            throw new IllegalStateException("broken");
+        }, () -> closed.add("server")));
+        assertEquals(List.of("server", "trace"), closed);
+    }
+}
@@ -0,0 +1,91 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.doc.Snapshot;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link MvccLibrary} class and the catalog shared by all engines.
+ */
+class MvccLibraryTest {
+
+    /**
+     * Test that readers are admitted while a writer is inside and above the capacity, and read their own snapshot.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testReadersNeverWait() throws InterruptedException {
+        MvccLibrary library = new MvccLibrary(LibraryEventListener.NONE, 1);
+        Writer writer = new Writer(library, "w");
+        library.requestWriting(writer);
+        library.startWriting(writer);
+        writer.stageEdit(entries -> Writer.append(entries, "w"));
+
+        Reader first = new Reader(library, "r1");
+        Reader second = new Reader(library, "r2");
+        library.requestReading(first);
+        library.startReading(first);
+        library.requestReading(second);
+        library.startReading(second);
+
+        library.stopWriting(writer);
+        Snapshot<List<String>> snapshot = first.getSnapshot();
+        assertEquals(List.of(), snapshot.get());
+        assertEquals(List.of("w"), library.getDocument().snapshot().get());
+
+        library.stopReading(first);
+        library.stopReading(second);
+        assertTrue(snapshot.isClosed());
+        assertNull(first.getSnapshot());
+        assertEquals(1, library.getDocument().getLiveVersions());
+    }
+
+    /**
+     * Test that writers still wait for each other.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testWritersExcludeEachOther() throws InterruptedException {
+        MvccLibrary library = new MvccLibrary(LibraryEventListener.NONE);
+        Writer first = new Writer(library, "w1");
+        library.requestWriting(first);
+        library.startWriting(first);
+
+        Writer second = new Writer(library, "w2");
+        Thread waiting = new Thread(() -> {
+            try {
+                library.requestWriting(second);
+                library.startWriting(second);
+                library.stopWriting(second);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        waiting.join(100);
+        assertTrue(waiting.isAlive(), "the second writer entered while the first was writing");
+        library.stopWriting(first);
+        waiting.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(waiting.isAlive());
+    }
+
+    /**
+     * Test that the catalog keeps only the newest entries.
+     */
+    @Test
+    void testCatalogIsBounded() {
+        List<String> entries = List.of();
+        for (int i = 0; i < Writer.CATALOG_ENTRIES + 5; i++) {
+            entries = Writer.append(entries, "e" + i);
+        }
+        assertEquals(Writer.CATALOG_ENTRIES, entries.size());
+        assertEquals("e5", entries.get(0));
+        assertEquals("e" + (Writer.CATALOG_ENTRIES + 4), entries.get(entries.size() - 1));
+    }
+}
@@ -0,0 +1,270 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PolicyLibrary} class, checking the admission order of every {@link FairnessPolicy}.
+ */
+class PolicyLibraryTest {
+
+    /**
+     * Test that with reader preference readers keep entering while a writer waits.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testReaderPreferenceLetsReadersOvertake() throws InterruptedException {
+        PolicyLibrary library = library(FairnessPolicy.READER_PREFERENCE, 0);
+        Reader first = enter(library, "r1");
+        Thread writer = startWriter(library);
+
+        assertTrue(library.tryAcquireRead(0));
+        library.releaseRead();
+        library.stopReading(first);
+        writer.join(5_000);
+        assertFalse(writer.isAlive());
+    }
+
+    /**
+     * Test that with writer preference no reader enters once a writer waits.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testWriterPreferenceStopsReaders() throws InterruptedException {
+        PolicyLibrary library = library(FairnessPolicy.WRITER_PREFERENCE, 0);
+        Reader first = enter(library, "r1");
+        Thread writer = startWriter(library);
+
+        assertFalse(library.tryAcquireRead(TimeUnit.MILLISECONDS.toNanos(20)));
+        library.stopReading(first);
+        writer.join(5_000);
+        assertFalse(writer.isAlive());
+        assertTrue(library.tryAcquireRead(0));
+    }
+
+    /**
+     * Test that with bounded bypass exactly the configured number of readers overtakes a waiting writer.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testBoundedBypassLimitsOvertaking() throws InterruptedException {
+        PolicyLibrary library = library(FairnessPolicy.BOUNDED_BYPASS, 2);
+        Reader first = enter(library, "r1");
+        Thread writer = startWriter(library);
+
+        assertTrue(library.tryAcquireRead(0));
+        assertTrue(library.tryAcquireRead(0));
+        assertFalse(library.tryAcquireRead(0));
+        library.releaseRead();
+        library.releaseRead();
+        library.stopReading(first);
+        writer.join(5_000);
+        assertFalse(writer.isAlive());
+        assertTrue(library.tryAcquireRead(0));
+    }
+
+    /**
+     * Test that with bounded bypass a writer that gives up does not use up the budget of the next waiting writer.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testBoundedBypassBudgetResetsWhenWriterGivesUp() throws InterruptedException {
+        PolicyLibrary library = library(FairnessPolicy.BOUNDED_BYPASS, 2);
+        Reader first = enter(library, "r1");
+        Writer impatient = new Writer(library, "w1");
+        Thread giving = startThread(() -> assertFalse(library.tryRequestWriting(impatient, 100,
+                TimeUnit.MILLISECONDS)));
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertTrue(library.tryAcquireRead(0));
+        assertTrue(library.tryAcquireRead(0));
+        giving.join(5_000);
+        library.releaseRead();
+        library.releaseRead();
+
+        Thread writer = startWriter(library);
+        assertTrue(library.tryAcquireRead(0), "the budget of the writer that gave up was kept");
+        library.releaseRead();
+        library.stopReading(first);
+        writer.join(5_000);
+        assertFalse(writer.isAlive());
+    }
+
+    /**
+     * Test that with phase-fair alternation a reader arriving behind a waiting writer enters right after that writer,
+     * before the next writer.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testPhaseFairAlternates() throws InterruptedException {
+        PolicyLibrary library = library(FairnessPolicy.PHASE_FAIR, 0);
+        Reader first = enter(library, "r1");
+        Writer firstWriter = new Writer(library, "w1");
+        Writer secondWriter = new Writer(library, "w2");
+        Thread writing = startThread(() -> {
+            library.requestWriting(firstWriter);
+            library.startWriting(firstWriter);
+            TimeUnit.MILLISECONDS.sleep(100);
+            library.stopWriting(firstWriter);
+        });
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        Reader late = new Reader(library, "r2");
+        Thread reading = startThread(() -> {
+            library.requestReading(late);
+            library.startReading(late);
+        });
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertTrue(reading.isAlive(), "the reader overtook the waiting writer");
+        library.stopReading(first);
+        writing.join(5_000);
+        reading.join(5_000);
+        assertFalse(reading.isAlive(), "the reader was not admitted after the writer");
+
+        Thread nextWriter = startThread(() -> {
+            library.requestWriting(secondWriter);
+            library.startWriting(secondWriter);
+            library.stopWriting(secondWriter);
+        });
+        nextWriter.join(100);
+        assertTrue(nextWriter.isAlive(), "the writer entered while a reader was inside");
+        library.stopReading(late);
+        nextWriter.join(5_000);
+        assertFalse(nextWriter.isAlive());
+    }
+
+    /**
+     * Test that with combining all writers queued behind a reader write in one window, before a reader that arrived
+     * after them, and that a writer arriving during the window waits for that reader.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testCombiningSharesOneWindow() throws InterruptedException {
+        PolicyLibrary library = library(FairnessPolicy.COMBINING, 0);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Reader first = enter(library, "r1");
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            writers.add(startWriting(library, "w" + i, order));
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        Reader late = new Reader(library, "r2");
+        Thread reading = startThread(() -> {
+            library.requestReading(late);
+            order.add("r2");
+            library.startReading(late);
+            library.stopReading(late);
+        });
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        library.stopReading(first);
+        TimeUnit.MILLISECONDS.sleep(10);
+        Thread lateWriter = startWriting(library, "w3", order);
+        for (Thread writer : writers) {
+            writer.join(5_000);
+        }
+        reading.join(5_000);
+        lateWriter.join(5_000);
+        assertEquals(List.of("r2", "w3"), order.subList(3, 5));
+        assertTrue(order.subList(0, 3).containsAll(List.of("w0", "w1", "w2")));
+    }
+
+    /**
+     * Test that under phase-fair alternation and combining a reader queued behind a writer enters when that writer
+     * gives up, although no writing phase has ended.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testReaderEntersWhenWriterGivesUp() throws InterruptedException {
+        for (FairnessPolicy policy : List.of(FairnessPolicy.PHASE_FAIR, FairnessPolicy.COMBINING)) {
+            PolicyLibrary library = library(policy, 0);
+            Reader first = enter(library, "r1");
+            Writer writer = new Writer(library, "w1");
+            Thread writing = startThread(() -> assertFalse(library.tryRequestWriting(writer, 100,
+                    TimeUnit.MILLISECONDS)));
+            TimeUnit.MILLISECONDS.sleep(50);
+            Reader late = new Reader(library, "r2");
+            Thread reading = startThread(() -> {
+                library.requestReading(late);
+                library.startReading(late);
+            });
+
+            writing.join(5_000);
+            reading.join(5_000);
+            assertFalse(reading.isAlive(), policy + ": the reader waits for a writer that gave up");
+            library.stopReading(late);
+            library.stopReading(first);
+        }
+    }
+
+    /**
+     * Test that a negative bypass limit is rejected.
+     */
+    @Test
+    void testNegativeBypassLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PolicyLibrary(LibraryEventListener.NONE, 5, FairnessPolicy.BOUNDED_BYPASS, -1));
+    }
+
+    private static PolicyLibrary library(FairnessPolicy policy, int bypassLimit) {
+        return new PolicyLibrary(LibraryEventListener.NONE, 5, policy, bypassLimit);
+    }
+
+    private static Reader enter(Library library, String name) throws InterruptedException {
+        Reader reader = new Reader(library, name);
+        library.requestReading(reader);
+        library.startReading(reader);
+        return reader;
+    }
+
+    private static Thread startWriter(Library library) throws InterruptedException {
+        Writer writer = new Writer(library, "w");
+        Thread thread = startThread(() -> {
+            library.requestWriting(writer);
+            library.startWriting(writer);
+            library.stopWriting(writer);
+        });
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertTrue(thread.isAlive(), "the writer entered while a reader was inside");
+        return thread;
+    }
+
+    private static Thread startWriting(Library library, String name, List<String> order) {
+        Writer writer = new Writer(library, name);
+        return startThread(() -> {
+            library.requestWriting(writer);
+            order.add(name);
+            library.startWriting(writer);
+            TimeUnit.MILLISECONDS.sleep(20);
+            library.stopWriting(writer);
+        });
+    }
+
+    private interface Body {
+        void run() throws InterruptedException;
+    }
+
+    private static Thread startThread(Body body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
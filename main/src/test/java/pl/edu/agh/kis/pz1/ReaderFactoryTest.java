@@ -2,9 +2,17 @@ package pl.edu.agh.kis.pz1;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -50,7 +58,7 @@ class ReaderFactoryTest {
         verify(library, never()).requestReading(any(Reader.class));
 
         // Ensure the reader's name is a non-null UUID
-        assertNotNull(reader.getName(), "Reader should have a valid name (UUID)");
+        assertEquals("#" + reader.getId(), reader.getName(), "Reader should be shown by its id");
 
         // Verify that the reader is added to the factory's readers list
         assertEquals(1, readerFactory.readers.size(), "Reader should be added to the list of readers");
@@ -76,4 +84,102 @@ class ReaderFactoryTest {
         assertEquals(1000, reader.getMIN_IDLE_TIME(), "The min idle time should be 1000");
         assertEquals(3000, reader.getMAX_IDLE_TIME(), "The max idle time should be 3000");
     }
+
+    /**
+     * Test that the factory assigns resource keys from its key distribution.
+     */
+    @Test
+    void testKeyDistribution() {
+        assertEquals(0, readerFactory.addReader(library).getResourceKey(), "Keys should default to 0");
+
+        readerFactory.setKeyDistribution(() -> 7);
+        assertEquals(7, readerFactory.addReader(library).getResourceKey(), "The key should come from the distribution");
+    }
+
+    /**
+     * Test that a factory built from distributions hands them to the readers it creates.
+     */
+    @Test
+    void testSamplerTimes() {
+        Sampler hold = Sampler.pareto(500, 1.5);
+        Sampler idle = Sampler.exponential(2000);
+        ReaderFactory samplerFactory = new ReaderFactory(hold, idle);
+
+        Reader reader = samplerFactory.addReader(library);
+
+        assertSame(hold, reader.getActiveTime(), "The active time should come from the factory");
+        assertSame(idle, reader.getIdleTime(), "The idle time should come from the factory");
+        assertEquals(-1, reader.getMIN_ACTIVE_TIME(), "There is no range for a distribution");
+    }
+
+    /**
+     * Test that the readers started by the factory run on its pool and all finish after a shutdown, the idle ones
+     * without completing their idle time, and that no reader can be started afterwards.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testShutdown() throws InterruptedException {
+        Library real = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        ReaderFactory factory = new ReaderFactory(Sampler.constant(1), Sampler.constant(60_000));
+        factory.setExecutionMode(ExecutionMode.VIRTUAL);
+        for (int i = 0; i < 3; i++) {
+            factory.startReader(real);
+        }
+        while (real.getMetrics().getActive(Role.READER) > 0
+                || real.getMetrics().getAdmissions(Role.READER) < 3) {
+            Thread.sleep(1);
+        }
+
+        factory.shutdown();
+        assertTrue(factory.awaitTermination(5, TimeUnit.SECONDS), "Idle readers should stop at once");
+        for (Reader reader : factory.readers) {
+            assertFalse(reader.isAlive());
+        }
+        assertThrows(RejectedExecutionException.class, () -> factory.startReader(real));
+    }
+
+    /**
+     * Test that the readers started by the factory give their places back when interrupted by a forced shutdown in
+     * the middle of a visit, so that the library can terminate.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testShutdownNowMidVisit() throws InterruptedException {
+        Library real = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        ReaderFactory factory = new ReaderFactory(Sampler.constant(60_000), Sampler.constant(1));
+        factory.setExecutionMode(ExecutionMode.VIRTUAL);
+        for (int i = 0; i < 3; i++) {
+            factory.startReader(real);
+        }
+        while (real.getMetrics().getActive(Role.READER) < 3) {
+            Thread.sleep(1);
+        }
+
+        factory.shutdownNow();
+        assertTrue(factory.awaitTermination(5, TimeUnit.SECONDS), "Interrupted agents should stop at once");
+        real.shutdown();
+        assertTrue(real.awaitTermination(5, TimeUnit.SECONDS), "Every place should have been given back");
+        assertEquals(0, real.getMetrics().getActive(Role.READER));
+    }
+
+    /**
+     * Test that the factory drops the readers that finished, so it does not keep every reader it ever created.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testFinishedReadersAreDropped() throws InterruptedException {
+        Library real = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        ReaderFactory factory = new ReaderFactory(Sampler.constant(1), Sampler.constant(60_000));
+        Reader finished = factory.addReader(real);
+        finished.start();
+        finished.retire();
+        assertTrue(finished.join(5_000));
+
+        Reader next = factory.addReader(real);
+        assertEquals(1, factory.readers.size(), "The finished reader should have been dropped");
+        assertSame(next, factory.readers.get(0));
+    }
 }
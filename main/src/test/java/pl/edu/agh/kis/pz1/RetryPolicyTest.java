@@ -0,0 +1,59 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link RetryPolicy} class.
+ */
+class RetryPolicyTest {
+
+    /**
+     * Test that both textual forms are parsed and that invalid ones are rejected.
+     */
+    @Test
+    void testParse() {
+        RetryPolicy fixed = RetryPolicy.parse("fixed:100:3:50");
+        assertEquals(RetryPolicy.Backoff.FIXED, fixed.getBackoff());
+        assertEquals(100, fixed.getTimeoutMillis());
+        assertEquals(3, fixed.getMaxAttempts());
+        assertEquals(50, fixed.delayMillis(2, new SplittableRandom(1)));
+
+        RetryPolicy exponential = RetryPolicy.parse("Exponential:200:5:10:1000");
+        assertEquals(RetryPolicy.Backoff.EXPONENTIAL, exponential.getBackoff());
+        assertEquals(200, exponential.getTimeoutMillis());
+        assertEquals(5, exponential.getMaxAttempts());
+
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parse("fixed:100:0:50"));
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parse("exponential:100:3:500:10"));
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parse("fixed:x:3:50"));
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parse("linear:100:3"));
+    }
+
+    /**
+     * Test that the exponential delays stay under a bound doubling after every failure up to the maximum, and that
+     * the jitter actually spreads them.
+     */
+    @Test
+    void testExponentialJitter() {
+        RetryPolicy policy = RetryPolicy.exponential(100, 10, 10, 100);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] bounds = {10, 20, 40, 80, 100, 100};
+        for (int failures = 1; failures <= bounds.length; failures++) {
+            long smallest = Long.MAX_VALUE;
+            long largest = 0;
+            for (int i = 0; i < 1000; i++) {
+                long delay = policy.delayMillis(failures, random);
+                assertTrue(delay >= 0 && delay <= bounds[failures - 1], "Delay " + delay + " after " + failures);
+                smallest = Math.min(smallest, delay);
+                largest = Math.max(largest, delay);
+            }
+            assertTrue(largest - smallest > bounds[failures - 1] / 2, "The delays should be spread");
+        }
+        RetryPolicy huge = RetryPolicy.exponential(1, 100, Long.MAX_VALUE / 4, Long.MAX_VALUE);
+        assertTrue(huge.delayMillis(64, random) >= 0, "A large bound should not overflow");
+    }
+}
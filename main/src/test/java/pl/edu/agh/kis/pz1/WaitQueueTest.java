@@ -0,0 +1,73 @@
+package pl.edu.agh.kis.pz1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link WaitQueue} class.
+ */
+class WaitQueueTest {
+
+    /**
+     * Test that agents are listed in arrival order and can leave from the head, the middle and the tail.
+     */
+    @Test
+    void testFifoWithRemoval() {
+        WaitQueue queue = new WaitQueue();
+        Writer a = new Writer(null, null);
+        Reader b = new Reader(null, null);
+        Reader c = new Reader(null, null);
+        Writer d = new Writer(null, null);
+
+        assertTrue(queue.add(c));
+        assertTrue(queue.add(a));
+        assertTrue(queue.add(d));
+        assertTrue(queue.add(b));
+        assertFalse(queue.add(a), "An agent keeps its place");
+        assertEquals(List.of(c, a, d, b), queue.toList());
+
+        assertTrue(queue.remove(d));
+        assertEquals(List.of(c, a, b), queue.toList());
+        assertTrue(queue.remove(c));
+        assertTrue(queue.remove(b));
+        assertFalse(queue.remove(b));
+        assertEquals(List.of(a), queue.toList());
+        assertEquals(1, queue.size());
+
+        assertTrue(queue.add(d));
+        assertTrue(queue.remove(a));
+        assertEquals(List.of(d), queue.toList());
+        assertTrue(queue.remove(d));
+        assertTrue(queue.toList().isEmpty());
+        assertFalse(queue.remove(new Reader(null, null)), "An agent never queued is not found");
+    }
+
+    /**
+     * Test a long queue spread over several pages, emptied in an interleaved order.
+     */
+    @Test
+    void testManyAgents() {
+        WaitQueue queue = new WaitQueue();
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < 2 * WaitQueue.PAGE_SIZE + 10; i++) {
+            Reader reader = new Reader(null, null);
+            agents.add(reader);
+            queue.add(reader);
+        }
+        List<Agent> expected = new ArrayList<>();
+        for (int i = 0; i < agents.size(); i++) {
+            if (i % 3 == 0) {
+                assertTrue(queue.remove(agents.get(i)));
+            } else {
+                expected.add(agents.get(i));
+            }
+        }
+
+        assertEquals(expected.size(), queue.size());
+        assertEquals(expected, queue.toList());
+    }
+}
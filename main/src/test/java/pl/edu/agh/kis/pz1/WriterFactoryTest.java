@@ -2,9 +2,17 @@ package pl.edu.agh.kis.pz1;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -50,7 +58,7 @@ class WriterFactoryTest {
         verify(library, never()).requestWriting(any(Writer.class));
 
         // Ensure the writer's name is a non-null UUID
-        assertNotNull(writer.getName(), "Writer should have a valid name (UUID)");
+        assertEquals("#" + writer.getId(), writer.getName(), "Writer should be shown by its id");
 
         // Verify that the writer is added to the factory's writers list
         assertEquals(1, writerFactory.writers.size(), "Writer should be added to the list of writers");
@@ -76,4 +84,102 @@ class WriterFactoryTest {
         assertEquals(1000, writer.getMIN_IDLE_TIME(), "The min idle time should be 1000");
         assertEquals(3000, writer.getMAX_IDLE_TIME(), "The max idle time should be 3000");
     }
+
+    /**
+     * Test that the factory assigns resource keys from its key distribution.
+     */
+    @Test
+    void testKeyDistribution() {
+        assertEquals(0, writerFactory.addWriter(library).getResourceKey(), "Keys should default to 0");
+
+        writerFactory.setKeyDistribution(() -> 7);
+        assertEquals(7, writerFactory.addWriter(library).getResourceKey(), "The key should come from the distribution");
+    }
+
+    /**
+     * Test that a factory built from distributions hands them to the writers it creates.
+     */
+    @Test
+    void testSamplerTimes() {
+        Sampler hold = Sampler.pareto(500, 1.5);
+        Sampler idle = Sampler.exponential(2000);
+        WriterFactory samplerFactory = new WriterFactory(hold, idle);
+
+        Writer writer = samplerFactory.addWriter(library);
+
+        assertSame(hold, writer.getActiveTime(), "The active time should come from the factory");
+        assertSame(idle, writer.getIdleTime(), "The idle time should come from the factory");
+        assertEquals(-1, writer.getMIN_ACTIVE_TIME(), "There is no range for a distribution");
+    }
+
+    /**
+     * Test that the writers started by the factory run on its pool and all finish after a shutdown, the idle ones
+     * without completing their idle time, and that no writer can be started afterwards.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testShutdown() throws InterruptedException {
+        Library real = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        WriterFactory factory = new WriterFactory(Sampler.constant(1), Sampler.constant(60_000));
+        factory.setExecutionMode(ExecutionMode.VIRTUAL);
+        for (int i = 0; i < 3; i++) {
+            factory.startWriter(real);
+        }
+        while (real.getMetrics().getActive(Role.WRITER) > 0
+                || real.getMetrics().getAdmissions(Role.WRITER) < 3) {
+            Thread.sleep(1);
+        }
+
+        factory.shutdown();
+        assertTrue(factory.awaitTermination(5, TimeUnit.SECONDS), "Idle writers should stop at once");
+        for (Writer writer : factory.writers) {
+            assertFalse(writer.isAlive());
+        }
+        assertThrows(RejectedExecutionException.class, () -> factory.startWriter(real));
+    }
+
+    /**
+     * Test that a writer started by the factory gives the room back when interrupted by a forced shutdown in the middle
+     * of a visit, and the writer waiting behind it withdraws, so that the library can terminate.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testShutdownNowMidVisit() throws InterruptedException {
+        AbstractLibrary real = new SemaphoreLibrary();
+        WriterFactory factory = new WriterFactory(Sampler.constant(60_000), Sampler.constant(1));
+        factory.setExecutionMode(ExecutionMode.VIRTUAL);
+        for (int i = 0; i < 2; i++) {
+            factory.startWriter(real);
+        }
+        while (real.getMetrics().getActive(Role.WRITER) < 1 || real.getAwaiting().size() < 1) {
+            Thread.sleep(1);
+        }
+
+        factory.shutdownNow();
+        assertTrue(factory.awaitTermination(5, TimeUnit.SECONDS), "Interrupted agents should stop at once");
+        real.shutdown();
+        assertTrue(real.awaitTermination(5, TimeUnit.SECONDS), "Every place should have been given back");
+        assertEquals(0, real.getMetrics().getActive(Role.WRITER));
+    }
+
+    /**
+     * Test that the factory drops the writers that finished, so it does not keep every writer it ever created.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testFinishedWritersAreDropped() throws InterruptedException {
+        Library real = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        WriterFactory factory = new WriterFactory(Sampler.constant(1), Sampler.constant(60_000));
+        Writer finished = factory.addWriter(real);
+        finished.start();
+        finished.retire();
+        assertTrue(finished.join(5_000));
+
+        Writer next = factory.addWriter(real);
+        assertEquals(1, factory.writers.size(), "The finished writer should have been dropped");
+        assertSame(next, factory.writers.get(0));
+    }
 }
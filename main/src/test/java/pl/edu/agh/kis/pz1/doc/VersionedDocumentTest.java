@@ -0,0 +1,102 @@
+package pl.edu.agh.kis.pz1.doc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link VersionedDocument} and {@link Snapshot} classes.
+ */
+class VersionedDocumentTest {
+
+    /**
+     * Test that a snapshot keeps its version while newer ones are published.
+     */
+    @Test
+    void testSnapshotIsolation() {
+        VersionedDocument<String> document = new VersionedDocument<>("a");
+        try (Snapshot<String> before = document.snapshot()) {
+            assertEquals(1, document.update(content -> content + "b"));
+            assertEquals("a", before.get());
+            assertEquals(0, before.getVersion());
+            try (Snapshot<String> after = document.snapshot()) {
+                assertEquals("ab", after.get());
+                assertEquals(1, after.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Test that an old version is reclaimed exactly when its last snapshot is closed.
+     */
+    @Test
+    void testReclamation() {
+        VersionedDocument<String> document = new VersionedDocument<>("a");
+        Snapshot<String> first = document.snapshot();
+        Snapshot<String> second = document.snapshot();
+        document.update(content -> "b");
+        assertEquals(2, document.getLiveVersions());
+
+        first.close();
+        first.close();
+        assertEquals(0, document.getReclaimedVersions());
+        second.close();
+        assertEquals(1, document.getReclaimedVersions());
+        assertEquals(1, document.getLiveVersions());
+
+        document.update(content -> "c");
+        assertEquals(2, document.getReclaimedVersions());
+        assertThrows(IllegalStateException.class, second::get);
+    }
+
+    /**
+     * Test that concurrent writers lose no update and that every reader sees a consistent version.
+     *
+     * @throws InterruptedException if the test thread is interrupted while joining the workers
+     */
+    @Test
+    void testConcurrentUpdates() throws InterruptedException {
+        VersionedDocument<List<Integer>> document = new VersionedDocument<>(List.of());
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                for (int n = 0; n < 500; n++) {
+                    document.update(content -> {
+                        List<Integer> next = new ArrayList<>(content);
+                        next.add(next.size());
+                        return List.copyOf(next);
+                    });
+                }
+            }));
+            threads.add(new Thread(() -> {
+                for (int n = 0; n < 500; n++) {
+                    try (Snapshot<List<Integer>> snapshot = document.snapshot()) {
+                        List<Integer> content = snapshot.get();
+                        if (content.size() != snapshot.getVersion()) {
+                            synchronized (failures) {
+                                failures.add(new AssertionError("version " + snapshot.getVersion()));
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertEquals(2000, document.getVersion());
+        assertEquals(1, document.getLiveVersions());
+        try (Snapshot<List<Integer>> last = document.snapshot()) {
+            assertEquals(2000, last.get().size());
+        }
+    }
+}
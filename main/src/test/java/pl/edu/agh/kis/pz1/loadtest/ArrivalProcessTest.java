@@ -0,0 +1,75 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ArrivalProcess} class.
+ */
+class ArrivalProcessTest {
+
+    /**
+     * Test that Poisson and bursty processes of the same rate issue the same load, the bursty one less evenly.
+     */
+    @Test
+    void testRates() {
+        int samples = 200_000;
+        double[] poisson = gaps(ArrivalProcess.poisson(1000), samples);
+        double[] bursty = gaps(ArrivalProcess.bursty(1000, 10, 0.1, 50), samples);
+
+        assertEquals(1e6, mean(poisson), 1e6 * 0.02, "Mean gap of 1 ms at 1000/s");
+        assertEquals(1e6, mean(bursty), 1e6 * 0.05, "Same long-run rate");
+        double cvPoisson = Math.sqrt(variance(poisson)) / mean(poisson);
+        double cvBursty = Math.sqrt(variance(bursty)) / mean(bursty);
+        assertEquals(1, cvPoisson, 0.02, "Exponential gaps vary as much as their mean");
+        assertTrue(cvBursty > 1.3, "Bursty gaps vary more, got " + cvBursty);
+    }
+
+    /**
+     * Test parsing and the validation of parameters.
+     */
+    @Test
+    void testParse() {
+        ArrivalProcess poisson = ArrivalProcess.parse("poisson:250");
+        assertEquals(250, poisson.getRate());
+        assertFalse(poisson.isBursty());
+        ArrivalProcess bursty = ArrivalProcess.parse("Bursty:100:8:0.2:500");
+        assertEquals(100, bursty.getRate());
+        assertTrue(bursty.isBursty());
+
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcess.parse("poisson:0"));
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcess.parse("poisson:x"));
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcess.parse("bursty:100:8:1:500"));
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcess.parse("bursty:100:0.5:0.2:500"));
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcess.parse("uniform:1:2"));
+    }
+
+    private static double[] gaps(ArrivalProcess process, int samples) {
+        ArrivalProcess.Arrivals arrivals = process.start(new SplittableRandom(7));
+        double[] gaps = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            gaps[i] = arrivals.nextGapNanos();
+        }
+        return gaps;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / values.length;
+    }
+}
@@ -0,0 +1,82 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.metrics.LibraryMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LoadReport} class.
+ */
+class LoadReportTest {
+    private static final long MS = 1_000_000;
+
+    /**
+     * Test the throughput, the utilization and the JSON form of a report.
+     */
+    @Test
+    void testJson() {
+        LoadReport report = new LoadReport("aqs \"fair\"", metrics(), 1000 * MS, 2, 1);
+
+        assertEquals(2, report.getAdmissions(Role.READER));
+        assertEquals(2.0, report.getThroughput(Role.READER), 1e-9);
+        assertEquals(1.0, report.getThroughput(Role.WRITER), 1e-9);
+        assertEquals(3, report.getMaxQueueDepth());
+        assertEquals((400.0 / 4 + 100) / 1000, report.getUtilization(), 1e-9);
+        String json = report.toJson();
+        assertTrue(json.contains("\"label\": \"aqs \\\"fair\\\"\""), json);
+        assertTrue(json.contains("\"utilization\": 0.2000"), json);
+        assertTrue(json.contains("\"reader\": {"), json);
+        assertTrue(json.contains("\"writer\": {"), json);
+        assertTrue(json.contains("\"max\": 100.000}"), json);
+        String table = report.toString();
+        assertTrue(table.contains("wait p50 (ms)") && table.contains("hold max (ms)"), table);
+    }
+
+    /**
+     * Test that CSV reports of several runs are appended to one file under a single header.
+     *
+     * @param directory a temporary directory
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testCsvAppends(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("runs.csv");
+        new LoadReport("semaphore", metrics(), 1000 * MS, 2, 1).writeTo(file);
+        new LoadReport("aqs", metrics(), 500 * MS, 2, 1).writeTo(file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(5, lines.size());
+        assertEquals(LoadReport.CSV_HEADER, lines.get(0));
+        int columns = LoadReport.CSV_HEADER.split(",").length;
+        for (String line : lines) {
+            assertEquals(columns, line.split(",").length, line);
+        }
+        assertTrue(lines.get(3).startsWith("aqs,reader,0.500,2,1,4,2,2,4.000,"), lines.get(3));
+
+        Path json = directory.resolve("run.json");
+        new LoadReport("aqs", metrics(), 500 * MS, 2, 1).writeTo(json);
+        assertTrue(Files.readString(json).startsWith("{"));
+    }
+
+    private static LibraryMetrics metrics() {
+        LibraryMetrics metrics = new LibraryMetrics(() -> 4, () -> 0, () -> 0);
+        for (int i = 0; i < 2; i++) {
+            metrics.recordRequest(Role.READER);
+            metrics.recordAdmission(Role.READER, 10 * MS);
+            metrics.recordRelease(Role.READER, 200 * MS);
+        }
+        metrics.recordRequest(Role.WRITER);
+        metrics.recordAdmission(Role.WRITER, 50 * MS);
+        metrics.recordRelease(Role.WRITER, 100 * MS);
+        metrics.recordQueueDepth(3);
+        return metrics;
+    }
+}
@@ -0,0 +1,59 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.ExecutionMode;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.ReaderFactory;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.WriterFactory;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LoadTest} class.
+ */
+class LoadTestTest {
+
+    /**
+     * Test that a run stops at its time limit and leaves the library idle.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testDurationLimit() throws InterruptedException {
+        Library library = LibraryType.AQS.create(LibraryEventListener.NONE);
+        LoadReport report = newTest(library, 6, 2).run(300, 0);
+
+        assertTrue(report.getElapsedNanos() >= 300_000_000L);
+        assertTrue(report.getAdmissions(Role.READER) > 0);
+        assertTrue(report.getAdmissions(Role.WRITER) > 0);
+        assertTrue(report.getUtilization() > 0 && report.getUtilization() <= 1);
+        assertEquals(0, library.getMetrics().getActive(Role.READER), "Every reader has left");
+        assertEquals(0, library.getMetrics().getActive(Role.WRITER), "Every writer has left");
+    }
+
+    /**
+     * Test that a run stops once the library has admitted the given number of agents.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testOperationLimit() throws InterruptedException {
+        Library library = LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        LoadReport report = newTest(library, 4, 1).run(0, 50);
+
+        assertTrue(report.getAdmissions(Role.READER) + report.getAdmissions(Role.WRITER) >= 50);
+        assertTrue(report.getElapsedNanos() < 10_000_000_000L);
+        assertEquals(0, library.getMetrics().getActive(Role.READER));
+        assertThrows(IllegalArgumentException.class, () -> newTest(library, 1, 1).run(0, 0));
+    }
+
+    private static LoadTest newTest(Library library, int readers, int writers) {
+        return new LoadTest("test", library, new ReaderFactory(Sampler.constant(2), Sampler.constant(3)), readers,
+                new WriterFactory(Sampler.constant(2), Sampler.constant(10)), writers,
+                ExecutionMode.VIRTUAL.executor());
+    }
+}
@@ -0,0 +1,58 @@
+package pl.edu.agh.kis.pz1.loadtest;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.AbstractLibrary;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.util.Sampler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link OpenLoopGenerator} and {@link OpenLoopResult} classes.
+ */
+class OpenLoopGeneratorTest {
+    private static final long MS = 1_000_000;
+
+    /**
+     * Test that an unloaded library gets requests at the target rate and serves them without waiting.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testIssuesAtRate() throws InterruptedException {
+        AbstractLibrary library = (AbstractLibrary) LibraryType.AQS.create(LibraryEventListener.NONE);
+        OpenLoopResult result = new OpenLoopGenerator(library, ArrivalProcess.poisson(500), 0,
+                Sampler.constant(1), Sampler.constant(1)).run(1000);
+
+        long issued = result.getIssued();
+        assertTrue(issued > 350 && issued < 650, "About 500 requests, got " + issued);
+        assertEquals(issued, result.getResponses(Role.READER).getCount());
+        assertEquals(0, result.getWaits(Role.WRITER).getCount());
+        assertTrue(result.getWaits(Role.READER).getQuantile(0.5) < 20 * MS);
+        assertTrue(library.getReaders().isEmpty());
+        assertTrue(result.toString().contains("dispatch"));
+    }
+
+    /**
+     * Test that requests keep arriving when the library saturates, so the waits measured from the intended start grow
+     * instead of the load dropping.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testSaturationIsMeasured() throws InterruptedException {
+        AbstractLibrary library = (AbstractLibrary) LibraryType.SEMAPHORE.create(LibraryEventListener.NONE);
+        OpenLoopResult result = new OpenLoopGenerator(library, ArrivalProcess.poisson(200), 1,
+                Sampler.constant(10), Sampler.constant(10)).run(500);
+
+        long issued = result.getIssued();
+        assertTrue(issued > 60, "The rate does not drop when writers queue up, got " + issued);
+        assertEquals(issued, result.getResponses(Role.WRITER).getCount());
+        assertTrue(result.getMaxOutstanding() > 10, "Requests pile up, got " + result.getMaxOutstanding());
+        assertTrue(result.getWaits(Role.WRITER).getQuantile(0.99) > 200 * MS,
+                "Late writers waited about " + issued + " x 10 ms minus the run");
+        assertTrue(library.getAwaiting().isEmpty());
+    }
+}
@@ -0,0 +1,125 @@
+package pl.edu.agh.kis.pz1.log;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Writer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link EventLog} class.
+ */
+class EventLogTest {
+
+    /**
+     * Test that events are rendered by the consumer thread in the order they were logged.
+     */
+    @Test
+    void testEventsAreRenderedInOrder() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog log = new EventLog(new PrintStream(bytes));
+        Reader agent = new Reader(null, "agent1");
+
+        log.onEvent(System.nanoTime(), EventType.READ_REQUESTED, agent, 2, 0);
+        log.onEvent(System.nanoTime(), EventType.READ_STARTED, agent, 1, 3);
+        log.onEvent(System.nanoTime(), EventType.READ_STOPPED, agent, 1, 2);
+        log.close();
+
+        String output = bytes.toString();
+        int requested = output.indexOf("Reader agent1 requested access... (awaiting: 2)");
+        int started = output.indexOf("Reader agent1 started reading... (reading: 3)");
+        int stopped = output.indexOf("Reader agent1 stopped reading.");
+        assertTrue(requested >= 0 && requested < started && started < stopped, output);
+    }
+
+    /**
+     * Test that events below the configured level are not logged.
+     */
+    @Test
+    void testLevelFiltersRequests() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog log = new EventLog(new PrintStream(bytes), 16, LogLevel.INFO, 1, OverflowPolicy.BLOCK);
+        Writer agent = new Writer(null, "writer1");
+
+        log.onEvent(System.nanoTime(), EventType.WRITE_REQUESTED, agent, 0, 0);
+        log.onEvent(System.nanoTime(), EventType.WRITE_STARTED, agent, 0, 0);
+        log.close();
+
+        String output = bytes.toString();
+        assertFalse(output.contains("requested access"));
+        assertTrue(output.contains("Writer writer1 started writing..."));
+    }
+
+    /**
+     * Test that in drop mode a stalled consumer never blocks the agents, and the lost events are counted.
+     */
+    @Test
+    void testDropModeNeverBlocks() {
+        CountDownLatch unblock = new CountDownLatch(1);
+        OutputStream stalled = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        EventLog log = new EventLog(new PrintStream(stalled), 4, LogLevel.DEBUG, 1, OverflowPolicy.DROP);
+        Reader agent = new Reader(null, "reader1");
+
+        for (int i = 0; i < 1000; i++) {
+            log.onEvent(System.nanoTime(), EventType.READ_STARTED, agent, 0, 1);
+        }
+
+        assertEquals(4, log.getCapacity());
+        assertTrue(log.getDroppedCount() >= 1000 - 2 * log.getCapacity(), "Most events should have been dropped");
+        unblock.countDown();
+        log.close();
+    }
+
+    /**
+     * Test that a timed-out request is a warning, shown at the {@link LogLevel#WARN} level while entering and leaving
+     * are not.
+     */
+    @Test
+    void testTimeoutIsWarning() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog log = new EventLog(new PrintStream(bytes), 16, LogLevel.WARN, 1, OverflowPolicy.BLOCK);
+        Writer agent = new Writer(null, "writer1");
+
+        log.onEvent(System.nanoTime(), EventType.WRITE_REQUESTED, agent, 0, 0);
+        log.onEvent(System.nanoTime(), EventType.WRITE_TIMED_OUT, agent, 3, 0);
+        log.onEvent(System.nanoTime(), EventType.WRITE_STARTED, agent, 0, 0);
+        log.close();
+
+        String output = bytes.toString();
+        assertTrue(output.contains("Writer writer1 gave up waiting. (awaiting: 3)"), output);
+        assertFalse(output.contains("requested access") || output.contains("started writing"), output);
+    }
+
+    /**
+     * Test that closing the log from an interrupted thread still drains it and keeps the interrupt.
+     */
+    @Test
+    void testCloseKeepsInterrupt() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog log = new EventLog(new PrintStream(bytes));
+        Reader agent = new Reader(null, "agent1");
+
+        log.onEvent(System.nanoTime(), EventType.READ_STARTED, agent, 0, 1);
+        Thread.currentThread().interrupt();
+        log.close();
+
+        assertTrue(Thread.interrupted(), "The interrupt should be restored");
+        assertTrue(bytes.toString().contains("Reader agent1 started reading..."));
+    }
+}
@@ -0,0 +1,155 @@
+package pl.edu.agh.kis.pz1.log;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.AqsLibrary;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Writer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link EventPublisher} class.
+ */
+class EventPublisherTest {
+
+    /**
+     * Test that the events of a reader and a writer are published in order, followed by completion on close.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testPublishesTypedEvents() throws InterruptedException {
+        EventPublisher publisher = new EventPublisher();
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(recorder);
+        Library library = new AqsLibrary(publisher);
+        Reader reader = new Reader(library, "r");
+        Writer writer = new Writer(library, "w");
+
+        library.requestReading(reader);
+        library.startReading(reader);
+        library.stopReading(reader);
+        library.requestWriting(writer);
+        library.startWriting(writer);
+        library.stopWriting(writer);
+        publisher.close();
+
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(LibraryEvent.Requested.class, LibraryEvent.Admitted.class, LibraryEvent.Released.class,
+                        LibraryEvent.Requested.class, LibraryEvent.Admitted.class, LibraryEvent.ExclusiveBegin.class,
+                        LibraryEvent.ExclusiveEnd.class, LibraryEvent.Released.class),
+                recorder.events.stream().map(Object::getClass).toList());
+        assertEquals("w", recorder.events.get(5).agentName());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    /**
+     * Test that a writer giving up a timed request while a reader is inside is published as {@link
+     * LibraryEvent.TimedOut}.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testPublishesTimeout() throws InterruptedException {
+        EventPublisher publisher = new EventPublisher();
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(recorder);
+        Library library = new AqsLibrary(publisher);
+        Reader reader = new Reader(library, "r");
+        Writer writer = new Writer(library, "w");
+
+        library.requestReading(reader);
+        assertFalse(library.tryRequestWriting(writer, 10, TimeUnit.MILLISECONDS));
+        library.startReading(reader);
+        library.stopReading(reader);
+        publisher.close();
+
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(LibraryEvent.Requested.class, LibraryEvent.Requested.class, LibraryEvent.TimedOut.class,
+                        LibraryEvent.Admitted.class, LibraryEvent.Released.class),
+                recorder.events.stream().map(Object::getClass).toList());
+        assertEquals("w", recorder.events.get(2).agentName());
+    }
+
+    /**
+     * Test that only the requested events are delivered, that the rest waits in the bounded buffer and that events
+     * beyond the buffer are dropped instead of blocking the producer.
+     */
+    @Test
+    void testDemandAndBoundedBuffer() {
+        EventPublisher publisher = new EventPublisher(Runnable::run, 4);
+        Recorder recorder = new Recorder(2);
+        publisher.subscribe(recorder);
+        for (int i = 0; i < 10; i++) {
+            publisher.onEvent(i, EventType.READ_REQUESTED, null, 0, 0);
+        }
+
+        assertEquals(2, recorder.events.size());
+        assertEquals(4, publisher.getDroppedCount());
+        recorder.subscription.request(10);
+        assertEquals(6, recorder.events.size());
+        assertEquals(5, recorder.events.get(5).timestampNanos());
+    }
+
+    /**
+     * Test that a non-positive request ends the subscription with an error.
+     */
+    @Test
+    void testInvalidRequest() {
+        EventPublisher publisher = new EventPublisher(Runnable::run, 4);
+        Recorder recorder = new Recorder(0);
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, recorder.error.get());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    /**
+     * Subscriber recording what it receives, requesting a fixed number of events up front.
+     */
+    private static final class Recorder implements Flow.Subscriber<LibraryEvent> {
+        private final long initialDemand;
+        private final List<LibraryEvent> events = new ArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private volatile Flow.Subscription subscription;
+
+        Recorder(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(LibraryEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
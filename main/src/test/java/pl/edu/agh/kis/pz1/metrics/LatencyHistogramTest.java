@@ -0,0 +1,62 @@
+package pl.edu.agh.kis.pz1.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LatencyHistogram} class.
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Test that every value falls into a bucket whose bounds contain it.
+     */
+    @Test
+    void testBucketBoundsContainValues() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 1023, 1024, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS, "bucket of " + value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket), "upper bound of " + value);
+            if (bucket > 0) {
+                assertTrue(value > LatencyHistogram.upperBoundOf(bucket - 1), "lower bound of " + value);
+            }
+        }
+    }
+
+    /**
+     * Test that quantiles are within the relative error of the buckets.
+     */
+    @Test
+    void testQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMax());
+        assertEquals(500_500.0, histogram.getMean(), 1e-9);
+        long median = histogram.getQuantile(0.5);
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.125, "median " + median);
+        long p99 = histogram.getQuantile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 " + p99);
+        assertEquals(1_000_000L, histogram.getQuantile(1.0));
+    }
+
+    /**
+     * Test that counting below a power of two is exact.
+     */
+    @Test
+    void testCountAtMostPowerOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1023);
+        histogram.record(1024);
+        histogram.record(-5);
+
+        assertEquals(2, histogram.countAtMost(1023));
+        assertEquals(3, histogram.countAtMost(2047));
+        assertEquals(0, new LatencyHistogram().getQuantile(0.99));
+    }
+}
@@ -0,0 +1,102 @@
+package pl.edu.agh.kis.pz1.metrics;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.SemaphoreLibrary;
+import pl.edu.agh.kis.pz1.Writer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibraryMetrics} and {@link MetricsServer} classes.
+ */
+class LibraryMetricsTest {
+
+    /**
+     * Test that a library records requests, admissions and releases of both roles.
+     *
+     * @throws InterruptedException if interrupted while waiting for access
+     */
+    @Test
+    void testLibraryRecordsAdmissions() throws InterruptedException {
+        Library library = new SemaphoreLibrary(LibraryEventListener.NONE);
+        Reader reader = new Reader(library, "reader");
+        Writer writer = new Writer(library, "writer");
+
+        library.requestReading(reader);
+        library.startReading(reader);
+        assertEquals(1, library.getMetrics().getOccupancy());
+        library.stopReading(reader);
+        library.requestWriting(writer);
+        library.startWriting(writer);
+        assertEquals(1, library.getMetrics().getActive(Role.WRITER));
+        library.stopWriting(writer);
+
+        LibraryMetrics metrics = library.getMetrics();
+        for (Role role : Role.values()) {
+            assertEquals(1, metrics.getRequests(role));
+            assertEquals(1, metrics.getAdmissions(role));
+            assertEquals(0, metrics.getActive(role));
+            assertEquals(1, metrics.getWaitHistogram(role).getCount());
+            assertEquals(1, metrics.getHoldHistogram(role).getCount());
+        }
+        assertTrue(reader.getAdmittedAtNanos() >= reader.getRequestedAtNanos());
+        assertEquals(0, metrics.getOccupancy());
+    }
+
+    /**
+     * Test the Prometheus text output.
+     */
+    @Test
+    void testPrometheusFormat() {
+        LibraryMetrics metrics = new LibraryMetrics(() -> 5, () -> 3, () -> 2);
+        metrics.recordRequest(Role.READER);
+        metrics.recordAdmission(Role.READER, 2_000_000L);
+        metrics.recordQueueDepth(4);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE library_queue_wait_seconds histogram"));
+        assertTrue(text.contains("library_admissions_total{role=\"reader\"} 1\n"));
+        assertTrue(text.contains("library_admissions_total{role=\"writer\"} 0\n"));
+        assertTrue(text.contains("library_capacity 5\n"));
+        assertTrue(text.contains("library_occupancy 3\n"));
+        assertTrue(text.contains("library_queue_depth 2\n"));
+        assertTrue(text.contains("library_queue_depth_max 4\n"));
+        assertTrue(text.contains("library_queue_wait_seconds_bucket{role=\"reader\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("library_queue_wait_seconds_count{role=\"reader\"} 1\n"));
+        assertTrue(text.contains("library_queue_wait_quantile_seconds{role=\"reader\",quantile=\"0.99\"}"));
+    }
+
+    /**
+     * Test that the metrics can be scraped over HTTP.
+     *
+     * @throws IOException if the server cannot be reached
+     */
+    @Test
+    void testServerServesMetrics() throws IOException {
+        LibraryMetrics metrics = new LibraryMetrics(() -> 5, () -> 0, () -> 0);
+        metrics.recordRequest(Role.WRITER);
+        try (MetricsServer server = new MetricsServer(metrics, 0)) {
+            URL url = new URL("http://localhost:" + server.getPort() + MetricsServer.PATH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("library_requests_total{role=\"writer\"} 1"));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package pl.edu.agh.kis.pz1.scenario;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.AbstractLibrary;
+import pl.edu.agh.kis.pz1.ExecutionMode;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.shard.KeyDistribution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ScenarioRunner} class.
+ */
+class ScenarioRunnerTest {
+
+    /**
+     * Test that the population and the capacity follow the phases and that every agent has left at the end.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testRunsPhases() throws InterruptedException {
+        Scenario scenario = Scenario.parse("""
+                phases=warmup,peak,cooldown
+                reader.active=const:2
+                reader.idle=const:5
+                writer.active=const:2
+                writer.idle=const:20
+                warmup.duration=300
+                warmup.readers=4
+                warmup.writers=1
+                peak.duration=400
+                peak.readers=12
+                peak.writers=3
+                peak.ramp=linear
+                peak.ramp-time=200
+                peak.capacity=8
+                cooldown.duration=300
+                cooldown.readers=2
+                cooldown.writers=0
+                cooldown.ramp=ease-out
+                """);
+        AbstractLibrary library = (AbstractLibrary) LibraryType.AQS.create(LibraryEventListener.NONE);
+        ScenarioRunner runner = new ScenarioRunner(library, scenario, ExecutionMode.VIRTUAL.executor(),
+                KeyDistribution.SINGLE);
+        List<String> seen = new ArrayList<>();
+        runner.run(phase -> seen.add(phase.name() + ":" + runner.getReaderCount() + "/" + runner.getWriterCount()
+                + "@" + library.getCapacity()));
+
+        assertEquals(List.of("warmup:0/0@5", "peak:4/1@5", "cooldown:12/3@8"), seen);
+        assertEquals(0, runner.getReaderCount());
+        assertEquals(0, runner.getWriterCount());
+        assertEquals(8, library.getCapacity());
+        assertTrue(library.getMetrics().getAdmissions(Role.WRITER) > 0);
+        assertEquals(0, library.getMetrics().getActive(Role.READER), "Every reader has left");
+        assertEquals(0, library.getMetrics().getActive(Role.WRITER), "Every writer has left");
+        assertTrue(library.getAwaiting().isEmpty());
+    }
+}
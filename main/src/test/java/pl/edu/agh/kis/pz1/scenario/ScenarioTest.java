@@ -0,0 +1,109 @@
+package pl.edu.agh.kis.pz1.scenario;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Scenario}, {@link Phase} and {@link Ramp} classes.
+ */
+class ScenarioTest {
+
+    /**
+     * Test that phases are read in order and carry over what they leave out from the previous phase.
+     */
+    @Test
+    void testParse() {
+        Scenario scenario = Scenario.parse("""
+                phases=night, morning ,storm
+                capacity=4
+                reader.active=const:7
+                night.duration=30s
+                night.readers=2
+                night.writers=1
+                morning.duration=2m
+                morning.readers=40
+                morning.ramp=ease-in
+                morning.capacity=10
+                storm.duration=1500ms
+                storm.writers=15
+                storm.ramp=linear
+                storm.ramp-time=500
+                storm.writer.idle=const:200
+                """);
+        List<Phase> phases = scenario.getPhases();
+        assertEquals(3, phases.size());
+        assertEquals(30_000 + 120_000 + 1500, scenario.getDurationMillis());
+
+        Phase night = phases.get(0);
+        assertEquals("night", night.name());
+        assertEquals(2, night.readers());
+        assertEquals(1, night.writers());
+        assertEquals(4, night.capacity());
+        assertEquals(Ramp.STEP, night.ramp());
+        assertEquals(0, night.rampMillis());
+
+        Phase morning = phases.get(1);
+        assertEquals("morning", morning.name());
+        assertEquals(1, morning.writers(), "Counts carry over");
+        assertEquals(Ramp.EASE_IN, morning.ramp());
+        assertEquals(120_000, morning.rampMillis(), "A curve spans the whole phase by default");
+        assertEquals(10, morning.capacity());
+
+        Phase storm = phases.get(2);
+        assertEquals(40, storm.readers());
+        assertEquals(15, storm.writers());
+        assertEquals(10, storm.capacity());
+        assertEquals(500, storm.rampMillis());
+        SplittableRandom random = new SplittableRandom(1);
+        assertEquals(7, storm.readerActive().sampleLong(random), "Distributions carry over");
+        assertEquals(200, storm.writerIdle().sampleLong(random));
+    }
+
+    /**
+     * Test that invalid scenarios are rejected.
+     */
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> Scenario.parse("night.duration=1s"));
+        assertThrows(IllegalArgumentException.class, () -> Scenario.parse("phases=night"));
+        assertThrows(IllegalArgumentException.class, () -> Scenario.parse("phases=a\na.duration=1x"));
+        assertThrows(IllegalArgumentException.class, () -> Scenario.parse("phases=a\na.duration=1s\na.readers=-1"));
+        assertThrows(IllegalArgumentException.class, () -> Scenario.parse("phases=a\na.duration=1s\na.ramp=zigzag"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Scenario.parse("phases=a\na.duration=1s\na.ramp=linear\na.ramp-time=2s"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Scenario.parse("phases=a\na.duration=1s\na.reader.idle=gauss:1"));
+    }
+
+    /**
+     * Test the durations and the counts along the ramps.
+     */
+    @Test
+    void testRamps() {
+        assertEquals(250, Scenario.parseDuration("250"));
+        assertEquals(250, Scenario.parseDuration("250ms"));
+        assertEquals(1500, Scenario.parseDuration("1.5s"));
+        assertEquals(120_000, Scenario.parseDuration("2m"));
+        assertEquals(3_600_000, Scenario.parseDuration("1h"));
+
+        for (Ramp ramp : Ramp.values()) {
+            assertEquals(1, ramp.progress(1), 1e-9, ramp.name());
+            assertEquals(1, ramp.progress(2), 1e-9, ramp.name());
+        }
+        assertEquals(0.5, Ramp.LINEAR.progress(0.5), 1e-9);
+        assertEquals(0.25, Ramp.EASE_IN.progress(0.5), 1e-9);
+        assertEquals(0.75, Ramp.EASE_OUT.progress(0.5), 1e-9);
+        assertEquals(0.5, Ramp.S_CURVE.progress(0.5), 1e-9);
+        assertEquals(Ramp.S_CURVE, Ramp.fromName("S-Curve"));
+
+        Phase down = Scenario.parse("phases=a,b\na.duration=1s\na.readers=20\nb.duration=1s\nb.readers=10\n"
+                + "b.ramp=linear").getPhases().get(1);
+        assertEquals(20, down.countAt(20, 10, 0));
+        assertEquals(15, down.countAt(20, 10, 500));
+        assertEquals(10, down.countAt(20, 10, 1000));
+    }
+}
@@ -0,0 +1,55 @@
+package pl.edu.agh.kis.pz1.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ConsistentHashRing} class.
+ */
+class ConsistentHashRingTest {
+
+    /**
+     * Test that keys are spread over all shards roughly evenly.
+     */
+    @Test
+    void testKeysAreBalanced() {
+        ConsistentHashRing ring = new ConsistentHashRing(8);
+        int[] counts = new int[8];
+        for (long key = 0; key < 80_000; key++) {
+            counts[ring.shardFor(key)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 6_000 && count < 14_000, "unbalanced shard with " + count + " keys");
+        }
+    }
+
+    /**
+     * Test that adding a shard only moves the keys that go to the new shard.
+     */
+    @Test
+    void testAddingShardMovesFewKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(4);
+        ConsistentHashRing after = new ConsistentHashRing(5);
+        int moved = 0;
+        for (long key = 0; key < 10_000; key++) {
+            int shard = after.shardFor(key);
+            if (shard != before.shardFor(key)) {
+                moved++;
+                assertEquals(4, shard, "a key moved between two old shards");
+            }
+        }
+        assertTrue(moved > 1_000 && moved < 3_500, moved + " keys moved");
+    }
+
+    /**
+     * Test that invalid rings are rejected and that a single shard gets every key.
+     */
+    @Test
+    void testSingleShardAndValidation() {
+        ConsistentHashRing ring = new ConsistentHashRing(1);
+        assertEquals(0, ring.shardFor(Long.MIN_VALUE));
+        assertEquals(0, ring.shardFor(42));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0));
+    }
+}
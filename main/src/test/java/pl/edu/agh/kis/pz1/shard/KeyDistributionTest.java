@@ -0,0 +1,71 @@
+package pl.edu.agh.kis.pz1.shard;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.util.NumUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link KeyDistribution} implementations.
+ */
+class KeyDistributionTest {
+
+    /**
+     * Test that a Zipf distribution favours the low keys and stays in range.
+     */
+    @Test
+    void testZipfIsSkewed() {
+        KeyDistribution zipf = KeyDistribution.zipf(100, 1.2);
+        int[] counts = new int[100];
+        for (int i = 0; i < 100_000; i++) {
+            long key = zipf.nextKey();
+            assertTrue(key >= 0 && key < 100);
+            counts[(int) key]++;
+        }
+        assertTrue(counts[0] > counts[1] && counts[1] > counts[10] && counts[10] > counts[99]);
+        assertTrue(counts[0] > 20_000, "key 0 drawn only " + counts[0] + " times");
+    }
+
+    /**
+     * Test that a hot spot gets the requested share of the keys.
+     */
+    @Test
+    void testHotspotShare() {
+        KeyDistribution hotspot = KeyDistribution.hotspot(100, 5, 0.8);
+        int hot = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (hotspot.nextKey() < 5) {
+                hot++;
+            }
+        }
+        assertEquals(0.8, hot / 100_000.0, 0.02);
+    }
+
+    /**
+     * Test the textual form of the distributions.
+     */
+    @Test
+    void testParse() {
+        assertSame(KeyDistribution.SINGLE, KeyDistribution.parse("single", 10));
+        long key = KeyDistribution.parse("uniform", 10).nextKey();
+        assertTrue(key >= 0 && key < 10);
+        assertNotNull(KeyDistribution.parse("zipf:0.9", 10));
+        assertNotNull(KeyDistribution.parse("hotspot:2:0.5", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("zipf:x", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("normal", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.uniform(0));
+    }
+
+    /**
+     * Test that keys repeat when the master seed of {@link NumUtils} is set again.
+     */
+    @Test
+    void testSeeded() {
+        KeyDistribution zipf = KeyDistribution.zipf(1000, 1.0);
+        NumUtils.setSeed(5);
+        long[] first = {zipf.nextKey(), zipf.nextKey(), zipf.nextKey()};
+        NumUtils.setSeed(5);
+
+        assertArrayEquals(first, new long[]{zipf.nextKey(), zipf.nextKey(), zipf.nextKey()});
+    }
+}
@@ -0,0 +1,124 @@
+package pl.edu.agh.kis.pz1.shard;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.Lease;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.LibraryType;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.Writer;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ShardedLibrary} class.
+ */
+class ShardedLibraryTest {
+
+    /**
+     * Test that writers on keys of different rooms write at the same time, while a reader on the key of a busy room
+     * has to wait and shows in the maximum queue depth of the whole library.
+     *
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    @Test
+    void testRoomsAreIndependent() throws InterruptedException {
+        ShardedLibrary library = new ShardedLibrary(LibraryType.AQS, 4, 2, LibraryEventListener.NONE);
+        Writer first = new Writer(library, "w1");
+        Writer second = new Writer(library, "w2");
+        first.setResourceKey(0);
+        second.setResourceKey(keyInOtherRoom(library, first));
+
+        library.requestWriting(first);
+        library.startWriting(first);
+        Thread writing = new Thread(() -> {
+            try {
+                library.requestWriting(second);
+                library.startWriting(second);
+                library.stopWriting(second);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writing.start();
+        writing.join(5_000);
+        assertFalse(writing.isAlive(), "a writer in another room had to wait");
+
+        Reader blocked = new Reader(library, "r");
+        blocked.setResourceKey(first.getResourceKey());
+        Thread reading = new Thread(() -> {
+            try {
+                library.requestReading(blocked);
+                library.startReading(blocked);
+                library.stopReading(blocked);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reading.start();
+        reading.join(100);
+        assertTrue(reading.isAlive(), "a reader entered a room with a writer inside");
+        library.stopWriting(first);
+        reading.join(5_000);
+        assertFalse(reading.isAlive());
+
+        assertEquals(2, library.getMetrics().getAdmissions(Role.WRITER));
+        assertEquals(1, library.getMetrics().getAdmissions(Role.READER));
+        assertEquals(0, library.getMetrics().getOccupancy());
+        assertEquals(1, library.getMetrics().getMaxQueueDepth(), "The reader queued in its room");
+    }
+
+    /**
+     * Test that the capacity is the total of the rooms and is spread evenly when resized.
+     */
+    @Test
+    void testCapacityIsTotal() {
+        ShardedLibrary library = new ShardedLibrary(LibraryType.SEMAPHORE, 3, 2, LibraryEventListener.NONE);
+        assertEquals(6, library.getCapacity());
+
+        library.resize(10);
+        assertEquals(10, library.getCapacity());
+        assertEquals(4, library.getRoom(0).getCapacity());
+        assertEquals(3, library.getRoom(2).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> library.resize(2));
+    }
+
+    /**
+     * Test that asynchronous requests are routed to the room of their key and cancelled there.
+     *
+     * @throws Exception if a lease cannot be obtained
+     */
+    @Test
+    void testAsyncRequestsAreRouted() throws Exception {
+        ShardedLibrary library = new ShardedLibrary(LibraryType.AQS, 2, 1, LibraryEventListener.NONE);
+        Writer writer = new Writer(library, "w");
+        Lease writing = library.requestWritingAsync(writer).get();
+        Reader sameRoom = new Reader(library, "r1");
+        Reader otherRoom = new Reader(library, "r2");
+        otherRoom.setResourceKey(keyInOtherRoom(library, writer));
+
+        CompletableFuture<Lease> waiting = library.requestReadingAsync(sameRoom);
+        assertFalse(waiting.isDone());
+        library.requestReadingAsync(otherRoom).get().close();
+        assertTrue(waiting.cancel(false));
+        writing.close();
+
+        Lease again = library.requestReadingAsync(sameRoom).get();
+        again.close();
+        assertEquals(3, library.getMetrics().getAdmissions(Role.READER) + library.getMetrics().getAdmissions(Role.WRITER));
+        assertEquals(0, library.getMetrics().getOccupancy());
+    }
+
+    private static long keyInOtherRoom(ShardedLibrary library, Writer writer) {
+        int room = library.shardOf(writer);
+        Writer probe = new Writer(library, "probe");
+        for (long key = 1; ; key++) {
+            probe.setResourceKey(key);
+            if (library.shardOf(probe) != room) {
+                return key;
+            }
+        }
+    }
+}
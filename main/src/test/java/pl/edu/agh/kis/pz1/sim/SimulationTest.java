@@ -0,0 +1,55 @@
+package pl.edu.agh.kis.pz1.sim;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Simulation} class.
+ */
+class SimulationTest {
+
+    /**
+     * Test that two runs with the same seed produce exactly the same statistics, and a different seed does not.
+     */
+    @Test
+    void testRunsAreDeterministic() {
+        SimulationResult first = new Simulation(10, 3, 5, 7).run(600_000);
+        SimulationResult second = new Simulation(10, 3, 5, 7).run(600_000);
+        SimulationResult other = new Simulation(10, 3, 5, 8).run(600_000);
+
+        assertEquals(first.getEventsProcessed(), second.getEventsProcessed());
+        assertEquals(first.getReaderStats().getAdmissions(), second.getReaderStats().getAdmissions());
+        assertEquals(first.getWriterStats().getWaitQuantile(0.99), second.getWriterStats().getWaitQuantile(0.99));
+        assertEquals(first.getUtilization(), second.getUtilization());
+        assertNotEquals(first.getEventsProcessed(), other.getEventsProcessed());
+    }
+
+    /**
+     * Test that an hour of simulated traffic with a thousand agents runs much faster than real time.
+     */
+    @Test
+    void testHourOfTrafficRunsInSeconds() {
+        SimulationResult result = new Simulation(1000, 50, 5, 1).run(3_600_000);
+
+        assertEquals(3_600_000, result.getSimulatedMillis());
+        assertTrue(result.getWallClockNanos() < 30_000_000_000L, "Simulation should not take real time");
+        assertTrue(result.getReaderStats().getAdmissions() > 0);
+        assertTrue(result.getWriterStats().getAdmissions() > 0);
+        assertTrue(result.getUtilization() > 0.9, "A thousand readers should keep the room busy");
+    }
+
+    /**
+     * Test that a lone reader never waits and keeps its single place busy for the expected fraction of time.
+     */
+    @Test
+    void testSingleReader() {
+        AgentTiming timing = new AgentTiming(1000, 1000, 1000, 1000);
+        SimulationResult result = new Simulation(1, 0, 5, timing, timing, 3).run(9_999);
+
+        assertEquals(5, result.getReaderStats().getAdmissions());
+        assertEquals(0, result.getReaderStats().getWaitQuantile(1.0));
+        assertEquals(0.1, result.getUtilization(), 1e-3);
+        assertEquals(1000.0, result.getReaderStats().getMeanHold());
+    }
+}
@@ -0,0 +1,144 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.AqsLibrary;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.Library;
+import pl.edu.agh.kis.pz1.Reader;
+import pl.edu.agh.kis.pz1.Role;
+import pl.edu.agh.kis.pz1.Writer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link TraceRecorder} and {@link TraceReader} classes.
+ */
+class TraceRecorderTest {
+
+    /**
+     * Test that the events of a library are read back with their agent, role, type and counters.
+     *
+     * @param directory a temporary directory for the trace
+     * @throws IOException          if the trace cannot be written or read
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testRoundTrip(@TempDir Path directory) throws IOException, InterruptedException {
+        TraceRecorder recorder = new TraceRecorder(directory);
+        Library library = new AqsLibrary(recorder);
+        Reader reader = new Reader(library, "r");
+        Writer writer = new Writer(library, "w");
+
+        library.requestReading(reader);
+        library.startReading(reader);
+        library.stopReading(reader);
+        library.requestWriting(writer);
+        library.startWriting(writer);
+        library.stopWriting(writer);
+        recorder.close();
+
+        List<TraceRecord> records = TraceReader.readAll(directory);
+        assertEquals(List.of(EventType.READ_REQUESTED, EventType.READ_STARTED, EventType.READ_STOPPED,
+                EventType.WRITE_REQUESTED, EventType.WRITE_STARTED, EventType.WRITE_STOPPED),
+                records.stream().map(TraceRecord::type).toList());
+        assertEquals(reader.getId(), records.get(1).agentId());
+        assertEquals(Role.READER, records.get(1).role());
+        assertEquals(1, records.get(1).occupancy());
+        assertEquals(writer.getId(), records.get(4).agentId());
+        assertEquals(Role.WRITER, records.get(4).role());
+        assertTrue(records.get(0).timestampNanos() <= records.get(5).timestampNanos());
+    }
+
+    /**
+     * Test that full segments are rolled over and that only the most recent ones are kept.
+     *
+     * @param directory a temporary directory for the trace
+     * @throws IOException if the trace cannot be written or read
+     */
+    @Test
+    void testRollsAndRetainsSegments(@TempDir Path directory) throws IOException {
+        // Room for four records per segment, the extra bytes are rounded away
+        long segmentSize = TraceRecorder.HEADER_SIZE + 4L * TraceRecorder.RECORD_SIZE;
+        TraceRecorder recorder = new TraceRecorder(directory, segmentSize + 7, 2);
+        for (int i = 0; i < 10; i++) {
+            recorder.onEvent(i, EventType.READ_REQUESTED, null, i, 0);
+        }
+        recorder.close();
+
+        assertEquals(2, recorder.getSegmentIndex());
+        assertEquals(List.of(TraceRecorder.segmentName(1), TraceRecorder.segmentName(2)),
+                TraceReader.segments(directory).stream().map(file -> file.getFileName().toString()).toList());
+        assertEquals(segmentSize, Files.size(directory.resolve(TraceRecorder.segmentName(2))));
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L),
+                TraceReader.readAll(directory).stream().map(TraceRecord::timestampNanos).toList());
+        assertEquals(0, recorder.getDroppedCount());
+    }
+
+    /**
+     * Test that no record is lost or torn when many threads record at once across segment boundaries.
+     *
+     * @param directory a temporary directory for the trace
+     * @throws Exception if the trace cannot be written or read or a thread is interrupted
+     */
+    @Test
+    void testConcurrentRecording(@TempDir Path directory) throws Exception {
+        int threads = 8;
+        int events = 5_000;
+        TraceRecorder recorder = new TraceRecorder(directory, 64 * 1024, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < events; i++) {
+                    recorder.onEvent(i, EventType.WRITE_STARTED, null, thread, i);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        recorder.close();
+
+        List<TraceRecord> records = TraceReader.readAll(directory);
+        assertEquals(threads * events, records.size());
+        assertTrue(recorder.getSegmentIndex() > 0);
+        assertTrue(records.stream().allMatch(r -> r.type() == EventType.WRITE_STARTED && r.role() == Role.WRITER
+                && r.timestampNanos() == r.occupancy()));
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            assertEquals(events, records.stream().filter(r -> r.queueDepth() == thread).count());
+        }
+    }
+
+    /**
+     * Test that events reported after closing are counted as dropped.
+     *
+     * @param directory a temporary directory for the trace
+     * @throws IOException if the trace cannot be written or read
+     */
+    @Test
+    void testDropsAfterClose(@TempDir Path directory) throws IOException {
+        TraceRecorder recorder = new TraceRecorder(directory);
+        recorder.close();
+        recorder.onEvent(0, EventType.READ_REQUESTED, null, 0, 0);
+
+        assertEquals(1, recorder.getDroppedCount());
+        assertTrue(TraceReader.readAll(directory).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package pl.edu.agh.kis.pz1.trace;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.AqsLibrary;
+import pl.edu.agh.kis.pz1.EventType;
+import pl.edu.agh.kis.pz1.LibraryEventListener;
+import pl.edu.agh.kis.pz1.Role;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link TraceReplay} and {@link ReplayResult} classes.
+ */
+class TraceReplayTest {
+    private static final long MS = 1_000_000;
+
+    /**
+     * Test that a trace is cut into visits and that a writer waiting behind a reader in the trace waits again in the
+     * replay.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testReplaysVisits() throws InterruptedException {
+        List<TraceRecord> records = new ArrayList<>();
+        visit(records, 1, Role.READER, 0, 0, 50);
+        visit(records, 2, Role.READER, 10, 10, 40);
+        visit(records, 3, Role.WRITER, 20, 50, 70);
+        records.add(new TraceRecord(30 * MS, 4, Role.READER, EventType.READ_REQUESTED, 1, 0));
+        TraceReplay replay = new TraceReplay(records.reversed());
+
+        assertEquals(3, replay.getVisitCount());
+        assertEquals(1, replay.getIncompleteCount());
+        assertEquals(20 * MS, replay.getSpanNanos());
+
+        ReplayResult result = replay.run(new AqsLibrary(LibraryEventListener.NONE));
+        assertEquals(2, result.getReplayedWaits(Role.READER).getCount());
+        assertEquals(1, result.getReplayedWaits(Role.WRITER).getCount());
+        assertEquals(30 * MS, result.getOriginalWaits(Role.WRITER).getMax());
+        assertTrue(result.getReplayedWaits(Role.WRITER).getMax() >= 25 * MS);
+        assertTrue(result.toString().contains("replay"));
+    }
+
+    /**
+     * Test that arrivals are not held back by a slower engine: readers that overlapped in the trace queue up in a
+     * library with a single place, and their waits grow.
+     *
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    @Test
+    void testOpenLoopBuildsQueue() throws InterruptedException {
+        List<TraceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            visit(records, i + 1, Role.READER, i, i, i + 30);
+        }
+        ReplayResult result = new TraceReplay(records).run(new AqsLibrary(LibraryEventListener.NONE, 1));
+
+        assertEquals(0, result.getOriginalWaits(Role.READER).getMax());
+        assertTrue(result.getReplayedWaits(Role.READER).getMax() >= 50 * MS);
+        assertTrue(result.getWaitDifference(Role.READER, 1.0) > 0);
+        assertEquals(2, result.getMaxQueueDepth());
+    }
+
+    private static void visit(List<TraceRecord> records, int agent, Role role, long requestMs, long startMs,
+                              long stopMs) {
+        boolean reader = role == Role.READER;
+        records.add(new TraceRecord(requestMs * MS, agent, role,
+                reader ? EventType.READ_REQUESTED : EventType.WRITE_REQUESTED, 0, 0));
+        records.add(new TraceRecord(startMs * MS, agent, role,
+                reader ? EventType.READ_STARTED : EventType.WRITE_STARTED, 0, 0));
+        records.add(new TraceRecord(stopMs * MS, agent, role,
+                reader ? EventType.READ_STOPPED : EventType.WRITE_STOPPED, 0, 0));
+    }
+}
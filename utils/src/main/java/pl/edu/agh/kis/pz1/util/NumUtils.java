@@ -3,15 +3,74 @@
  */
 package pl.edu.agh.kis.pz1.util;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * The NumUtils class contains utility methods for generating random numbers.
+ * <p>
+ * All randomness is derived from one master seed, set with {@link #setSeed(long)}, so a run can be reproduced. Every
+ * thread draws from its own {@link SplittableRandom} ({@link #current()}), split off the master stream the first time
+ * the thread needs one, and nothing is allocated per draw. Since the order in which threads first draw depends on the
+ * scheduler, code that must be reproducible under concurrency takes a numbered stream instead
+ * ({@link #stream(long)}), which depends only on the master seed and its number. Together with {@link Sampler} this
+ * gives the workload distributions of the simulated agents.
+ * </p>
  */
 public class NumUtils {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static volatile Streams streams = new Streams(System.nanoTime());
+    private static final ThreadLocal<ThreadStream> THREAD_STREAM = new ThreadLocal<>();
+
+    private NumUtils() {
+    }
 
     /**
-     * Generates a random integer between the specified bounds (inclusive).
+     * Sets the master seed. Threads get fresh streams derived from it on their next draw.
+     *
+     * @param seed the master seed
+     */
+    public static void setSeed(long seed) {
+        streams = new Streams(seed);
+    }
+
+    /**
+     * Retrieves the master seed.
+     *
+     * @return the seed set with {@link #setSeed(long)}, or the one chosen at startup.
+     */
+    public static long getSeed() {
+        return streams.seed;
+    }
+
+    /**
+     * Returns the random stream of the calling thread. It must not be handed to other threads.
+     *
+     * @return the stream of the current thread, derived from the master seed.
+     */
+    public static SplittableRandom current() {
+        Streams master = streams;
+        ThreadStream stream = THREAD_STREAM.get();
+        if (stream == null || stream.master != master) {
+            stream = new ThreadStream(master, master.split());
+            THREAD_STREAM.set(stream);
+        }
+        return stream.random;
+    }
+
+    /**
+     * Returns a new random stream that depends only on the master seed and a number, for example the id of an agent,
+     * so it yields the same values in every run with the same seed whatever the thread scheduling.
+     *
+     * @param index the number of the stream
+     * @return a new stream.
+     */
+    public static SplittableRandom stream(long index) {
+        return new SplittableRandom(mix(streams.seed + GOLDEN_GAMMA * (index + 1)));
+    }
+
+    /**
+     * Generates a random integer between the specified bounds (inclusive), from the stream of the calling thread.
      *
      * @param a the lower bound of the range (inclusive).
      * @param b the upper bound of the range (inclusive).
@@ -19,10 +78,61 @@ public class NumUtils {
      * @throws IllegalArgumentException if {@code a} is greater than {@code b}.
      */
     public static int randIntBetween(int a, int b) {
+        return randIntBetween(current(), a, b);
+    }
+
+    /**
+     * Generates a random integer between the specified bounds (inclusive).
+     *
+     * @param random the stream to draw from.
+     * @param a      the lower bound of the range (inclusive).
+     * @param b      the upper bound of the range (inclusive).
+     * @return a random integer between {@code a} and {@code b} (inclusive).
+     * @throws IllegalArgumentException if {@code a} is greater than {@code b}.
+     */
+    public static int randIntBetween(SplittableRandom random, int a, int b) {
         if (a > b) {
             throw new IllegalArgumentException("Lower bound must not be greater than upper bound.");
         }
-        Random r = new Random();
-        return r.nextInt(b - a + 1) + a;
+        return (int) random.nextLong(a, (long) b + 1);
+    }
+
+    /**
+     * The finalizer of SplitMix64, spreading nearby seeds over the whole range.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The master stream of one seed; threads split their streams off it.
+     */
+    private static final class Streams {
+        private final long seed;
+        private final SplittableRandom master;
+
+        Streams(long seed) {
+            this.seed = seed;
+            this.master = new SplittableRandom(seed);
+        }
+
+        synchronized SplittableRandom split() {
+            return master.split();
+        }
+    }
+
+    /**
+     * The stream of a thread, remembering which master seed it was derived from.
+     */
+    private static final class ThreadStream {
+        private final Streams master;
+        private final SplittableRandom random;
+
+        ThreadStream(Streams master, SplittableRandom random) {
+            this.master = master;
+            this.random = random;
+        }
     }
 }
@@ -0,0 +1,247 @@
+package pl.edu.agh.kis.pz1.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * A probability distribution of durations or counts, drawn from a random stream given by the caller (see
+ * {@link NumUtils}), so that the same stream always yields the same values. Drawing allocates nothing.
+ * <p>
+ * The distributions model workloads: {@link #uniform uniform} ranges as used by the original agents,
+ * {@link #exponential exponential} times between independent events, heavy-tailed {@link #pareto Pareto} and
+ * {@link #logNormal log-normal} hold times, {@link #poisson Poisson} counts, and {@link #empirical empirical}
+ * histograms taken from measurements.
+ * </p>
+ */
+@FunctionalInterface
+public interface Sampler {
+
+    /**
+     * Draws a value.
+     *
+     * @param random the stream to draw from
+     * @return the value
+     */
+    double sample(SplittableRandom random);
+
+    /**
+     * Draws a value rounded to the nearest whole number and never below 0, for example a duration in milliseconds.
+     *
+     * @param random the stream to draw from
+     * @return the rounded value
+     */
+    default long sampleLong(SplittableRandom random) {
+        return Math.max(0, Math.round(sample(random)));
+    }
+
+    /**
+     * Returns this distribution with its values limited to a range, to keep heavy tails finite.
+     *
+     * @param min the smallest value returned
+     * @param max the largest value returned
+     * @return the clamped distribution
+     * @throws IllegalArgumentException if {@code min} is greater than {@code max}
+     */
+    default Sampler clamp(double min, double max) {
+        if (!(min <= max)) {
+            throw new IllegalArgumentException("Lower bound must not be greater than upper bound.");
+        }
+        return random -> Math.min(max, Math.max(min, sample(random)));
+    }
+
+    /**
+     * Returns a distribution always yielding the same value.
+     *
+     * @param value the value
+     * @return the constant distribution
+     */
+    static Sampler constant(double value) {
+        return random -> value;
+    }
+
+    /**
+     * Returns a distribution of whole numbers from {@code min} to {@code max}, all equally likely, like
+     * {@link NumUtils#randIntBetween(int, int)}.
+     *
+     * @param min the lower bound (inclusive)
+     * @param max the upper bound (inclusive)
+     * @return the uniform distribution
+     * @throws IllegalArgumentException if {@code min} is greater than {@code max}
+     */
+    static Sampler uniform(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Lower bound must not be greater than upper bound.");
+        }
+        return random -> random.nextLong(min, (long) max + 1);
+    }
+
+    /**
+     * Returns an exponential distribution, the time between events arriving independently at a constant rate.
+     *
+     * @param mean the mean, positive
+     * @return the exponential distribution
+     * @throws IllegalArgumentException if {@code mean} is not positive
+     */
+    static Sampler exponential(double mean) {
+        checkPositive("mean", mean);
+        return random -> mean * random.nextExponential();
+    }
+
+    /**
+     * Returns a Pareto distribution: values start at {@code scale} and the chance of exceeding {@code x} falls as
+     * {@code (scale / x)^shape}. The mean is infinite for a shape up to 1 and the variance for a shape up to 2.
+     *
+     * @param scale the smallest value, positive
+     * @param shape the tail index, positive; smaller means a heavier tail
+     * @return the Pareto distribution
+     * @throws IllegalArgumentException if a parameter is not positive
+     */
+    static Sampler pareto(double scale, double shape) {
+        checkPositive("scale", scale);
+        checkPositive("shape", shape);
+        return random -> scale / Math.pow(1 - random.nextDouble(), 1 / shape);
+    }
+
+    /**
+     * Returns a log-normal distribution: the logarithm of the value is normal with mean {@code mu} and standard
+     * deviation {@code sigma}, so the median is {@code e^mu}.
+     *
+     * @param mu    the mean of the logarithm
+     * @param sigma the standard deviation of the logarithm, not negative
+     * @return the log-normal distribution
+     * @throws IllegalArgumentException if {@code sigma} is negative
+     */
+    static Sampler logNormal(double mu, double sigma) {
+        if (!(sigma >= 0)) {
+            throw new IllegalArgumentException("sigma must not be negative, got " + sigma);
+        }
+        return random -> Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    /**
+     * Returns a Poisson distribution, the number of independent events in a fixed time. Small means are drawn exactly
+     * by multiplying uniform numbers; from a mean of 64 on the normal approximation is used.
+     *
+     * @param mean the mean, positive
+     * @return the Poisson distribution
+     * @throws IllegalArgumentException if {@code mean} is not positive
+     */
+    static Sampler poisson(double mean) {
+        checkPositive("mean", mean);
+        if (mean >= 64) {
+            double deviation = Math.sqrt(mean);
+            return random -> Math.max(0, Math.round(mean + deviation * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        return random -> {
+            int count = 0;
+            double product = random.nextDouble();
+            while (product > limit) {
+                count++;
+                product *= random.nextDouble();
+            }
+            return count;
+        };
+    }
+
+    /**
+     * Returns the distribution of a histogram: a bucket is chosen with probability proportional to its count, then a
+     * value is drawn uniformly inside it.
+     *
+     * @param bounds the bounds of the buckets in increasing order, one more than there are counts; bucket {@code i}
+     *               spans {@code bounds[i]} to {@code bounds[i + 1]}
+     * @param counts the number of observations in each bucket, not negative and not all zero
+     * @return the empirical distribution
+     * @throws IllegalArgumentException if the lengths do not match, the bounds decrease or the counts are invalid
+     */
+    static Sampler empirical(double[] bounds, long[] counts) {
+        if (counts.length == 0 || bounds.length != counts.length + 1) {
+            throw new IllegalArgumentException("Expected " + (counts.length + 1) + " bounds, got " + bounds.length);
+        }
+        double[] edges = bounds.clone();
+        double[] cumulative = new double[counts.length];
+        double total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < 0 || !(edges[i] <= edges[i + 1])) {
+                throw new IllegalArgumentException("Invalid bucket " + i + " of the histogram");
+            }
+            total += counts[i];
+            cumulative[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The histogram is empty");
+        }
+        double sum = total;
+        return random -> {
+            double u = random.nextDouble() * sum;
+            int bucket = Arrays.binarySearch(cumulative, u);
+            bucket = bucket >= 0 ? bucket + 1 : -bucket - 1;
+            while (counts[bucket] == 0) {  // u equal to a cumulative count lands on the next non-empty bucket
+                bucket++;
+            }
+            return edges[bucket] + random.nextDouble() * (edges[bucket + 1] - edges[bucket]);
+        };
+    }
+
+    /**
+     * Parses a distribution from its command-line form: {@code const:V}, {@code uniform:MIN:MAX}, {@code exp:MEAN},
+     * {@code pareto:SCALE:SHAPE}, {@code lognormal:MU:SIGMA} or {@code poisson:MEAN}, optionally followed by
+     * {@code :max=LIMIT} to clamp the values to {@code [0, LIMIT]}.
+     *
+     * @param spec the textual form
+     * @return the distribution
+     * @throws IllegalArgumentException if the text is not a valid distribution
+     */
+    static Sampler parse(String spec) {
+        String[] parts = spec.toLowerCase(Locale.ROOT).split(":");
+        int arguments = parts.length - 1;
+        double limit = Double.NaN;
+        if (arguments > 0 && parts[arguments].startsWith("max=")) {
+            limit = parseNumber(spec, parts[arguments].substring(4));
+            arguments--;
+        }
+        double[] values = new double[arguments];
+        for (int i = 0; i < arguments; i++) {
+            values[i] = parseNumber(spec, parts[i + 1]);
+        }
+        Sampler sampler;
+        switch (parts[0] + "/" + arguments) {
+            case "const/1":
+                sampler = constant(values[0]);
+                break;
+            case "uniform/2":
+                sampler = uniform((int) values[0], (int) values[1]);
+                break;
+            case "exp/1":
+                sampler = exponential(values[0]);
+                break;
+            case "pareto/2":
+                sampler = pareto(values[0], values[1]);
+                break;
+            case "lognormal/2":
+                sampler = logNormal(values[0], values[1]);
+                break;
+            case "poisson/1":
+                sampler = poisson(values[0]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + spec);
+        }
+        return Double.isNaN(limit) ? sampler : sampler.clamp(0, limit);
+    }
+
+    private static double parseNumber(String spec, String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid distribution: " + spec, e);
+        }
+    }
+
+    private static void checkPositive(String name, double value) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException(name + " must be positive, got " + value);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package pl.edu.agh.kis.pz1.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.SplittableRandom;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class NumUtilsTest {
@@ -60,4 +62,39 @@ class NumUtilsTest {
         assertTrue(result1 == 0 || result1 == 1, "Result should be either 0 or 1");
         assertTrue(result2 == 0 || result2 == 1, "Result should be either 0 or 1");
     }
+
+    // Test for randIntBetween() with the widest possible range
+    @Test
+    void testRandIntBetween_fullRange() {
+        int result = NumUtils.randIntBetween(Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+
+        assertTrue(result >= Integer.MAX_VALUE - 1, "Result should not overflow");
+        assertThrows(IllegalArgumentException.class, () -> NumUtils.randIntBetween(2, 1));
+    }
+
+    // Test that numbered streams depend only on the master seed and their number
+    @Test
+    void testStream_reproducible() {
+        NumUtils.setSeed(42);
+        long first = NumUtils.stream(7).nextLong();
+        long other = NumUtils.stream(8).nextLong();
+        NumUtils.setSeed(42);
+
+        assertEquals(42, NumUtils.getSeed());
+        assertEquals(first, NumUtils.stream(7).nextLong(), "The same seed and number should give the same stream");
+        assertNotEquals(first, other, "Different numbers should give different streams");
+    }
+
+    // Test that the stream of a thread is kept between calls and replaced when the seed changes
+    @Test
+    void testCurrent_followsSeed() {
+        NumUtils.setSeed(1);
+        SplittableRandom random = NumUtils.current();
+        long first = random.nextLong();
+
+        assertSame(random, NumUtils.current(), "A thread should keep its stream");
+        NumUtils.setSeed(1);
+        assertNotSame(random, NumUtils.current(), "A new seed should give the thread a new stream");
+        assertEquals(first, NumUtils.current().nextLong(), "The first thread to draw should get the same stream");
+    }
 }
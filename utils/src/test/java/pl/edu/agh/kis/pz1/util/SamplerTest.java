@@ -0,0 +1,87 @@
+package pl.edu.agh.kis.pz1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplerTest {
+    private static final int DRAWS = 200_000;
+
+    // Mean of many draws from a stream with a fixed seed
+    private static double mean(Sampler sampler) {
+        SplittableRandom random = new SplittableRandom(42);
+        double sum = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            sum += sampler.sample(random);
+        }
+        return sum / DRAWS;
+    }
+
+    // Test that the distributions have the expected means
+    @Test
+    void testMeans() {
+        assertEquals(5, mean(Sampler.constant(5)), 1e-9);
+        assertEquals(15, mean(Sampler.uniform(10, 20)), 0.1);
+        assertEquals(100, mean(Sampler.exponential(100)), 1.5);
+        assertEquals(3, mean(Sampler.pareto(1, 1.5)), 0.3);  // scale * shape / (shape - 1)
+        assertEquals(Math.exp(0.125), mean(Sampler.logNormal(0, 0.5)), 0.02);
+        assertEquals(4, mean(Sampler.poisson(4)), 0.05);
+        assertEquals(1000, mean(Sampler.poisson(1000)), 1);
+    }
+
+    // Test that the same stream gives the same values
+    @Test
+    void testReproducible() {
+        Sampler sampler = Sampler.logNormal(7, 1);
+
+        assertEquals(sampler.sample(new SplittableRandom(3)), sampler.sample(new SplittableRandom(3)));
+    }
+
+    // Test that a histogram is sampled within its non-empty buckets, in proportion to their counts
+    @Test
+    void testEmpirical() {
+        Sampler sampler = Sampler.empirical(new double[]{0, 10, 20, 100}, new long[]{1, 0, 3});
+        SplittableRandom random = new SplittableRandom(7);
+        int high = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            double value = sampler.sample(random);
+            assertFalse(value >= 10 && value < 20, "The empty bucket should never be drawn");
+            if (value >= 20) {
+                high++;
+            }
+        }
+
+        assertEquals(0.75, (double) high / DRAWS, 0.01);
+        assertThrows(IllegalArgumentException.class, () -> Sampler.empirical(new double[]{0, 1}, new long[]{0}));
+        assertThrows(IllegalArgumentException.class, () -> Sampler.empirical(new double[]{0}, new long[]{1}));
+    }
+
+    // Test that clamping and rounding keep heavy tails in range
+    @Test
+    void testClampAndRound() {
+        Sampler sampler = Sampler.pareto(1, 0.5).clamp(0, 50);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 1000; i++) {
+            long value = sampler.sampleLong(random);
+            assertTrue(value >= 1 && value <= 50);
+        }
+        assertEquals(0, Sampler.constant(-3).sampleLong(random));
+    }
+
+    // Test the command-line form of the distributions
+    @Test
+    void testParse() {
+        SplittableRandom random = new SplittableRandom(1);
+
+        assertEquals(250, Sampler.parse("const:250").sampleLong(random));
+        assertEquals(7, Sampler.parse("uniform:7:7").sampleLong(random));
+        assertTrue(Sampler.parse("pareto:500:0.8:max=2000").sample(random) <= 2000);
+        assertTrue(Sampler.parse("EXP:10").sample(random) >= 0);
+        assertThrows(IllegalArgumentException.class, () -> Sampler.parse("pareto:1"));
+        assertThrows(IllegalArgumentException.class, () -> Sampler.parse("gamma:1:2"));
+        assertThrows(IllegalArgumentException.class, () -> Sampler.parse("exp:abc"));
+        assertThrows(IllegalArgumentException.class, () -> Sampler.parse("exp:-1"));
+    }
+}